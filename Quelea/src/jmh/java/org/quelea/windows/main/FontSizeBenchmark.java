@@ -0,0 +1,161 @@
+/*
+ * This file is part of Quelea, free projection software for churches.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.quelea.windows.main;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javafx.application.Platform;
+import javafx.scene.text.Font;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.quelea.utils.FXFontMetrics;
+import org.quelea.utils.TextMetricsCache;
+
+/**
+ * Compares picking font sizes for the sample songs the old way, stepping down
+ * half a point at a time and measuring every line again at each size, with
+ * the binary search over cached, scaled measurements that's used now.
+ * <p>
+ * Run with {@code gradlew jmh}.
+ *
+ * @author Michael
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FontSizeBenchmark {
+
+    private static final double MAX_SIZE = 72;
+    private static final double WIDTH = 1728;
+    private static final double HEIGHT = 972;
+    private List<List<String>> sections;
+    private String fontName;
+
+    @Setup
+    public void setUp() throws IOException {
+        try {
+            Platform.startup(() -> {
+            });
+        } catch (IllegalStateException ex) {
+            //Already started
+        }
+        fontName = Font.getDefault().getName();
+        sections = readSections("hymns.txt");
+    }
+
+    @Benchmark
+    public double stepDown() {
+        double total = 0;
+        for (List<String> section : sections) {
+            total += stepFontSize(section);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double binarySearch() {
+        double total = 0;
+        for (List<String> section : sections) {
+            total += WordDrawer.searchFontSize(MAX_SIZE, size -> {
+                Font sized = new Font(fontName, size);
+                return TextMetricsCache.INSTANCE.getLineHeight(sized) * section.size() <= HEIGHT
+                        && longestLine(sized, section) <= WIDTH;
+            });
+        }
+        return total;
+    }
+
+    /**
+     * Pick a font size as the drawer used to: step down half a point at a
+     * time, measuring the text afresh at each size, until it fits the height
+     * and then the width.
+     */
+    private double stepFontSize(List<String> section) {
+        Font font = new Font(fontName, MAX_SIZE);
+        FXFontMetrics metrics = new FXFontMetrics(font);
+        while (metrics.getLineHeight() * section.size() > HEIGHT) {
+            font = new Font(fontName, font.getSize() - 0.5);
+            if (font.getSize() < 1) {
+                return 1;
+            }
+            metrics = new FXFontMetrics(font);
+        }
+        while (steppedLongestLine(font, section) > WIDTH) {
+            font = new Font(fontName, font.getSize() - 0.5);
+            if (font.getSize() < 1) {
+                return 1;
+            }
+        }
+        return font.getSize();
+    }
+
+    private static int steppedLongestLine(Font font, List<String> lines) {
+        FXFontMetrics metrics = new FXFontMetrics(font);
+        int longest = 0;
+        for (String line : lines) {
+            longest = Math.max(longest, (int) metrics.computeStringWidth(line));
+        }
+        return longest;
+    }
+
+    private static int longestLine(Font font, List<String> lines) {
+        int longest = 0;
+        for (String line : lines) {
+            longest = Math.max(longest, (int) TextMetricsCache.INSTANCE.getStringWidth(font, line));
+        }
+        return longest;
+    }
+
+    private List<List<String>> readSections(String resource) throws IOException {
+        List<List<String>> ret = new ArrayList<>();
+        List<String> section = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(getClass().getResourceAsStream(resource), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    if (!section.isEmpty()) {
+                        ret.add(section);
+                    }
+                    section = new ArrayList<>();
+                } else {
+                    section.add(line);
+                }
+            }
+        }
+        if (!section.isEmpty()) {
+            ret.add(section);
+        }
+        return ret;
+    }
+}
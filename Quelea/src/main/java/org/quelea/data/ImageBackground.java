@@ -93,6 +93,24 @@ public class ImageBackground implements Background, Serializable {
         return img;
     }
 
+    /**
+     * Get the background image, decoded at about the size it'll be shown at
+     * rather than at full resolution.
+     * <p>
+     * @param width the width of the area the background fills, or 0 if it
+     * isn't known.
+     * @param height the height of the area the background fills, or 0 if it
+     * isn't known.
+     * @return the background image.
+     */
+    public Image getImage(double width, double height) {
+        File f = getImageFile();
+        if(imageName.trim().isEmpty() || !f.exists()) {
+            return Utils.getImageFromColour(Color.BLACK);
+        }
+        return ImageManager.INSTANCE.getImageToFit(f.toURI().toString(), width, height);
+    }
+
     /**
      * Get the image background file.
      * <p/>
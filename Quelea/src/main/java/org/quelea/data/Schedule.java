@@ -16,17 +16,21 @@
  */
 package org.quelea.data;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.nio.charset.Charset;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -35,14 +39,23 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
@@ -69,6 +82,7 @@ import org.quelea.services.utils.Utils;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 /**
@@ -80,6 +94,13 @@ import org.xml.sax.SAXException;
 public class Schedule implements Iterable<Displayable> {
 
     private static final Logger LOGGER = LoggerUtils.getLogger();
+    private static final int BUFFER = 65536;
+    private static final int IO_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of(
+            "mp4", "m4v", "mov", "mkv", "webm", "avi", "wmv", "flv", "mpg", "mpeg", "ts", "3gp",
+            "mp3", "m4a", "aac", "ogg", "oga", "opus", "flac", "wma",
+            "jpg", "jpeg", "png", "gif", "webp",
+            "pdf", "pptx", "ppsx", "odp", "zip");
     private final List<Displayable> displayables;
     private File file;
     private boolean modified;
@@ -93,76 +114,83 @@ public class Schedule implements Iterable<Displayable> {
     }
 
     /**
-     * Generate a schedule object from a saved file.
+     * Generate a schedule object from a saved file. The resources embedded in
+     * the file are extracted in parallel before the schedule's parsed.
      *
      * @param file the file where the schedule is saved.
      * @return the schedule object.
      */
     public static Schedule fromFile(File file) {
-        try {
-            LOGGER.log(Level.INFO, "Loading schedule from file: " + file.getAbsolutePath());
-            ZipFile zipFile = new ZipFile(file, Charset.forName("UTF-8"));
-            final int BUFFER = 2048;
-            try {
-                Enumeration<? extends ZipEntry> enumeration = zipFile.entries();
-                Map<String, String> fileChanges = new HashMap<>();
-                while (enumeration.hasMoreElements()) {
-                    ZipEntry entry = enumeration.nextElement();
-                    if (!entry.getName().startsWith("resources/")) {
-                        continue;
-                    }
-                    try (BufferedInputStream is = new BufferedInputStream(zipFile.getInputStream(entry))) {
-                        int count;
-                        byte[] data = new byte[BUFFER];
-                        File writeFile = new File(entry.getName().substring("resources/".length()));
-                        if (writeFile.exists()) {
-                            LOGGER.log(Level.INFO, "Skipping " + writeFile.getAbsolutePath() + ", already exists");
-                            continue;
-                        }
-                        if (!writeFile.canWrite()) {
-                            LOGGER.log(Level.INFO, "Can't write to " + writeFile.getAbsolutePath() + ", creating temp file");
-                            String[] localPathParts = new File(".").toPath().relativize(writeFile.toPath()).toString().split(Pattern.quote(System.getProperty("file.separator")));
-                            LOGGER.log(Level.INFO, "Write file local path: " + Arrays.toString(localPathParts));
-                            String[] parts = writeFile.getAbsolutePath().split("\\.");
-                            String extension = parts[parts.length - 1];
-                            File tempWriteFile = File.createTempFile("resource", "." + extension);
-                            LOGGER.log(Level.INFO, "Created file " + tempWriteFile.getAbsolutePath());
-                            Path tempResourceFile = Paths.get(tempWriteFile.getParentFile().getAbsolutePath(), localPathParts);
-                            Files.deleteIfExists(tempResourceFile);
-                            Files.createDirectories(tempResourceFile);
-                            tempWriteFile = Files.move(tempWriteFile.toPath(), tempResourceFile, StandardCopyOption.REPLACE_EXISTING).toFile();
-                            LOGGER.log(Level.INFO, "Moved to " + tempWriteFile.getAbsolutePath());
-                            tempWriteFile.deleteOnExit();
-                            LOGGER.log(Level.INFO, "Writing out {0} to {1}", new Object[]{writeFile.getAbsolutePath(), tempWriteFile.getAbsolutePath()});
-                            fileChanges.put(writeFile.getAbsolutePath(), tempWriteFile.getAbsolutePath());
-                            writeFile = tempWriteFile;
-                        }
-                        FileOutputStream fos = new FileOutputStream(writeFile);
-                        try (BufferedOutputStream dest = new BufferedOutputStream(fos, BUFFER)) {
-                            while ((count = is.read(data, 0, BUFFER)) != -1) {
-                                dest.write(data, 0, count);
-                            }
-                            dest.flush();
-                        }
-                        LOGGER.log(Level.INFO, "Opening schedule - written file {0}", writeFile.getAbsolutePath());
-                    }
-                }
-                Schedule ret = parseXML(zipFile.getInputStream(zipFile.getEntry("schedule.xml")), fileChanges);
-                if (ret == null) {
-                    return null;
+        LOGGER.log(Level.INFO, "Loading schedule from file: " + file.getAbsolutePath());
+        try (ZipFile zipFile = new ZipFile(file, StandardCharsets.UTF_8)) {
+            Map<String, String> fileChanges = new ConcurrentHashMap<>();
+            List<Callable<Void>> extractions = new ArrayList<>();
+            Enumeration<? extends ZipEntry> enumeration = zipFile.entries();
+            while (enumeration.hasMoreElements()) {
+                ZipEntry entry = enumeration.nextElement();
+                if (entry.getName().startsWith("resources/")) {
+                    extractions.add(() -> {
+                        extractResource(zipFile, entry, fileChanges);
+                        return null;
+                    });
                 }
-                ret.setFile(file);
-                ret.modified = false;
-                return ret;
-            } finally {
-                zipFile.close();
             }
+            runAll(extractions, "schedule-extract");
+            Schedule ret = parseXML(zipFile.getInputStream(zipFile.getEntry("schedule.xml")), fileChanges);
+            if (ret == null) {
+                return null;
+            }
+            ret.setFile(file);
+            ret.modified = false;
+            return ret;
         } catch (IOException ex) {
             LOGGER.log(Level.WARNING, "Couldn't read the schedule from file", ex);
             return null;
         }
     }
 
+    /**
+     * Extract a resource embedded in a schedule file to where it was saved
+     * from, or to a temporary file if that's not possible. Resources that
+     * already exist aren't extracted again.
+     *
+     * @param zipFile the schedule file.
+     * @param entry the entry holding the resource.
+     * @param fileChanges the map to record resources written to temporary
+     * files in, from their original path to their temporary path.
+     * @throws IOException if the resource couldn't be extracted.
+     */
+    private static void extractResource(ZipFile zipFile, ZipEntry entry, Map<String, String> fileChanges) throws IOException {
+        File writeFile = new File(entry.getName().substring("resources/".length()));
+        if (writeFile.exists()) {
+            LOGGER.log(Level.INFO, "Skipping " + writeFile.getAbsolutePath() + ", already exists");
+            return;
+        }
+        if (!writeFile.canWrite()) {
+            LOGGER.log(Level.INFO, "Can't write to " + writeFile.getAbsolutePath() + ", creating temp file");
+            String[] localPathParts = new File(".").toPath().relativize(writeFile.toPath()).toString().split(Pattern.quote(System.getProperty("file.separator")));
+            LOGGER.log(Level.INFO, "Write file local path: " + Arrays.toString(localPathParts));
+            String[] parts = writeFile.getAbsolutePath().split("\\.");
+            String extension = parts[parts.length - 1];
+            File tempWriteFile = File.createTempFile("resource", "." + extension);
+            LOGGER.log(Level.INFO, "Created file " + tempWriteFile.getAbsolutePath());
+            Path tempResourceFile = Paths.get(tempWriteFile.getParentFile().getAbsolutePath(), localPathParts);
+            Files.deleteIfExists(tempResourceFile);
+            Files.createDirectories(tempResourceFile);
+            tempWriteFile = Files.move(tempWriteFile.toPath(), tempResourceFile, StandardCopyOption.REPLACE_EXISTING).toFile();
+            LOGGER.log(Level.INFO, "Moved to " + tempWriteFile.getAbsolutePath());
+            tempWriteFile.deleteOnExit();
+            LOGGER.log(Level.INFO, "Writing out {0} to {1}", new Object[]{writeFile.getAbsolutePath(), tempWriteFile.getAbsolutePath()});
+            fileChanges.put(writeFile.getAbsolutePath(), tempWriteFile.getAbsolutePath());
+            writeFile = tempWriteFile;
+        }
+        try (InputStream is = zipFile.getInputStream(entry);
+                OutputStream dest = new FileOutputStream(writeFile)) {
+            copy(is, dest);
+        }
+        LOGGER.log(Level.INFO, "Opening schedule - written file {0}", writeFile.getAbsolutePath());
+    }
+
     /**
      * Parse some given XML from an inputstream to create a schedule.
      *
@@ -178,26 +206,14 @@ public class Schedule implements Iterable<Displayable> {
              * characters that end up in the XML file which shouldn't be there.
              * Character encoding bug perhaps? Oh joy.
              *
-             * Start bodge.
-             */
-            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
-            StringBuilder contentsBuilder = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                contentsBuilder.append(line).append('\n');
-            }
-            String contents = contentsBuilder.toString();
-            contents = contents.replace(new String(new byte[]{11}), "\n");
-            contents = contents.replace(new String(new byte[]{-3}), " ");
-            contents = contents.replace(new String(new byte[]{0}), "");
-            InputStream strInputStream = new ByteArrayInputStream(contents.getBytes("UTF-8"));
-            /*
-             * End bodge.
+             * The offending characters are now filtered out as the XML's
+             * read, rather than reading it all into a string first.
              */
+            Reader reader = new BodgeReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
 
             DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
             DocumentBuilder builder = factory.newDocumentBuilder();
-            Document doc = builder.parse(strInputStream); //Read from our "bodged" stream.
+            Document doc = builder.parse(new InputSource(reader)); //Read from our "bodged" stream.
             NodeList nodes = doc.getFirstChild().getChildNodes();
             Schedule newSchedule = new Schedule();
             boolean skipped = false;
@@ -291,7 +307,9 @@ public class Schedule implements Iterable<Displayable> {
     }
 
     /**
-     * Write this schedule to a file.
+     * Write this schedule to a file. The XML's streamed straight into the
+     * file, and media that's already compressed is stored rather than being
+     * compressed again.
      *
      * @return true if the write was successful, false otherwise.
      */
@@ -299,63 +317,188 @@ public class Schedule implements Iterable<Displayable> {
         if (file == null) {
             return false;
         }
-        try {
-            ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(file), Charset.forName("UTF-8"));
-            final int BUFFER = 2048;
-            byte[] data = new byte[BUFFER];
-            try {
-                zos.putNextEntry(new ZipEntry("schedule.xml"));
-                zos.write(getXML().getBytes("UTF8"));
-                zos.closeEntry();
-                if (QueleaProperties.get().getEmbedMediaInScheduleFile()) {
-                    Set<String> entries = new HashSet<>();
-                    for (Displayable displayable : displayables) {
-                        for (File displayableFile : displayable.getResources()) {
-                            if (displayableFile.exists()) {
-                                String zipPath = "resources/" + Utils.toRelativeStorePath(displayableFile);
-                                if (!entries.contains(zipPath)) {
-                                    entries.add(zipPath);
-                                    ZipEntry entry = new ZipEntry(zipPath);
-                                    zos.putNextEntry(entry);
-                                    FileInputStream fi = new FileInputStream(displayableFile);
-                                    try (BufferedInputStream origin = new BufferedInputStream(fi, BUFFER)) {
-                                        int count;
-                                        while ((count = origin.read(data, 0, BUFFER)) != -1) {
-                                            zos.write(data, 0, count);
-                                        }
-                                        zos.closeEntry();
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
-                modified = false;
-                return true;
-            } finally {
-                zos.close();
+        try (ZipOutputStream zos = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER), StandardCharsets.UTF_8)) {
+            zos.putNextEntry(new ZipEntry("schedule.xml"));
+            Writer writer = new OutputStreamWriter(zos, StandardCharsets.UTF_8);
+            writeXML(writer);
+            writer.flush();
+            zos.closeEntry();
+            if (QueleaProperties.get().getEmbedMediaInScheduleFile()) {
+                writeResources(zos);
             }
+            zos.finish();
+            modified = false;
+            return true;
         } catch (IOException ex) {
             LOGGER.log(Level.WARNING, "Couldn't write the schedule to file", ex);
             return false;
         }
     }
 
+    /**
+     * Write the resources used by this schedule into a schedule file, each
+     * one once. The checksums of media that's stored uncompressed have to be
+     * known before it's written, so they're worked out in parallel ahead of
+     * the resources being written in order.
+     *
+     * @param zos the stream of the schedule file.
+     * @throws IOException if a resource couldn't be written.
+     */
+    private void writeResources(ZipOutputStream zos) throws IOException {
+        Map<String, File> resources = new LinkedHashMap<>();
+        for (Displayable displayable : displayables) {
+            for (File displayableFile : displayable.getResources()) {
+                if (displayableFile.exists()) {
+                    resources.putIfAbsent("resources/" + Utils.toRelativeStorePath(displayableFile), displayableFile);
+                }
+            }
+        }
+        ExecutorService executor = createExecutor("schedule-checksum");
+        try {
+            Map<String, Future<ZipEntry>> storedEntries = new HashMap<>();
+            for (Map.Entry<String, File> resource : resources.entrySet()) {
+                if (isCompressed(resource.getValue())) {
+                    storedEntries.put(resource.getKey(), executor.submit(() -> createStoredEntry(resource.getKey(), resource.getValue())));
+                }
+            }
+            for (Map.Entry<String, File> resource : resources.entrySet()) {
+                Future<ZipEntry> storedEntry = storedEntries.get(resource.getKey());
+                zos.putNextEntry(storedEntry == null ? new ZipEntry(resource.getKey()) : await(storedEntry));
+                try (InputStream is = new FileInputStream(resource.getValue())) {
+                    copy(is, zos);
+                }
+                zos.closeEntry();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Create an entry that stores the given file without compressing it.
+     *
+     * @param name the name of the entry.
+     * @param file the file the entry will hold.
+     * @return the entry, with the size and checksum of the file.
+     * @throws IOException if the file couldn't be read.
+     */
+    private static ZipEntry createStoredEntry(String name, File file) throws IOException {
+        CRC32 crc = new CRC32();
+        long size = 0;
+        byte[] data = new byte[BUFFER];
+        try (InputStream is = new FileInputStream(file)) {
+            int count;
+            while ((count = is.read(data)) != -1) {
+                crc.update(data, 0, count);
+                size += count;
+            }
+        }
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(size);
+        entry.setCompressedSize(size);
+        entry.setCrc(crc.getValue());
+        return entry;
+    }
+
+    /**
+     * Determine whether the given file's already compressed, so compressing
+     * it again would take time for little or no gain.
+     *
+     * @param file the file to check.
+     * @return true if the file's compressed, false otherwise.
+     */
+    private static boolean isCompressed(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && COMPRESSED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private static void copy(InputStream is, OutputStream os) throws IOException {
+        byte[] data = new byte[BUFFER];
+        int count;
+        while ((count = is.read(data)) != -1) {
+            os.write(data, 0, count);
+        }
+    }
+
+    private static ExecutorService createExecutor(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(IO_THREADS, r -> {
+            Thread thread = new Thread(r, name + "-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Run the given tasks in parallel and wait for them all to finish.
+     *
+     * @param tasks the tasks to run.
+     * @param name the name of the threads to run them on.
+     * @throws IOException if any of the tasks failed.
+     */
+    private static void runAll(List<Callable<Void>> tasks, String name) throws IOException {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        ExecutorService executor = createExecutor(name);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (Callable<Void> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            for (Future<Void> future : futures) {
+                await(future);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for schedule resources");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+        }
+    }
+
     /**
      * Get this schedule as XML.
      *
      * @return XML describing this schedule.
      */
     public String getXML() {
-        StringBuilder xml = new StringBuilder();
-        xml.append("<schedule>");
+        StringWriter xml = new StringWriter();
+        try {
+            writeXML(xml);
+        } catch (IOException ex) {
+            throw new AssertionError(ex);
+        }
+        return xml.toString();
+    }
+
+    /**
+     * Write this schedule as XML, one item at a time.
+     *
+     * @param writer the writer to write the XML to.
+     * @throws IOException if the XML couldn't be written.
+     */
+    private void writeXML(Writer writer) throws IOException {
+        writer.write("<schedule>");
         for (Displayable displayable : displayables) {
             if (displayable != null) {
-                xml.append(displayable.getXML());
+                writer.write(displayable.getXML());
             }
         }
-        xml.append("</schedule>");
-        return xml.toString();
+        writer.write("</schedule>");
     }
 
     /**
@@ -414,4 +557,51 @@ public class Schedule implements Iterable<Displayable> {
         return getSize() == 0;
     }
 
+    /**
+     * Removes the characters that have been known to end up in schedule files
+     * and break parsing them, as the XML's read.
+     */
+    private static final class BodgeReader extends FilterReader {
+
+        private BodgeReader(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c;
+            do {
+                c = super.read();
+            } while (c == 0);
+            return c == -1 ? -1 : clean((char) c);
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            int count;
+            int kept;
+            do {
+                count = super.read(cbuf, off, len);
+                if (count == -1) {
+                    return -1;
+                }
+                kept = 0;
+                for (int i = off; i < off + count; i++) {
+                    if (cbuf[i] != 0) {
+                        cbuf[off + kept++] = clean(cbuf[i]);
+                    }
+                }
+            } while (kept == 0 && count > 0);
+            return kept;
+        }
+
+        private static char clean(char c) {
+            if (c == 11) {
+                return '\n';
+            } else if (c == '\uFFFD') {
+                return ' ';
+            }
+            return c;
+        }
+    }
 }
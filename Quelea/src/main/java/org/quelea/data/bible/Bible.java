@@ -20,26 +20,23 @@ package org.quelea.data.bible;
 import org.quelea.services.utils.LoggerUtils;
 import org.quelea.services.utils.UnicodeReader;
 import org.quelea.services.utils.Utils;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.Reader;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * A bible containing a number of books as well as some information.
@@ -106,40 +103,51 @@ public final class Bible implements BibleInterface, Serializable {
     }
 
     /**
-     * Parse a bible from a specified bible and return it as an object.
+     * Parse a bible from a specified bible and return it as an object. The
+     * file is streamed rather than read into a DOM first, so only the parsed
+     * bible is held in memory.
      * <p/>
      * @param file the file where the XML bible is stored.
      * @return the bible as a java object, or null if an error occurred.
      */
     public static Bible parseBible(final File file) {
         LOGGER.log(Level.INFO, "Parsing bible: " + file.getAbsolutePath());
-        try {
-            if (file.exists()) {
-                DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-                DocumentBuilder builder = factory.newDocumentBuilder();
-                Document doc = builder.parse(new InputSource(new UnicodeReader(new FileInputStream(file), Utils.getEncoding(file))));
-                NodeList list = doc.getChildNodes();
-                for (int i = 0; i < list.getLength(); i++) {
-                    if (list.item(i).getNodeName().equalsIgnoreCase("xmlbible")
-                            || list.item(i).getNodeName().equalsIgnoreCase("bible")) {
-                        return parseXML(list.item(i), Utils.getFileNameWithoutExtension(file.getName()));
-                    }
-                    else if (list.item(i).getNodeName().equalsIgnoreCase("osis")) {
-                        NodeList innerList = list.item(i).getChildNodes();
-                        for (int j = 0; j < innerList.getLength(); j++) {
-                            if (innerList.item(j).getNodeName().equalsIgnoreCase("osisText")) {
-                                return parseXML(innerList.item(j), Utils.getFileNameWithoutExtension(file.getName()));
-                            }
+        if (!file.exists()) {
+            LOGGER.log(Level.WARNING, "Couldn''t parse the bible {0} because the file doesn''t exist!", file);
+            return null;
+        }
+        try (Reader in = new UnicodeReader(new FileInputStream(file), Utils.getEncoding(file))) {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            try {
+                //Skip anything before the root element, such as a doctype
+                int event = reader.next();
+                while (event != XMLStreamConstants.START_ELEMENT && event != XMLStreamConstants.END_DOCUMENT) {
+                    event = reader.next();
+                }
+                if (event != XMLStreamConstants.START_ELEMENT) {
+                    LOGGER.log(Level.WARNING, "Couldn''t parse the bible {0} because it''s empty", file);
+                    return null;
+                }
+                String defaultName = Utils.getFileNameWithoutExtension(file.getName());
+                if (reader.getLocalName().equalsIgnoreCase("xmlbible")
+                        || reader.getLocalName().equalsIgnoreCase("bible")) {
+                    return parseXML(reader, defaultName);
+                } else if (reader.getLocalName().equalsIgnoreCase("osis")) {
+                    while (nextChildElement(reader)) {
+                        if (reader.getLocalName().equalsIgnoreCase("osisText")) {
+                            return parseXML(reader, defaultName);
                         }
+                        skipElement(reader);
                     }
                 }
                 LOGGER.log(Level.WARNING, "Couldn''t parse the bible {0} because I couldn''t find any <bible> or <xmlbible> root tags :-(", file);
                 return null;
-            } else {
-                LOGGER.log(Level.WARNING, "Couldn''t parse the bible {0} because the file doesn''t exist!", file);
-                return null;
+            } finally {
+                reader.close();
             }
-        } catch (ParserConfigurationException | SAXException | IOException ex) {
+        } catch (XMLStreamException | IOException | NumberFormatException ex) {
             LOGGER.log(Level.WARNING, "Couldn't parse the bible " + file, ex);
             return null;
         }
@@ -149,56 +157,155 @@ public final class Bible implements BibleInterface, Serializable {
      * Parse some XML representing this object and return the object it
      * represents.
      * <p/>
-     * @param node the XML node representing this object.
+     * @param reader the XML reader, positioned at the start of the element
+     * representing this object. It's left at the end of the element.
      * @param defaultName the name of the bible if none is specified in the XML
      * file.
      * @return the object as defined by the XML.
+     * @throws XMLStreamException if the XML couldn't be read.
      */
-    public static Bible parseXML(Node node, String defaultName) {
-        String name = "";
-        if (node.getAttributes().getNamedItem("biblename") != null) {
-            name = node.getAttributes().getNamedItem("biblename").getNodeValue();
-        } else if (node.getAttributes().getNamedItem("name") != null) {
-            name = node.getAttributes().getNamedItem("name").getNodeValue();
+    static Bible parseXML(XMLStreamReader reader, String defaultName) throws XMLStreamException {
+        String name;
+        if (reader.getAttributeValue(null, "biblename") != null) {
+            name = reader.getAttributeValue(null, "biblename");
+        } else if (reader.getAttributeValue(null, "name") != null) {
+            name = reader.getAttributeValue(null, "name");
         } else {
             name = defaultName;
         }
         Bible ret = new Bible(name);
-        List<Node> list = toList(node.getChildNodes());
-        list = list.stream().flatMap(n -> {
-                    if (n.getNodeName().equalsIgnoreCase("testament")) {
-                        return toList(n.getChildNodes()).stream();
-                    } else {
-                        return Stream.of(n);
-                    }
-                })
-                .filter(item -> ret.isBibleBookNode(item))
-                .collect(Collectors.toList());
-        for (int i = 0; i < list.size(); i++) {
-            Node item = list.get(i);
-            if (item.getNodeName().equalsIgnoreCase("information")) {
-                ret.information = BibleInfo.parseXML(item);
-            } else if (ret.isBibleBookNode(item)) {
-                BibleBook book = BibleBook.parseXML(item, i, BibleBookNameUtil.getBookNameForIndex(i, list.size()));
-                book.setBible(ret);
-                ret.addBook(book);
+        while (nextChildElement(reader)) {
+            if (reader.getLocalName().equalsIgnoreCase("testament")) {
+                while (nextChildElement(reader)) {
+                    ret.parseBookOrSkip(reader);
+                }
+            } else {
+                ret.parseBookOrSkip(reader);
             }
         }
-        LOGGER.log(Level.INFO, "Parsed bible: {0}. Contains {1} books.", new Object[]{ret.getName(), list.size()});
+        LOGGER.log(Level.INFO, "Parsed bible: {0}. Contains {1} books.", new Object[]{ret.getName(), ret.books.size()});
         return ret;
     }
 
-    private boolean isBibleBookNode(Node n) {
-        return n.getNodeName().equalsIgnoreCase("biblebook")
-                || n.getNodeName().equalsIgnoreCase("b")
-                || n.getNodeName().equalsIgnoreCase("book")
-                || (n.getNodeName().equalsIgnoreCase("div") && n.getAttributes().getNamedItem("type") != null && n.getAttributes().getNamedItem("type").getNodeValue().equals("book"));
+    /**
+     * Parse the current element as a book of this bible if it is one, or skip
+     * over it otherwise.
+     * <p/>
+     * @param reader the XML reader, positioned at the start of an element.
+     * @throws XMLStreamException if the XML couldn't be read.
+     */
+    private void parseBookOrSkip(XMLStreamReader reader) throws XMLStreamException {
+        if (isBibleBookNode(reader)) {
+            BibleBook book = BibleBook.parseXML(reader, books.size());
+            book.setBible(this);
+            addBook(book);
+        } else {
+            skipElement(reader);
+        }
+    }
+
+    private static boolean isBibleBookNode(XMLStreamReader reader) {
+        String nodeName = reader.getLocalName();
+        return nodeName.equalsIgnoreCase("biblebook")
+                || nodeName.equalsIgnoreCase("b")
+                || nodeName.equalsIgnoreCase("book")
+                || (nodeName.equalsIgnoreCase("div") && "book".equals(reader.getAttributeValue(null, "type")));
+    }
+
+    /**
+     * Move on to the next element inside the current one, skipping over any
+     * text, comments and so on between elements - stray text between elements
+     * is ignored rather than treated as an error.
+     * <p/>
+     * @param reader the XML reader, positioned inside an element.
+     * @return true if the reader is now at the start of a child element, false
+     * if it's reached the end of the current element instead.
+     * @throws XMLStreamException if the XML couldn't be read.
+     */
+    static boolean nextChildElement(XMLStreamReader reader) throws XMLStreamException {
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            } else if (event == XMLStreamConstants.END_ELEMENT || event == XMLStreamConstants.END_DOCUMENT) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Skip over the current element and everything in it.
+     * <p/>
+     * @param reader the XML reader, positioned at the start of an element.
+     * It's left at the end of the element.
+     * @throws XMLStreamException if the XML couldn't be read.
+     */
+    static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
     }
 
-    private static List<Node> toList(NodeList nodeList) {
-        List<Node> ret = new ArrayList<>();
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            ret.add(nodeList.item(i));
+    /**
+     * Read all the text inside the current element, including the text of
+     * any elements nested inside it.
+     * <p/>
+     * @param reader the XML reader, positioned at the start of an element.
+     * It's left at the end of the element.
+     * @return the text content of the element.
+     * @throws XMLStreamException if the XML couldn't be read.
+     */
+    static String readText(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder ret = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                    || event == XMLStreamConstants.SPACE) {
+                ret.append(reader.getText());
+            }
+        }
+        return ret.toString();
+    }
+
+    /**
+     * Write this bible in the compact binary form used by the bible cache.
+     * <p/>
+     * @param out the output to write to.
+     * @throws IOException if the bible couldn't be written.
+     */
+    void writeBinary(DataOutput out) throws IOException {
+        BibleCache.writeString(out, name);
+        out.writeInt(books.size());
+        for (BibleBook book : books) {
+            book.writeBinary(out);
+        }
+    }
+
+    /**
+     * Read a bible written by writeBinary().
+     * <p/>
+     * @param in the input to read from.
+     * @return the bible.
+     * @throws IOException if the bible couldn't be read.
+     */
+    static Bible readBinary(DataInput in) throws IOException {
+        Bible ret = new Bible(BibleCache.readString(in));
+        int bookCount = in.readInt();
+        for (int i = 0; i < bookCount; i++) {
+            BibleBook book = BibleBook.readBinary(in);
+            book.setBible(ret);
+            ret.addBook(book);
         }
         return ret;
     }
@@ -17,6 +17,9 @@
  */
 package org.quelea.data.bible;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -25,6 +28,9 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.quelea.services.utils.LoggerUtils;
 import org.quelea.services.utils.Utils;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
@@ -39,7 +45,7 @@ public final class BibleBook implements BibleInterface, Serializable {
     private int bookNumber;
     private String bookName;
     private final List<BibleChapter> chapters;
-    private String htmlText;
+    private transient String htmlText;
     private List<Integer> caretPosList;
     private Bible bible;
     private String bsname;
@@ -192,6 +198,121 @@ public final class BibleBook implements BibleInterface, Serializable {
         return ret;
     }
 
+    /**
+     * Parse some XML representing this object and return the object it
+     * represents.
+     *
+     * @param reader the XML reader, positioned at the start of the element
+     * representing this object. It's left at the end of the element.
+     * @param defaultBookNum the default book number if none is available on the
+     * XML file.
+     * @return the object as defined by the XML.
+     * @throws XMLStreamException if the XML couldn't be read.
+     */
+    static BibleBook parseXML(XMLStreamReader reader, int defaultBookNum) throws XMLStreamException {
+        BibleBook ret = new BibleBook();
+
+        if (reader.getAttributeValue(null, "bnumber") != null) {
+            ret.bookNumber = Integer.parseInt(reader.getAttributeValue(null, "bnumber").trim());
+        } else if (reader.getAttributeValue(null, "number") != null) {
+            ret.bookNumber = Integer.parseInt(reader.getAttributeValue(null, "number").trim());
+        } else if (reader.getAttributeValue(null, "id") != null) {
+            ret.bookNumber = Integer.parseInt(reader.getAttributeValue(null, "id").trim());
+        } else {
+            ret.bookNumber = defaultBookNum;
+        }
+
+        if (reader.getAttributeValue(null, "bname") != null) {
+            ret.bookName = reader.getAttributeValue(null, "bname");
+        } else if (reader.getAttributeValue(null, "n") != null) {
+            ret.bookName = reader.getAttributeValue(null, "n");
+        } else if (reader.getAttributeValue(null, "name") != null) {
+            ret.bookName = reader.getAttributeValue(null, "name");
+        } else if (reader.getAttributeValue(null, "osisID") != null) {
+            ret.bookName = reader.getAttributeValue(null, "osisID");
+        }
+        ret.bsname = reader.getAttributeValue(null, "bsname");
+
+        /*
+         * Chapters without a number are numbered by their position amongst all
+         * the child nodes of the book (text included), as they always have
+         * been, so count the runs of text between elements too.
+         */
+        int nodeIndex = 0;
+        boolean inText = false;
+        for (int event = reader.next(); event != XMLStreamConstants.END_ELEMENT; event = reader.next()) {
+            if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.SPACE) {
+                if (!inText) {
+                    inText = true;
+                    nodeIndex++;
+                }
+                continue;
+            }
+            inText = false;
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if (reader.getLocalName().equalsIgnoreCase("chapter")
+                        || reader.getLocalName().equalsIgnoreCase("c")) {
+                    BibleChapter chapter = BibleChapter.parseXML(reader, nodeIndex);
+                    chapter.setBook(ret);
+                    ret.addChapter(chapter);
+                } else {
+                    Bible.skipElement(reader);
+                }
+                nodeIndex++;
+            } else if (event == XMLStreamConstants.CDATA || event == XMLStreamConstants.COMMENT
+                    || event == XMLStreamConstants.PROCESSING_INSTRUCTION) {
+                nodeIndex++;
+            }
+        }
+
+        if (ret.bookName == null && ret.getChapters().length > 0 && ret.getChapter(0).getCaptions().length > 0) {
+            ret.bookName = ret.getChapter(0).getCaptions()[0];
+        }
+        if (ret.bsname == null) {
+            ret.bsname = ret.bookName;
+        }
+
+        LOGGER.log(Level.INFO, "Parsed " + ret.getChapters().length + " chapters in " + ret.bookName);
+        return ret;
+    }
+
+    /**
+     * Write this book in the compact binary form used by the bible cache.
+     *
+     * @param out the output to write to.
+     * @throws IOException if the book couldn't be written.
+     */
+    void writeBinary(DataOutput out) throws IOException {
+        out.writeInt(bookNumber);
+        BibleCache.writeString(out, bookName);
+        BibleCache.writeString(out, bsname);
+        out.writeInt(chapters.size());
+        for (BibleChapter chapter : chapters) {
+            chapter.writeBinary(out);
+        }
+    }
+
+    /**
+     * Read a book written by writeBinary().
+     *
+     * @param in the input to read from.
+     * @return the book.
+     * @throws IOException if the book couldn't be read.
+     */
+    static BibleBook readBinary(DataInput in) throws IOException {
+        BibleBook ret = new BibleBook();
+        ret.bookNumber = in.readInt();
+        ret.bookName = BibleCache.readString(in);
+        ret.bsname = BibleCache.readString(in);
+        int chapterCount = in.readInt();
+        for (int i = 0; i < chapterCount; i++) {
+            BibleChapter chapter = BibleChapter.readBinary(in);
+            chapter.setBook(ret);
+            ret.addChapter(chapter);
+        }
+        return ret;
+    }
+
     /**
      * Generate an XML representation of this book.
      *
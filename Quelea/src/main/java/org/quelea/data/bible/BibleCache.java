@@ -0,0 +1,206 @@
+/* 
+ * This file is part of Quelea, free projection software for churches.
+ * 
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.quelea.data.bible;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.quelea.services.utils.LoggerUtils;
+import org.quelea.services.utils.QueleaProperties;
+import org.quelea.services.utils.Utils;
+
+/**
+ * A cache of parsed bibles in a compact binary form, so bibles that haven't
+ * changed since the last run don't need their XML parsing again. Each cached
+ * bible is stamped with the path, size and modification time of the file it
+ * was parsed from, and is ignored (and replaced) if any of those change.
+ * <p/>
+ * @author Michael
+ */
+final class BibleCache {
+
+    private static final Logger LOGGER = LoggerUtils.getLogger();
+    /**
+     * Bump this whenever the binary layout changes.
+     */
+    private static final int FORMAT_VERSION = 1;
+    private static final String EXTENSION = ".bin";
+
+    private BibleCache() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Load the bible in the given file, from the cache if it's up to date or
+     * by parsing the file (and caching the result) otherwise.
+     * <p/>
+     * @param file the XML bible file.
+     * @return the bible, or null if it couldn't be loaded.
+     */
+    static Bible load(File file) {
+        File cacheFile = getCacheFile(file);
+        Bible bible = read(file, cacheFile);
+        if (bible != null) {
+            LOGGER.log(Level.INFO, "Loaded bible {0} from cache", bible.getName());
+            return bible;
+        }
+        bible = Bible.parseBible(file);
+        if (bible != null) {
+            write(file, cacheFile, bible);
+        }
+        return bible;
+    }
+
+    /**
+     * Delete any cached bibles that don't belong to one of the given files.
+     * <p/>
+     * @param files the bible files that are still in use.
+     */
+    static void retainOnly(Collection<File> files) {
+        File[] cacheFiles = QueleaProperties.get().getBibleCacheDir().listFiles();
+        if (cacheFiles == null) {
+            return;
+        }
+        Set<String> names = new HashSet<>();
+        for (File file : files) {
+            names.add(getCacheFile(file).getName());
+        }
+        for (File cacheFile : cacheFiles) {
+            if (cacheFile.getName().endsWith(EXTENSION) && !names.contains(cacheFile.getName())) {
+                LOGGER.log(Level.INFO, "Deleting unused bible cache {0}", cacheFile);
+                if (!cacheFile.delete()) {
+                    LOGGER.log(Level.WARNING, "Couldn''t delete unused bible cache {0}", cacheFile);
+                }
+            }
+        }
+    }
+
+    private static File getCacheFile(File file) {
+        String name = Utils.getFileNameWithoutExtension(file.getName()) + "-" + Integer.toHexString(file.getAbsolutePath().hashCode());
+        return new File(QueleaProperties.get().getBibleCacheDir(), name + EXTENSION);
+    }
+
+    /**
+     * Read the cached copy of the given bible file.
+     * <p/>
+     * @param file the XML bible file.
+     * @param cacheFile the file the bible is cached in.
+     * @return the cached bible, or null if there isn't an up to date copy.
+     */
+    private static Bible read(File file, File cacheFile) {
+        if (!cacheFile.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            if (in.readInt() != FORMAT_VERSION
+                    || !file.getAbsolutePath().equals(readString(in))
+                    || in.readLong() != file.length()
+                    || in.readLong() != file.lastModified()) {
+                LOGGER.log(Level.INFO, "Bible cache {0} is out of date", cacheFile);
+                return null;
+            }
+            return Bible.readBinary(in);
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.log(Level.WARNING, "Couldn't read bible cache " + cacheFile, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Write the given bible to the cache, replacing any existing copy
+     * atomically so a half written cache is never read.
+     * <p/>
+     * @param file the XML bible file the bible was parsed from.
+     * @param cacheFile the file to cache the bible in.
+     * @param bible the bible.
+     */
+    private static void write(File file, File cacheFile, Bible bible) {
+        Path temp = null;
+        try {
+            Path dir = Files.createDirectories(cacheFile.getParentFile().toPath());
+            temp = Files.createTempFile(dir, cacheFile.getName(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(FORMAT_VERSION);
+                writeString(out, file.getAbsolutePath());
+                out.writeLong(file.length());
+                out.writeLong(file.lastModified());
+                bible.writeBinary(out);
+            }
+            Files.move(temp, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Couldn't write bible cache " + cacheFile, ex);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ex) {
+                    LOGGER.log(Level.WARNING, "Couldn't delete temporary bible cache " + temp, ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write a string that may be null or longer than writeUTF() allows.
+     * <p/>
+     * @param out the output to write to.
+     * @param str the string to write, may be null.
+     * @throws IOException if the string couldn't be written.
+     */
+    static void writeString(DataOutput out, String str) throws IOException {
+        if (str == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Read a string written by writeString().
+     * <p/>
+     * @param in the input to read from.
+     * @return the string, may be null.
+     * @throws IOException if the string couldn't be read.
+     */
+    static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
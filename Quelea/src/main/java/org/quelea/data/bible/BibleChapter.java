@@ -17,6 +17,9 @@
  */
 package org.quelea.data.bible;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.lang.ref.SoftReference;
 import java.util.ArrayList;
@@ -24,7 +27,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.quelea.services.utils.Utils;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
@@ -35,12 +41,13 @@ import org.w3c.dom.NodeList;
  */
 public final class BibleChapter implements BibleInterface, Serializable {
 
-    private static int statId = 0;
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+    private static final String[] NUMBER_ATTRIBUTES = {"cnumber", "number", "n", "id"};
     private final int num;
     private final Map<Integer, BibleVerse> verses;
     private final List<String> captions;
     private transient SoftReference<String> softRefText;
-    private final int id = statId++;
+    private final int id = NEXT_ID.getAndIncrement();
     private BibleBook book;
 
     /**
@@ -155,6 +162,94 @@ public final class BibleChapter implements BibleInterface, Serializable {
         return ret;
     }
 
+    /**
+     * Parse some XML representing this object and return the object it
+     * represents.
+     * <p/>
+     * @param reader the XML reader, positioned at the start of the element
+     * representing this object. It's left at the end of the element.
+     * @param defaultNum the default chapter number if no other information is
+     * available.
+     * @return the object as defined by the XML.
+     * @throws XMLStreamException if the XML couldn't be read.
+     */
+    static BibleChapter parseXML(XMLStreamReader reader, int defaultNum) throws XMLStreamException {
+        int num = -1;
+        for (String attribute : NUMBER_ATTRIBUTES) {
+            String value = reader.getAttributeValue(null, attribute);
+            if (value != null) {
+                try {
+                    num = Integer.parseInt(value.trim());
+                } catch (NumberFormatException ex) {
+                }
+                break;
+            }
+        }
+        if (num == -1) {
+            num = defaultNum;
+        }
+        BibleChapter ret = new BibleChapter(num);
+        while (Bible.nextChildElement(reader)) {
+            String nodeName = reader.getLocalName();
+            if (nodeName.equalsIgnoreCase("verse")
+                    || nodeName.equalsIgnoreCase("vers")
+                    || nodeName.equalsIgnoreCase("v")) {
+                BibleVerse verse = BibleVerse.parseXML(reader);
+                if (verse != null) {
+                    verse.setChapter(ret);
+                    ret.addVerse(verse);
+                }
+            }
+            else if (nodeName.equalsIgnoreCase("caption")) {
+                ret.addCaption(Bible.readText(reader));
+            }
+            else {
+                Bible.skipElement(reader);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Write this chapter in the compact binary form used by the bible cache.
+     * <p/>
+     * @param out the output to write to.
+     * @throws IOException if the chapter couldn't be written.
+     */
+    void writeBinary(DataOutput out) throws IOException {
+        out.writeInt(num);
+        out.writeInt(captions.size());
+        for (String caption : captions) {
+            BibleCache.writeString(out, caption);
+        }
+        out.writeInt(verses.size());
+        for (BibleVerse verse : verses.values()) {
+            verse.writeBinary(out);
+        }
+    }
+
+    /**
+     * Read a chapter written by writeBinary().
+     * <p/>
+     * @param in the input to read from.
+     * @return the chapter.
+     * @throws IOException if the chapter couldn't be read.
+     */
+    static BibleChapter readBinary(DataInput in) throws IOException {
+        BibleChapter ret = new BibleChapter(in.readInt());
+        int captionCount = in.readInt();
+        for (int i = 0; i < captionCount; i++) {
+            ret.addCaption(BibleCache.readString(in));
+        }
+        int verseCount = in.readInt();
+        for (int i = 0; i < verseCount; i++) {
+            BibleVerse verse = BibleVerse.readBinary(in);
+            verse.setChapter(ret);
+            ret.addVerse(verse);
+        }
+        return ret;
+    }
+
     /**
      * Generate an XML representation of this chapter.
      * <p/>
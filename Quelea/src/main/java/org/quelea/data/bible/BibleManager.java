@@ -19,14 +19,16 @@ package org.quelea.data.bible;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 import javafx.application.Platform;
 import org.quelea.services.languages.LabelGrabber;
 import org.quelea.services.lucene.BibleSearchIndex;
-import org.quelea.services.lucene.SearchIndex;
 import org.quelea.services.utils.LoggerUtils;
 import org.quelea.services.utils.QueleaProperties;
 import org.quelea.services.utils.Utils;
@@ -44,7 +46,8 @@ public final class BibleManager {
     private static final BibleManager INSTANCE = new BibleManager();
     private final List<Bible> bibles;
     private final List<BibleChangeListener> listeners;
-    private final SearchIndex<BibleChapter> index;
+    private final BibleSearchIndex index;
+    private final ExecutorService indexExecutor;
     private boolean indexInit;
     private final List<Runnable> onIndexInit;
 
@@ -54,7 +57,12 @@ public final class BibleManager {
     private BibleManager() {
         bibles = new ArrayList<>();
         listeners = new ArrayList<>();
-        index = new BibleSearchIndex();
+        index = new BibleSearchIndex(new File(QueleaProperties.get().getIndexDir(), "bibles"));
+        indexExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "bible-index");
+            thread.setDaemon(true);
+            return thread;
+        });
         indexInit = false;
         onIndexInit = new ArrayList<>();
         loadBibles(false);
@@ -125,7 +133,7 @@ public final class BibleManager {
      * <p/>
      * @return the search index.
      */
-    public SearchIndex<BibleChapter> getIndex() {
+    public BibleSearchIndex getIndex() {
         return index;
     }
     
@@ -149,6 +157,8 @@ public final class BibleManager {
 
     /**
      * Reload all the bibles from the bibles directory into this bible manager.
+     * The bibles are loaded in parallel, from the bible cache where it's up
+     * to date with the bible file.
      * <p/>
      * @param updateIndex update the search index with new bible structure
      */
@@ -156,20 +166,29 @@ public final class BibleManager {
         if(updateIndex) {
             indexInit = false;
         }
-        bibles.clear();
         File biblesFile = QueleaProperties.get().getBibleDir();
         if(!biblesFile.exists()) {
             biblesFile.mkdir();
         }
+        List<File> files = new ArrayList<>();
         for(File file : biblesFile.listFiles()) {
             if(file.getName().toLowerCase().endsWith(".xml") || file.getName().toLowerCase().endsWith(".xmm")) {
-                final Bible bible = Bible.parseBible(file);
-                if(bible != null) {
-                    bible.setFilePath(file.getAbsolutePath());
-                    bibles.add(bible);
-                }
+                files.add(file);
             }
         }
+        List<Bible> loaded = files.parallelStream()
+                .map(file -> {
+                    final Bible bible = BibleCache.load(file);
+                    if(bible != null) {
+                        bible.setFilePath(file.getAbsolutePath());
+                    }
+                    return bible;
+                })
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        bibles.clear();
+        bibles.addAll(loaded);
+        BibleCache.retainOnly(files);
         if(updateIndex) {
             buildIndex();
         }
@@ -185,7 +204,9 @@ public final class BibleManager {
     }
 
     /**
-     * Builds the search index from the current bibles.
+     * Builds the search index from the current bibles. The index of each
+     * bible is kept on disk, so only bibles that have changed since they were
+     * last indexed are re-indexed.
      */
     public void buildIndex() {
         indexInit = false;
@@ -197,30 +218,26 @@ public final class BibleManager {
                 panel[0].getProgressBar().setProgress(-1);
             });
         }
-        new Thread(() -> {
+        final List<Bible> toIndex = new ArrayList<>(bibles);
+        indexExecutor.submit(() -> {
             LOGGER.log(Level.INFO, "Adding bibles to index");
-            List<BibleChapter> chapters = new ArrayList<>(bibles.size() * 66);
-            for(Bible bible : bibles) {
-                LOGGER.log(Level.FINE, "Adding {0} bible to index", bible.getName());
-                index.clear();
-                for(BibleBook book : bible.getBooks()) {
-                    chapters.addAll(Arrays.asList(book.getChapters()));
-                }
-                LOGGER.log(Level.FINE, "Added {0}.", bible.getName());
-            }
-            index.addAll(chapters);
-            LOGGER.log(Level.INFO, "Finished Adding bibles to index");
-            indexInit = true;
-            for(Runnable r : onIndexInit) {
-                r.run();
+            try {
+                index.setBibles(toIndex);
             }
-            onIndexInit.clear();
-
-            Platform.runLater(() -> {
-                if(panel[0] != null) {
-                    panel[0].done();
+            finally {
+                LOGGER.log(Level.INFO, "Finished Adding bibles to index");
+                indexInit = true;
+                for(Runnable r : onIndexInit) {
+                    r.run();
                 }
-            });
-        }).start();
+                onIndexInit.clear();
+
+                Platform.runLater(() -> {
+                    if(panel[0] != null) {
+                        panel[0].done();
+                    }
+                });
+            }
+        });
     }
 }
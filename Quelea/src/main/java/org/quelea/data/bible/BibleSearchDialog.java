@@ -175,6 +175,7 @@ public class BibleSearchDialog extends Stage implements BibleChangeListener {
             if (BibleManager.get().isIndexInit()) {
                 searchResults.reset();
                 overlay.show();
+                final String translation = bibles.getSelectionModel().getSelectedIndex() == 0 ? null : bibles.getSelectionModel().getSelectedItem();
                 ExecRunnable execRunnable = new ExecRunnable() {
                     private volatile boolean cancel = false;
 
@@ -186,17 +187,13 @@ public class BibleSearchDialog extends Stage implements BibleChangeListener {
                         if (cancel) {
                             return;
                         }
-                        final BibleChapter[] results = BibleManager.get().getIndex().filter(text, null);
+                        final BibleVerse[] results = BibleManager.get().getIndex().search(text, translation, null, null);
                         Platform.runLater(() -> {
                             searchResults.reset();
                             if (!text.trim().isEmpty()) {
-                                for (BibleChapter chapter : results) {
-                                    if (bibles.getSelectionModel().getSelectedIndex() == 0 || chapter.getBook().getBible().getName().equals(bibles.getSelectionModel().getSelectedItem())) {
-                                        for (BibleVerse verse : chapter.getVerses()) {
-                                            if (verse.getText().toLowerCase().contains(text.toLowerCase())) {
-                                                searchResults.add(verse);
-                                            }
-                                        }
+                                for (BibleVerse verse : results) {
+                                    if (verse.getText().toLowerCase().contains(text.toLowerCase())) {
+                                        searchResults.add(verse);
                                     }
                                 }
                             }
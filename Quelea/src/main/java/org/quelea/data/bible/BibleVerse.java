@@ -17,9 +17,14 @@
  */
 package org.quelea.data.bible;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.Objects;
 import org.quelea.services.utils.Utils;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.w3c.dom.Node;
 
 /**
@@ -119,6 +124,68 @@ public final class BibleVerse implements BibleInterface, Serializable {
         }
     }
 
+    /**
+     * Parse some XML representing this object and return the object it
+     * represents.
+     *
+     * @param reader the XML reader, positioned at the start of the element
+     * representing this object. It's left at the end of the element.
+     * @return the object as defined by the XML, or null if the verse number
+     * couldn't be read.
+     * @throws XMLStreamException if the XML couldn't be read.
+     */
+    static BibleVerse parseXML(XMLStreamReader reader) throws XMLStreamException {
+        BibleVerse ret = new BibleVerse();
+        String vnumber = reader.getAttributeValue(null, "vnumber");
+        String number = reader.getAttributeValue(null, "number");
+        String n = reader.getAttributeValue(null, "n");
+        String id = reader.getAttributeValue(null, "id");
+        String osisId = reader.getAttributeValue(null, "osisID");
+        ret.verse = Bible.readText(reader).replace("\n", " ").trim();
+        try {
+            if (vnumber != null) {
+                ret.num = Integer.parseInt(vnumber.trim());
+            } else if (number != null) {
+                ret.num = Integer.parseInt(number.trim());
+            } else if (n != null) {
+                ret.num = Integer.parseInt(n.trim());
+            } else if (id != null) {
+                ret.num = Integer.parseInt(id.trim());
+            } else if (osisId != null) {
+                String[] osisIdParts = osisId.trim().split("\\.");
+                ret.num = Integer.parseInt(osisIdParts[osisIdParts.length-1]);
+            }
+            return ret;
+        } catch (NumberFormatException nfe) {
+            return null;
+        }
+    }
+
+    /**
+     * Write this verse in the compact binary form used by the bible cache.
+     *
+     * @param out the output to write to.
+     * @throws IOException if the verse couldn't be written.
+     */
+    void writeBinary(DataOutput out) throws IOException {
+        out.writeInt(num);
+        BibleCache.writeString(out, verse);
+    }
+
+    /**
+     * Read a verse written by writeBinary().
+     *
+     * @param in the input to read from.
+     * @return the verse.
+     * @throws IOException if the verse couldn't be read.
+     */
+    static BibleVerse readBinary(DataInput in) throws IOException {
+        BibleVerse ret = new BibleVerse();
+        ret.num = in.readInt();
+        ret.verse = BibleCache.readString(in);
+        return ret;
+    }
+
     /**
      * Generate an XML representation of this verse.
      *
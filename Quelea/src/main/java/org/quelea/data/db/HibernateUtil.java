@@ -20,6 +20,11 @@ import org.quelea.utils.EJB3ImplicitNamingStrategy;
  */
 public class HibernateUtil {
 
+    /**
+     * The number of statements sent to the database at once, and the number
+     * of entities bulk operations should save before flushing the session.
+     */
+    public static final int BATCH_SIZE = 50;
     private static SessionFactory sessionFactory;
     private static ServiceRegistry serviceRegistry;
     private static boolean init = false;
@@ -42,6 +47,9 @@ public class HibernateUtil {
             cfg.setProperty("hibernate.hbm2ddl.auto", "update");
             cfg.setProperty("hibernate.implicit_naming_strategy", "legacy-hbm");
             cfg.setProperty("hibernate.connection.characterEncoding", "utf8");
+            cfg.setProperty("hibernate.jdbc.batch_size", Integer.toString(BATCH_SIZE));
+            cfg.setProperty("hibernate.order_inserts", "true");
+            cfg.setProperty("hibernate.order_updates", "true");
             cfg.setImplicitNamingStrategy(new EJB3ImplicitNamingStrategy());
             cfg.addAnnotatedClass(org.quelea.data.db.model.Song.class);
             cfg.addAnnotatedClass(org.quelea.data.db.model.Theme.class);
@@ -1,6 +1,7 @@
 package org.quelea.data.db;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import org.hibernate.Query;
@@ -41,4 +42,98 @@ public class SongDao {
         return ret;
     }
 
+    /**
+     * Get a page of song summaries, ordered by id. Only the columns needed to
+     * list the songs are read, the lyrics and themes are left in the database.
+     *
+     * @param first the index of the first summary to return.
+     * @param max the maximum number of summaries to return.
+     * @return the song summaries.
+     */
+    @SuppressWarnings("unchecked")
+    public List<SongSummary> getSongSummaries(int first, int max) {
+        Query query = session.createQuery("select new org.quelea.data.db.SongSummary(s.id, s.title, s.author, s.ccli, s.modified) from Song s order by s.id");
+        query.setFirstResult(first);
+        query.setMaxResults(max);
+        return query.list();
+    }
+
+    /**
+     * Get the number of songs in the database.
+     *
+     * @return the number of songs.
+     */
+    public int getSongCount() {
+        Query query = session.createQuery("select count(s) from Song s");
+        return ((Number) query.uniqueResult()).intValue();
+    }
+
+    /**
+     * Get the songs with the given ids in a single query.
+     *
+     * @param ids the ids of the songs to get.
+     * @return the songs that exist with the given ids, in no particular order.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Song> getSongsById(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Query query = session.createQuery("from Song s where s.id in (:ids)");
+        query.setParameterList("ids", ids);
+        return query.list();
+    }
+
+    /**
+     * Delete the songs with the given ids using bulk statements, rather than
+     * loading each one to delete it. The themes and shadows belonging to the
+     * songs are deleted along with them, as long as nothing else uses them.
+     *
+     * @param ids the ids of the songs to delete.
+     * @return the number of songs deleted.
+     */
+    @SuppressWarnings("unchecked")
+    public int deleteSongs(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        Query themeQuery = session.createQuery("select t.id, ts.id from Song s join s.theme t left join t.textShadow ts where s.id in (:ids)");
+        themeQuery.setParameterList("ids", ids);
+        List<Long> themeIds = new ArrayList<>();
+        List<Long> shadowIds = new ArrayList<>();
+        for (Object[] row : (List<Object[]>) themeQuery.list()) {
+            themeIds.add((Long) row[0]);
+            if (row[1] != null) {
+                shadowIds.add((Long) row[1]);
+            }
+        }
+        Query songQuery = session.createQuery("delete from Song s where s.id in (:ids)");
+        songQuery.setParameterList("ids", ids);
+        int deleted = songQuery.executeUpdate();
+        if (!themeIds.isEmpty()) {
+            Query deleteThemes = session.createQuery("delete from Theme t where t.id in (:ids) and not exists (from Song s where s.theme = t)");
+            deleteThemes.setParameterList("ids", themeIds);
+            deleteThemes.executeUpdate();
+        }
+        if (!shadowIds.isEmpty()) {
+            Query deleteShadows = session.createQuery("delete from TextShadow ts where ts.id in (:ids) and not exists (from Theme t where t.textShadow = ts)");
+            deleteShadows.setParameterList("ids", shadowIds);
+            deleteShadows.executeUpdate();
+        }
+        return deleted;
+    }
+
+    /**
+     * Give every song without a modification time the given time, so it can
+     * be tracked from now on.
+     *
+     * @param time the modification time to set.
+     * @return the number of songs updated.
+     */
+    public int setMissingModified(long time) {
+        Query query = session.createQuery("update Song set modified = :time where modified is null");
+        query.setParameter("time", time);
+        return query.executeUpdate();
+    }
+
 }
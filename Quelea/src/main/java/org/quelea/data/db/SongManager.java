@@ -17,13 +17,22 @@
  */
 package org.quelea.data.db;
 
-import java.lang.ref.SoftReference;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -37,32 +46,74 @@ import org.quelea.data.db.model.Theme;
 import org.quelea.data.displayable.SongDisplayable;
 import org.quelea.data.displayable.TextSection;
 import org.quelea.services.lucene.SongSearchIndex;
+import org.quelea.services.lucene.SongSimilarityIndex;
+import org.quelea.services.utils.DatabaseChangeEvent;
 import org.quelea.services.utils.DatabaseListener;
 import org.quelea.services.utils.LoggerUtils;
+import org.quelea.services.utils.QueleaProperties;
 import org.quelea.windows.main.widgets.LoadingPane;
 
 /**
  * Manage songs persistent operations.
  * <p/>
+ * Once loaded, songs are cached by id. Adding, updating or removing songs
+ * patches the cache and the search index in place rather than reloading the
+ * whole database, and listeners are told exactly which songs have changed.
+ * <p/>
+ * Only the summary of each song (its id, title, author and ccli number) is
+ * read when the songs are first loaded. The rest of a song is loaded the
+ * first time it's needed - usually in the background, as the song's selected
+ * or added to the schedule (see {@link #prefetch(SongDisplayable)}). Only a
+ * limited number of songs keep their full content in memory at once - the
+ * least recently loaded are released to be reloaded on demand.
+ * <p/>
+ * Large numbers of changes, such as imports, can be made in bulk mode (see
+ * {@link #bulkUpdate(Runnable)}) so the search index is committed and the
+ * listeners are told once at the end, rather than after each change.
  *
  * @author Michael
  */
 public final class SongManager {
 
     private static final Logger LOGGER = LoggerUtils.getLogger();
+    private static final int PAGE_SIZE = 1000;
+    private static final int MAX_LOADED_SONGS = 200;
+    private static final int DELETE_BATCH_SIZE = 1000;
     private static volatile SongManager INSTANCE;
     private final SongSearchIndex index;
-    private boolean indexIsClear;
-    private SoftReference<SongDisplayable[]> cacheSongs = new SoftReference<>(null);
+    private final Map<Long, SongDisplayable> cacheSongs;
+    private boolean cacheLoaded;
+    private SongSortIndex sortIndex;
+    private final Map<Long, SongDisplayable> loadedSongs;
+    private final ExecutorService prefetcher;
     private final Set<DatabaseListener> listeners;
+    private int bulkDepth;
+    private final Map<Long, SongDisplayable> pendingIndexed;
+    private final Set<Long> pendingUnindexed;
+    private final Set<Long> pendingAdded;
+    private final Set<Long> pendingUpdated;
+    private final Set<Long> pendingRemoved;
 
     /**
      * Initialise the song database.
      */
     private SongManager() {
         listeners = new HashSet<>();
-        indexIsClear = true;
-        index = new SongSearchIndex();
+        cacheSongs = new HashMap<>();
+        loadedSongs = new LinkedHashMap<>(16, 0.75f, true);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "song-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        prefetcher = executor;
+        pendingIndexed = new LinkedHashMap<>();
+        pendingUnindexed = new HashSet<>();
+        pendingAdded = new LinkedHashSet<>();
+        pendingUpdated = new LinkedHashSet<>();
+        pendingRemoved = new LinkedHashSet<>();
+        index = new SongSearchIndex(new File(QueleaProperties.get().getIndexDir(), "songs"));
     }
 
     /**
@@ -83,6 +134,19 @@ public final class SongManager {
         return INSTANCE;
     }
 
+    /**
+     * Get the singleton instance of this class if it's already been created,
+     * without creating it (and so without starting the database) if it
+     * hasn't.
+     * <p/>
+     *
+     * @return the singleton instance of this class, or null if it hasn't been
+     * created.
+     */
+    public static SongManager getIfInitialised() {
+        return INSTANCE;
+    }
+
     /**
      * Get the underlying search index used by this database.
      * <p/>
@@ -112,6 +176,102 @@ public final class SongManager {
         }
     }
 
+    /**
+     * Fire off the database listeners with the songs that have changed.
+     * <p/>
+     *
+     * @param event the songs that have changed.
+     */
+    private synchronized void fireUpdate(DatabaseChangeEvent event) {
+        for (DatabaseListener listener : listeners) {
+            listener.databaseChanged(event);
+        }
+    }
+
+    /**
+     * Run the given operations in bulk mode. Any songs added, updated or
+     * removed while they run (on any thread) are saved to the database as
+     * normal, but the search index isn't updated and the listeners aren't
+     * fired until the operations have finished - at which point all the
+     * changes are indexed in one commit and reported in one event.
+     * <p/>
+     * Bulk operations may be nested, the changes are applied when the
+     * outermost one finishes.
+     *
+     * @param operations the operations to run.
+     */
+    public void bulkUpdate(Runnable operations) {
+        synchronized (this) {
+            bulkDepth++;
+        }
+        try {
+            operations.run();
+        } finally {
+            synchronized (this) {
+                bulkDepth--;
+                if (bulkDepth == 0) {
+                    flushChanges();
+                }
+            }
+        }
+    }
+
+    /**
+     * Record that the given songs have changed, and apply the changes to the
+     * index and listeners straight away unless in bulk mode.
+     *
+     * @param added the songs that have been added.
+     * @param updated the songs that have been updated.
+     * @param removed the ids of the songs that have been removed.
+     * @param fire true if listeners should be told about the added songs,
+     * false otherwise.
+     */
+    private void songsChanged(Collection<SongDisplayable> added, Collection<SongDisplayable> updated, Collection<Long> removed, boolean fire) {
+        for (SongDisplayable song : added) {
+            pendingIndexed.put(song.getID(), song);
+            pendingUnindexed.remove(song.getID());
+            if (fire) {
+                pendingAdded.add(song.getID());
+            }
+        }
+        for (SongDisplayable song : updated) {
+            pendingIndexed.put(song.getID(), song);
+            pendingUnindexed.remove(song.getID());
+            if (!pendingAdded.contains(song.getID())) {
+                pendingUpdated.add(song.getID());
+            }
+        }
+        for (Long id : removed) {
+            pendingIndexed.remove(id);
+            pendingUnindexed.add(id);
+            pendingUpdated.remove(id);
+            if (!pendingAdded.remove(id)) {
+                pendingRemoved.add(id);
+            }
+        }
+        if (bulkDepth == 0) {
+            flushChanges();
+        }
+    }
+
+    /**
+     * Apply all the pending changes to the index in one commit, and tell the
+     * listeners about them in one event.
+     */
+    private void flushChanges() {
+        if (!pendingIndexed.isEmpty() || !pendingUnindexed.isEmpty()) {
+            index.applyChanges(new ArrayList<>(pendingIndexed.values()), new ArrayList<>(pendingUnindexed));
+        }
+        if (!pendingAdded.isEmpty() || !pendingUpdated.isEmpty() || !pendingRemoved.isEmpty()) {
+            fireUpdate(new DatabaseChangeEvent(pendingAdded, pendingUpdated, pendingRemoved));
+        }
+        pendingIndexed.clear();
+        pendingUnindexed.clear();
+        pendingAdded.clear();
+        pendingUpdated.clear();
+        pendingRemoved.clear();
+    }
+
     public synchronized SongDisplayable[] getSongs() {
         return getSongs(null);
     }
@@ -123,51 +283,97 @@ public final class SongManager {
      * @return an array of all the songs in the database.
      */
     public synchronized SongDisplayable[] getSongs(LoadingPane loadingPane) {
-        if (cacheSongs.get() != null) {
-            return cacheSongs.get();
+        if (!cacheLoaded) {
+            loadSongs(loadingPane);
+        }
+        return getSortIndex().getSongs();
+    }
+
+    /**
+     * Get the songs in the database in sorted order, which can also be used
+     * to sort any subset of them. The index is kept until the songs next
+     * change.
+     * <p/>
+     *
+     * @return the sorted index of the songs in the database.
+     */
+    public synchronized SongSortIndex getSortIndex() {
+        if (!cacheLoaded) {
+            loadSongs(null);
+        }
+        if (sortIndex == null) {
+            sortIndex = new SongSortIndex(cacheSongs.values());
+        }
+        return sortIndex;
+    }
+
+    /**
+     * Get the index used to find songs similar to a given song, such as when
+     * checking imported songs for duplicates. The songs are loaded first if
+     * they haven't been already.
+     * <p/>
+     *
+     * @return the similarity index of the songs in the database.
+     */
+    public SongSimilarityIndex getSimilarityIndex() {
+        synchronized (this) {
+            if (!cacheLoaded) {
+                loadSongs(null);
+            }
+        }
+        return index.getSimilarityIndex();
+    }
+
+    /**
+     * Get the song with the given id.
+     * <p/>
+     *
+     * @param id the id of the song.
+     * @return the song, or null if there's no song in the database with that
+     * id.
+     */
+    public synchronized SongDisplayable getSong(long id) {
+        if (!cacheLoaded) {
+            loadSongs(null);
+        }
+        return cacheSongs.get(id);
+    }
+
+    /**
+     * Load the summary of every song from the database into the cache, and
+     * bring the search index up to date with them.
+     * <p/>
+     *
+     * @param loadingPane the loading pane to show progress on, may be null.
+     */
+    private void loadSongs(LoadingPane loadingPane) {
+        cacheSongs.clear();
+        sortIndex = null;
+        synchronized (loadedSongs) {
+            loadedSongs.clear();
         }
-        final Set<SongDisplayable> songs = new TreeSet<>();
         HibernateUtil.execute((Session session) -> {
-            List<Song> songsList = new SongDao(session).getSongs();
-            for (int si = 0; si < songsList.size(); si++) {
-                final int finalSi = si;
+            SongDao dao = new SongDao(session);
+            int stamped = dao.setMissingModified(System.currentTimeMillis());
+            if (stamped > 0) {
+                LOGGER.log(Level.INFO, "Set modification time of {0} songs", stamped);
+            }
+            final int total = dao.getSongCount();
+            for (int first = 0; ; first += PAGE_SIZE) {
+                List<SongSummary> page = dao.getSongSummaries(first, PAGE_SIZE);
+                for (SongSummary summary : page) {
+                    SongDisplayable songDisplayable = toDisplayable(summary);
+                    cacheSongs.put(songDisplayable.getID(), songDisplayable);
+                }
                 if (loadingPane != null) {
+                    final double progress = (double) cacheSongs.size() / Math.max(total, 1);
                     Platform.runLater(() -> {
-                        loadingPane.setProgress((double) finalSi / songsList.size());
+                        loadingPane.setProgress(progress);
                     });
                 }
-                Song song = songsList.get(si);
-                try {
-                    song.getTitle();
-                } catch (Exception ex) {
-                    /*
-                     * Sometimes (rarely) a song can become corrupt - not entirely
-                     * sure why, but this allows us to load the database ok whilst
-                     * still skipping over the corrupt entries.
-                     */
-                    LOGGER.log(Level.WARNING, "Song with id " + song.getId() + " is corrupt, skipping...", ex);
-                    continue;
-                }
-                final SongDisplayable songDisplayable = new SongDisplayable.Builder(song.getTitle(),
-                        song.getAuthor())
-                        .ccli(song.getCcli())
-                        .year(song.getYear())
-                        .publisher(song.getPublisher())
-                        .copyright(song.getCopyright())
-                        .key(song.getKey())
-                        .info(song.getInfo())
-                        .capo(song.getCapo())
-                        .translations(song.getTranslations())
-                        .sequence(song.getSequence())
-                        .lyrics(song.getLyrics())
-                        .id(song.getId()).get();
-                final Theme theme = song.getTheme();
-                final ThemeDTO themedto = ThemeDTO.getDTO(theme);
-                for (TextSection section : songDisplayable.getSections()) {
-                    section.setTheme(themedto);
+                if (page.size() < PAGE_SIZE) {
+                    break;
                 }
-                songDisplayable.setTheme(themedto);
-                songs.add(songDisplayable);
             }
             if (loadingPane != null) {
                 Platform.runLater(() -> {
@@ -176,14 +382,149 @@ public final class SongManager {
             }
         });
 
-        if (indexIsClear) {
-            indexIsClear = false;
-            LOGGER.log(Level.INFO, "Adding {0} songs to index", songs.size());
-            index.addAll(songs);
+        LOGGER.log(Level.INFO, "Synchronising {0} songs with index", cacheSongs.size());
+        index.synchronise(cacheSongs.values(), ids -> loadSongContent(ids, false));
+        cacheLoaded = true;
+    }
+
+    /**
+     * Create a song displayable from the given summary. The rest of the song
+     * is loaded from the database when it's first needed.
+     * <p/>
+     *
+     * @param summary the song summary.
+     * @return the song displayable.
+     */
+    private SongDisplayable toDisplayable(SongSummary summary) {
+        final SongDisplayable.Builder builder = new SongDisplayable.Builder(summary.getTitle(), summary.getAuthor())
+                .ccli(summary.getCcli())
+                .lastModified(summary.getModified())
+                .id(summary.getId());
+        final SongDisplayable songDisplayable = builder.get();
+        builder.contentSource(() -> loadContent(songDisplayable));
+        return songDisplayable;
+    }
+
+    /**
+     * Load the content of the given song in the background if it isn't
+     * loaded already, so showing the song doesn't have to wait for the
+     * database. If the song's needed before this finishes, it waits for this
+     * load rather than loading it again.
+     * <p/>
+     *
+     * @param song the song to load.
+     * @return a future that's completed once the song's content is loaded.
+     */
+    public CompletableFuture<Void> prefetch(SongDisplayable song) {
+        if (song.isContentLoaded()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(song::fetchContent, prefetcher);
+    }
+
+    /**
+     * Load the full content of the given song from the database, and keep
+     * track of it so it can be released again once enough other songs have
+     * been loaded.
+     * <p/>
+     *
+     * @param song the song to load the content of.
+     * @return a copy of the song with its content loaded, or null if it
+     * couldn't be loaded.
+     */
+    private SongDisplayable loadContent(SongDisplayable song) {
+        List<SongDisplayable> content;
+        try {
+            content = loadSongContent(List.of(song.getID()), true);
+        } catch (IllegalStateException ex) {
+            LOGGER.log(Level.WARNING, "Couldn't load song " + song.getID(), ex);
+            return null;
+        }
+        if (content.isEmpty()) {
+            return null;
+        }
+        trackLoaded(song);
+        return content.get(0);
+    }
+
+    /**
+     * Load the full content of the songs with the given ids in one query.
+     * <p/>
+     *
+     * @param ids the ids of the songs to load.
+     * @param withTheme true if the songs' themes should be loaded, false if
+     * only their text is needed.
+     * @return the songs that were found.
+     */
+    private List<SongDisplayable> loadSongContent(Collection<Long> ids, boolean withTheme) {
+        final List<SongDisplayable> ret = new ArrayList<>();
+        HibernateUtil.execute((Session session) -> {
+            for (Song song : new SongDao(session).getSongsById(ids)) {
+                ret.add(toDisplayable(song, withTheme));
+            }
+        });
+        return ret;
+    }
+
+    /**
+     * Note that the given song has its content loaded, releasing the content
+     * of the least recently loaded songs if too many now have theirs loaded.
+     * <p/>
+     *
+     * @param song the song that's been loaded.
+     */
+    private void trackLoaded(SongDisplayable song) {
+        List<SongDisplayable> evicted = new ArrayList<>();
+        synchronized (loadedSongs) {
+            loadedSongs.put(song.getID(), song);
+            Iterator<SongDisplayable> iter = loadedSongs.values().iterator();
+            while (loadedSongs.size() > MAX_LOADED_SONGS && iter.hasNext()) {
+                SongDisplayable next = iter.next();
+                //Songs in the schedule or on display stay loaded (and tracked) until they're unpinned
+                if (!next.isPinned()) {
+                    evicted.add(next);
+                    iter.remove();
+                }
+            }
+        }
+        //Released outside the lock, since loading a song holds its own lock while calling back in here
+        for (SongDisplayable evictedSong : evicted) {
+            evictedSong.releaseContent();
         }
-        SongDisplayable[] songArr = songs.toArray(new SongDisplayable[songs.size()]);
-        cacheSongs = new SoftReference<>(songArr);
-        return songArr;
+    }
+
+    /**
+     * Create a song displayable from the given database entity.
+     * <p/>
+     *
+     * @param song the song entity.
+     * @param withTheme true if the song's theme should be set, false otherwise.
+     * @return the song displayable.
+     */
+    private static SongDisplayable toDisplayable(Song song, boolean withTheme) {
+        final SongDisplayable songDisplayable = new SongDisplayable.Builder(song.getTitle(),
+                song.getAuthor())
+                .ccli(song.getCcli())
+                .year(song.getYear())
+                .publisher(song.getPublisher())
+                .copyright(song.getCopyright())
+                .key(song.getKey())
+                .info(song.getInfo())
+                .capo(song.getCapo())
+                .translations(song.getTranslations())
+                .sequence(song.getSequence())
+                .lyrics(song.getLyrics())
+                .lastModified(song.getModified() == null ? 0 : song.getModified())
+                .id(song.getId()).get();
+        if (withTheme) {
+            final Theme theme = song.getTheme();
+            final ThemeDTO themedto = ThemeDTO.getDTO(theme);
+            for (TextSection section : songDisplayable.getSections()) {
+                section.setTheme(themedto);
+            }
+            songDisplayable.setTheme(themedto);
+        }
+        return songDisplayable;
     }
 
     public boolean addSong(final SongDisplayable song, final boolean fireUpdate) {
@@ -204,8 +545,6 @@ public final class SongManager {
      * @return true if the operation succeeded, false otherwise.
      */
     public synchronized boolean addSong(final SongDisplayable[] songs, final boolean fireUpdate) {
-        cacheSongs.clear();
-        clearIndex();
         final List<SongDisplayable> adjustedSongs = new ArrayList<>();
         for (SongDisplayable song : songs) {
             if (song.getSectionsWithoutSequence().length > 0) {
@@ -215,8 +554,11 @@ public final class SongManager {
         if (adjustedSongs.isEmpty()) {
             return false;
         }
+        final List<SongDisplayable> addedSongs = new ArrayList<>();
+        final long modified = System.currentTimeMillis();
         try {
             HibernateUtil.execute((Session session) -> {
+                int count = 0;
                 for (SongDisplayable song : adjustedSongs) {
                     final boolean nullTheme = song.getSections()[0].getTheme() == null;
                     Song newSong = new Song(song.getTitle(),
@@ -232,16 +574,33 @@ public final class SongManager {
                             nullTheme ? ThemeDTO.DEFAULT_THEME.getTheme() : new Theme(song.getSections()[0].getTheme().getTheme()),
                             song.getTranslations(),
                             song.getSequence());
+                    newSong.setModified(modified);
                     session.save(newSong);
+                    addedSongs.add(toDisplayable(newSong, true));
+                    //Send the inserts in batches, and keep the session from growing with every song
+                    if (++count % HibernateUtil.BATCH_SIZE == 0) {
+                        session.flush();
+                        session.clear();
+                    }
                 }
             });
         } catch (IllegalStateException ex) {
             LOGGER.log(Level.WARNING, "Couldn't add song", ex);
+            cacheLoaded = false;
+            if (fireUpdate) {
+                fireUpdate();
+            }
+            return true;
         }
-        getSongs();
-        if (fireUpdate) {
-            fireUpdate();
+        if (cacheLoaded) {
+            for (SongDisplayable song : addedSongs) {
+                cacheSongs.put(song.getID(), song);
+                song.setContentSource(() -> loadContent(song));
+                trackLoaded(song);
+            }
+            sortIndex = null;
         }
+        songsChanged(addedSongs, List.of(), List.of(), fireUpdate);
         return true;
     }
 
@@ -266,7 +625,8 @@ public final class SongManager {
      * @return true if the operation succeeded, false otherwise.
      */
     public synchronized boolean updateSong(final SongDisplayable song, boolean addIfNotFound) {
-        index.remove(song);
+        final boolean[] updated = new boolean[1];
+        final long modified = System.currentTimeMillis();
         try {
             HibernateUtil.execute((Session session) -> {
                 Song updatedSong;
@@ -286,8 +646,9 @@ public final class SongManager {
                     updatedSong.setTitle(song.getTitle());
                     updatedSong.setTranslations(song.getTranslations());
                     updatedSong.setTheme(nullTheme ? ThemeDTO.DEFAULT_THEME.getTheme() : new Theme(song.getSections()[0].getTheme().getTheme()));
+                    updatedSong.setModified(modified);
                     session.update(updatedSong);
-                    index.add(song);
+                    updated[0] = true;
                 } catch (ObjectNotFoundException e) {
                     LOGGER.log(Level.INFO, "Updating song that doesn't exist, adding instead");
                     addSong(song, true);
@@ -305,6 +666,16 @@ public final class SongManager {
                 return false;
             }
         }
+        if (updated[0]) {
+            song.setLastModified(modified);
+            if (cacheLoaded) {
+                cacheSongs.put(song.getID(), song);
+                sortIndex = null;
+                song.setContentSource(() -> loadContent(song));
+                trackLoaded(song);
+            }
+            songsChanged(List.of(), List.of(song), List.of(), true);
+        }
 
         return true;
     }
@@ -330,28 +701,25 @@ public final class SongManager {
     public synchronized boolean removeSongs(final List<SongDisplayable> songs) {
         List<Long> ids = songs.stream().map(SongDisplayable::getID).collect(Collectors.toList());
         LOGGER.log(Level.INFO, "Removing songs {0}", ids);
-        cacheSongs.clear();
         try {
             HibernateUtil.execute((Session session) -> {
-                for (SongDisplayable song : songs) {
-                    Song deletedSong = new SongDao(session).getSongById(song.getID());
-                    session.delete(deletedSong);
+                SongDao dao = new SongDao(session);
+                for (int i = 0; i < ids.size(); i += DELETE_BATCH_SIZE) {
+                    dao.deleteSongs(ids.subList(i, Math.min(i + DELETE_BATCH_SIZE, ids.size())));
                 }
             });
         } catch (IllegalStateException ex) {
             LOGGER.log(Level.WARNING, "Couldn't remove songs " + ids, ex);
+            cacheLoaded = false;
             return false;
         }
-        for (SongDisplayable song : songs) {
-            index.remove(song);
+        cacheSongs.keySet().removeAll(ids);
+        sortIndex = null;
+        synchronized (loadedSongs) {
+            loadedSongs.keySet().removeAll(ids);
         }
-        fireUpdate();
+        songsChanged(List.of(), List.of(), ids, true);
         LOGGER.log(Level.INFO, "Removed song {0}", ids);
         return true;
     }
-
-    private void clearIndex() {
-        index.clear();
-        indexIsClear = true;
-    }
 }
@@ -0,0 +1,120 @@
+/*
+ * This file is part of Quelea, free projection software for churches.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.quelea.data.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.quelea.data.displayable.SongDisplayable;
+
+/**
+ * The songs in the library in sorted order, along with each song's position
+ * in that order. Once the library's been sorted, any subset of it - such as
+ * the results of a search - can be put in the same order by comparing
+ * positions, rather than comparing the songs themselves again.
+ * <p/>
+ * As with a sorted set, songs that compare equal (the same title, author and
+ * id, such as two copies of the same song) only appear once. Duplicates share
+ * the position of the song that's kept.
+ *
+ * @author Michael
+ */
+public final class SongSortIndex {
+
+    private final SongDisplayable[] songs;
+    private final Map<SongDisplayable, Integer> ranks;
+    private final Comparator<SongDisplayable> comparator;
+
+    /**
+     * Sort the given songs into a new index.
+     * <p/>
+     *
+     * @param allSongs the songs to sort.
+     */
+    public SongSortIndex(Collection<SongDisplayable> allSongs) {
+        SongDisplayable[] sorted = allSongs.toArray(new SongDisplayable[allSongs.size()]);
+        Arrays.sort(sorted);
+        ranks = new IdentityHashMap<>(sorted.length);
+        List<SongDisplayable> distinct = new ArrayList<>(sorted.length);
+        for (SongDisplayable song : sorted) {
+            if (distinct.isEmpty() || distinct.get(distinct.size() - 1).compareTo(song) != 0) {
+                distinct.add(song);
+            }
+            ranks.put(song, distinct.size() - 1);
+        }
+        songs = distinct.toArray(new SongDisplayable[distinct.size()]);
+        comparator = (s1, s2) -> {
+            Integer r1 = ranks.get(s1);
+            Integer r2 = ranks.get(s2);
+            if (r1 != null && r2 != null) {
+                return Integer.compare(r1, r2);
+            } else if (r1 != null) {
+                return -1;
+            } else if (r2 != null) {
+                return 1;
+            }
+            return s1.compareTo(s2);
+        };
+    }
+
+    /**
+     * Get the distinct songs in this index, in sorted order.
+     * <p/>
+     *
+     * @return the sorted songs.
+     */
+    public SongDisplayable[] getSongs() {
+        return songs;
+    }
+
+    /**
+     * Get a comparator that orders songs by their position in this index.
+     * Songs that aren't in the index, such as ones added since it was built,
+     * come after those that are, in their natural order.
+     * <p/>
+     *
+     * @return the comparator.
+     */
+    public Comparator<SongDisplayable> comparator() {
+        return comparator;
+    }
+
+    /**
+     * Put the given songs in the order of this index, dropping any that
+     * compare equal to one already in the list.
+     * <p/>
+     *
+     * @param toSort the songs to sort.
+     * @return the distinct songs, in sorted order.
+     */
+    public List<SongDisplayable> sort(Collection<SongDisplayable> toSort) {
+        List<SongDisplayable> sorted = new ArrayList<>(toSort);
+        sorted.sort(comparator);
+        List<SongDisplayable> ret = new ArrayList<>(sorted.size());
+        for (SongDisplayable song : sorted) {
+            if (ret.isEmpty() || comparator.compare(ret.get(ret.size() - 1), song) != 0) {
+                ret.add(song);
+            }
+        }
+        return ret;
+    }
+}
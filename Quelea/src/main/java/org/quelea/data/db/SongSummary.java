@@ -0,0 +1,86 @@
+/*
+ * This file is part of Quelea, free projection software for churches.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.quelea.data.db;
+
+/**
+ * The lightweight columns of a song, as needed to list it in the library
+ * without loading its lyrics or theme.
+ *
+ * @author Michael
+ */
+public class SongSummary {
+
+    private final long id;
+    private final String title;
+    private final String author;
+    private final String ccli;
+    private final long modified;
+
+    /**
+     * Create a new song summary. This is called by hibernate from a projection
+     * query.
+     *
+     * @param id the id of the song.
+     * @param title the title of the song.
+     * @param author the author of the song.
+     * @param ccli the ccli number of the song.
+     * @param modified the time the song was last modified, may be null.
+     */
+    public SongSummary(long id, String title, String author, String ccli, Long modified) {
+        this.id = id;
+        this.title = title;
+        this.author = author;
+        this.ccli = ccli;
+        this.modified = modified == null ? 0 : modified;
+    }
+
+    /**
+     * @return the id of the song.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return the title of the song.
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return the author of the song.
+     */
+    public String getAuthor() {
+        return author;
+    }
+
+    /**
+     * @return the ccli number of the song.
+     */
+    public String getCcli() {
+        return ccli;
+    }
+
+    /**
+     * @return the time the song was last modified, or 0 if unknown.
+     */
+    public long getModified() {
+        return modified;
+    }
+}
@@ -34,6 +34,7 @@ public class Song {
     private Theme theme;
     private HashMap<String, String> translations;
     private String sequence;
+    private Long modified;
 
     public Song() {
     }
@@ -263,5 +264,20 @@ public class Song {
         this.sequence = sequence;
     }
 
+    /**
+     * @return the time this song was last added or updated, or null if it
+     * predates this column.
+     */
+    @Column(name = "modified")
+    public Long getModified() {
+        return modified;
+    }
+
+    /**
+     * @param modified the time this song was last added or updated
+     */
+    public void setModified(Long modified) {
+        this.modified = modified;
+    }
 
 }
@@ -24,9 +24,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import org.javafx.dialog.Dialog;
@@ -80,7 +80,7 @@ public class BiblePassage implements TextDisplayable, Serializable {
      * @param theme the theme of the passage.
      */
     public BiblePassage(String summary, BibleVerse[] verses, ThemeDTO theme, boolean multi) {
-        fontSizeCache = new HashMap<>();
+        fontSizeCache = new ConcurrentHashMap<>();
         this.summary = summary;
         this.multi = multi;
         this.smallText = summary.split("\n");
@@ -138,6 +138,9 @@ public class PdfDisplayable implements Displayable {
      */
     @Override
     public void dispose() {
+        if (presentation != null) {
+            presentation.dispose();
+        }
     }
 
     /**
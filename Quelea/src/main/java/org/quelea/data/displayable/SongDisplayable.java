@@ -22,7 +22,10 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.io.StringWriter;
+import java.text.CollationKey;
 import java.text.Collator;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -34,6 +37,9 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -46,6 +52,8 @@ import javafx.scene.input.DataFormat;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 import javafx.scene.layout.BackgroundFill;
 import javafx.scene.layout.CornerRadii;
@@ -76,27 +84,24 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
     public int count = 0;
     public static final DataFormat SONG_DISPLAYABLE_FORMAT = new DataFormat("songdisplayable");
     private static final Logger LOGGER = LoggerUtils.getLogger();
+    private static final Collator COLLATOR = Collator.getInstance();
     private boolean updateInDB = true;
     private String title = "";
     private String author = "";
     private String ccli = "";
-    private String year = "";
-    private String publisher = "";
-    private String copyright = "";
-    private String key = "";
-    private String capo = "";
-    private String info = "";
     private boolean quickInsert;
-    private List<TextSection> sectionsInSequence = new ArrayList<>();
-    private List<TextSection> sectionsWithoutSequence = new ArrayList<>();
-    private HashMap<String, String> translations = new HashMap<>();
+    private volatile Content content = new Content();
     private String currentTranslation;
-    private ThemeDTO theme;
     private long id = 0;
     private boolean printChords;
     private String lastSearch = "";
     private String sequence = "";
     private Map<Dimension, Double> fontSizeCache;
+    private long lastModified;
+    private transient volatile Supplier<SongDisplayable> contentSource;
+    private transient volatile boolean contentModified;
+    private transient int pins;
+    private transient volatile SortKey sortKey;
 
     /**
      * The builder responsible for building this song.
@@ -154,7 +159,7 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
             if (year == null) {
                 year = "";
             }
-            song.year = year;
+            song.content.year = year;
             return this;
         }
 
@@ -169,7 +174,7 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
             if (publisher == null) {
                 publisher = "";
             }
-            song.publisher = publisher;
+            song.content.publisher = publisher;
             return this;
         }
 
@@ -181,7 +186,7 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
          * @return this builder.
          */
         public Builder theme(ThemeDTO theme) {
-            song.theme = theme;
+            song.content.theme = theme;
             return this;
         }
 
@@ -208,7 +213,7 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
             if (copyright == null) {
                 copyright = "";
             }
-            song.copyright = copyright;
+            song.content.copyright = copyright;
             return this;
         }
 
@@ -223,12 +228,12 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
             if (key == null) {
                 key = "";
             }
-            song.key = key;
+            song.content.key = key;
             return this;
         }
 
         public Builder translations(HashMap<String, String> translations) {
-            song.translations = translations;
+            song.content.translations = translations;
             return this;
         }
 
@@ -243,7 +248,7 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
             if (capo == null) {
                 capo = "";
             }
-            song.capo = capo;
+            song.content.capo = capo;
             return this;
         }
 
@@ -258,7 +263,7 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
             if (info == null) {
                 info = "";
             }
-            song.info = info;
+            song.content.info = info;
             return this;
         }
 
@@ -270,7 +275,36 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
          * @return this builder.
          */
         public Builder sequence(String sequence) {
-            song.sequence = sequence == null ? "" : sequence;
+            song.content.sequence = sequence == null ? "" : sequence;
+            setSectionsInSequence(song.content);
+            return this;
+        }
+
+        /**
+         * Set the time this song was last modified in the database.
+         * <p/>
+         *
+         * @param lastModified the song's last modification time.
+         * @return this builder.
+         */
+        public Builder lastModified(long lastModified) {
+            song.lastModified = lastModified;
+            return this;
+        }
+
+        /**
+         * Load the lyrics, theme and other details of this song from the given
+         * source the first time any of them are needed, rather than up front.
+         * Only the id, title, author and ccli number are available before
+         * then.
+         * <p/>
+         *
+         * @param source the source of the song's full content.
+         * @return this builder.
+         */
+        public Builder contentSource(Supplier<SongDisplayable> source) {
+            song.contentSource = source;
+            song.content = null;
             return this;
         }
 
@@ -292,27 +326,28 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @param song the song to copy to create the new song.
      */
     public SongDisplayable(SongDisplayable song) {
-        this.fontSizeCache = new HashMap<>();
+        Content songContent = song.getContent();
+        this.fontSizeCache = new ConcurrentHashMap<>();
         this.title = song.title;
         this.author = song.author;
-        this.sectionsInSequence = new ArrayList<>();
-        this.sectionsWithoutSequence = new ArrayList<>();
-        for (TextSection section : song.getSectionsWithoutSequence()) {
-            this.sectionsWithoutSequence.add(new TextSection(section));
+        for (TextSection section : songContent.sectionsWithoutSequence) {
+            this.content.sectionsWithoutSequence.add(new TextSection(section));
         }
-        this.theme = song.theme;
+        this.content.theme = songContent.theme;
         this.id = song.id;
         this.ccli = song.ccli;
-        this.year = song.year;
-        this.publisher = song.publisher;
-        this.copyright = song.copyright;
-        this.key = song.key;
-        this.info = song.info;
-        this.capo = song.capo;
+        this.content.year = songContent.year;
+        this.content.publisher = songContent.publisher;
+        this.content.copyright = songContent.copyright;
+        this.content.key = songContent.key;
+        this.content.info = songContent.info;
+        this.content.capo = songContent.capo;
         this.lastSearch = song.lastSearch;
-        this.translations = song.translations;
+        this.content.translations = songContent.translations;
         this.count = song.count++;
-        this.sequence = song.sequence;
+        this.content.sequence = songContent.sequence;
+        setSectionsInSequence(this.content);
+        this.lastModified = song.lastModified;
     }
 
     /**
@@ -337,14 +372,234 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @param theme  the theme of the song.
      */
     public SongDisplayable(String title, String author, ThemeDTO theme) {
-        this.fontSizeCache = new HashMap<>();
+        this.fontSizeCache = new ConcurrentHashMap<>();
         id = -1;
         this.title = title;
         this.author = author;
-        this.theme = theme;
-        sectionsInSequence = new ArrayList<>();
-        sectionsWithoutSequence = new ArrayList<>();
-        sequence = "";
+        this.content.theme = theme;
+    }
+
+    /**
+     * The parts of a song that are only loaded from the database when they're
+     * first needed. They're held together so that a song's content is always
+     * read as a whole - it's loaded, changed or released by swapping this
+     * holder in a single write, and never changed in place once the song's
+     * been built.
+     */
+    private static final class Content implements Serializable {
+
+        private String year = "";
+        private String publisher = "";
+        private String copyright = "";
+        private String key = "";
+        private String capo = "";
+        private String info = "";
+        private String sequence = "";
+        private HashMap<String, String> translations = new HashMap<>();
+        private ThemeDTO theme;
+        private final List<TextSection> sectionsInSequence = new ArrayList<>();
+        private final List<TextSection> sectionsWithoutSequence = new ArrayList<>();
+
+        private Content() {
+        }
+
+        /**
+         * Copy the given content, so the copy can be changed without changing
+         * the original. The sections themselves are shared.
+         *
+         * @param content the content to copy.
+         */
+        private Content(Content content) {
+            year = content.year;
+            publisher = content.publisher;
+            copyright = content.copyright;
+            key = content.key;
+            capo = content.capo;
+            info = content.info;
+            sequence = content.sequence;
+            translations = content.translations == null ? null : new HashMap<>(content.translations);
+            theme = content.theme;
+            sectionsInSequence.addAll(content.sectionsInSequence);
+            sectionsWithoutSequence.addAll(content.sectionsWithoutSequence);
+        }
+    }
+
+    /**
+     * Get this song's content, loading it from its content source if it
+     * hasn't been loaded already. Callers should get the content once and
+     * read everything they need from it, so a release in the meantime can't
+     * leave them with parts of two different loads.
+     *
+     * @return the song's content.
+     */
+    private Content getContent() {
+        Content ret = content;
+        if (ret == null) {
+            ret = loadContent();
+        }
+        return ret;
+    }
+
+    /**
+     * Get this song's content before changing it, and mark it as changed so
+     * it's never released in favour of the (now stale) copy in its content
+     * source.
+     *
+     * @return the song's content.
+     */
+    private Content editContent() {
+        contentModified = true;
+        return getContent();
+    }
+
+    /**
+     * Get a copy of this song's content to change, marking the song as
+     * changed. The copy replaces the song's content once it's passed to
+     * {@link #publishContent(Content)}, so anyone still reading the old
+     * content never sees it change under them.
+     *
+     * @return a copy of the song's content.
+     */
+    private synchronized Content copyContent() {
+        return new Content(editContent());
+    }
+
+    private void publishContent(Content changed) {
+        fontSizeCache.clear();
+        content = changed;
+    }
+
+    /**
+     * Change a copy of this song's content and then replace the content with
+     * it.
+     *
+     * @param change the change to make.
+     */
+    private void updateContent(Consumer<Content> change) {
+        Content changed = copyContent();
+        change.accept(changed);
+        publishContent(changed);
+    }
+
+    /**
+     * Load this song's content now if it isn't loaded already, so it's ready
+     * before it's needed. This waits for the content to load, so it shouldn't
+     * be called on the platform thread.
+     */
+    public void fetchContent() {
+        getContent();
+    }
+
+    private synchronized Content loadContent() {
+        Content ret = content;
+        if (ret != null) {
+            return ret;
+        }
+        SongDisplayable loaded = contentSource.get();
+        if (loaded == null) {
+            LOGGER.log(Level.WARNING, "Couldn't load content of song {0}", id);
+            ret = new Content();
+        } else {
+            ret = loaded.content;
+        }
+        fontSizeCache.clear();
+        content = ret;
+        return ret;
+    }
+
+    /**
+     * Set the source this song's content can be reloaded from, and mark its
+     * current content as matching that source.
+     * <p/>
+     *
+     * @param source the source of the song's full content.
+     */
+    public synchronized void setContentSource(Supplier<SongDisplayable> source) {
+        contentSource = source;
+        contentModified = false;
+    }
+
+    /**
+     * Determine whether this song's content is currently loaded.
+     * <p/>
+     *
+     * @return true if the song's content is in memory, false if it will be
+     * loaded when next needed.
+     */
+    public boolean isContentLoaded() {
+        return content != null;
+    }
+
+    /**
+     * Drop this song's content from memory, to be reloaded from its content
+     * source when next needed. Songs without a content source, that have been
+     * changed since their content was loaded or that are pinned are left as
+     * they are.
+     * <p/>
+     *
+     * @return true if the content was released, false otherwise.
+     */
+    public synchronized boolean releaseContent() {
+        if (contentSource == null || content == null || contentModified || pins > 0) {
+            return false;
+        }
+        content = null;
+        fontSizeCache.clear();
+        return true;
+    }
+
+    /**
+     * Keep this song's content in memory until it's unpinned, such as while
+     * it's in the schedule or live. Each call must be matched by a call to
+     * {@link #unpin()}.
+     */
+    public synchronized void pin() {
+        pins++;
+    }
+
+    /**
+     * Undo a call to {@link #pin()}, allowing the song's content to be
+     * released again once nothing else has it pinned.
+     */
+    public synchronized void unpin() {
+        if (pins > 0) {
+            pins--;
+        }
+    }
+
+    /**
+     * Determine whether this song's content is pinned in memory.
+     * <p/>
+     *
+     * @return true if it's pinned, false otherwise.
+     */
+    public synchronized boolean isPinned() {
+        return pins > 0;
+    }
+
+    /**
+     * Get the time this song was last modified in the database.
+     * <p/>
+     *
+     * @return the last modification time, or 0 if it's not known.
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Set the time this song was last modified in the database.
+     * <p/>
+     *
+     * @param lastModified the last modification time.
+     */
+    public void setLastModified(long lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        getContent();
+        out.defaultWriteObject();
     }
 
     @Override
@@ -401,11 +656,12 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * and section.
      */
     public String getCurrentTranslationSection(int index) {
+        Content content = getContent();
         String val = getCurrentTranslationLyrics();
         if (val == null) {
             return null;
         }
-        index = sectionsWithoutSequence.indexOf(sectionsInSequence.get(index));
+        index = content.sectionsWithoutSequence.indexOf(content.sectionsInSequence.get(index));
         String[] parts = val.split("\n\n");
         if (parts.length > index) {
             return parts[index].trim();
@@ -432,6 +688,7 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * translation is selected.
      */
     public String getCurrentTranslationLyrics() {
+        HashMap<String, String> translations = getContent().translations;
         if (translations == null) {
             return null;
         }
@@ -476,9 +733,8 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @return true if it contains chords, false otherwise.
      */
     public boolean hasChords() {
-        String[] lyrics = getLyrics(true, true, false).split("\n");
-        for (String line : lyrics) {
-            if (new LineTypeChecker(line).getLineType() == LineTypeChecker.Type.CHORDS) {
+        for (TextSection section : getContent().sectionsWithoutSequence) {
+            if (section.hasChords()) {
                 return true;
             }
         }
@@ -522,13 +778,14 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @param title the new song title.
      */
     public void setTitle(String title) {
+        editContent();
         this.title = title;
+        sortKey = null;
         refreshLyrics();
     }
 
     public void setTranslations(HashMap<String, String> translations) {
-        fontSizeCache.clear();
-        this.translations = translations;
+        updateContent(changed -> changed.translations = translations);
     }
 
     /**
@@ -548,7 +805,9 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @param author the new song author.
      */
     public void setAuthor(String author) {
+        editContent();
         this.author = author;
+        sortKey = null;
         refreshLyrics();
     }
 
@@ -580,7 +839,7 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @return the publisher of this song.
      */
     public String getPublisher() {
-        return publisher;
+        return getContent().publisher;
     }
 
     /**
@@ -590,7 +849,7 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @return the year of this song.
      */
     public String getYear() {
-        return year;
+        return getContent().year;
     }
 
     /**
@@ -600,7 +859,7 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @return assigned theme
      */
     public ThemeDTO getTheme() {
-        return this.theme;
+        return getContent().theme;
     }
 
     /**
@@ -610,7 +869,7 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @return the copyright information of this song.
      */
     public String getCopyright() {
-        return copyright;
+        return getContent().copyright;
     }
 
     /**
@@ -620,7 +879,7 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @return the key of this song.
      */
     public String getKey() {
-        return key;
+        return getContent().key;
     }
 
     /**
@@ -630,7 +889,7 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @return the general information about this song.
      */
     public String getInfo() {
-        return info;
+        return getContent().info;
     }
 
     /**
@@ -640,7 +899,7 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @return the capo of this song.
      */
     public String getCapo() {
-        return capo;
+        return getContent().capo;
     }
 
     /**
@@ -650,7 +909,7 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @param capo the capo of this song.
      */
     public void setCapo(String capo) {
-        this.capo = capo;
+        updateContent(changed -> changed.capo = capo);
     }
 
     /**
@@ -671,7 +930,7 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @param info the info of this song.
      */
     public void setInfo(String info) {
-        this.info = info;
+        updateContent(changed -> changed.info = info);
     }
 
     /**
@@ -681,7 +940,7 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @param key the key of this song.
      */
     public void setKey(String key) {
-        this.key = key;
+        updateContent(changed -> changed.key = key);
     }
 
     /**
@@ -691,6 +950,7 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @param ccli the ccli number of this song.
      */
     public void setCcli(String ccli) {
+        editContent();
         this.ccli = ccli;
     }
 
@@ -701,7 +961,7 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @param publisher the publisher of this song.
      */
     public void setPublisher(String publisher) {
-        this.publisher = publisher;
+        updateContent(changed -> changed.publisher = publisher);
     }
 
     /**
@@ -711,7 +971,7 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @param year the year of this song.
      */
     public void setYear(String year) {
-        this.year = year;
+        updateContent(changed -> changed.year = year);
     }
 
     /**
@@ -721,7 +981,7 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @param copyright the copyright field of this song.
      */
     public void setCopyright(String copyright) {
-        this.copyright = copyright;
+        updateContent(changed -> changed.copyright = copyright);
         refreshLyrics();
     }
 
@@ -732,7 +992,10 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @param sequence the copyright field of this song.
      */
     public void setSequence(String sequence) {
-        this.sequence = sequence;
+        updateContent(changed -> {
+            changed.sequence = sequence;
+            setSectionsInSequence(changed);
+        });
     }
 
     /**
@@ -742,17 +1005,17 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @return the song sequence order
      */
     public String getSequence() {
-        return sequence;
+        return getContent().sequence;
     }
 
     private void refreshLyrics() {
         fontSizeCache.clear();
         ThemeDTO theme = ThemeDTO.DEFAULT_THEME;
-        for (TextSection section : sectionsInSequence) {
+        for (TextSection section : getContent().sectionsInSequence) {
             theme = section.getTheme();
         }
         setLyrics(getLyrics(true, true, false));
-        for (TextSection section : sectionsInSequence) {
+        for (TextSection section : getContent().sectionsInSequence) {
             section.setTheme(theme);
         }
     }
@@ -768,8 +1031,9 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @return the lyrics to this song.
      */
     public String getLyrics(boolean chords, boolean comments, boolean inSequence) {
+        Content content = getContent();
         StringBuilder ret = new StringBuilder();
-        for (TextSection section : inSequence ? sectionsInSequence : sectionsWithoutSequence) {
+        for (TextSection section : inSequence ? content.sectionsInSequence : content.sectionsWithoutSequence) {
             if (section.getTitle() != null && !section.getTitle().equals("")) {
                 ret.append(section.getTitle()).append("\n");
             }
@@ -782,12 +1046,11 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
     }
 
     public void addTranslation(String translationName, String translationText) {
-        fontSizeCache.clear();
-        translations.put(translationName, translationText.trim());
+        updateContent(changed -> changed.translations.put(translationName, translationText.trim()));
     }
 
     public HashMap<String, String> getTranslations() {
-        return translations;
+        return getContent().translations;
     }
 
     /**
@@ -799,9 +1062,9 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @param lyrics the lyrics to set as this song's lyrics.
      */
     public void setLyrics(String lyrics) {
-        sectionsWithoutSequence.clear();
-        sectionsInSequence.clear();
-        fontSizeCache.clear();
+        Content content = copyContent();
+        content.sectionsWithoutSequence.clear();
+        sortKey = null;
         boolean foundTitle = !(title == null || title.isEmpty());
         lyrics = lyrics.replaceAll("\n\n+", "\n\n");
         lyrics = lyrics.replace("<>", " ");
@@ -842,8 +1105,8 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
                 };
             } else {
                 String cpText = null;
-                if (copyright != null) {
-                    cpText = copyright.trim();
+                if (content.copyright != null) {
+                    cpText = content.copyright.trim();
                 }
                 if (cpText != null && !cpText.trim().isEmpty() && !cpText.startsWith("©")) {
                     cpText = "©" + cpText;
@@ -860,12 +1123,16 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
                 smallLinesList.add(LabelGrabber.INSTANCE.getLabel("ccli.licence") + " #" + churchCcliNum);
                 smallLines = smallLinesList.toArray(new String[smallLinesList.size()]);
             }
-            sectionsWithoutSequence.add(new TextSection(sectionTitle, newLyrics, smallLines, true));
+            content.sectionsWithoutSequence.add(new TextSection(sectionTitle, newLyrics, smallLines, true));
         }
-        setSectionsInSequence(sectionsWithoutSequence);
+        setSectionsInSequence(content);
+        publishContent(content);
     }
 
-    private void setSectionsInSequence(List<TextSection> sectionsWithoutSequence) {
+    private static void setSectionsInSequence(Content content) {
+        List<TextSection> sectionsInSequence = content.sectionsInSequence;
+        List<TextSection> sectionsWithoutSequence = content.sectionsWithoutSequence;
+        String sequence = content.sequence;
         sectionsInSequence.clear();
         if (sequence != null && !sequence.equals("")) {
             for (String s : sequence.split(" ")) {
@@ -894,11 +1161,13 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @param section the section to add.
      */
     public void addSection(TextSection section) {
-        fontSizeCache.clear();
-        if (section.getTheme() == null) {
-            section.setTheme(theme);
-        }
-        sectionsWithoutSequence.add(section);
+        updateContent(changed -> {
+            if (section.getTheme() == null) {
+                section.setTheme(changed.theme);
+            }
+            changed.sectionsWithoutSequence.add(section);
+            setSectionsInSequence(changed);
+        });
     }
 
     /**
@@ -909,12 +1178,13 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @param section the section to add.
      */
     public void addSection(int index, TextSection section) {
-        sectionsInSequence.clear();
-        fontSizeCache.clear();
-        if (section.getTheme() == null) {
-            section.setTheme(theme);
-        }
-        sectionsWithoutSequence.add(index, section);
+        updateContent(changed -> {
+            if (section.getTheme() == null) {
+                section.setTheme(changed.theme);
+            }
+            changed.sectionsWithoutSequence.add(index, section);
+            setSectionsInSequence(changed);
+        });
     }
 
     /**
@@ -924,11 +1194,15 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @param sections the sections to add.
      */
     public void addSections(TextSection[] sections) {
-        fontSizeCache.clear();
-        for (TextSection section : sections) {
-            addSection(section);
-        }
-        getSections(); //Initialise sequence order
+        updateContent(changed -> {
+            for (TextSection section : sections) {
+                if (section.getTheme() == null) {
+                    section.setTheme(changed.theme);
+                }
+                changed.sectionsWithoutSequence.add(section);
+            }
+            setSectionsInSequence(changed);
+        });
     }
 
     /**
@@ -939,9 +1213,10 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @param index      the index of the section to replace.
      */
     public void replaceSection(TextSection newSection, int index) {
-        sectionsInSequence.clear();
-        sectionsWithoutSequence.set(index, newSection);
-        fontSizeCache.clear();
+        updateContent(changed -> {
+            changed.sectionsWithoutSequence.set(index, newSection);
+            setSectionsInSequence(changed);
+        });
     }
 
     /**
@@ -951,9 +1226,10 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @param index the index of the text section to remove.
      */
     public void removeSection(int index) {
-        sectionsInSequence.clear();
-        sectionsWithoutSequence.remove(index);
-        fontSizeCache.clear();
+        updateContent(changed -> {
+            changed.sectionsWithoutSequence.remove(index);
+            setSectionsInSequence(changed);
+        });
     }
 
     /**
@@ -964,9 +1240,7 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      */
     @Override
     public TextSection[] getSections() {
-        if (sectionsInSequence.isEmpty()) {
-            setSectionsInSequence(sectionsWithoutSequence);
-        }
+        List<TextSection> sectionsInSequence = getContent().sectionsInSequence;
         return sectionsInSequence.toArray(new TextSection[sectionsInSequence.size()]);
     }
 
@@ -977,6 +1251,7 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @return the song sections.
      */
     public TextSection[] getSectionsWithoutSequence() {
+        List<TextSection> sectionsWithoutSequence = getContent().sectionsWithoutSequence;
         return sectionsWithoutSequence.toArray(new TextSection[sectionsWithoutSequence.size()]);
     }
 
@@ -1014,77 +1289,74 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      */
     @Override
     public String getXML() {
-        StringBuilder xml = new StringBuilder();
-        xml.append("<song>");
-        xml.append("<updateInDB>");
-        xml.append(updateInDB);
-        xml.append("</updateInDB>");
-        xml.append("<title>");
-        xml.append(Utils.escapeXML(title));
-        xml.append("</title>");
-        xml.append("<author>");
-        xml.append(Utils.escapeXML(author));
-        xml.append("</author>");
-        xml.append("<ccli>");
-        xml.append(Utils.escapeXML(ccli));
-        xml.append("</ccli>");
-        xml.append("<copyright>");
-        xml.append(Utils.escapeXML(copyright));
-        xml.append("</copyright>");
-        xml.append("<year>");
-        xml.append(Utils.escapeXML(year));
-        xml.append("</year>");
-        xml.append("<publisher>");
-        xml.append(Utils.escapeXML(publisher));
-        xml.append("</publisher>");
-        xml.append("<key>");
-        xml.append(Utils.escapeXML(key));
-        xml.append("</key>");
-        xml.append("<capo>");
-        xml.append(Utils.escapeXML(capo));
-        xml.append("</capo>");
-        xml.append("<notes>");
-        xml.append(Utils.escapeXML(info));
-        xml.append("</notes>");
-        xml.append("<sequence>");
-        xml.append(Utils.escapeXML(sequence));
-        xml.append("</sequence>");
-        xml.append("<lyrics>");
-        for (TextSection section : sectionsWithoutSequence) {
-            xml.append(section.getXML());
+        StringWriter xml = new StringWriter();
+        try {
+            XMLStreamWriter writer = Utils.createXMLWriter(xml);
+            writeXML(writer);
+            writer.close();
+        } catch (XMLStreamException ex) {
+            throw new IllegalStateException("Couldn't write the XML for " + title, ex);
         }
-        xml.append("</lyrics>");
+        return xml.toString();
+    }
 
-        xml.append("<translation>");
-        if (getCurrentTranslationLyrics() != null) {
-            xml.append("<name>");
-            xml.append(currentTranslation);
-            xml.append("</name>");
-            xml.append("<tlyrics>");
-            xml.append(Utils.escapeXML(translations.get(currentTranslation)));
-            xml.append("</tlyrics>");
-        } else {
-            xml.append("");
+    /**
+     * Write a representation of this song in XML format, in the same form as
+     * {@link #getXML()}, without building it up as a string first.
+     * <p/>
+     *
+     * @param writer the writer to write the song to.
+     * @throws XMLStreamException if the song couldn't be written.
+     */
+    public void writeXML(XMLStreamWriter writer) throws XMLStreamException {
+        Content content = getContent();
+        writer.writeStartElement("song");
+        writeElement(writer, "updateInDB", updateInDB);
+        writeElement(writer, "title", title);
+        writeElement(writer, "author", author);
+        writeElement(writer, "ccli", ccli);
+        writeElement(writer, "copyright", content.copyright);
+        writeElement(writer, "year", content.year);
+        writeElement(writer, "publisher", content.publisher);
+        writeElement(writer, "key", content.key);
+        writeElement(writer, "capo", content.capo);
+        writeElement(writer, "notes", content.info);
+        writeElement(writer, "sequence", content.sequence);
+        writer.writeStartElement("lyrics");
+        for (TextSection section : content.sectionsWithoutSequence) {
+            section.writeXML(writer);
+        }
+        writer.writeEndElement();
+
+        writer.writeStartElement("translation");
+        String translationLyrics = content.translations == null ? null : content.translations.get(currentTranslation);
+        if (translationLyrics != null) {
+            writeElement(writer, "name", currentTranslation);
+            writeElement(writer, "tlyrics", translationLyrics);
         }
-        xml.append("</translation>");
-
-        xml.append("<translationoptions>");
-        if (translations != null) {
-            for (Entry<String, String> translation : translations.entrySet()) {
-                String translationLang = translation.getKey();
-                String translationLyrics = translation.getValue();
-                xml.append("<lang>");
-                xml.append(Utils.escapeXML(translationLang));
-                xml.append("</lang>");
-                xml.append("<lyrics>");
-                xml.append(Utils.escapeXML(translationLyrics));
-                xml.append("</lyrics>");
+        writer.writeEndElement();
+
+        writer.writeStartElement("translationoptions");
+        if (content.translations != null) {
+            for (Entry<String, String> translation : content.translations.entrySet()) {
+                writeElement(writer, "lang", translation.getKey());
+                writeElement(writer, "lyrics", translation.getValue());
             }
         }
-        xml.append("</translationoptions>");
+        writer.writeEndElement();
 
-        xml.append("</song>");
-        return xml.toString();
+        writer.writeEndElement();
+    }
+
+    /**
+     * Write an element containing just the given value as text. Null values
+     * are written as "null", as they always have been in song XML, and any
+     * characters XML can't contain are left out.
+     */
+    private static void writeElement(XMLStreamWriter writer, String name, Object value) throws XMLStreamException {
+        writer.writeStartElement(name);
+        writer.writeCharacters(Utils.toXMLText(String.valueOf(value)));
+        writer.writeEndElement();
     }
 
     /**
@@ -1095,6 +1367,7 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * @return the XML used to print the song.
      */
     public String getPrintXML(boolean includeTranslations) {
+        Content content = getContent();
         StringBuilder xml = new StringBuilder();
         Map<String, String> lyricsMap = new TreeMap<>((String o1, String o2) -> { //Ensure "Default" translation is first
             if (o1.equals("Default")) {
@@ -1106,7 +1379,7 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
             return o1.compareTo(o2);
         });
         StringBuilder mainLyrics = new StringBuilder();
-        for (TextSection section : sectionsInSequence) {
+        for (TextSection section : content.sectionsInSequence) {
             mainLyrics.append(section.getTitle()).append("\n");
             for (String line : section.getText(printChords, false)) {
                 mainLyrics.append(Utils.escapeXML(line)).append("\n");
@@ -1303,11 +1576,10 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      */
     @Override
     public int hashCode() {
+        //Only fields that are always loaded, so hashing a library song doesn't load its content
         int hash = 7;
         hash = 29 * hash + (this.title != null ? this.title.hashCode() : 0);
         hash = 29 * hash + (this.author != null ? this.author.hashCode() : 0);
-        hash = 29 * hash + (this.sectionsWithoutSequence != null ? this.sectionsWithoutSequence.hashCode() : 0);
-        hash = 29 * hash + (this.theme != null ? this.theme.hashCode() : 0);
         hash = hash + count;
         return hash;
     }
@@ -1327,6 +1599,9 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
         if (!(obj instanceof SongDisplayable)) {
             return false;
         }
+        if (obj == this) {
+            return true;
+        }
         final SongDisplayable other = (SongDisplayable) obj;
         if ((this.title == null) ? (other.title != null) : !this.title.equals(other.title)) {
             return false;
@@ -1334,17 +1609,23 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
         if ((this.author == null) ? (other.author != null) : !this.author.equals(other.author)) {
             return false;
         }
-        if (this.sectionsWithoutSequence != other.sectionsWithoutSequence && (this.sectionsWithoutSequence == null || !this.sectionsWithoutSequence.equals(other.sectionsWithoutSequence))) {
+        Content content = getContent();
+        Content otherContent = other.getContent();
+        if (!content.sectionsWithoutSequence.equals(otherContent.sectionsWithoutSequence)) {
             return false;
         }
-        if (this.theme != other.theme && (this.theme == null || !this.theme.equals(other.theme))) {
+        if (content.theme != otherContent.theme && (content.theme == null || !content.theme.equals(otherContent.theme))) {
             return false;
         }
         return true;
     }
 
     /**
-     * Compare this song to another song, first by title and then by author.
+     * Compare this song to another song, first by title, then by author and
+     * then by id. The collation keys used are worked out once per song, so
+     * sorting the whole library doesn't collate every title again on each
+     * comparison. Ties are broken by id rather than lyrics so that sorting
+     * never has to load a song's content.
      * <p/>
      *
      * @param other the other song.
@@ -1353,19 +1634,43 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      */
     @Override
     public int compareTo(SongDisplayable other) {
-        Collator collator = Collator.getInstance();
-        int result = collator.compare(getTitle(), other.getTitle());
+        SortKey key = getSortKey();
+        SortKey otherKey = other.getSortKey();
+        int result = key.title.compareTo(otherKey.title);
         if (result == 0) {
-            if (getAuthor() != null && other.getAuthor() != null) {
-                result = collator.compare(getAuthor(), other.getAuthor());
+            if (key.author != null && otherKey.author != null) {
+                result = key.author.compareTo(otherKey.author);
             }
-            if (result == 0 && getLyrics(false, false, false) != null && other.getLyrics(false, false, false) != null) {
-                result = collator.compare(getLyrics(false, false, false), other.getLyrics(false, false, false));
+            if (result == 0) {
+                result = Long.compare(id, other.id);
             }
         }
         return result;
     }
 
+    private SortKey getSortKey() {
+        SortKey ret = sortKey;
+        if (ret == null) {
+            ret = new SortKey(title, author);
+            sortKey = ret;
+        }
+        return ret;
+    }
+
+    /**
+     * The collation keys a song's sorted by.
+     */
+    private static final class SortKey {
+
+        private final CollationKey title;
+        private final CollationKey author;
+
+        private SortKey(String title, String author) {
+            this.title = COLLATOR.getCollationKey(title == null ? "" : title);
+            this.author = author == null ? null : COLLATOR.getCollationKey(author);
+        }
+    }
+
     /**
      * Get a string representation of this song.
      * <p/>
@@ -1437,8 +1742,10 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
      * Remove any duplicate sections in this song.
      */
     public void removeDuplicateSections() {
-        Utils.removeDuplicateWithOrder(sectionsWithoutSequence);
-        fontSizeCache.clear();
+        updateContent(changed -> {
+            Utils.removeDuplicateWithOrder(changed.sectionsWithoutSequence);
+            setSectionsInSequence(changed);
+        });
     }
 
     /**
@@ -1461,8 +1768,7 @@ public class SongDisplayable implements TextDisplayable, Comparable<SongDisplaya
     }
 
     public void setTheme(ThemeDTO theme) {
-        fontSizeCache.clear();
-        this.theme = theme;
+        updateContent(changed -> changed.theme = theme);
     }
 
     @Override
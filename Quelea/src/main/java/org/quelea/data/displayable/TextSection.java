@@ -18,13 +18,13 @@
 package org.quelea.data.displayable;
 
 import java.io.Serializable;
-import java.io.UnsupportedEncodingException;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 import org.quelea.data.ThemeDTO;
 import org.quelea.services.utils.LineTypeChecker;
 import org.quelea.services.utils.Utils;
@@ -39,11 +39,14 @@ import org.w3c.dom.NodeList;
  */
 public class TextSection implements Serializable {
 
+    private static final String[] COMMENTS = {"//lyrics", "//chords", "//title"};
     private final String title;
     private final String[] lines;
     private final String[] smallLines;
     private ThemeDTO theme;
     private final boolean capitaliseFirst;
+    private transient volatile ParsedLine[] parsedLines;
+    private transient volatile String[][] views;
 
     public TextSection(TextSection orig) {
         this.title = orig.title;
@@ -51,6 +54,8 @@ public class TextSection implements Serializable {
         this.smallLines = orig.smallLines;
         this.theme = orig.theme;
         this.capitaliseFirst = orig.capitaliseFirst;
+        this.parsedLines = orig.parsedLines;
+        this.views = orig.views;
     }
 
     /**
@@ -95,34 +100,46 @@ public class TextSection implements Serializable {
      * @return the section in XML format.
      */
     public String getXML() {
-        StringBuilder xml = new StringBuilder();
-        xml.append("<section ").append("title=\"").append(Utils.escapeXML(getTitle())).append("\" capitalise=\"").append(shouldCapitaliseFirst()).append("\">");
+        StringWriter xml = new StringWriter();
+        try {
+            XMLStreamWriter writer = Utils.createXMLWriter(xml);
+            writeXML(writer);
+            writer.close();
+        } catch (XMLStreamException ex) {
+            throw new IllegalStateException("Couldn't write the XML for section " + title, ex);
+        }
+        return xml.toString();
+    }
+
+    /**
+     * Write a representation of this section in XML format, in the same form
+     * as {@link #getXML()}.
+     *
+     * @param writer the writer to write the section to.
+     * @throws XMLStreamException if the section couldn't be written.
+     */
+    public void writeXML(XMLStreamWriter writer) throws XMLStreamException {
+        writer.writeStartElement("section");
+        writer.writeAttribute("title", Utils.toXMLText(String.valueOf(getTitle())));
+        writer.writeAttribute("capitalise", Boolean.toString(shouldCapitaliseFirst()));
         if (theme != null) {
-            xml.append("<theme>");
-            xml.append(Utils.escapeXML(theme.asString()));
-            xml.append("</theme>");
+            writer.writeStartElement("theme");
+            writer.writeCharacters(Utils.toXMLText(theme.asString()));
+            writer.writeEndElement();
         }
-        if (smallLines != null) {
-            xml.append("<smalllines>");
-            for (String line : smallLines) {
-                try {
-                    xml.append(new String(Utils.escapeXML(line).getBytes("UTF8"), "UTF-8")).append('\n');
-                } catch (UnsupportedEncodingException ex) {
-                    Logger.getLogger(TextSection.class.getName()).log(Level.SEVERE, null, ex);
-                }
-            }
-            xml.append("</smalllines>");
+        writer.writeStartElement("smalllines");
+        for (String line : smallLines) {
+            writer.writeCharacters(Utils.toXMLText(line));
+            writer.writeCharacters("\n");
         }
-        xml.append("<lyrics>");
+        writer.writeEndElement();
+        writer.writeStartElement("lyrics");
         for (String line : getText(true, true)) {
-            try {
-                xml.append(new String(Utils.escapeXML(line).getBytes("UTF8"), "UTF-8")).append('\n');
-            } catch (UnsupportedEncodingException ex) {
-                Logger.getLogger(TextSection.class.getName()).log(Level.SEVERE, null, ex);
-            }
+            writer.writeCharacters(Utils.toXMLText(line));
+            writer.writeCharacters("\n");
         }
-        xml.append("</lyrics></section>");
-        return xml.toString();
+        writer.writeEndElement();
+        writer.writeEndElement();
     }
 
     /**
@@ -209,30 +226,84 @@ public class TextSection implements Serializable {
      * @return the lyrics of the section.
      */
     public String[] getText(boolean chords, boolean comments) {
-        List<String> ret = new ArrayList<>(lines.length);
-        for (String str : lines) {
-            String toAdd = null;
-            if (chords) {
-                if (comments) {
-                    toAdd = str;
-                } else {
-                    toAdd = removeComments(str);
-                }
-            } else {
-                if (new LineTypeChecker(str).getLineType() != LineTypeChecker.Type.CHORDS) {
-                    if (comments) {
-                        toAdd = str;
-                    } else {
-                        toAdd = removeComments(str);
-                    }
-                    toAdd = toAdd.replace("_", "");
+        int view = (chords ? 2 : 0) + (comments ? 1 : 0);
+        String[][] allViews = getViews();
+        String[] ret = allViews[view];
+        if (ret == null) {
+            List<String> text = new ArrayList<>(lines.length);
+            for (ParsedLine line : getParsedLines()) {
+                if (chords) {
+                    text.add(comments ? line.line : line.uncommented);
+                } else if (line.type != LineTypeChecker.Type.CHORDS) {
+                    text.add(comments ? line.lyric : line.uncommentedLyric);
                 }
             }
-            if (toAdd != null) {
-                ret.add(toAdd);
+            ret = text.toArray(new String[text.size()]);
+            allViews[view] = ret;
+        }
+        return Arrays.copyOf(ret, ret.length);
+    }
+
+    /**
+     * Determine whether this section contains any lines of chords.
+     *
+     * @return true if it contains chords, false otherwise.
+     */
+    public boolean hasChords() {
+        for (ParsedLine line : getParsedLines()) {
+            if (line.type == LineTypeChecker.Type.CHORDS) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the lines of this section, each one classified and stripped of
+     * comments once rather than every time the text's asked for.
+     *
+     * @return the parsed lines.
+     */
+    private ParsedLine[] getParsedLines() {
+        ParsedLine[] ret = parsedLines;
+        if (ret == null) {
+            ret = new ParsedLine[lines.length];
+            for (int i = 0; i < lines.length; i++) {
+                ret[i] = new ParsedLine(lines[i], removeComments(lines[i]));
             }
+            parsedLines = ret;
+        }
+        return ret;
+    }
+
+    private String[][] getViews() {
+        String[][] ret = views;
+        if (ret == null) {
+            ret = new String[4][];
+            views = ret;
+        }
+        return ret;
+    }
+
+    /**
+     * A line of a section along with its type and the forms it's shown in,
+     * with and without comments and chord spacing underscores.
+     */
+    private static final class ParsedLine {
+
+        private final String line;
+        private final String uncommented;
+        private final String lyric;
+        private final String uncommentedLyric;
+        private final LineTypeChecker.Type type;
+
+        private ParsedLine(String line, String uncommented) {
+            this.line = line;
+            this.uncommented = uncommented;
+            this.type = new LineTypeChecker(line).getLineType();
+            this.lyric = line.replace("_", "");
+            this.uncommentedLyric = uncommented.replace("_", "");
         }
-        return ret.toArray(new String[ret.size()]);
     }
 
     /**
@@ -243,14 +314,12 @@ public class TextSection implements Serializable {
      */
     private String removeComments(String line) {
         line = trimFromEnd(line);
-        if (line.toLowerCase().endsWith("//lyrics")) {
-            return line.substring(0, line.indexOf("//lyrics"));
-        }
-        if (line.toLowerCase().endsWith("//chords")) {
-            return line.substring(0, line.indexOf("//chords"));
-        }
-        if (line.toLowerCase().endsWith("//title")) {
-            return line.substring(0, line.indexOf("//title"));
+        String lowerLine = line.toLowerCase();
+        for (String comment : COMMENTS) {
+            if (lowerLine.endsWith(comment)) {
+                int index = line.indexOf(comment);
+                return line.substring(0, index >= 0 ? index : line.length() - comment.length());
+            }
         }
         return line;
     }
@@ -20,15 +20,20 @@ package org.quelea.data.imagegroup;
 import java.io.File;
 import java.io.IOException;
 import javafx.scene.image.Image;
+import org.quelea.services.utils.DecodedImageCache;
+import org.quelea.services.utils.QueleaProperties;
 
 /**
- * A slide in an image group.
+ * A slide in an image group. Only the slide's thumbnail is kept in memory;
+ * the full image is decoded when it's needed and held in the decoded image
+ * cache.
  *
  * @author Arvid, based on PresentationSlide
  */
 public class ImageGroupSlide {
 
-    private final Image image;
+    private final String uri;
+    private final Image thumbnail;
 
 
     /**
@@ -38,15 +43,35 @@ public class ImageGroupSlide {
      * @param image the name of the file
      */
     public ImageGroupSlide(int numSlide, File image) throws IOException {
-        this.image = new Image(image.toURI().toURL().toString());
+        this.uri = image.toURI().toURL().toString();
+        int size = QueleaProperties.get().getThumbnailSize();
+        this.thumbnail = new Image(uri, size, size, true, true, true);
     }
 
     /**
-     * Get the image from this slide.
+     * Get the image from this slide, decoding it if it isn't cached.
      *
      * @return the image of this slide.
      */
     public final Image getImage() {
-        return image;
+        return DecodedImageCache.INSTANCE.get(uri);
+    }
+
+    /**
+     * Get the thumbnail of this slide. It's loaded in the background, so may
+     * not be complete straight away.
+     *
+     * @return the thumbnail of this slide.
+     */
+    public final Image getThumbnail() {
+        return thumbnail;
+    }
+
+    /**
+     * Start decoding this slide's image in the background, so it's ready by
+     * the time it's shown.
+     */
+    public void prefetch() {
+        DecodedImageCache.INSTANCE.prefetch(uri);
     }
 }
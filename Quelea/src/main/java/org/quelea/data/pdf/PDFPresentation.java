@@ -19,30 +19,52 @@ package org.quelea.data.pdf;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.util.ArrayList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.rendering.PDFRenderer;
+import org.quelea.data.powerpoint.SlideRenderCache;
+import org.quelea.data.powerpoint.SlideRenderJob;
+import org.quelea.services.utils.LoggerUtils;
 
 /**
- * A PDF presentation that can be displayed.
+ * A PDF presentation that can be displayed. The pages are rendered in the
+ * background, several at once; each render thread uses its own copy of the
+ * document since PDFBox documents can't be shared between threads.
  *
  * @author Arvid
  */
 public class PDFPresentation implements Pdf {
 
-    private PdfSlide[] slides;
+    private static final Logger LOGGER = LoggerUtils.getLogger();
+    private final PdfSlide[] slides;
+    private final SlideRenderJob renderJob;
+    private final Queue<PDDocument> documents;
+    private final String hash;
     public String file;
 
     /**
-     * Create a presentation from a file.
+     * Create a presentation from a file. The slides are rendered in the
+     * background, so they may not all be available straight away.
      *
      * @param file the PDF containing the presentation.
      */
     public PDFPresentation(String file) throws IOException {
         this.file = file;
-        slides = makeSlides();
+        documents = new ConcurrentLinkedQueue<>();
+        PDDocument document = PDDocument.load(new File(file).getAbsoluteFile());
+        documents.add(document);
+        int totalPages = document.getNumberOfPages();
+        hash = SlideRenderCache.get().hash(new File(file));
+        renderJob = new SlideRenderJob(new File(file).getName(), totalPages, SlideRenderJob.getPoolSize(), this::render, this::close);
+        slides = new PdfSlide[totalPages];
+        for (int i = 0; i < totalPages; i++) {
+            slides[i] = new PdfSlide(i + 1, renderJob);
+        }
+        renderJob.start();
+        renderJob.showProgress();
     }
 
     /**
@@ -67,23 +89,58 @@ public class PDFPresentation implements Pdf {
     }
 
     /**
-     * Make the slides that go in this PDF, this is what takes time and should
-     * only be done once.
+     * Get the job rendering the slides of this PDF.
      *
-     * @return all the slides.
+     * @return the render job.
      */
-    private PdfSlide[] makeSlides() throws IOException {
-        File pdf = new File(file);
-        PDDocument document = PDDocument.load(pdf.getAbsoluteFile());
-        Path f = Files.createTempDirectory(null);
-        f.toFile().deleteOnExit();
-        ArrayList<PdfSlide> ret = new ArrayList<>();
-        PDFRenderer pdfRenderer = new PDFRenderer(document);
-        int totalPages = document.getNumberOfPages();
-        for (int i = 0; i < totalPages; i++) {
-            ret.add(new PdfSlide(i + 1, pdfRenderer));
+    @Override
+    public SlideRenderJob getRenderJob() {
+        return renderJob;
+    }
+
+    /**
+     * Stop rendering this PDF and release its slides in the slide cache.
+     */
+    @Override
+    public void dispose() {
+        renderJob.cancel();
+        renderJob.whenFinished(() -> {
+            for (PdfSlide slide : slides) {
+                slide.release();
+            }
+        });
+    }
+
+    /**
+     * Render the slide at the given index, borrowing a copy of the document
+     * no other thread is using, or opening a new one if there isn't one free.
+     *
+     * @param index the index of the slide.
+     * @throws IOException if the slide couldn't be rendered.
+     */
+    private void render(int index) throws IOException {
+        PDDocument document = documents.poll();
+        if (document == null) {
+            document = PDDocument.load(new File(file).getAbsoluteFile());
+        }
+        try {
+            slides[index].render(new PDFRenderer(document), hash);
+        } finally {
+            documents.add(document);
+        }
+    }
+
+    /**
+     * Close every copy of the document once all the slides are rendered.
+     */
+    private void close() {
+        PDDocument document;
+        while ((document = documents.poll()) != null) {
+            try {
+                document.close();
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "Couldn't close PDF", ex);
+            }
         }
-        document.close();
-        return ret.toArray(new PdfSlide[ret.size()]);
     }
 }
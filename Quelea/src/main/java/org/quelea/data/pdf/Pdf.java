@@ -17,6 +17,8 @@
  */
 package org.quelea.data.pdf;
 
+import org.quelea.data.powerpoint.SlideRenderJob;
+
 /**
  * A common interface for PDFs.
  * @author Arvid
@@ -36,5 +38,17 @@ public interface Pdf {
      * in order.
      */
     PdfSlide[] getSlides();
+
+    /**
+     * Get the job rendering the slides of this PDF in the background.
+     * @return the render job.
+     */
+    SlideRenderJob getRenderJob();
+
+    /**
+     * Stop rendering this PDF and release the slides it holds in the slide
+     * cache.
+     */
+    void dispose();
     
 }
@@ -22,64 +22,216 @@ import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
 import javax.imageio.ImageIO;
 import org.apache.pdfbox.rendering.ImageType;
 import org.apache.pdfbox.rendering.PDFRenderer;
+import org.quelea.data.powerpoint.SlideRenderCache;
+import org.quelea.data.powerpoint.SlideRenderJob;
+import org.quelea.services.utils.DecodedImageCache;
 import org.quelea.services.utils.QueleaProperties;
 
 /**
- * A slide in a PDF presentation.
+ * A slide in a PDF presentation. The slide's image is rendered in the
+ * background by the PDF's render job, and is available once that's done.
  *
  * @author Arvid
  */
 public class PdfSlide {
 
-    private BufferedImage thumbnail;
-    private BufferedImage originalImage;
-    private final File outputfile;
-    private final File thumbnailFile;
+    private final int numSlide;
+    private volatile File outputfile;
+    private volatile File thumbnailFile;
+    private Image thumbnail;
+    private final List<String> pinned;
+    private final SlideRenderJob job;
     private final int BIG_SIZE = 1920;
 
     /**
-     * Create a new PDF slide.
+     * Create a new PDF slide, to be rendered by the PDF's render job.
      *
      * @param numSlide slide number
+     * @param job the job that renders the slide
+     */
+    PdfSlide(int numSlide, SlideRenderJob job) {
+        this.numSlide = numSlide;
+        this.job = job;
+        pinned = new ArrayList<>();
+    }
+
+    /**
+     * Render this slide's image and thumbnail, or use the ones in the slide
+     * cache if it's been rendered before. Cached images are pinned until the
+     * slide's released.
+     *
      * @param pdfRenderer the renderer of the file
+     * @param hash the hash of the PDF, or null not to cache the slide
+     * @throws IOException if the slide couldn't be rendered.
      */
-    public PdfSlide(int numSlide, PDFRenderer pdfRenderer) throws IOException {
-        originalImage = resizeImage(pdfRenderer.renderImageWithDPI(numSlide - 1, 200, ImageType.RGB), BIG_SIZE, BIG_SIZE);
-        outputfile = File.createTempFile("slide" + numSlide, ".png");
-        outputfile.deleteOnExit();
-        ImageIO.write(originalImage, "png", outputfile);
-
-        thumbnail = resizeImage(originalImage, QueleaProperties.get().getThumbnailSize(), QueleaProperties.get().getThumbnailSize());
-        thumbnailFile = File.createTempFile("thumb" + numSlide, ".png");
-        thumbnailFile.deleteOnExit();
-        ImageIO.write(thumbnail, "png", thumbnailFile);
-        
-        originalImage.flush();
-        originalImage = null;
-        thumbnail.flush();
-        thumbnail = null;
+    void render(PDFRenderer pdfRenderer, String hash) throws IOException {
+        SlideRenderCache cache = SlideRenderCache.get();
+        int thumbnailSize = QueleaProperties.get().getThumbnailSize();
+        String imageKey = hash == null ? null : SlideRenderCache.getKey(hash, numSlide, BIG_SIZE, BIG_SIZE);
+        String thumbnailKey = hash == null ? null : SlideRenderCache.getKey(hash, numSlide, thumbnailSize, thumbnailSize);
+        File output = pin(imageKey, cache.lookup(imageKey));
+        File thumb = pin(thumbnailKey, cache.lookup(thumbnailKey));
+        if (output == null || thumb == null) {
+            BufferedImage originalImage = resizeImage(pdfRenderer.renderImageWithDPI(numSlide - 1, 200, ImageType.RGB), BIG_SIZE, BIG_SIZE);
+            if (output == null) {
+                output = pin(imageKey, cache.store(imageKey, originalImage));
+            }
+            if (output == null) {
+                output = writeTempFile("slide", originalImage);
+            }
+            if (thumb == null) {
+                BufferedImage thumbnail = resizeImage(originalImage, thumbnailSize, thumbnailSize);
+                thumb = pin(thumbnailKey, cache.store(thumbnailKey, thumbnail));
+                if (thumb == null) {
+                    thumb = writeTempFile("thumb", thumbnail);
+                }
+                thumbnail.flush();
+            }
+            originalImage.flush();
+        }
+        thumbnailFile = thumb;
+        outputfile = output;
     }
 
     /**
-     * Get the image from this slide.
+     * Write an image of this slide to a temporary file, for when it can't be
+     * cached.
+     *
+     * @param prefix the prefix of the file name
+     * @param image the image to write
+     * @return the temporary file
+     * @throws IOException if the image couldn't be written.
+     */
+    private File writeTempFile(String prefix, BufferedImage image) throws IOException {
+        File ret = File.createTempFile(prefix + numSlide, ".png");
+        ret.deleteOnExit();
+        ImageIO.write(image, "png", ret);
+        return ret;
+    }
+
+    /**
+     * Release this slide's images in the slide cache, so they can be removed
+     * when the cache needs the space.
+     */
+    void release() {
+        synchronized (pinned) {
+            for (String key : pinned) {
+                SlideRenderCache.get().release(key);
+            }
+            pinned.clear();
+        }
+    }
+
+    /**
+     * Remember that the given cached image is pinned, so it's released along
+     * with this slide.
+     *
+     * @param key the key of the image in the slide cache
+     * @param file the image's file, or null if it isn't cached
+     * @return the image's file
+     */
+    private File pin(String key, File file) {
+        if (file != null) {
+            synchronized (pinned) {
+                pinned.add(key);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Get the image from this slide, waiting for it to be rendered if it
+     * hasn't been yet. The image is decoded from its file when it's needed,
+     * and held in the decoded image cache. If the slide couldn't be rendered,
+     * a blank image is returned.
      *
      * @return the image of this slide.
      */
     public final Image getImage() {
-        return new Image("file:" + outputfile.getAbsolutePath());
+        File file = await();
+        if (file == null) {
+            return new WritableImage(BIG_SIZE, BIG_SIZE * 9 / 16);
+        }
+        return DecodedImageCache.INSTANCE.get(file.toURI().toString());
     }
 
     /**
-     * Get the thumbnail of this slide.
+     * Get the thumbnail of this slide, waiting for it to be rendered if it
+     * hasn't been yet. The thumbnail's kept in memory once it's loaded. If the
+     * slide couldn't be rendered, a blank image is returned.
      *
      * @return the image of this slide.
      */
     public final Image getThumbnail() {
-        return new Image("file:" + thumbnailFile.getAbsolutePath());
+        await();
+        File file = thumbnailFile;
+        if (file == null) {
+            int size = QueleaProperties.get().getThumbnailSize();
+            return new WritableImage(size, size * 9 / 16);
+        }
+        synchronized (this) {
+            if (thumbnail == null) {
+                thumbnail = new Image(file.toURI().toString());
+            }
+            return thumbnail;
+        }
+    }
+
+    /**
+     * Start decoding this slide's full image in the background if it's been
+     * rendered, so it's ready by the time it's shown.
+     */
+    public void prefetch() {
+        File file = outputfile;
+        if (file != null) {
+            DecodedImageCache.INSTANCE.prefetch(file.toURI().toString());
+        }
+    }
+
+    /**
+     * Wait for this slide to be rendered.
+     *
+     * @return the file holding the slide's image, or null if it couldn't be
+     * rendered.
+     */
+    private File await() {
+        if (outputfile == null) {
+            job.await(numSlide - 1);
+        }
+        return outputfile;
+    }
+
+    /**
+     * Determine whether this slide's image has been rendered.
+     *
+     * @return true if it's been rendered, false otherwise.
+     */
+    public boolean isRendered() {
+        return outputfile != null;
+    }
+
+    /**
+     * Render this slide ahead of the others that haven't been rendered yet.
+     */
+    public void prioritise() {
+        job.prioritise(numSlide - 1);
+    }
+
+    /**
+     * Run the given callback once this slide's been rendered, or straight away
+     * if it already has been. The callback may be run on a background thread.
+     *
+     * @param callback the callback to run.
+     */
+    public void whenRendered(Runnable callback) {
+        job.whenRendered(numSlide - 1, callback);
     }
 
     /**
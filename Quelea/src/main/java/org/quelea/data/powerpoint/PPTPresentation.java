@@ -20,10 +20,13 @@ package org.quelea.data.powerpoint;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.apache.poi.hslf.usermodel.HSLFSlide;
 import org.apache.poi.hslf.usermodel.HSLFSlideShow;
-import org.apache.poi.xslf.usermodel.XMLSlideShow;
+import org.quelea.services.utils.LoggerUtils;
 
 /**
  * A presentation that can be displayed. At the moment represents a powerpoint
@@ -33,19 +36,40 @@ import org.apache.poi.xslf.usermodel.XMLSlideShow;
  */
 public class PPTPresentation implements Presentation {
 
-    private HSLFSlideShow slideshow;
-    private PresentationSlide[] slides;
+    private static final Logger LOGGER = LoggerUtils.getLogger();
+    private final HSLFSlideShow slideshow;
+    private final PresentationSlide[] slides;
+    private final SlideRenderJob renderJob;
 
     /**
-     * Create a presentation from a file.
+     * Create a presentation from a file. The slides are rendered in the
+     * background, so they may not all be available straight away.
      *
      * @param file the file containing the presentation.
      */
     public PPTPresentation(String file) throws IOException {
         try(FileInputStream fis = new FileInputStream(file)) {
             slideshow = new HSLFSlideShow(fis);
-            slides = makeSlides();
         }
+        List<HSLFSlide> lSlides = new ArrayList<>();
+        for (HSLFSlide slide : slideshow.getSlides()) {
+            if (slide != null) {
+                lSlides.add(slide);
+            }
+        }
+        slides = new PresentationSlide[lSlides.size()];
+        for (int i = 0; i < slides.length; i++) {
+            slides[i] = new PresentationSlide(i + 1);
+        }
+        double scale = PresentationSlide.fitPageSize(slideshow);
+        String hash = SlideRenderCache.get().hash(new File(file));
+        renderJob = new SlideRenderJob(new File(file).getName(), slides.length, 1,
+                index -> slides[index].render(lSlides.get(index), scale, hash), this::close);
+        for (int i = 0; i < slides.length; i++) {
+            slides[i].setRenderJob(renderJob, i);
+        }
+        renderJob.start();
+        renderJob.showProgress();
     }
 
     /**
@@ -70,17 +94,37 @@ public class PPTPresentation implements Presentation {
     }
 
     /**
-     * Make the slides that go in this presentation, this is what takes time and
-     * should only be done once.
+     * Get the job rendering the slides of this presentation.
      *
-     * @return all the slides.
+     * @return the render job.
+     */
+    @Override
+    public SlideRenderJob getRenderJob() {
+        return renderJob;
+    }
+
+    /**
+     * Stop rendering the slides of this presentation and release them in the
+     * slide cache.
+     */
+    @Override
+    public void dispose() {
+        renderJob.cancel();
+        renderJob.whenFinished(() -> {
+            for (PresentationSlide slide : slides) {
+                slide.release();
+            }
+        });
+    }
+
+    /**
+     * Close the underlying slideshow once every slide has been rendered.
      */
-    private PresentationSlide[] makeSlides() {
-        List<HSLFSlide> lSlides = slideshow.getSlides();
-        PresentationSlide[] ret = new PresentationSlide[lSlides.size()];
-        for (int i = 0; i < lSlides.size(); i++) {
-            ret[i] = new PresentationSlide(lSlides.get(i), i + 1);
+    private void close() {
+        try {
+            slideshow.close();
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Couldn't close presentation", ex);
         }
-        return ret;
     }
 }
@@ -22,8 +22,11 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.apache.poi.xslf.usermodel.XMLSlideShow;
 import org.apache.poi.xslf.usermodel.XSLFSlide;
+import org.quelea.services.utils.LoggerUtils;
 
 /**
  * A presentation that uses the newer PPTX file format.
@@ -32,19 +35,40 @@ import org.apache.poi.xslf.usermodel.XSLFSlide;
  */
 public class PPTXPresentation implements Presentation {
 
-    private XMLSlideShow slideshow;
-    private PresentationSlide[] slides;
+    private static final Logger LOGGER = LoggerUtils.getLogger();
+    private final XMLSlideShow slideshow;
+    private final PresentationSlide[] slides;
+    private final SlideRenderJob renderJob;
 
     /**
-     * Create a new XML presentation.
+     * Create a presentation from a file. The slides are rendered in the
+     * background, so they may not all be available straight away.
      *
      * @param file the file containing the presentation.
      */
     public PPTXPresentation(String file) throws IOException {
         try(FileInputStream fis = new FileInputStream(file)) {
             slideshow = new XMLSlideShow(fis);
-            slides = makeSlides();
         }
+        List<XSLFSlide> allSlides = slideshow.getSlides();
+        List<XSLFSlide> lSlides = new ArrayList<>();
+        List<PresentationSlide> ret = new ArrayList<>();
+        for (int i = 0; i < allSlides.size(); i++) {
+            if (allSlides.get(i) != null) {
+                lSlides.add(allSlides.get(i));
+                ret.add(new PresentationSlide(i + 1));
+            }
+        }
+        slides = ret.toArray(new PresentationSlide[ret.size()]);
+        double scale = PresentationSlide.fitPageSize(slideshow);
+        String hash = SlideRenderCache.get().hash(new File(file));
+        renderJob = new SlideRenderJob(new File(file).getName(), slides.length, 1,
+                index -> slides[index].render(lSlides.get(index), scale, hash), this::close);
+        for (int i = 0; i < slides.length; i++) {
+            slides[i].setRenderJob(renderJob, i);
+        }
+        renderJob.start();
+        renderJob.showProgress();
     }
 
     /**
@@ -69,19 +93,37 @@ public class PPTXPresentation implements Presentation {
     }
 
     /**
-     * Make the slides that go in this presentation, this is what takes time and
-     * should only be done once.
+     * Get the job rendering the slides of this presentation.
      *
-     * @return all the slides.
+     * @return the render job.
+     */
+    @Override
+    public SlideRenderJob getRenderJob() {
+        return renderJob;
+    }
+
+    /**
+     * Stop rendering the slides of this presentation and release them in the
+     * slide cache.
      */
-    private PresentationSlide[] makeSlides() {
-        List<XSLFSlide> lSlides = slideshow.getSlides();
-        ArrayList<PresentationSlide> ret = new ArrayList<>();
-        for (int i = 0; i < lSlides.size(); i++) {
-            if (lSlides.get(i) != null) {
-                ret.add(new PresentationSlide(lSlides.get(i), i + 1));
+    @Override
+    public void dispose() {
+        renderJob.cancel();
+        renderJob.whenFinished(() -> {
+            for (PresentationSlide slide : slides) {
+                slide.release();
             }
+        });
+    }
+
+    /**
+     * Close the underlying slideshow once every slide has been rendered.
+     */
+    private void close() {
+        try {
+            slideshow.close();
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Couldn't close presentation", ex);
         }
-        return ret.toArray(new PresentationSlide[ret.size()]);
     }
 }
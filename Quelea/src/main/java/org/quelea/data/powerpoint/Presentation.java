@@ -36,5 +36,17 @@ public interface Presentation {
      * in order.
      */
     PresentationSlide[] getSlides();
+
+    /**
+     * Get the job rendering the slides of this presentation in the background.
+     * @return the render job.
+     */
+    SlideRenderJob getRenderJob();
+
+    /**
+     * Stop rendering this presentation and release the slides it holds in
+     * the slide cache.
+     */
+    void dispose();
     
 }
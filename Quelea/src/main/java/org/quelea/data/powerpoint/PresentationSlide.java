@@ -23,97 +23,133 @@ import java.awt.Font;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
 import java.awt.geom.AffineTransform;
+import java.awt.geom.Dimension2D;
 import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javafx.embed.swing.SwingFXUtils;
 import javafx.scene.image.Image;
-import javafx.scene.image.WritableImage;
+import javax.imageio.ImageIO;
 import org.apache.poi.sl.usermodel.Slide;
 import org.apache.poi.sl.usermodel.SlideShow;
-import org.apache.poi.xslf.usermodel.XSLFSlide;
 import org.quelea.services.languages.LabelGrabber;
+import org.quelea.services.utils.DecodedImageCache;
 import org.quelea.services.utils.LoggerUtils;
 import org.quelea.services.utils.QueleaProperties;
 
 /**
- * A slide in a powerpoint presentation.
+ * A slide in a powerpoint presentation. The slide's image is rendered in the
+ * background by the presentation's render job, and is available once that's
+ * done. Only the slide's thumbnail is kept in memory; the full image is kept
+ * on disk and decoded when it's needed.
  *
  * @author Michael
  */
 public class PresentationSlide {
 
     private static final Logger LOGGER = LoggerUtils.getLogger();
-    private WritableImage image;
     private static final int WIDTH = 1920;
     private static final int HEIGHT = 1080;
-    private static double scaleWidth = 0;
-    private static double scaleHeight = 0;
+    private final int numSlide;
+    private SlideRenderJob job;
+    private int index;
+    private volatile String uri;
+    private volatile Image thumbnail;
+    private Image placeholder;
+    private String pinnedKey;
 
     /**
-     * Create a new presentation slide.
+     * Create a new presentation slide, to be rendered by the presentation's
+     * render job.
      *
-     * @param slide the underlying apache POI slide.
+     * @param numSlide the number of the slide in the presentation, from 1.
      */
-    public PresentationSlide(Slide slide, int numSlide) {
-        SlideShow slideshow = slide.getSlideShow();
-        if (Math.abs(slideshow.getPageSize().getHeight() - HEIGHT) > 0.1) {
-            int adjustHeight = HEIGHT;
-            int adjustWidth = (int) ((adjustHeight / slideshow.getPageSize().getHeight()) * slideshow.getPageSize().getWidth());
-            scaleWidth = (double) adjustWidth / slideshow.getPageSize().getWidth();
-            scaleHeight = (double) adjustHeight / slideshow.getPageSize().getHeight();
-            slideshow.setPageSize(new Dimension(adjustWidth, adjustHeight));
-        }
-        BufferedImage originalImage = new BufferedImage((int) slideshow.getPageSize().getWidth(), (int) slideshow.getPageSize().getHeight(), BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2 = originalImage.createGraphics();
-        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        try {
-            g2.setTransform(AffineTransform.getScaleInstance(scaleWidth, scaleHeight));
-            slide.draw(g2);
-        } catch (Exception ex) {
-            if (QueleaProperties.get().getUsePP()) {
-                LOGGER.log(Level.INFO, "Couldn't use library to generate thumbnail, using default");
-                draw(g2, originalImage.getWidth(), originalImage.getHeight(), numSlide);
-            } else {
-                throw ex;
-            }
+    PresentationSlide(int numSlide) {
+        this.numSlide = numSlide;
+    }
+
+    /**
+     * Set the job that renders this slide.
+     *
+     * @param job the render job.
+     * @param index the index of this slide in the job.
+     */
+    void setRenderJob(SlideRenderJob job, int index) {
+        this.job = job;
+        this.index = index;
+    }
+
+    /**
+     * Resize the pages of the given slideshow so they're rendered at the
+     * height of the projector output, keeping their aspect ratio.
+     *
+     * @param slideshow the slideshow to resize.
+     * @return the scale to draw the slides' original content at.
+     */
+    static double fitPageSize(SlideShow<?, ?> slideshow) {
+        Dimension2D pageSize = slideshow.getPageSize();
+        if (Math.abs(pageSize.getHeight() - HEIGHT) <= 0.1) {
+            return 1;
         }
-        image = new WritableImage(originalImage.getWidth(), originalImage.getHeight());
-        SwingFXUtils.toFXImage(originalImage, image);
-        originalImage.flush();
-        originalImage = null;
+        double scale = HEIGHT / pageSize.getHeight();
+        slideshow.setPageSize(new Dimension((int) (pageSize.getWidth() * scale), HEIGHT));
+        return scale;
     }
 
     /**
-     * Create a new presentation slide.
+     * Render this slide's image, or load it from the slide cache if it's been
+     * rendered before. If the library can't draw the slide, a placeholder's
+     * drawn instead, and isn't cached.
      *
      * @param slide the underlying apache POI slide.
+     * @param scale the scale to draw the slide's content at.
+     * @param hash the hash of the presentation file, or null not to cache the
+     * slide.
+     * @throws IOException if the rendered slide couldn't be stored.
      */
-    public PresentationSlide(XSLFSlide slide, int numSlide) {
-        org.apache.poi.xslf.usermodel.XMLSlideShow slideshow = slide.getSlideShow();
-        if (Math.abs(slideshow.getPageSize().getHeight() - HEIGHT) > 0.1) {
-            int adjustHeight = HEIGHT;
-            int adjustWidth = (int) ((adjustHeight / slideshow.getPageSize().getHeight()) * slideshow.getPageSize().getWidth());
-            scaleWidth = (double) adjustWidth / slideshow.getPageSize().getWidth();
-            scaleHeight = (double) adjustHeight / slideshow.getPageSize().getHeight();
-            slideshow.setPageSize(new Dimension(adjustWidth, adjustHeight));
+    void render(Slide<?, ?> slide, double scale, String hash) throws IOException {
+        Dimension2D pageSize = slide.getSlideShow().getPageSize();
+        int width = (int) pageSize.getWidth();
+        int height = (int) pageSize.getHeight();
+        SlideRenderCache cache = SlideRenderCache.get();
+        String key = hash == null ? null : SlideRenderCache.getKey(hash, numSlide, width, height);
+        File file = cache.lookup(key);
+        boolean pinned = file != null;
+        if (file == null) {
+            BufferedImage originalImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g2 = originalImage.createGraphics();
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            boolean failed = false;
+            try {
+                g2.setTransform(AffineTransform.getScaleInstance(scale, scale));
+                slide.draw(g2);
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.INFO, "Couldn't use library to generate thumbnail, using default", ex);
+                g2.setTransform(new AffineTransform());
+                draw(g2, width, height, numSlide);
+                failed = true;
+            }
+            g2.dispose();
+            file = failed ? null : cache.store(key, originalImage);
+            pinned = file != null;
+            if (file == null) {
+                file = File.createTempFile("slide" + numSlide, ".png");
+                file.deleteOnExit();
+                ImageIO.write(originalImage, "png", file);
+            }
+            originalImage.flush();
         }
-        BufferedImage originalImage = new BufferedImage((int) slideshow.getPageSize().getWidth(), (int) slideshow.getPageSize().getHeight(), BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2 = originalImage.createGraphics();
-        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        try {
-            g2.setTransform(AffineTransform.getScaleInstance(scaleWidth, scaleHeight));
-            slide.draw(g2);
-        } catch (NullPointerException ex) {
-            if (QueleaProperties.get().getUsePP()) {
-                LOGGER.log(Level.INFO, "Couldn't use library to generate thumbnail, using default");
-                draw(g2, originalImage.getWidth(), originalImage.getHeight(), numSlide);
-            } else {
-                throw ex;
+        if (pinned) {
+            synchronized (this) {
+                pinnedKey = key;
             }
         }
-        image = new WritableImage(originalImage.getWidth(), originalImage.getHeight());
-        SwingFXUtils.toFXImage(originalImage, image);
+        String fileUri = file.toURI().toString();
+        int size = QueleaProperties.get().getThumbnailSize();
+        thumbnail = new Image(fileUri, size, size, true, true);
+        uri = fileUri;
     }
 
     private void draw(Graphics2D graphics, int width, int height, int num) {
@@ -129,11 +165,93 @@ public class PresentationSlide {
     }
 
     /**
-     * Get the image from this slide.
+     * Get the image from this slide, waiting for it to be rendered if it
+     * hasn't been yet. If rendering was cancelled before this slide was
+     * rendered, a placeholder is returned.
      *
      * @return the image of this slide.
      */
     public final Image getImage() {
-        return image;
+        if (uri == null && job != null) {
+            job.await(index);
+        }
+        String imageUri = uri;
+        if (imageUri != null) {
+            return DecodedImageCache.INSTANCE.get(imageUri);
+        }
+        synchronized (this) {
+            if (placeholder == null) {
+                BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+                Graphics2D g2 = image.createGraphics();
+                draw(g2, WIDTH, HEIGHT, numSlide);
+                g2.dispose();
+                placeholder = SwingFXUtils.toFXImage(image, null);
+            }
+            return placeholder;
+        }
+    }
+
+    /**
+     * Get the thumbnail of this slide if it's been rendered, without waiting.
+     *
+     * @return the thumbnail of this slide, or null if it hasn't been rendered
+     * yet.
+     */
+    public final Image getThumbnail() {
+        return thumbnail;
+    }
+
+    /**
+     * Determine whether this slide's image has been rendered.
+     *
+     * @return true if it's been rendered, false otherwise.
+     */
+    public boolean isRendered() {
+        return uri != null;
+    }
+
+    /**
+     * Render this slide ahead of the others that haven't been rendered yet.
+     */
+    public void prioritise() {
+        if (job != null) {
+            job.prioritise(index);
+        }
+    }
+
+    /**
+     * Start decoding this slide's full image in the background if it's been
+     * rendered, so it's ready by the time it's shown.
+     */
+    public void prefetch() {
+        String imageUri = uri;
+        if (imageUri != null) {
+            DecodedImageCache.INSTANCE.prefetch(imageUri);
+        }
+    }
+
+    /**
+     * Release this slide's image in the slide cache, so it can be removed
+     * when the cache needs the space.
+     */
+    synchronized void release() {
+        if (pinnedKey != null) {
+            SlideRenderCache.get().release(pinnedKey);
+            pinnedKey = null;
+        }
+    }
+
+    /**
+     * Run the given callback once this slide's been rendered, or straight away
+     * if it already has been. The callback may be run on a background thread.
+     *
+     * @param callback the callback to run.
+     */
+    public void whenRendered(Runnable callback) {
+        if (job == null) {
+            callback.run();
+        } else {
+            job.whenRendered(index, callback);
+        }
     }
 }
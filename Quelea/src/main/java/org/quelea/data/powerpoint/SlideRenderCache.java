@@ -0,0 +1,340 @@
+/*
+ * This file is part of Quelea, free projection software for churches.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.quelea.data.powerpoint;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.imageio.ImageIO;
+import org.quelea.services.utils.LoggerUtils;
+import org.quelea.services.utils.QueleaProperties;
+
+/**
+ * An on-disk cache of rendered slides, shared between runs so a presentation
+ * that's been shown before doesn't need rendering again. Slides are keyed on
+ * the content of the file they came from, so a renamed or copied file still
+ * hits the cache and an edited one doesn't.
+ * <p>
+ * The cache is kept under a configurable size by removing the least recently
+ * used slides. Slides that are in use are pinned, and never removed until
+ * they're released.
+ * <p>
+ * @author Michael
+ */
+public final class SlideRenderCache {
+
+    private static final Logger LOGGER = LoggerUtils.getLogger();
+    private static final String EXTENSION = ".png";
+    private static volatile SlideRenderCache instance;
+    private final File dir;
+    private final long maxBytes;
+    private final Map<String, String> hashes;
+    private final LinkedHashMap<String, Long> entries;
+    private final Map<String, Integer> pins;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    private long totalBytes;
+    private boolean loaded;
+
+    /**
+     * Create a new slide cache.
+     * <p>
+     * @param dir the directory to keep the slides in.
+     * @param maxBytes the most space the slides may take up, or 0 to turn the
+     * cache off.
+     */
+    SlideRenderCache(File dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        hashes = new ConcurrentHashMap<>();
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+        pins = new HashMap<>();
+        hits = new LongAdder();
+        misses = new LongAdder();
+        evictions = new LongAdder();
+    }
+
+    /**
+     * Get the slide cache in the Quelea user home, sized according to the
+     * properties.
+     * <p>
+     * @return the slide cache.
+     */
+    public static SlideRenderCache get() {
+        if (instance == null) {
+            synchronized (SlideRenderCache.class) {
+                if (instance == null) {
+                    instance = new SlideRenderCache(QueleaProperties.get().getSlideCacheDir(),
+                            QueleaProperties.get().getSlideCacheSize() * 1024L * 1024L);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Determine whether this cache is turned on.
+     * <p>
+     * @return true if slides are cached, false otherwise.
+     */
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * Get the hash of the content of the given file, used as the first part of
+     * the keys of its slides. Hashes are remembered for as long as the file's
+     * size and modification time stay the same, so each file's only read once.
+     * <p>
+     * @param file the file to hash.
+     * @return the hash of the file, or null if the cache is turned off or the
+     * file couldn't be read.
+     */
+    public String hash(File file) {
+        if (!isEnabled()) {
+            return null;
+        }
+        String stamp = file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified();
+        String ret = hashes.get(stamp);
+        if (ret != null) {
+            return ret;
+        }
+        try (InputStream is = Files.newInputStream(file.toPath())) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buf = new byte[65536];
+            int read;
+            while ((read = is.read(buf)) != -1) {
+                digest.update(buf, 0, read);
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            ret = hex.toString();
+            hashes.put(stamp, ret);
+            return ret;
+        } catch (IOException | NoSuchAlgorithmException ex) {
+            LOGGER.log(Level.WARNING, "Couldn't hash " + file.getAbsolutePath() + ", not caching its slides", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Get the key of a rendered slide.
+     * <p>
+     * @param hash the hash of the file the slide's from.
+     * @param page the number of the slide in the file, from 1.
+     * @param width the width the slide was rendered to fit.
+     * @param height the height the slide was rendered to fit.
+     * @return the key of the slide.
+     */
+    public static String getKey(String hash, int page, int width, int height) {
+        return hash + "-" + page + "-" + width + "x" + height;
+    }
+
+    /**
+     * Look up a rendered slide, pinning it so it isn't removed while it's in
+     * use. Every successful lookup must be matched by a call to
+     * {@link #release(String)}.
+     * <p>
+     * @param key the key of the slide.
+     * @return the file holding the slide's image, or null if it isn't cached.
+     */
+    public synchronized File lookup(String key) {
+        if (!isEnabled() || key == null) {
+            return null;
+        }
+        load();
+        File file = getFile(key);
+        if (entries.get(key) == null || !file.isFile()) {
+            Long size = entries.remove(key);
+            if (size != null) {
+                totalBytes -= size;
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        pins.merge(key, 1, Integer::sum);
+        if (!file.setLastModified(System.currentTimeMillis())) {
+            LOGGER.log(Level.FINE, "Couldn't touch cached slide {0}", key);
+        }
+        return file;
+    }
+
+    /**
+     * Store a rendered slide, pinning it as for {@link #lookup(String)} and
+     * removing the least recently used slides if the cache's grown too big.
+     * <p>
+     * @param key the key of the slide.
+     * @param image the slide's image.
+     * @return the file holding the slide's image, or null if the cache is
+     * turned off or the image couldn't be stored.
+     */
+    public File store(String key, BufferedImage image) {
+        if (!isEnabled() || key == null) {
+            return null;
+        }
+        File file = getFile(key);
+        File temp = null;
+        try {
+            Files.createDirectories(dir.toPath());
+            temp = File.createTempFile("slide", ".tmp", dir);
+            if (!ImageIO.write(image, "png", temp)) {
+                throw new IOException("No PNG writer available");
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Couldn't cache slide " + key, ex);
+            if (temp != null && !temp.delete()) {
+                temp.deleteOnExit();
+            }
+            return null;
+        }
+        synchronized (this) {
+            load();
+            Long old = entries.put(key, file.length());
+            totalBytes += file.length() - (old == null ? 0 : old);
+            pins.merge(key, 1, Integer::sum);
+            evict();
+        }
+        return file;
+    }
+
+    /**
+     * Release a slide previously looked up or stored, allowing it to be
+     * removed once it's no longer in use.
+     * <p>
+     * @param key the key of the slide.
+     */
+    public synchronized void release(String key) {
+        if (key != null) {
+            pins.computeIfPresent(key, (k, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    /**
+     * Get a summary of how well the cache is working.
+     * <p>
+     * @return the summary.
+     */
+    public synchronized String getSummary() {
+        return String.format("slide cache: %d hits, %d misses, %d evictions, %d slides, %.1fMB",
+                hits.sum(), misses.sum(), evictions.sum(), entries.size(), totalBytes / (1024.0 * 1024.0));
+    }
+
+    /**
+     * Get the number of lookups that found their slide.
+     * <p>
+     * @return the number of cache hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of lookups that didn't find their slide.
+     * <p>
+     * @return the number of cache misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the number of slides removed to keep the cache under its size.
+     * <p>
+     * @return the number of evictions.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private File getFile(String key) {
+        return new File(dir, key + EXTENSION);
+    }
+
+    /**
+     * Read the slides already on disk the first time the cache is used,
+     * oldest first so the least recently used are the first to go. Leftovers
+     * of interrupted writes are removed.
+     */
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(EXTENSION)) {
+                entries.put(name.substring(0, name.length() - EXTENSION.length()), file.length());
+                totalBytes += file.length();
+            } else if (name.endsWith(".tmp") && !file.delete()) {
+                LOGGER.log(Level.FINE, "Couldn't remove {0}", file.getAbsolutePath());
+            }
+        }
+        evict();
+        LOGGER.log(Level.INFO, "Loaded {0}", getSummary());
+    }
+
+    /**
+     * Remove the least recently used slides that aren't in use until the
+     * cache is back under its size.
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> entry = it.next();
+            if (pins.containsKey(entry.getKey())) {
+                continue;
+            }
+            File file = getFile(entry.getKey());
+            if (file.delete() || !file.exists()) {
+                totalBytes -= entry.getValue();
+                it.remove();
+                evictions.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,389 @@
+/*
+ * This file is part of Quelea, free projection software for churches.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.quelea.data.powerpoint;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.application.Platform;
+import org.quelea.services.languages.LabelGrabber;
+import org.quelea.services.utils.LoggerUtils;
+import org.quelea.windows.main.QueleaApp;
+import org.quelea.windows.main.StatusPanel;
+
+/**
+ * Renders the slides of a presentation in the background, so the presentation
+ * can be used as soon as it's opened and its slides become available as they
+ * finish. All presentations share a bounded pool of render threads.
+ * <p>
+ * Slides are rendered in order, except that slides asked for with
+ * {@link #prioritise(int)} - typically the one that's selected and the one
+ * after it - jump the queue, the most recently asked for first.
+ * <p>
+ * @author Michael
+ */
+public final class SlideRenderJob {
+
+    private static final Logger LOGGER = LoggerUtils.getLogger();
+    private static final int POOL_SIZE = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private static final ExecutorService POOL;
+
+    static {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "slide-render-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        POOL = pool;
+    }
+
+    /**
+     * Renders a single slide, storing the result wherever the slide expects
+     * to find it.
+     */
+    public interface SlideRenderer {
+
+        /**
+         * Render the slide at the given index.
+         * <p>
+         * @param index the index of the slide to render.
+         * @throws Exception if the slide couldn't be rendered.
+         */
+        void render(int index) throws Exception;
+    }
+
+    private final String name;
+    private final SlideRenderer renderer;
+    private final int parallelism;
+    private final Runnable onFinish;
+    private final boolean[] claimed;
+    private final boolean[] finished;
+    private final List<List<Runnable>> callbacks;
+    private final List<Runnable> finishCallbacks;
+    private final Deque<Integer> priority;
+    private int next;
+    private int finishedCount;
+    private int running;
+    private volatile boolean cancelled;
+    private boolean done;
+    private StatusPanel panel;
+
+    /**
+     * Create a new render job. Nothing is rendered until the job's started.
+     * <p>
+     * @param name the name of the presentation, shown with the job's progress.
+     * @param count the number of slides to render.
+     * @param parallelism the most slides of this presentation to render at
+     * once; 1 if the renderer isn't thread safe.
+     * @param renderer renders each slide.
+     * @param onFinish run once every slide's been rendered or the job's been
+     * cancelled, to release anything the renderer holds. May be null.
+     */
+    public SlideRenderJob(String name, int count, int parallelism, SlideRenderer renderer, Runnable onFinish) {
+        this.name = name;
+        this.renderer = renderer;
+        this.parallelism = Math.max(1, Math.min(parallelism, POOL_SIZE));
+        this.onFinish = onFinish;
+        claimed = new boolean[count];
+        finished = new boolean[count];
+        callbacks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            callbacks.add(new ArrayList<>());
+        }
+        priority = new ArrayDeque<>();
+        finishCallbacks = new ArrayList<>();
+    }
+
+    /**
+     * Get the number of render threads shared by all presentations.
+     * <p>
+     * @return the number of render threads.
+     */
+    public static int getPoolSize() {
+        return POOL_SIZE;
+    }
+
+    /**
+     * Start rendering the slides in the background.
+     */
+    public synchronized void start() {
+        if (claimed.length == 0) {
+            finish();
+            return;
+        }
+        running = Math.min(parallelism, claimed.length);
+        for (int i = 0; i < running; i++) {
+            POOL.execute(this::work);
+        }
+    }
+
+    /**
+     * Show the progress of this job on the main window's status bar, with a
+     * button to cancel it. Does nothing if the main window isn't showing.
+     */
+    public void showProgress() {
+        if (QueleaApp.get() == null || QueleaApp.get().getMainWindow() == null) {
+            return;
+        }
+        Platform.runLater(() -> {
+            synchronized (this) {
+                if (isFinished()) {
+                    return;
+                }
+                panel = QueleaApp.get().getStatusGroup().addPanel(LabelGrabber.INSTANCE.getLabel("rendering.slides.status") + " " + name);
+                panel.getCancelButton().setOnAction(t -> cancel());
+                panel.getProgressBar().setProgress(getProgress());
+            }
+        });
+    }
+
+    /**
+     * Render the given slide as soon as a render thread is free, ahead of any
+     * others that haven't been asked for.
+     * <p>
+     * @param index the index of the slide.
+     */
+    public synchronized void prioritise(int index) {
+        if (index >= 0 && index < claimed.length && !claimed[index]) {
+            priority.remove(index);
+            priority.push(index);
+        }
+    }
+
+    /**
+     * Determine whether the given slide has been rendered, or has failed to
+     * render.
+     * <p>
+     * @param index the index of the slide.
+     * @return true if the slide's done, false if it's still to be rendered.
+     */
+    public synchronized boolean isRendered(int index) {
+        return finished[index];
+    }
+
+    /**
+     * Wait for the given slide to be rendered, prioritising it if it hasn't
+     * been started yet. Returns early if the job's cancelled or the thread's
+     * interrupted, in which case the slide may not have been rendered.
+     * <p>
+     * @param index the index of the slide.
+     */
+    public synchronized void await(int index) {
+        prioritise(index);
+        while (!finished[index] && !cancelled) {
+            try {
+                wait();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Run the given callback once the given slide has been rendered, or
+     * straight away if it already has been. The callback's run on a render
+     * thread, and isn't run at all if the job's cancelled before the slide's
+     * rendered.
+     * <p>
+     * @param index the index of the slide.
+     * @param callback the callback to run.
+     */
+    public void whenRendered(int index, Runnable callback) {
+        synchronized (this) {
+            if (!finished[index]) {
+                callbacks.get(index).add(callback);
+                return;
+            }
+        }
+        callback.run();
+    }
+
+    /**
+     * Run the given callback once this job's stopped rendering, either because
+     * every slide's been rendered or because it was cancelled and the slides
+     * in progress have finished. Runs straight away if it's already stopped.
+     * <p>
+     * @param callback the callback to run.
+     */
+    public void whenFinished(Runnable callback) {
+        synchronized (this) {
+            if (!done) {
+                finishCallbacks.add(callback);
+                return;
+            }
+        }
+        callback.run();
+    }
+
+    /**
+     * Get the proportion of slides that have been rendered.
+     * <p>
+     * @return the progress, between 0 and 1.
+     */
+    public synchronized double getProgress() {
+        return claimed.length == 0 ? 1 : (double) finishedCount / claimed.length;
+    }
+
+    /**
+     * Determine whether this job has finished, either by rendering every
+     * slide or by being cancelled.
+     * <p>
+     * @return true if the job's finished, false otherwise.
+     */
+    public synchronized boolean isFinished() {
+        return cancelled || finishedCount == claimed.length;
+    }
+
+    /**
+     * Stop rendering slides. Slides that are being rendered are finished, but
+     * no more are started.
+     */
+    public void cancel() {
+        synchronized (this) {
+            if (isFinished()) {
+                return;
+            }
+            cancelled = true;
+            notifyAll();
+        }
+        LOGGER.log(Level.INFO, "Cancelled rendering slides of {0}", name);
+    }
+
+    /**
+     * Determine whether this job was cancelled.
+     * <p>
+     * @return true if it was cancelled, false otherwise.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Render slides until there are none left to claim, then finish the job
+     * if this is the last thread working on it.
+     */
+    private void work() {
+        int index;
+        while ((index = claimNext()) >= 0) {
+            try {
+                renderer.render(index);
+            } catch (Exception | LinkageError ex) {
+                LOGGER.log(Level.WARNING, "Couldn't render slide " + (index + 1) + " of " + name, ex);
+            }
+            List<Runnable> toRun;
+            synchronized (this) {
+                finished[index] = true;
+                finishedCount++;
+                toRun = new ArrayList<>(callbacks.get(index));
+                callbacks.get(index).clear();
+                notifyAll();
+                if (panel != null) {
+                    panel.setProgress(getProgress());
+                }
+            }
+            for (Runnable callback : toRun) {
+                try {
+                    callback.run();
+                } catch (RuntimeException ex) {
+                    LOGGER.log(Level.WARNING, "Error notifying that a slide was rendered", ex);
+                }
+            }
+        }
+        boolean last;
+        synchronized (this) {
+            running--;
+            last = running == 0;
+        }
+        if (last) {
+            finish();
+        }
+    }
+
+    /**
+     * Claim the next slide to render.
+     * <p>
+     * @return the index of the slide, or -1 if there are none left or the job
+     * has been cancelled.
+     */
+    private synchronized int claimNext() {
+        if (cancelled) {
+            return -1;
+        }
+        Integer prioritised;
+        while ((prioritised = priority.poll()) != null) {
+            if (!claimed[prioritised]) {
+                claimed[prioritised] = true;
+                return prioritised;
+            }
+        }
+        while (next < claimed.length) {
+            int index = next++;
+            if (!claimed[index]) {
+                claimed[index] = true;
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Release whatever the renderer holds and remove the job's progress.
+     */
+    private void finish() {
+        if (onFinish != null) {
+            try {
+                onFinish.run();
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.WARNING, "Error finishing rendering slides of " + name, ex);
+            }
+        }
+        List<Runnable> toRun;
+        synchronized (this) {
+            done = true;
+            for (List<Runnable> list : callbacks) {
+                list.clear();
+            }
+            toRun = new ArrayList<>(finishCallbacks);
+            finishCallbacks.clear();
+            notifyAll();
+            if (panel != null) {
+                panel.done();
+            }
+        }
+        for (Runnable callback : toRun) {
+            try {
+                callback.run();
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.WARNING, "Error notifying that slides were rendered", ex);
+            }
+        }
+        LOGGER.log(Level.INFO, "Finished rendering slides of {0}, {1}", new Object[]{name, SlideRenderCache.get().getSummary()});
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * This file is part of Quelea, free projection software for churches.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.quelea.server;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request counters for each endpoint of an HTTP server: how many requests it's
+ * handled, how long they took, how many failed and how many were in flight at
+ * once. Used to size the servers' thread pools for the number of connected
+ * devices.
+ * <p>
+ * @author Michael
+ */
+public final class EndpointStats {
+
+    private final Map<String, Endpoint> endpoints;
+    private final long startTime;
+
+    /**
+     * Create a new, empty set of endpoint counters.
+     */
+    public EndpointStats() {
+        endpoints = new ConcurrentHashMap<>();
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * Start counting the requests handled by the given context.
+     * <p>
+     * @param context the context to count.
+     * @return the context, for chaining.
+     */
+    public HttpContext track(HttpContext context) {
+        Endpoint endpoint = endpoints.computeIfAbsent(context.getPath(), p -> new Endpoint());
+        context.getFilters().add(0, new StatsFilter(endpoint));
+        return context;
+    }
+
+    /**
+     * Get a summary of the counters of every endpoint, one endpoint per line.
+     * <p>
+     * @return the summary.
+     */
+    public String getSummary() {
+        double seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startTime));
+        StringBuilder ret = new StringBuilder();
+        for (Map.Entry<String, Endpoint> entry : new TreeMap<>(endpoints).entrySet()) {
+            Endpoint endpoint = entry.getValue();
+            long requests = endpoint.requests.sum();
+            if (requests == 0) {
+                continue;
+            }
+            ret.append(String.format("%s: %d requests (%.2f/s), mean %.1fms, max %.1fms, %d failed, peak %d concurrent%n",
+                    entry.getKey(),
+                    requests,
+                    requests / seconds,
+                    endpoint.totalNanos.sum() / (double) requests / 1_000_000,
+                    endpoint.maxNanos.get() / 1_000_000.0,
+                    endpoint.errors.sum(),
+                    endpoint.peakInFlight.get()));
+        }
+        return ret.toString();
+    }
+
+    /**
+     * The counters of a single endpoint.
+     */
+    private static final class Endpoint {
+
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final LongAccumulator peakInFlight = new LongAccumulator(Math::max, 0);
+    }
+
+    /**
+     * Times each request passing through a context against its endpoint.
+     */
+    private static final class StatsFilter extends Filter {
+
+        private final Endpoint endpoint;
+
+        private StatsFilter(Endpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        @Override
+        public String description() {
+            return "Counts requests and their latency";
+        }
+
+        @Override
+        public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+            endpoint.peakInFlight.accumulate(endpoint.inFlight.incrementAndGet());
+            long start = System.nanoTime();
+            boolean ok = false;
+            try {
+                chain.doFilter(exchange);
+                ok = true;
+            } finally {
+                long time = System.nanoTime() - start;
+                endpoint.inFlight.decrementAndGet();
+                endpoint.requests.increment();
+                endpoint.totalNanos.add(time);
+                endpoint.maxNanos.accumulate(time);
+                if (!ok || exchange.getResponseCode() >= 500) {
+                    endpoint.errors.increment();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * This file is part of Quelea, free projection software for churches.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.quelea.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.quelea.services.utils.LoggerUtils;
+
+/**
+ * Pushes the live content out to connected clients as server-sent events. The
+ * content is only rendered when its version changes, once regardless of how
+ * many clients are connected, and only sent out when the rendered content is
+ * different; each change is serialised once and the same bytes written to
+ * every client.
+ * <p>
+ * A client that's slow to read only ever has the latest content queued for
+ * it, so it can't hold up the others or build up a backlog.
+ * <p>
+ * @author Michael
+ */
+final class LyricsBroadcaster implements HttpHandler {
+
+    private static final Logger LOGGER = LoggerUtils.getLogger();
+    private static final long CHECK_INTERVAL_MILLIS = 200;
+    private static final long HEARTBEAT_INTERVAL_MILLIS = 15000;
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PREAMBLE = "retry: 2000\n\n".getBytes(StandardCharsets.UTF_8);
+    private final Supplier<String> renderer;
+    private final LongSupplier version;
+    private final Executor executor;
+    private final List<Subscriber> subscribers;
+    private final ScheduledExecutorService checker;
+    private volatile String current;
+    private volatile byte[] currentFrame;
+    private long lastSent;
+    private long lastVersion = -1;
+
+    /**
+     * Create a new broadcaster.
+     * <p>
+     * @param renderer renders the current content as server-sent events.
+     * @param version the version of the current content, which must change
+     * whenever the rendered content could.
+     * @param executor the executor to write to clients on.
+     */
+    LyricsBroadcaster(Supplier<String> renderer, LongSupplier version, Executor executor) {
+        this.renderer = renderer;
+        this.version = version;
+        this.executor = executor;
+        subscribers = new CopyOnWriteArrayList<>();
+        checker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mobile-lyrics-push");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checker.scheduleWithFixedDelay(this::check, CHECK_INTERVAL_MILLIS, CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Subscribe the client making the given request to the live content. The
+     * exchange is kept open and the client is sent the current content
+     * straight away.
+     * <p>
+     * @param he the request to subscribe.
+     * @throws IOException if the response couldn't be started.
+     */
+    @Override
+    public void handle(HttpExchange he) throws IOException {
+        he.getResponseHeaders().add("Content-Type", "text/event-stream; charset=utf-8");
+        he.getResponseHeaders().add("Cache-Control", "no-cache, no-store, must-revalidate");
+        he.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+        he.sendResponseHeaders(200, 0);
+        Subscriber subscriber = new Subscriber(he);
+        subscribers.add(subscriber);
+        byte[] frame = currentFrame;
+        if (frame == null) {
+            checker.execute(this::check);
+        } else {
+            subscriber.offer(frame);
+        }
+        LOGGER.log(Level.FINE, "Mobile lyrics client subscribed, {0} connected", subscribers.size());
+    }
+
+    /**
+     * Get the number of clients currently subscribed.
+     * <p>
+     * @return the number of subscribed clients.
+     */
+    int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Check whether the live content has changed and send it out to every
+     * client if it has. Nothing is rendered while there are no clients, or
+     * while the content's version stays the same.
+     */
+    private void check() {
+        try {
+            if (subscribers.isEmpty()) {
+                current = null;
+                currentFrame = null;
+                lastVersion = -1;
+                return;
+            }
+            long now = System.currentTimeMillis();
+            long contentVersion = version.getAsLong();
+            String content = current;
+            if (contentVersion != lastVersion || currentFrame == null) {
+                lastVersion = contentVersion;
+                content = renderer.get();
+            }
+            if (!content.equals(current)) {
+                current = content;
+                currentFrame = serialise(content);
+                send(currentFrame);
+                lastSent = now;
+            } else if (now - lastSent > HEARTBEAT_INTERVAL_MILLIS) {
+                send(HEARTBEAT);
+                lastSent = now;
+            }
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.WARNING, "Error pushing live content", ex);
+        }
+    }
+
+    /**
+     * Send the given bytes to every client.
+     * <p>
+     * @param frame the bytes to send.
+     */
+    private void send(byte[] frame) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(frame);
+        }
+    }
+
+    /**
+     * Serialise the given content, prefixed with the reconnection delay so
+     * it's also correct as the first thing a client is sent.
+     * <p>
+     * @param content the content as server-sent events.
+     * @return the bytes to send.
+     */
+    private static byte[] serialise(String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        byte[] ret = Arrays.copyOf(PREAMBLE, PREAMBLE.length + bytes.length);
+        System.arraycopy(bytes, 0, ret, PREAMBLE.length, bytes.length);
+        return ret;
+    }
+
+    /**
+     * Format a single server-sent event. Each line of the data is sent on its
+     * own data field, as the format requires.
+     * <p>
+     * @param event the name of the event.
+     * @param data the data of the event.
+     * @return the formatted event.
+     */
+    static String formatEvent(String event, String data) {
+        StringBuilder ret = new StringBuilder();
+        ret.append("event: ").append(event).append('\n');
+        for (String line : data.split("\r\n|\r|\n", -1)) {
+            ret.append("data: ").append(line).append('\n');
+        }
+        return ret.append('\n').toString();
+    }
+
+    /**
+     * Disconnect every client and stop checking for changes.
+     */
+    void stop() {
+        checker.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close();
+        }
+    }
+
+    /**
+     * A connected client, and the latest bytes waiting to be written to it.
+     */
+    private final class Subscriber {
+
+        private final HttpExchange exchange;
+        private final OutputStream os;
+        private final AtomicReference<byte[]> pending;
+        private final AtomicBoolean writing;
+
+        private Subscriber(HttpExchange exchange) {
+            this.exchange = exchange;
+            os = exchange.getResponseBody();
+            pending = new AtomicReference<>();
+            writing = new AtomicBoolean();
+        }
+
+        /**
+         * Queue the given bytes to be written to this client, replacing any
+         * that haven't been written yet.
+         * <p>
+         * @param frame the bytes to write.
+         */
+        private void offer(byte[] frame) {
+            byte[] previous = pending.getAndSet(frame);
+            if (previous != null && frame == HEARTBEAT) {
+                pending.compareAndSet(HEARTBEAT, previous);
+            }
+            if (writing.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        /**
+         * Write whatever's queued for this client until there's nothing left.
+         */
+        private void drain() {
+            try {
+                byte[] frame;
+                while ((frame = pending.getAndSet(null)) != null) {
+                    os.write(frame);
+                    os.flush();
+                }
+            } catch (IOException ex) {
+                LOGGER.log(Level.FINE, "Mobile lyrics client disconnected", ex);
+                close();
+                return;
+            } finally {
+                writing.set(false);
+            }
+            if (pending.get() != null && writing.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        /**
+         * Disconnect this client.
+         */
+        private void close() {
+            subscribers.remove(this);
+            pending.set(null);
+            exchange.close();
+        }
+    }
+}
@@ -19,20 +19,22 @@ package org.quelea.server;
 
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpContext;
 import com.sun.net.httpserver.HttpServer;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
-import java.net.InetSocketAddress;
 import java.net.URLDecoder;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.quelea.data.bible.BibleBook;
@@ -62,9 +64,13 @@ public class MobileLyricsServer {
     private static final Logger LOGGER = LoggerUtils.getLogger();
     private final HttpServer server;
     private boolean running;
-    private String pageContent;
+    private volatile String pageContent;
     private final Map<String, byte[]> fileCache;
-    private String text = "";
+    private final ExecutorService executor;
+    private final EndpointStats stats;
+    private final LyricsBroadcaster broadcaster;
+    private volatile String text = "";
+    private final AtomicLong textVersion = new AtomicLong();
 
     /**
      * Create a new mobile lyrics server on a specified port. The port must not
@@ -74,24 +80,28 @@ public class MobileLyricsServer {
      * @throws IOException if something goes wrong.
      */
     public MobileLyricsServer(int port) throws IOException {
-        fileCache = new HashMap<>();
-        server = HttpServer.create(new InetSocketAddress(port), 0);
-        server.createContext("/", new RootHandler());
-        server.createContext("/lyrics", new LyricsHandler());
-        server.createContext("/chords", new ChordsHandler());
-        server.createContext("/chordsv2", new ChordsHandlerv2());
-        server.createContext("/title", new TitleHandler());
-        server.createContext("/songtranslations", new SongTranslationsHandler());
-        server.createContext("/gettranslation", new SongTranslationsHandler());
-        server.createContext("/livetext", new LiveTextHandler());
-        server.createContext("/jscolor.js", new FileHandler("icons/jscolor.js"));
-        server.createContext("/arrow.gif", new FileHandler("icons/arrow.gif"));
-        server.createContext("/gear.png", new FileHandler("icons/gear.png"));
-        server.createContext("/translate.png", new FileHandler("icons/translate_on.png"));
-        server.createContext("/cross.gif", new FileHandler("icons/cross.gif"));
-        server.createContext("/hs.png", new FileHandler("icons/hs.png"));
-        server.createContext("/hv.png", new FileHandler("icons/hv.png"));
-        server.setExecutor(null);
+        fileCache = new ConcurrentHashMap<>();
+        stats = new EndpointStats();
+        executor = ServerSupport.createExecutor("mobile-lyrics");
+        server = ServerSupport.createServer(port);
+        broadcaster = new LyricsBroadcaster(this::renderEvents, this::getContentVersion, executor);
+        createContext("/", new RootHandler());
+        createContext("/lyrics", new LyricsHandler());
+        createContext("/chords", new ChordsHandler());
+        createContext("/chordsv2", new ChordsHandlerv2());
+        createContext("/title", new TitleHandler());
+        createContext("/songtranslations", new SongTranslationsHandler());
+        createContext("/gettranslation", new SongTranslationsHandler());
+        createContext("/livetext", new LiveTextHandler());
+        createContext("/events", broadcaster);
+        createContext("/jscolor.js", new FileHandler("icons/jscolor.js"));
+        createContext("/arrow.gif", new FileHandler("icons/arrow.gif"));
+        createContext("/gear.png", new FileHandler("icons/gear.png"));
+        createContext("/translate.png", new FileHandler("icons/translate_on.png"));
+        createContext("/cross.gif", new FileHandler("icons/cross.gif"));
+        createContext("/hs.png", new FileHandler("icons/hs.png"));
+        createContext("/hv.png", new FileHandler("icons/hv.png"));
+        server.setExecutor(executor);
     }
 
     /**
@@ -111,10 +121,34 @@ public class MobileLyricsServer {
     public void stop() {
         if (server != null) {
             running = false;
+            broadcaster.stop();
             server.stop(0);
+            executor.shutdown();
+            LOGGER.log(Level.INFO, "Mobile lyrics server stopped, requests handled:\n{0}", stats.getSummary());
         }
     }
 
+    /**
+     * Get the request counters of each endpoint of this server.
+     * <p>
+     * @return the request counters.
+     */
+    public EndpointStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Create a context on the server with the given handler, counting the
+     * requests it handles.
+     * <p>
+     * @param path the path of the context.
+     * @param handler the handler for requests to the context.
+     * @return the created context.
+     */
+    private HttpContext createContext(String path, HttpHandler handler) {
+        return stats.track(server.createContext(path, handler));
+    }
+
     /**
      * Determine if the server is running.
      * <p>
@@ -124,6 +158,37 @@ public class MobileLyricsServer {
         return running;
     }
 
+    /**
+     * Render everything a client might show as server-sent events: the
+     * lyrics, the lyrics with chords, the title and any live text. Clients
+     * subscribed to /events are pushed this whenever it changes, rather than
+     * polling the individual endpoints.
+     * <p>
+     * @return the live content as server-sent events.
+     */
+    private String renderEvents() {
+        return LyricsBroadcaster.formatEvent("lyrics", getLyrics(false))
+                + LyricsBroadcaster.formatEvent("chords", getChordsv2())
+                + LyricsBroadcaster.formatEvent("title", getTitle())
+                + LyricsBroadcaster.formatEvent("livetext", getText());
+    }
+
+    /**
+     * Get a number that changes whenever anything rendered by renderEvents()
+     * could have, so the content is only rendered again when it's needed.
+     * <p>
+     * @return the version of the live content.
+     */
+    private long getContentVersion() {
+        long version = textVersion.get();
+        if (QueleaApp.get() != null && QueleaApp.get().getMainWindow() != null
+                && QueleaApp.get().getMainWindow().getMainPanel() != null
+                && QueleaApp.get().getMainWindow().getMainPanel().getLivePanel() != null) {
+            version += QueleaApp.get().getMainWindow().getMainPanel().getLivePanel().getContentVersion();
+        }
+        return version;
+    }
+
     private String sortLabels(String content) {
         content = content.replace("[loading.text]", LabelGrabber.INSTANCE.getLabel("loading.text"));
         content = content.replace("[font.colour.label]", LabelGrabber.INSTANCE.getLabel("font.colour.label"));
@@ -203,21 +268,7 @@ public class MobileLyricsServer {
 
         @Override
         public void handle(HttpExchange t) throws IOException {
-            String[] arr = getRawLiveLyrics();
-            List<Chord> chords = new ArrayList<>();
-            StringBuilder html = new StringBuilder();
-            for (int i = 0; i < arr.length; i++) {
-                String line = arr[i];
-                if (new LineTypeChecker(line).getLineType() == Type.CHORDS && i < arr.length - 1) {
-                    chords = Chord.getChordsFromLine(line);
-                } else {
-                    html.append(mergeChords(line, chords));
-                    html.append("\n");
-                    chords = null;
-                }
-            }
-            
-            byte[] bytes = html.toString().getBytes("UTF-8");
+            byte[] bytes = getChordsv2().getBytes("UTF-8");
             t.getResponseHeaders().add("Cache-Control", "no-cache, no-store, must-revalidate");
             t.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
             t.sendResponseHeaders(200, bytes.length);
@@ -225,42 +276,65 @@ public class MobileLyricsServer {
                 os.write(bytes);
             }
         }
-        
-        private String mergeChords(String line, List<Chord> chords) {
-            if (chords == null || chords.isEmpty()) {
-                return line;
+    }
+
+    /**
+     * Get the live lyrics with the chords merged into the lines they belong
+     * to.
+     * <p>
+     * @return the lyrics and chords as HTML.
+     */
+    private String getChordsv2() {
+        String[] arr = getRawLiveLyrics();
+        List<Chord> chords = new ArrayList<>();
+        StringBuilder html = new StringBuilder();
+        for (int i = 0; i < arr.length; i++) {
+            String line = arr[i];
+            if (new LineTypeChecker(line).getLineType() == Type.CHORDS && i < arr.length - 1) {
+                chords = Chord.getChordsFromLine(line);
+            } else {
+                html.append(mergeChords(line, chords));
+                html.append("\n");
+                chords = null;
             }
+        }
+        return html.toString();
+    }
 
-            String ret = "<div class=\"line\">";
-            int chordidx = 0;
-            boolean initialWhitespace = true;
-            Chord chord = chords.get(chordidx);
-            for (int i = 0; i < line.length(); i++) {
-                if (line.charAt(i) != ' ') {
-                    initialWhitespace = false;
-                }
-                if (chord != null && i == chord.getIdx()) {
-                    ret += "<span class=\"chord\">" + chord.getChord() + "</span>";
-                    chordidx++;
-                    if (chordidx < chords.size()) {
-                        chord = chords.get(chordidx);
-                    } else {
-                        chord = null;
-                    }
-                }
-                if(initialWhitespace && line.charAt(i)==' ') {
-                    ret += "\u2000";
-                }
-                else {
-                    ret += line.charAt(i);                    
+    private String mergeChords(String line, List<Chord> chords) {
+        if (chords == null || chords.isEmpty()) {
+            return line;
+        }
+
+        String ret = "<div class=\"line\">";
+        int chordidx = 0;
+        boolean initialWhitespace = true;
+        Chord chord = chords.get(chordidx);
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) != ' ') {
+                initialWhitespace = false;
+            }
+            if (chord != null && i == chord.getIdx()) {
+                ret += "<span class=\"chord\">" + chord.getChord() + "</span>";
+                chordidx++;
+                if (chordidx < chords.size()) {
+                    chord = chords.get(chordidx);
+                } else {
+                    chord = null;
                 }
             }
-            while (chordidx < chords.size()) {
-                ret += "<span class=\"chord\">" + chords.get(chordidx++).getChord() + "</span>";
+            if(initialWhitespace && line.charAt(i)==' ') {
+                ret += "\u2000";
             }
-            ret += "</div>";
-            return ret;
+            else {
+                ret += line.charAt(i);                    
+            }
+        }
+        while (chordidx < chords.size()) {
+            ret += "<span class=\"chord\">" + chords.get(chordidx++).getChord() + "</span>";
         }
+        ret += "</div>";
+        return ret;
     }
 
     private class ChordsHandler implements HttpHandler {
@@ -535,6 +609,7 @@ public class MobileLyricsServer {
     
     public void setText(String text) {
         this.text = text;
+        textVersion.incrementAndGet();
     }
 
     /**
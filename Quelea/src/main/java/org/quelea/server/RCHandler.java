@@ -25,8 +25,11 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -48,6 +51,7 @@ import org.quelea.data.displayable.SongDisplayable;
 import org.quelea.data.displayable.TimerDisplayable;
 import org.quelea.services.languages.LabelGrabber;
 import org.quelea.services.lucene.SongSearchIndex;
+import org.quelea.services.lucene.SongSearchResult;
 import org.quelea.services.utils.LoggerUtils;
 import org.quelea.services.utils.QueleaProperties;
 import org.quelea.services.utils.Utils;
@@ -69,7 +73,7 @@ import org.quelea.windows.newsong.SongEntryWindow;
  */
 public class RCHandler {
 
-    private static final ArrayList<String> devices = new ArrayList<>();
+    private static final List<String> devices = new CopyOnWriteArrayList<>();
     private static final Logger LOGGER = LoggerUtils.getLogger();
 
     public static void logo() {
@@ -285,24 +289,24 @@ public class RCHandler {
         if (he.getRequestURI().toString().contains("/search/")) {
             String uri = URLDecoder.decode(he.getRequestURI().toString(), "UTF-8");
             searchString = uri.split("/search/", 2)[1];
-            TreeSet<SongDisplayable> songs = new TreeSet<>();
+            List<SongDisplayable> songs = new ArrayList<>();
             if (searchString == null || searchString.trim().isEmpty() || Pattern.compile("[^\\w ]", Pattern.UNICODE_CHARACTER_CLASS).matcher(searchString).replaceAll("").isEmpty()) {
                 return LabelGrabber.INSTANCE.getLabel("invalid.search");
             } else {
-                SongDisplayable[] titleSongs = SongManager.get().getIndex().filter(searchString, SongSearchIndex.FilterType.TITLE);
-                for (SongDisplayable song : titleSongs) {
-                    song.setLastSearch(searchString);
-                    songs.add(song);
-                }
-
-                SongDisplayable[] lyricSongs = SongManager.get().getIndex().filter(searchString, SongSearchIndex.FilterType.BODY);
-                for (SongDisplayable song : lyricSongs) {
-                    song.setLastSearch(null);
+                Comparator<SongDisplayable> alphabetical = SongManager.get().getSortIndex().comparator();
+                Set<SongDisplayable> shown = new TreeSet<>(alphabetical);
+                for (SongSearchResult result : SongManager.get().getIndex().search(searchString, alphabetical)) {
+                    SongDisplayable song = result.getSong();
+                    if (!shown.add(song)) {
+                        continue;
+                    }
+                    if (result.getMatchedField() == SongSearchIndex.FilterType.TITLE) {
+                        song.setLastSearch(searchString);
+                    } else {
+                        song.setLastSearch(null);
+                    }
                     songs.add(song);
                 }
-
-                SongDisplayable[] authorSongs = SongManager.get().getIndex().filter(searchString, SongSearchIndex.FilterType.AUTHOR);
-                songs.addAll(Arrays.asList(authorSongs));
             }
 
             StringBuilder response = new StringBuilder();
@@ -31,7 +31,6 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.FileNameMap;
-import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URLConnection;
 import java.net.URLDecoder;
@@ -43,6 +42,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -81,8 +82,10 @@ public class RemoteControlServer {
     private static final Logger LOGGER = LoggerUtils.getLogger();
     private final HttpServer server;
     private boolean running;
-    private String pageContent;
+    private volatile String pageContent;
     private final Map<String, byte[]> fileCache;
+    private final ExecutorService executor;
+    private final EndpointStats stats;
     public int count = 0;
 
     /**
@@ -94,47 +97,49 @@ public class RemoteControlServer {
      * @throws IOException if something goes wrong.
      */
     public RemoteControlServer(int port) throws IOException {
-        fileCache = new HashMap<>();
-        server = HttpServer.create(new InetSocketAddress(port), 0);
-        HttpContext rootcontext = server.createContext("/", new RootHandler());
-        server.createContext("/logout", new LogoutHandler());
-        server.createContext("/tlogo", new LogoToggleHandler());
-        server.createContext("/black", new BlackToggleHandler());
-        server.createContext("/clear", new ClearToggleHandler());
-        server.createContext("/next", new NextSlideHandler());
-        server.createContext("/prev", new PreviousSlideHandler());
-        server.createContext("/nextitem", new NextItemHandler());
-        server.createContext("/previtem", new PreviousItemHandler());
-        server.createContext("/play", new PlayHandler());
-        server.createContext("/lyrics", new LyricsHandler());
-        server.createContext("/chords", new ChordsHandler());
-        server.createContext("/status", new StatusHandler());
-        server.createContext("/schedule", new ScheduleHandler());
-        server.createContext("/songsearch", new SongSearchHandler());
-        server.createContext("/search", new DatabaseSearchHandler());
-        server.createContext("/song", new SongDisplayHandler());
-        server.createContext("/add", new AddSongHandler());
-        server.createContext("/addbible", new AddBibleHandler());
-        server.createContext("/translations", new ListBibleTranslationsHandler());
-        server.createContext("/books", new ListBibleBooksHandler());
-        server.createContext("/passage", new PassageSelecterHandler());
-        server.createContext("/sidebar.png", new FileHandler("icons/sidebar.png"));
-        server.createContext("/logo.png", new FileHandler("icons/logo-square.png"));
-        server.createContext("/section", new SectionHandler());
-        server.createContext("/songtranslations", new SongTranslationsHandler());
-        server.createContext("/gettranslation", new SongTranslationsHandler());
-        server.createContext("/record", new RecordToggleHandler());
-        server.createContext("/gotoitem", new GotoItemHandler());
-        server.createContext("/remove", new RemoveItemHandler());
-        server.createContext("/getthemes", new GetThemesHandler());
-        server.createContext("/settheme", new SetThemeHandler());
-        server.createContext("/moveup", new MoveItemUpHandler());
-        server.createContext("/movedown", new MoveItemDownHandler());
-        server.createContext("/themethumb", new ThemeThumbnailsHandler());
-        server.createContext("/slides", new PresentationSlidesHandler());
-        server.createContext("/transpose", new TransposeSongHandler());
+        fileCache = new ConcurrentHashMap<>();
+        stats = new EndpointStats();
+        executor = ServerSupport.createExecutor("remote-control");
+        server = ServerSupport.createServer(port);
+        HttpContext rootcontext = createContext("/", new RootHandler());
+        createContext("/logout", new LogoutHandler());
+        createContext("/tlogo", new LogoToggleHandler());
+        createContext("/black", new BlackToggleHandler());
+        createContext("/clear", new ClearToggleHandler());
+        createContext("/next", new NextSlideHandler());
+        createContext("/prev", new PreviousSlideHandler());
+        createContext("/nextitem", new NextItemHandler());
+        createContext("/previtem", new PreviousItemHandler());
+        createContext("/play", new PlayHandler());
+        createContext("/lyrics", new LyricsHandler());
+        createContext("/chords", new ChordsHandler());
+        createContext("/status", new StatusHandler());
+        createContext("/schedule", new ScheduleHandler());
+        createContext("/songsearch", new SongSearchHandler());
+        createContext("/search", new DatabaseSearchHandler());
+        createContext("/song", new SongDisplayHandler());
+        createContext("/add", new AddSongHandler());
+        createContext("/addbible", new AddBibleHandler());
+        createContext("/translations", new ListBibleTranslationsHandler());
+        createContext("/books", new ListBibleBooksHandler());
+        createContext("/passage", new PassageSelecterHandler());
+        createContext("/sidebar.png", new FileHandler("icons/sidebar.png"));
+        createContext("/logo.png", new FileHandler("icons/logo-square.png"));
+        createContext("/section", new SectionHandler());
+        createContext("/songtranslations", new SongTranslationsHandler());
+        createContext("/gettranslation", new SongTranslationsHandler());
+        createContext("/record", new RecordToggleHandler());
+        createContext("/gotoitem", new GotoItemHandler());
+        createContext("/remove", new RemoveItemHandler());
+        createContext("/getthemes", new GetThemesHandler());
+        createContext("/settheme", new SetThemeHandler());
+        createContext("/moveup", new MoveItemUpHandler());
+        createContext("/movedown", new MoveItemDownHandler());
+        createContext("/themethumb", new ThemeThumbnailsHandler());
+        createContext("/slides", new PresentationSlidesHandler());
+        createContext("/transpose", new TransposeSongHandler());
         rootcontext.getFilters().add(new ParameterFilter());
-        server.setExecutor(null);
+        server.setExecutor(executor);
     }
 
     /**
@@ -155,9 +160,32 @@ public class RemoteControlServer {
         if (server != null) {
             running = false;
             server.stop(0);
+            executor.shutdown();
+            LOGGER.log(Level.INFO, "Remote control server stopped, requests handled:\n{0}", stats.getSummary());
         }
     }
 
+    /**
+     * Get the request counters of each endpoint of this server.
+     * <p>
+     * @return the request counters.
+     */
+    public EndpointStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Create a context on the server with the given handler, counting the
+     * requests it handles.
+     * <p>
+     * @param path the path of the context.
+     * @param handler the handler for requests to the context.
+     * @return the created context.
+     */
+    private HttpContext createContext(String path, HttpHandler handler) {
+        return stats.track(server.createContext(path, handler));
+    }
+
     /**
      * Determine if the server is running.
      * <p/>
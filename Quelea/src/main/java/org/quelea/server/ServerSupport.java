@@ -0,0 +1,95 @@
+/*
+ * This file is part of Quelea, free projection software for churches.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.quelea.server;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.quelea.services.utils.LoggerUtils;
+import org.quelea.services.utils.QueleaProperties;
+
+/**
+ * Creates the HTTP servers used by the mobile lyrics and remote control
+ * servers, so they handle requests concurrently and keep connections alive
+ * between the requests of polling clients.
+ * <p>
+ * @author Michael
+ */
+final class ServerSupport {
+
+    private static final Logger LOGGER = LoggerUtils.getLogger();
+    private static final int BACKLOG = 256;
+    private static final String IDLE_INTERVAL_PROPERTY = "sun.net.httpserver.idleInterval";
+    private static final String MAX_IDLE_CONNECTIONS_PROPERTY = "sun.net.httpserver.maxIdleConnections";
+
+    private ServerSupport() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Create an HTTP server on the given port. The keep-alive settings are
+     * read by the JDK once, when the first server is created, so they're set
+     * here unless they've been given on the command line.
+     * <p>
+     * @param port the port to listen on.
+     * @return the server, not yet started.
+     * @throws IOException if the server couldn't be created.
+     */
+    static HttpServer createServer(int port) throws IOException {
+        if (System.getProperty(IDLE_INTERVAL_PROPERTY) == null) {
+            System.setProperty(IDLE_INTERVAL_PROPERTY, Integer.toString(QueleaProperties.get().getServerKeepAliveSeconds()));
+        }
+        if (System.getProperty(MAX_IDLE_CONNECTIONS_PROPERTY) == null) {
+            System.setProperty(MAX_IDLE_CONNECTIONS_PROPERTY, Integer.toString(QueleaProperties.get().getServerMaxIdleConnections()));
+        }
+        return HttpServer.create(new InetSocketAddress(port), BACKLOG);
+    }
+
+    /**
+     * Create the executor a server handles its requests on. Unless a fixed
+     * number of threads is configured, each request is handled on its own
+     * virtual thread, so a slow request never holds up the others.
+     * <p>
+     * @param name the name of the server, used to name its threads.
+     * @return the executor.
+     */
+    static ExecutorService createExecutor(String name) {
+        int threads = QueleaProperties.get().getServerThreads();
+        if (threads == 0) {
+            LOGGER.log(Level.INFO, "{0} handling requests on virtual threads", name);
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+        }
+        LOGGER.log(Level.INFO, "{0} handling requests on {1} threads", new Object[]{name, threads});
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, name + "-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
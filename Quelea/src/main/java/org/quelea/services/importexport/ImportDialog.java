@@ -20,16 +20,13 @@ package org.quelea.services.importexport;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.File;
-import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-import java.util.logging.Level;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
@@ -54,7 +51,6 @@ import org.quelea.services.languages.LabelGrabber;
 import org.quelea.services.utils.FileFilters;
 import org.quelea.services.utils.LoggerUtils;
 import org.quelea.services.utils.QueleaProperties;
-import org.quelea.services.utils.SongDuplicateChecker;
 import org.quelea.services.utils.Utils;
 import org.quelea.windows.main.QueleaApp;
 import org.quelea.windows.main.StatusPanel;
@@ -74,7 +70,6 @@ public abstract class ImportDialog extends Stage implements PropertyChangeListen
 	private final SelectSongsDialog importedDialog;
 	private final List<File> files;
 	private StatusPanel statusPanel;
-	private boolean halt;
 
 	/**
 	 * Create a new import dialog.
@@ -92,7 +87,6 @@ public abstract class ImportDialog extends Stage implements PropertyChangeListen
                 initOwner(QueleaApp.get().getMainWindow());
 		setTitle(LabelGrabber.INSTANCE.getLabel("import.heading"));
 		files = new ArrayList<>();
-		halt = false;
 		importedDialog = new SelectImportedSongsDialog();
 		importButton = new Button(LabelGrabber.INSTANCE.getLabel("import.button"), new ImageView(new Image("file:icons/import.png", 16, 16, true, false)));
 
@@ -182,71 +176,63 @@ public abstract class ImportDialog extends Stage implements PropertyChangeListen
 		mainPane.getChildren().add(buttonPane);
 		importButton.setOnAction(evt -> {
 			statusPanel = QueleaApp.get().getStatusGroup().addPanel(LabelGrabber.INSTANCE.getLabel("importing.status"));
+			final SongImportPipeline pipeline = new SongImportPipeline(parser, files, statusPanel, checkDuplicates.isSelected());
 			statusPanel.getCancelButton().setOnAction(evt2 -> {
 				statusPanel.done();
-				halt = true;
+				pipeline.cancel();
 			});
 			setActive();
-			Thread worker = new Thread() {
-				private List<SongDisplayable> localSongs;
-				private Map<SongDisplayable, Boolean> localSongsDuplicate;
-				private final ExecutorService checkerService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-
-				@Override
-				public void run() {
-					try {
-						localSongs = new ArrayList<>();
-						localSongsDuplicate = new HashMap<>();
-						for (File file : files) {
-							localSongs.addAll(parser.getSongs(file, statusPanel));
-						}
-						if (halt) {
-							localSongs = null;
-						}
-						Collections.sort(localSongs);
-						statusPanel.setProgress(0);
-						if (checkDuplicates.isSelected()) {
-							for (int i = 0; i < (localSongs == null ? 0 : localSongs.size()); i++) {
-								final int finali = i;
-								checkerService.submit(() -> {
-									try {
-										if (!halt) {
-											final boolean result = new SongDuplicateChecker().checkSong(localSongs.get(finali));
-											localSongsDuplicate.put(localSongs.get(finali), result);
-											final double progress = ((double) finali / localSongs.size());
-											if (statusPanel.getProgress() < progress) {
-												statusPanel.setProgress(progress);
-											}
-										}
-									} catch (Throwable ex) {
-										ex.printStackTrace();
-									}
-								});
-							}
-							try {
-								checkerService.shutdown();
-								checkerService.awaitTermination(365, TimeUnit.DAYS); //Year eh? ;-)
-							} catch (InterruptedException ex) {
-								LOGGER.log(Level.WARNING, "Interrupted?!", ex);
-							}
+			final Queue<SongDisplayable> importedSongs = new ConcurrentLinkedQueue<>();
+			final Map<SongDisplayable, Boolean> duplicates = new ConcurrentHashMap<>();
+			final AtomicBoolean updatePending = new AtomicBoolean();
+			final AtomicBoolean dialogShown = new AtomicBoolean();
+			//Songs arrive from several threads, so they're shown in batches rather than one runLater() each
+			final Runnable showImported = () -> {
+				updatePending.set(false);
+				List<SongDisplayable> batch = new ArrayList<>();
+				SongDisplayable song;
+				while ((song = importedSongs.poll()) != null) {
+					batch.add(song);
+				}
+				if (batch.isEmpty() || pipeline.isCancelled()) {
+					return;
+				}
+				if (dialogShown.getAndSet(true)) {
+					getImportedDialog().addSongs(batch, duplicates, true);
+				} else {
+					getImportedDialog().setSongs(batch, duplicates, true);
+					getImportedDialog().show();
+				}
+			};
+			Thread worker = new Thread(() -> {
+				pipeline.run(new SongImportPipeline.Listener() {
+					@Override
+					public void songImported(SongDisplayable song, boolean duplicate) {
+						duplicates.put(song, duplicate);
+						importedSongs.add(song);
+						if (updatePending.compareAndSet(false, true)) {
+							Platform.runLater(showImported);
 						}
+					}
+
+					@Override
+					public void importFinished(int count, boolean failed) {
 						Platform.runLater(() -> {
-							if ((localSongs == null || localSongs.isEmpty()) && !halt) {
+							showImported.run();
+							if (failed) {
+								Dialog.showError(LabelGrabber.INSTANCE.getLabel("error.text"), LabelGrabber.INSTANCE.getLabel("import.error.message"));
+							} else if (count == 0 && !pipeline.isCancelled()) {
 								Dialog.showWarning(LabelGrabber.INSTANCE.getLabel("import.no.songs.title"), LabelGrabber.INSTANCE.getLabel("import.no.songs.text"));
-							} else if (!(localSongs == null || localSongs.isEmpty())) {
-								getImportedDialog().setSongs(localSongs, localSongsDuplicate, true);
-								getImportedDialog().show();
+							}
+							if (count > 0 && !pipeline.isCancelled()) {
+								getImportedDialog().sortSongs();
 							}
 							setIdle();
 						});
-					} catch (IOException ex) {
-						Platform.runLater(() -> {
-							Dialog.showError(LabelGrabber.INSTANCE.getLabel("error.text"), LabelGrabber.INSTANCE.getLabel("import.error.message"));
-						});
-						LOGGER.log(Level.WARNING, "Error importing songs", ex);
 					}
-				}
-			};
+				});
+			}, "song-import");
+			worker.setDaemon(true);
 			worker.start();
 		});
 		setResizable(false);
@@ -292,7 +278,6 @@ public abstract class ImportDialog extends Stage implements PropertyChangeListen
 	 */
 	public void setIdle() {
 		statusPanel.done();
-		halt = false;
 		resetDialog();
 	}
 
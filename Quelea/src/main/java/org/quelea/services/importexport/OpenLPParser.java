@@ -26,10 +26,14 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import org.quelea.data.displayable.SongDisplayable;
+import org.quelea.services.utils.LoggerUtils;
 import org.quelea.windows.main.StatusPanel;
 import org.w3c.dom.DOMException;
 import org.w3c.dom.Document;
@@ -44,6 +48,8 @@ import org.xml.sax.SAXException;
  */
 public class OpenLPParser implements SongParser {
 
+    private static final Logger LOGGER = LoggerUtils.getLogger();
+
     /**
      * Get a list of the songs contained in the given OpenLP database.
      * <p>
@@ -54,35 +60,41 @@ public class OpenLPParser implements SongParser {
     @Override
     public List<SongDisplayable> getSongs(File location, StatusPanel statusPanel) throws IOException {
         List<SongDisplayable> ret = new ArrayList<>();
+        getSongs(location, statusPanel, ret::add);
+        return ret;
+    }
+
+    @Override
+    public void getSongs(File location, StatusPanel statusPanel, Consumer<SongDisplayable> consumer) throws IOException {
         try {
             Class.forName("org.sqlite.JDBC");
-            Connection conn = DriverManager.getConnection("jdbc:sqlite:" + location.getAbsolutePath());
-            ResultSet rs = conn.createStatement().executeQuery("SELECT * FROM songs");
-            while(rs.next()) {
-                String lyrics = getLyricsFromXML(rs.getString("lyrics"));
-                String title = rs.getString("title");
-                String ccli = rs.getString("ccli_number");
-                String comments = rs.getString("comments");
-                String copyright = rs.getString("copyright");
-                if(title != null && lyrics != null && !title.isEmpty() && !lyrics.isEmpty()) {
-                    SongDisplayable displayable = new SongDisplayable(title, "");
-                    displayable.setLyrics(lyrics);
-                    if(ccli != null) {
-                        displayable.setCcli(ccli.trim());
-                    }
-                    if(comments != null) {
-                        displayable.setInfo(comments.trim());
-                    }
-                    if(copyright != null) {
-                        displayable.setCopyright(copyright.trim());
+            try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + location.getAbsolutePath());
+                    ResultSet rs = conn.createStatement().executeQuery("SELECT * FROM songs")) {
+                while(rs.next()) {
+                    String lyrics = getLyricsFromXML(rs.getString("lyrics"));
+                    String title = rs.getString("title");
+                    String ccli = rs.getString("ccli_number");
+                    String comments = rs.getString("comments");
+                    String copyright = rs.getString("copyright");
+                    if(title != null && lyrics != null && !title.isEmpty() && !lyrics.isEmpty()) {
+                        SongDisplayable displayable = new SongDisplayable(title, "");
+                        displayable.setLyrics(lyrics);
+                        if(ccli != null) {
+                            displayable.setCcli(ccli.trim());
+                        }
+                        if(comments != null) {
+                            displayable.setInfo(comments.trim());
+                        }
+                        if(copyright != null) {
+                            displayable.setCopyright(copyright.trim());
+                        }
+                        consumer.accept(displayable);
                     }
-                    ret.add(displayable);
                 }
             }
-            return ret;
         }
         catch(ClassNotFoundException | SQLException ex) {
-            return ret;
+            LOGGER.log(Level.WARNING, "Couldn't read OpenLP database " + location.getAbsolutePath(), ex);
         }
     }
 
@@ -18,37 +18,25 @@
 package org.quelea.services.importexport;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.StringWriter;
-import java.nio.charset.Charset;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import javafx.application.Platform;
 import javafx.stage.FileChooser;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import org.javafx.dialog.Dialog;
 import org.quelea.data.displayable.SongDisplayable;
 import org.quelea.data.displayable.TextSection;
 import org.quelea.services.languages.LabelGrabber;
 import org.quelea.services.utils.FileFilters;
 import org.quelea.services.utils.LoggerUtils;
+import org.quelea.services.utils.SongArchiveWriter;
 import org.quelea.services.utils.Utils;
 import org.quelea.windows.main.QueleaApp;
 import org.quelea.windows.main.StatusPanel;
-import org.w3c.dom.DOMException;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 
 /**
  * An exporter for the openlyrics format.
@@ -84,23 +72,12 @@ public class OpenLyricsExporter implements Exporter {
         new Thread() {
             public void run() {
                 try {
-                    final HashSet<String> names = new HashSet<>();
-                    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file), Charset.forName("UTF-8"))) {
-                        for (int i = 0; i < songDisplayablesThreadSafe.size(); i++) {
-                            SongDisplayable song = songDisplayablesThreadSafe.get(i);
-                            String name = song.getTitle() + ".xml";
-                            while (names.contains(name)) {
-                                name = Utils.incrementExtension(name, "xml");
-                            }
-                            names.add(name);
-                            out.putNextEntry(new ZipEntry(name));
-                            out.write(getXML(song).getBytes(Charset.forName("UTF-8")));
-                            panel.setProgress((double) i / songDisplayablesThreadSafe.size());
-                        }
-                        panel.done();
-                    }
+                    SongArchiveWriter.write(file, songDisplayablesThreadSafe, OpenLyricsExporter::writeXML, panel);
                 } catch (IOException ex) {
                     LOGGER.log(Level.WARNING, "Couldn't export openlyrics songs", ex);
+                    Platform.runLater(() -> Dialog.showError(LabelGrabber.INSTANCE.getLabel("error.text"), LabelGrabber.INSTANCE.getLabel("export.error.message")));
+                } finally {
+                    panel.done();
                 }
             }
         }.start();
@@ -108,75 +85,58 @@ public class OpenLyricsExporter implements Exporter {
     }
 
     /**
-     * Convert a particular song to Openlyrics standard XML. Doesn't do chords
+     * Write a particular song as Openlyrics standard XML. Doesn't do chords
      * or translations at present - that should be implemented at a later stage.
      *
-     * @param song the song to convert to XML.
-     * @return the openlyrics XML for the given song.
+     * @param song the song to write.
+     * @param writer the writer to write the song's XML to.
+     * @throws XMLStreamException if the song couldn't be written.
      */
-    private static String getXML(SongDisplayable song) {
-        try {
-            DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
-
-            Document doc = docBuilder.newDocument();
-
-            Element rootElement = doc.createElement("song");
-            rootElement.setAttribute("xmlns", "http://openlyrics.info/namespace/2009/song");
-            rootElement.setAttribute("version", "0.9");
-            doc.appendChild(rootElement);
-
-            Element propertiesElement = doc.createElement("properties");
-            rootElement.appendChild(propertiesElement);
-
-            Element titlesElement = doc.createElement("titles");
-            propertiesElement.appendChild(titlesElement);
-            Element titleElement = doc.createElement("title");
-            titleElement.appendChild(doc.createTextNode(song.getTitle()));
-            titlesElement.appendChild(titleElement);
-
-            if (song.getAuthor() != null && !song.getAuthor().trim().isEmpty()) {
-                Element authorsElement = doc.createElement("authors");
-                propertiesElement.appendChild(authorsElement);
-                Element authorElement = doc.createElement("author");
-                authorElement.appendChild(doc.createTextNode(song.getAuthor()));
-                authorsElement.appendChild(authorElement);
-            }
-
-            if (song.getCcli() != null && !song.getCcli().trim().isEmpty()) {
-                Element ccliElement = doc.createElement("ccliNo");
-                propertiesElement.appendChild(ccliElement);
-                ccliElement.appendChild(doc.createTextNode(song.getCcli()));
-            }
-
-            Element lyricsElement = doc.createElement("lyrics");
-            rootElement.appendChild(lyricsElement);
-
-            int sectionNum = 1;
-            for (TextSection section : song.getSections()) {
-                Element verseElement = doc.createElement("verse");
-                verseElement.setAttribute("name", "v" + sectionNum);
-                lyricsElement.appendChild(verseElement);
-                Element linesElement = doc.createElement("lines");
-                verseElement.appendChild(linesElement);
+    private static void writeXML(SongDisplayable song, XMLStreamWriter writer) throws XMLStreamException {
+        writer.writeStartDocument("UTF-8", "1.0");
+        writer.writeStartElement("song");
+        writer.writeDefaultNamespace("http://openlyrics.info/namespace/2009/song");
+        writer.writeAttribute("version", "0.9");
+
+        writer.writeStartElement("properties");
+        writer.writeStartElement("titles");
+        writer.writeStartElement("title");
+        writer.writeCharacters(Utils.toXMLText(song.getTitle()));
+        writer.writeEndElement();
+        writer.writeEndElement();
+
+        if (song.getAuthor() != null && !song.getAuthor().trim().isEmpty()) {
+            writer.writeStartElement("authors");
+            writer.writeStartElement("author");
+            writer.writeCharacters(Utils.toXMLText(song.getAuthor()));
+            writer.writeEndElement();
+            writer.writeEndElement();
+        }
 
-                for (String line : section.getText(false, false)) {
-                    linesElement.appendChild(doc.createTextNode(line));
-                    linesElement.appendChild(doc.createElement("br"));
-                }
-                sectionNum++;
+        if (song.getCcli() != null && !song.getCcli().trim().isEmpty()) {
+            writer.writeStartElement("ccliNo");
+            writer.writeCharacters(Utils.toXMLText(song.getCcli()));
+            writer.writeEndElement();
+        }
+        writer.writeEndElement();
+
+        writer.writeStartElement("lyrics");
+        int sectionNum = 1;
+        for (TextSection section : song.getSections()) {
+            writer.writeStartElement("verse");
+            writer.writeAttribute("name", "v" + sectionNum);
+            writer.writeStartElement("lines");
+            for (String line : section.getText(false, false)) {
+                writer.writeCharacters(Utils.toXMLText(line));
+                writer.writeEmptyElement("br");
             }
-
-            TransformerFactory tf = TransformerFactory.newInstance();
-            Transformer transformer = tf.newTransformer();
-            StringWriter writer = new StringWriter();
-            transformer.transform(new DOMSource(doc), new StreamResult(writer));
-            return writer.getBuffer().toString();
-
-        } catch (ParserConfigurationException | TransformerException | DOMException ex) {
-            LOGGER.log(Level.WARNING, "Couldn't export openlyrics songs", ex);
-            return null;
+            writer.writeEndElement();
+            writer.writeEndElement();
+            sectionNum++;
         }
+        writer.writeEndElement();
+
+        writer.writeEndElement();
     }
 
     @Override
@@ -23,6 +23,7 @@ import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
@@ -51,8 +52,14 @@ public class OpensongParser implements SongParser {
 
     @Override
     public List<SongDisplayable> getSongs(File location, StatusPanel statusPanel) throws IOException {
+        List<SongDisplayable> ret = new ArrayList<>();
+        getSongs(location, statusPanel, ret::add);
+        return ret;
+    }
+
+    @Override
+    public void getSongs(File location, StatusPanel statusPanel, Consumer<SongDisplayable> consumer) throws IOException {
         try (ZipFile file = new ZipFile(location, Charset.forName("Cp437"))) {
-            List<SongDisplayable> ret = new ArrayList<>();
             final Enumeration<? extends ZipEntry> entries = file.entries();
             while (entries.hasMoreElements()) {
                 String fileName = null;
@@ -67,7 +74,7 @@ public class OpensongParser implements SongParser {
                         if (list.item(i).getNodeName().equalsIgnoreCase("song")) {
                             SongDisplayable displayable = getDisplayable(list.item(i));
                             if (displayable != null) {
-                                ret.add(displayable);
+                                consumer.accept(displayable);
                             }
                         }
                     }
@@ -75,7 +82,6 @@ public class OpensongParser implements SongParser {
                     LOGGER.log(Level.WARNING, "Error importing opensong: " + fileName, ex);
                 }
             }
-            return ret;
         }
     }
 
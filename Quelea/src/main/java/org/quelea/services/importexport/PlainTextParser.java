@@ -32,6 +32,7 @@ public class PlainTextParser implements SongParser {
     private static final List<String> KEY_PREFIXES = Arrays.asList("Key:");
     private static final List<String> CAPO_PREFIXES = Arrays.asList("Capo:");
     private static final List<String> NOTES_PREFIXES = Arrays.asList("Notes:", "Info:");
+    private static final Pattern INLINE_CHORD_PATTERN = Pattern.compile("\\[" + LineTypeChecker.CHORD_REGEX + "\\]");
 
     private static void setAttribute(SongDisplayable song, String line) {
         assert isAttributeLine(line);
@@ -99,10 +100,10 @@ public class PlainTextParser implements SongParser {
     
     private void addSectionToLyrics(List<String> section, StringBuilder lyrics) {
         for (String sectionLine : section) {
-            Pattern pattern = Pattern.compile("\\[" + LineTypeChecker.CHORD_REGEX + "\\]");
-            Matcher matcher = pattern.matcher(sectionLine);
+            Matcher matcher = INLINE_CHORD_PATTERN.matcher(sectionLine);
             
-            sectionLine = sectionLine.replaceAll("\\[" + LineTypeChecker.CHORD_REGEX + "\\]", "");
+            sectionLine = matcher.replaceAll("");
+            matcher.reset();
 
             StringBuilder chordLine = new StringBuilder();
             int offset = 0;
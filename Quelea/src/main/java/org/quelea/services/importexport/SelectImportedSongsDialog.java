@@ -65,8 +65,7 @@ public class SelectImportedSongsDialog extends SelectSongsDialog {
                         });
                         List<SongDisplayable> songDisplayables = new ArrayList<>();
                         songDisplayables.addAll(getSelectedSongs());
-                        SongManager.get().addSong(songDisplayables, false);
-                        SongManager.get().fireUpdate();
+                        SongManager.get().addSong(songDisplayables, true);
                         if(statusPanel != null) {
                             statusPanel.done();
                         }
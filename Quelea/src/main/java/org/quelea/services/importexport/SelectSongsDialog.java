@@ -73,6 +73,7 @@ public class SelectSongsDialog extends Stage {
         setTitle(LabelGrabber.INSTANCE.getLabel("select.songs.title"));
 
         checkBoxes = new ArrayList<>();
+        songs = new ArrayList<>();
         selectAllCheckBox = new CheckBox();
         selectAllCheckBox.selectedProperty().addListener(new ChangeListener<Boolean>() {
 
@@ -94,6 +95,15 @@ public class SelectSongsDialog extends Stage {
         gridPane = new GridPane();
         gridPane.setHgap(5);
         gridPane.setVgap(5);
+        gridPane.getColumnConstraints().add(new ColumnConstraints(20));
+        ColumnConstraints titleConstraints = new ColumnConstraints();
+        titleConstraints.setHgrow(Priority.ALWAYS);
+        titleConstraints.setPercentWidth(50);
+        gridPane.getColumnConstraints().add(titleConstraints);
+        ColumnConstraints authorConstraints = new ColumnConstraints();
+        authorConstraints.setHgrow(Priority.ALWAYS);
+        authorConstraints.setPercentWidth(45);
+        gridPane.getColumnConstraints().add(authorConstraints);
         gridScroll = new ScrollPane();
         VBox.setVgrow(gridScroll, Priority.ALWAYS);
         VBox scrollContent = new VBox(10);
@@ -134,28 +144,25 @@ public class SelectSongsDialog extends Stage {
      * is null or smaller than the songs list.
      */
     public void setSongs(final List<SongDisplayable> songs, final Map<SongDisplayable, Boolean> checkList, final boolean defaultVal) {
-        this.songs = songs;
-        gridPane.getChildren().clear();
+        this.songs = new ArrayList<>();
         checkBoxes.clear();
-        gridPane.getColumnConstraints().add(new ColumnConstraints(20));
-        ColumnConstraints titleConstraints = new ColumnConstraints();
-        titleConstraints.setHgrow(Priority.ALWAYS);
-        titleConstraints.setPercentWidth(50);
-        gridPane.getColumnConstraints().add(titleConstraints);
-        ColumnConstraints authorConstraints = new ColumnConstraints();
-        authorConstraints.setHgrow(Priority.ALWAYS);
-        authorConstraints.setPercentWidth(45);
-        gridPane.getColumnConstraints().add(authorConstraints);
-
-        Label titleHeader = new Label(LabelGrabber.INSTANCE.getLabel("title.label"));
-        titleHeader.setAlignment(Pos.CENTER);
-        Label authorHeader = new Label(LabelGrabber.INSTANCE.getLabel("author.label"));
-        authorHeader.setAlignment(Pos.CENTER);
-        gridPane.add(titleHeader, 1, 0);
-        gridPane.add(authorHeader, 2, 0);
+        layoutRows();
+        addSongs(songs, checkList, defaultVal);
+        gridScroll.setVvalue(0);
+    }
 
-        for(int i = 0; i < songs.size(); i++) {
-            SongDisplayable song = songs.get(i);
+    /**
+     * Add songs to the end of those already shown in the dialog, such as when
+     * more songs have been imported.
+     * <p/>
+     * @param songs the list of songs to add.
+     * @param checkList a list corresponding to the song list - each position is
+     * true if the checkbox should be selected, false otherwise.
+     * @param defaultVal the default value to use for the checkbox if checkList
+     * is null or smaller than the songs list.
+     */
+    public void addSongs(final List<SongDisplayable> songs, final Map<SongDisplayable, Boolean> checkList, final boolean defaultVal) {
+        for(SongDisplayable song : songs) {
             CheckBox checkBox = new CheckBox();
             checkBox.selectedProperty().addListener(new ChangeListener<Boolean>() {
 
@@ -170,11 +177,50 @@ public class SelectSongsDialog extends Stage {
                     checkBox.setSelected(!result);
                 }
             }
+            this.songs.add(song);
             checkBoxes.add(checkBox);
-            gridPane.add(checkBox, 0, i + 1);
-            gridPane.add(new Label(song.getTitle()), 1, i + 1);
-            gridPane.add(new Label(song.getAuthor()), 2, i + 1);
+            addRow(this.songs.size() - 1);
         }
+        checkEnableButton();
+    }
+
+    /**
+     * Put the songs shown in the dialog into order, keeping whether each one
+     * is selected.
+     */
+    public void sortSongs() {
+        List<Integer> order = new ArrayList<>();
+        for(int i = 0; i < songs.size(); i++) {
+            order.add(i);
+        }
+        order.sort((i1, i2) -> songs.get(i1).compareTo(songs.get(i2)));
+        List<SongDisplayable> sortedSongs = new ArrayList<>();
+        List<CheckBox> sortedCheckBoxes = new ArrayList<>();
+        for(int i : order) {
+            sortedSongs.add(songs.get(i));
+            sortedCheckBoxes.add(checkBoxes.get(i));
+        }
+        songs = sortedSongs;
+        checkBoxes.clear();
+        checkBoxes.addAll(sortedCheckBoxes);
+        layoutRows();
+        for(int i = 0; i < songs.size(); i++) {
+            addRow(i);
+        }
+    }
+
+    /**
+     * Clear the grid back to just its headers.
+     */
+    private void layoutRows() {
+        gridPane.getChildren().clear();
+
+        Label titleHeader = new Label(LabelGrabber.INSTANCE.getLabel("title.label"));
+        titleHeader.setAlignment(Pos.CENTER);
+        Label authorHeader = new Label(LabelGrabber.INSTANCE.getLabel("author.label"));
+        authorHeader.setAlignment(Pos.CENTER);
+        gridPane.add(titleHeader, 1, 0);
+        gridPane.add(authorHeader, 2, 0);
 
         for(int i = 0; i < 2; i++) {
             Node n = gridPane.getChildren().get(i);
@@ -189,8 +235,18 @@ public class SelectSongsDialog extends Stage {
                 pane.setStyle("-fx-alignment: center;-fx-font-weight: bold;");
             }
         }
-        gridScroll.setVvalue(0);
-        checkEnableButton();
+    }
+
+    /**
+     * Add the row of the grid showing the song at the given index.
+     * <p/>
+     * @param i the index of the song.
+     */
+    private void addRow(int i) {
+        SongDisplayable song = songs.get(i);
+        gridPane.add(checkBoxes.get(i), 0, i + 1);
+        gridPane.add(new Label(song.getTitle()), 1, i + 1);
+        gridPane.add(new Label(song.getAuthor()), 2, i + 1);
     }
 
     /**
@@ -0,0 +1,327 @@
+/*
+ * This file is part of Quelea, free projection software for churches.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.quelea.services.importexport;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.quelea.data.displayable.SongDisplayable;
+import org.quelea.services.utils.LoggerUtils;
+import org.quelea.services.utils.SongDuplicateChecker;
+import org.quelea.windows.main.StatusPanel;
+
+/**
+ * Imports songs from a number of files at once, passing each song on as soon
+ * as it's been parsed (and checked for duplicates, if asked) rather than when
+ * every file's been read.
+ * <p/>
+ * Files are parsed in parallel, and the songs they produce go through a
+ * bounded queue to the duplicate checkers, so parsing is held back if the
+ * checkers fall behind rather than filling memory with songs. An import can
+ * be cancelled at any point, which stops the parsers and checkers as soon as
+ * they next hand over a song.
+ * <p/>
+ * @author Michael
+ */
+final class SongImportPipeline {
+
+    private static final Logger LOGGER = LoggerUtils.getLogger();
+    private static final int QUEUE_SIZE = 256;
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static final SongDisplayable END = new SongDisplayable("", "");
+
+    /**
+     * Receives the songs from an import.
+     */
+    interface Listener {
+
+        /**
+         * Called with each song as it's imported, from one of the import
+         * threads.
+         * <p/>
+         * @param song the song.
+         * @param duplicate true if the song's a duplicate of one already in
+         * the database, false if it isn't or duplicates aren't being checked.
+         */
+        void songImported(SongDisplayable song, boolean duplicate);
+
+        /**
+         * Called once the import has finished, been cancelled or failed, from
+         * one of the import threads. This is always called, even if the
+         * import stops part way through with an error.
+         * <p/>
+         * @param count the number of songs imported.
+         * @param failed true if any of the files couldn't be read, or any of
+         * the songs couldn't be passed on.
+         */
+        void importFinished(int count, boolean failed);
+    }
+
+    private final SongParser parser;
+    private final List<File> files;
+    private final StatusPanel statusPanel;
+    private final boolean checkDuplicates;
+    private final BlockingQueue<SongDisplayable> queue;
+    private final AtomicInteger count;
+    private final List<Future<?>> tasks;
+    private final List<Future<?>> checkers;
+    private ExecutorService executor;
+    private volatile boolean cancelled;
+
+    /**
+     * Create a new import pipeline. Nothing's imported until it's run.
+     * <p/>
+     * @param parser the parser to read the files with.
+     * @param files the files to import songs from.
+     * @param statusPanel the status panel the parser may update.
+     * @param checkDuplicates true if songs should be checked against those
+     * already in the database, false otherwise.
+     */
+    SongImportPipeline(SongParser parser, List<File> files, StatusPanel statusPanel, boolean checkDuplicates) {
+        this.parser = parser;
+        this.files = new ArrayList<>(files);
+        this.statusPanel = statusPanel;
+        this.checkDuplicates = checkDuplicates;
+        queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        count = new AtomicInteger();
+        tasks = new ArrayList<>();
+        checkers = new ArrayList<>();
+    }
+
+    /**
+     * Import the songs, blocking until every file's been read and every song
+     * passed to the listener, or the import's been cancelled. The listener's
+     * told the import has finished however it ends.
+     * <p/>
+     * @param listener receives the songs as they're imported.
+     */
+    void run(Listener listener) {
+        int parsers = Math.max(1, Math.min(files.size(), THREADS));
+        AtomicInteger threadCount = new AtomicInteger();
+        synchronized (this) {
+            if (cancelled) {
+                listener.importFinished(0, false);
+                return;
+            }
+            executor = Executors.newFixedThreadPool(parsers + THREADS, r -> {
+                Thread thread = new Thread(r, "song-import-" + threadCount.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        boolean failed = false;
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                checkers.add(submit(() -> check(listener)));
+            }
+            List<Future<?>> parses = new ArrayList<>();
+            for (File file : files) {
+                parses.add(submit(() -> {
+                    parser.getSongs(file, statusPanel, this::put);
+                    return null;
+                }));
+            }
+            for (int i = 0; i < parses.size(); i++) {
+                failed |= !await(parses.get(i), files.get(i));
+            }
+            for (int i = 0; i < THREADS; i++) {
+                put(END);
+            }
+            for (Future<?> checker : checkers) {
+                failed |= !await(checker, null);
+            }
+        } catch (CancellationException ex) {
+            if (cancelled) {
+                LOGGER.log(Level.INFO, "Song import cancelled");
+            } else {
+                //Every checker's stopped, so nothing was left to take the songs
+                failed = true;
+                logStoppedCheckers();
+            }
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.WARNING, "Error importing songs", ex);
+            failed = true;
+        } finally {
+            executor.shutdownNow();
+            listener.importFinished(count.get(), failed);
+        }
+    }
+
+    /**
+     * Cancel the import. Songs already passed to the listener stay imported,
+     * but no more are.
+     */
+    synchronized void cancel() {
+        cancelled = true;
+        queue.clear();
+        for (Future<?> task : tasks) {
+            task.cancel(true);
+        }
+    }
+
+    /**
+     * Determine whether the import has been cancelled.
+     * <p/>
+     * @return true if it's been cancelled, false otherwise.
+     */
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Start a task on the import threads, so it's stopped if the import's
+     * cancelled.
+     * <p/>
+     * @param task the task.
+     * @return the task's future.
+     * @throws CancellationException if the import's already been cancelled.
+     */
+    private synchronized Future<?> submit(Callable<?> task) {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+        Future<?> ret = executor.submit(task);
+        tasks.add(ret);
+        return ret;
+    }
+
+    /**
+     * Hand a parsed song over to the checkers, waiting for space in the queue
+     * if they've fallen behind.
+     * <p/>
+     * @param song the song.
+     * @throws CancellationException if the import's been cancelled, or every
+     * checker's stopped so the song would never be taken off the queue.
+     */
+    private void put(SongDisplayable song) {
+        try {
+            while (!cancelled) {
+                if (queue.offer(song, 100, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+                if (checkersStopped()) {
+                    break;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        throw new CancellationException();
+    }
+
+    /**
+     * Determine whether every checker has stopped, whether because it reached
+     * the end of the import or because it failed.
+     * <p/>
+     * @return true if they've all stopped, false otherwise.
+     */
+    private boolean checkersStopped() {
+        for (Future<?> checker : checkers) {
+            if (!checker.isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Log why the checkers stopped, once they all have.
+     */
+    private void logStoppedCheckers() {
+        for (Future<?> checker : checkers) {
+            try {
+                await(checker, null);
+            } catch (CancellationException ex) {
+                //Cancelled in the meantime, so there's nothing to log
+            }
+        }
+    }
+
+    /**
+     * Take songs off the queue, check them for duplicates if asked and pass
+     * them to the listener, until the end of the import's reached.
+     * <p/>
+     * @param listener the listener to pass the songs to.
+     * @return null.
+     * @throws InterruptedException if the import's cancelled.
+     */
+    private Void check(Listener listener) throws InterruptedException {
+        SongDuplicateChecker checker = new SongDuplicateChecker();
+        SongDisplayable song;
+        while ((song = queue.take()) != END && !cancelled) {
+            boolean duplicate = false;
+            if (checkDuplicates) {
+                try {
+                    duplicate = checker.checkSong(song);
+                } catch (RuntimeException ex) {
+                    LOGGER.log(Level.WARNING, "Couldn't check " + song.getTitle() + " for duplicates", ex);
+                }
+            }
+            if (cancelled) {
+                break;
+            }
+            count.incrementAndGet();
+            listener.songImported(song, duplicate);
+        }
+        return null;
+    }
+
+    /**
+     * Wait for a task to finish, logging it if it failed.
+     * <p/>
+     * @param future the task.
+     * @param file the file the task was reading, or null if it wasn't reading
+     * one.
+     * @return true if the task finished successfully, false if it failed.
+     * @throws CancellationException if the import's been cancelled.
+     */
+    private boolean await(Future<?> future, File file) {
+        try {
+            future.get();
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException();
+        } catch (ExecutionException ex) {
+            if (cancelled || ex.getCause() instanceof CancellationException) {
+                throw new CancellationException();
+            }
+            if (file == null) {
+                LOGGER.log(Level.WARNING, "Error checking imported songs", ex.getCause());
+            } else if (ex.getCause() instanceof IOException) {
+                LOGGER.log(Level.WARNING, "Error importing songs from " + file.getAbsolutePath(), ex.getCause());
+            } else {
+                LOGGER.log(Level.WARNING, "Error parsing songs from " + file.getAbsolutePath(), ex.getCause());
+            }
+            return false;
+        }
+    }
+}
@@ -20,6 +20,7 @@ package org.quelea.services.importexport;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.function.Consumer;
 import org.quelea.data.displayable.SongDisplayable;
 import org.quelea.windows.main.StatusPanel;
 
@@ -40,4 +41,24 @@ public interface SongParser {
      * @throws IOException if something goes wrong accessing the given location.
      */
     List<SongDisplayable> getSongs(File location, StatusPanel statusPanel) throws IOException;
+
+    /**
+     * Get all the songs from a particular location, passing each one on as
+     * soon as it's been parsed rather than all together at the end. Parsers
+     * that read songs one at a time should override this; by default all the
+     * songs are parsed first and then passed on.
+     * <p>
+     * The consumer may block to hold parsing back until it's ready for more
+     * songs, and may throw an unchecked exception to stop parsing early.
+     * @param location the location to search for the songs.
+     * @param statusPanel the status panel used when parsing this song. It can
+     * be updated or ignored.
+     * @param consumer receives each song as it's parsed.
+     * @throws IOException if something goes wrong accessing the given location.
+     */
+    default void getSongs(File location, StatusPanel statusPanel, Consumer<SongDisplayable> consumer) throws IOException {
+        for (SongDisplayable song : getSongs(location, statusPanel)) {
+            consumer.accept(song);
+        }
+    }
 }
@@ -18,71 +18,152 @@
  */
 package org.quelea.services.lucene;
 
+import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import org.apache.commons.io.FileUtils;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.core.LowerCaseFilterFactory;
 import org.apache.lucene.analysis.custom.CustomAnalyzer;
 import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilterFactory;
 import org.apache.lucene.analysis.standard.StandardTokenizerFactory;
-import org.apache.lucene.document.Document;
-import org.apache.lucene.document.Field;
-import org.apache.lucene.document.TextField;
-import org.apache.lucene.index.DirectoryReader;
-import org.apache.lucene.index.IndexWriter;
-import org.apache.lucene.index.IndexWriterConfig;
-import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.complexPhrase.ComplexPhraseQueryParser;
 import org.apache.lucene.search.BooleanQuery;
-import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
-import org.apache.lucene.search.ScoreDoc;
-import org.apache.lucene.search.TopScoreDocCollector;
-import org.apache.lucene.store.Directory;
-import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.quelea.data.bible.Bible;
 import org.quelea.data.bible.BibleChapter;
+import org.quelea.data.bible.BibleVerse;
 import org.quelea.services.utils.LoggerUtils;
+import org.quelea.services.utils.Utils;
 
 /**
- * Search index used for indexing the bibles.
+ * Search index used for indexing the bibles. Each translation has its own
+ * index on disk with a document per verse, so a translation's index is only
+ * rebuilt when its bible file changes, and searching one translation (or one
+ * book of it) doesn't touch the others.
  * @author Michael
  */
 public class BibleSearchIndex implements SearchIndex<BibleChapter> {
 
     private static final Logger LOGGER = LoggerUtils.getLogger();
-    private Analyzer analyzer;
-    private Directory index;
-    private Map<Integer, BibleChapter> chapters;
+    private static final int MAX_HITS = 10000;
+    private final Analyzer analyzer;
+    private final File location;
+    private volatile Map<String, BibleTranslationIndex> translations;
 
     /**
-     * Create a new empty search index.
+     * Create a new search index, storing the index of each translation in a
+     * directory under the given location.
+     *
+     * @param location the directory to store the indexes in.
      */
-    public BibleSearchIndex() {
-        chapters = new HashMap<>();
+    public BibleSearchIndex(File location) {
+        this.location = location;
+        translations = Map.of();
         try {
             analyzer = CustomAnalyzer.builder()
                     .withTokenizer(StandardTokenizerFactory.class)
                     .addTokenFilter(LowerCaseFilterFactory.class)
                     .addTokenFilter(ASCIIFoldingFilterFactory.class)
                     .build();
-            index = new MMapDirectory(Files.createTempDirectory("quelea-mmap-bible").toAbsolutePath());
         } catch (IOException ex) {
-            LOGGER.log(Level.SEVERE, "Couldn't create song search index");
-            throw new RuntimeException("Couldn't create song search index", ex);
+            LOGGER.log(Level.SEVERE, "Couldn't create bible search index");
+            throw new RuntimeException("Couldn't create bible search index", ex);
+        }
+    }
+
+    /**
+     * Make this index cover exactly the given bibles. The index of each bible
+     * is reused if it's up to date with the bible file, otherwise it's
+     * rebuilt; out of date translations are rebuilt in parallel. Indexes of
+     * bibles that are no longer present are deleted.
+     *
+     * @param bibles the bibles to index.
+     */
+    public synchronized void setBibles(Collection<Bible> bibles) {
+        closeAll();
+        Map<String, BibleTranslationIndex> opened = bibles.parallelStream()
+                .map(this::open)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toMap(t -> t.getBible().getName(), t -> t, (a, b) -> {
+                    b.close();
+                    return a;
+                }, LinkedHashMap::new));
+        translations = opened;
+        Set<String> keep = new HashSet<>();
+        for (Bible bible : bibles) {
+            keep.add(getLocation(bible).getName());
+        }
+        File[] existing = location.listFiles(File::isDirectory);
+        if (existing != null) {
+            for (File dir : existing) {
+                if (!keep.contains(dir.getName())) {
+                    delete(dir);
+                }
+            }
         }
     }
-    
+
+    /**
+     * Open the index of the given bible, building it if necessary.
+     *
+     * @param bible the bible to open the index of.
+     * @return the index, or null if it couldn't be opened.
+     */
+    private BibleTranslationIndex open(Bible bible) {
+        try {
+            return new BibleTranslationIndex(bible, getLocation(bible), analyzer);
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.log(Level.SEVERE, "Couldn't open search index for " + bible.getName(), ex);
+            return null;
+        }
+    }
+
+    /**
+     * Get the directory the index of the given bible is stored in.
+     *
+     * @param bible the bible.
+     * @return the directory of the bible's index.
+     */
+    private File getLocation(Bible bible) {
+        String key = bible.getFilePath() == null ? bible.getName() : bible.getFilePath();
+        String name = bible.getFilePath() == null ? bible.getName() : Utils.getFileNameWithoutExtension(new File(bible.getFilePath()).getName());
+        return new File(location, name.replaceAll("[^\\w.-]", "_") + "-" + Integer.toHexString(key.hashCode()));
+    }
+
+    /**
+     * Delete the given index directory.
+     *
+     * @param dir the directory to delete.
+     */
+    private static void delete(File dir) {
+        try {
+            FileUtils.deleteDirectory(dir);
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Couldn't delete bible index " + dir, ex);
+        }
+    }
+
     @Override
     public int size() {
-        return chapters.size();
+        int ret = 0;
+        for (BibleTranslationIndex translation : translations.values()) {
+            ret += translation.getChapterCount();
+        }
+        return ret;
     }
 
     /**
@@ -98,27 +179,36 @@ public class BibleSearchIndex implements SearchIndex<BibleChapter> {
     }
 
     /**
-     * Add a number of chapters to the index. This is much more efficient than
-     * calling add() repeatedly because it just uses one writer rather than
-     * opening and closing one for each individual operation.
+     * Add a number of chapters to the index. Each chapter is (re-)indexed in
+     * the index of its bible, which is created if it doesn't already exist.
+     * The changes to each translation are committed once.
      *
      * @param bibleList the list of chapters to add.
      */
     @Override
-    public void addAll(Collection<? extends BibleChapter> bibleList) {
-        try (IndexWriter writer = new IndexWriter(index, new IndexWriterConfig(analyzer))) {
-            for(BibleChapter chapter : bibleList) {
-                Document doc = new Document();
-                doc.add(new TextField("text", chapter.getText(), Field.Store.NO));
-                doc.add(new TextField("number", Integer.toString(chapter.getID()), Field.Store.YES));
-                writer.addDocument(doc);
-                chapters.put(chapter.getID(), chapter);
-                LOGGER.log(Level.FINE, "Added bible chapter to index: {0}", chapter.getID());
+    public synchronized void addAll(Collection<? extends BibleChapter> bibleList) {
+        Map<String, BibleTranslationIndex> updated = new LinkedHashMap<>(translations);
+        for (Map.Entry<Bible, List<BibleChapter>> entry : groupByBible(bibleList).entrySet()) {
+            Bible bible = entry.getKey();
+            BibleTranslationIndex translation = updated.get(bible.getName());
+            if (translation == null || translation.getBible() != bible) {
+                if (translation != null) {
+                    translation.close();
+                }
+                translation = open(bible);
+                if (translation == null) {
+                    updated.remove(bible.getName());
+                    continue;
+                }
+                updated.put(bible.getName(), translation);
+            }
+            try {
+                translation.update(entry.getValue());
+            } catch (IOException ex) {
+                LOGGER.log(Level.SEVERE, "Couldn't add value to index", ex);
             }
         }
-        catch (IOException ex) {
-            LOGGER.log(Level.SEVERE, "Couldn't add value to index", ex);
-        }
+        translations = updated;
     }
 
     /**
@@ -127,12 +217,14 @@ public class BibleSearchIndex implements SearchIndex<BibleChapter> {
      * @param chapter the chapter to remove.
      */
     @Override
-    public void remove(BibleChapter chapter) {
-        try (IndexWriter writer = new IndexWriter(index, new IndexWriterConfig(analyzer))) {
-            writer.deleteDocuments(new Term("number", Integer.toString(chapter.getID())));
-        }
-        catch (IOException ex) {
-            LOGGER.log(Level.SEVERE, "Couldn't remove value from index", ex);
+    public synchronized void remove(BibleChapter chapter) {
+        BibleTranslationIndex translation = getTranslation(chapter);
+        if (translation != null) {
+            try {
+                translation.remove(List.of(chapter));
+            } catch (IOException ex) {
+                LOGGER.log(Level.SEVERE, "Couldn't remove value from index", ex);
+            }
         }
     }
 
@@ -143,10 +235,42 @@ public class BibleSearchIndex implements SearchIndex<BibleChapter> {
      */
     @Override
     public void update(BibleChapter chapter) {
-        remove(chapter);
         add(chapter);
     }
 
+    /**
+     * Group the given chapters by the bible they're from.
+     *
+     * @param chapters the chapters to group.
+     * @return the chapters of each bible.
+     */
+    private static Map<Bible, List<BibleChapter>> groupByBible(Collection<? extends BibleChapter> chapters) {
+        Map<Bible, List<BibleChapter>> ret = new LinkedHashMap<>();
+        for (BibleChapter chapter : chapters) {
+            if (chapter.getBook() != null && chapter.getBook().getBible() != null) {
+                ret.computeIfAbsent(chapter.getBook().getBible(), b -> new ArrayList<>()).add(chapter);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Get the index of the translation the given chapter is from.
+     *
+     * @param chapter the chapter.
+     * @return the index of its translation, or null if it's not indexed.
+     */
+    private BibleTranslationIndex getTranslation(BibleChapter chapter) {
+        if (chapter.getBook() == null || chapter.getBook().getBible() == null) {
+            return null;
+        }
+        BibleTranslationIndex translation = translations.get(chapter.getBook().getBible().getName());
+        if (translation == null || translation.getBible() != chapter.getBook().getBible()) {
+            return null;
+        }
+        return translation;
+    }
+
     /**
      * Search for bible chapters that match the given filter.
      *
@@ -156,38 +280,86 @@ public class BibleSearchIndex implements SearchIndex<BibleChapter> {
      */
     @Override
     public BibleChapter[] filter(String queryString, FilterType type) {
+        Set<BibleChapter> ret = new LinkedHashSet<>();
+        for (BibleVerse verse : search(queryString, null, null, null)) {
+            ret.add(verse.getChapter());
+        }
+        return ret.toArray(new BibleChapter[ret.size()]);
+    }
+
+    /**
+     * Search for bible verses that match the given query, optionally limited
+     * to a single translation, book or chapter. Only the indexes of the
+     * translations being searched are touched.
+     *
+     * @param queryString the query string to search for.
+     * @param translation the name of the translation to search, or null to
+     * search all translations.
+     * @param book the number of the book to limit the search to, or null to
+     * search all books.
+     * @param chapter the number of the chapter to limit the search to, or null
+     * to search all chapters.
+     * @return the matching verses, grouped by translation with the best
+     * matches of each translation first.
+     */
+    public BibleVerse[] search(String queryString, String translation, Integer book, Integer chapter) {
         String sanctifyQueryString = SearchIndexUtils.makeLuceneQuery(queryString);
-        if(chapters.isEmpty() || sanctifyQueryString.isEmpty()) {
-            return chapters.values().toArray(new BibleChapter[chapters.size()]);
+        if (sanctifyQueryString.isEmpty()) {
+            return new BibleVerse[0];
+        }
+        Collection<BibleTranslationIndex> toSearch;
+        if (translation == null) {
+            toSearch = translations.values();
+        } else {
+            BibleTranslationIndex found = translations.get(translation);
+            toSearch = found == null ? List.of() : List.of(found);
         }
-        List<BibleChapter> ret;
-        try (DirectoryReader dr = DirectoryReader.open(index)) {
-            IndexSearcher searcher = new IndexSearcher(dr);
+        List<BibleVerse> ret = new ArrayList<>();
+        try {
             BooleanQuery.setMaxClauseCount(Integer.MAX_VALUE);
             Query q = new ComplexPhraseQueryParser("text", analyzer).parse(sanctifyQueryString);
-            TopScoreDocCollector collector = TopScoreDocCollector.create(10000,10000);
-            searcher.search(q, collector);
-            ScoreDoc[] hits = collector.topDocs().scoreDocs;
-            ret = new ArrayList<>();
-            for(int i = 0; i < hits.length; ++i) {
-                int docId = hits[i].doc;
-                Document d = searcher.doc(docId);
-                BibleChapter chapter = chapters.get(Integer.parseInt(d.get("number")));
-                ret.add(chapter);
+            for (BibleTranslationIndex index : toSearch) {
+                ret.addAll(index.search(q, book, chapter, MAX_HITS));
             }
-            return ret.toArray(new BibleChapter[ret.size()]);
-        }
-        catch (ParseException | IOException ex) {
+        } catch (ParseException | IOException ex) {
             LOGGER.log(Level.WARNING, "Invalid query string: " + sanctifyQueryString, ex);
-            return new BibleChapter[0];
+            return new BibleVerse[0];
+        } catch (AlreadyClosedException ex) {
+            LOGGER.log(Level.INFO, "Bible index was reloaded during search", ex);
+            return new BibleVerse[0];
         }
+        return ret.toArray(new BibleVerse[ret.size()]);
     }
-    
+
     /**
-     * Remove everything from this index.
+     * Remove everything from this index, deleting the index of every
+     * translation.
      */
     @Override
-    public void clear() {
-        SearchIndexUtils.clearIndex(index);
+    public synchronized void clear() {
+        Map<String, BibleTranslationIndex> old = translations;
+        closeAll();
+        for (BibleTranslationIndex translation : old.values()) {
+            delete(getLocation(translation.getBible()));
+        }
+    }
+
+    /**
+     * Close this index, releasing the writers and any open searchers.
+     */
+    @Override
+    public synchronized void close() {
+        closeAll();
+    }
+
+    /**
+     * Close the index of every translation and forget about them.
+     */
+    private void closeAll() {
+        Map<String, BibleTranslationIndex> old = translations;
+        translations = Map.of();
+        for (BibleTranslationIndex translation : old.values()) {
+            translation.close();
+        }
     }
 }
@@ -0,0 +1,343 @@
+/*
+ * This file is part of Quelea, free projection software for churches.
+ *
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.quelea.services.lucene;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.quelea.data.bible.Bible;
+import org.quelea.data.bible.BibleBook;
+import org.quelea.data.bible.BibleChapter;
+import org.quelea.data.bible.BibleVerse;
+import org.quelea.services.utils.LoggerUtils;
+
+/**
+ * The on-disk search index of a single bible translation. There's a document
+ * per verse, carrying the translation, book and chapter it's from so that
+ * searches can be limited to part of the bible without scanning the rest.
+ * <p>
+ * The index records the size and modification time of the bible file it was
+ * built from, and is only rebuilt when they no longer match.
+ *
+ * @author Michael
+ */
+final class BibleTranslationIndex {
+
+    private static final Logger LOGGER = LoggerUtils.getLogger();
+    /**
+     * Bump this whenever the document layout or analyser changes, so existing
+     * on-disk indexes are rebuilt rather than searched with the wrong format.
+     */
+    private static final String FORMAT_VERSION = "1";
+    private static final String FORMAT_KEY = "quelea.format";
+    private static final String SOURCE_KEY = "quelea.source";
+    private static final Set<String> POSITION_FIELDS = Set.of("bookpos", "chapterpos", "verse");
+    private final Bible bible;
+    private final Directory index;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final int chapterCount;
+
+    /**
+     * Open the index of the given bible stored in the given directory,
+     * building it if it doesn't exist or is out of date with the bible file.
+     *
+     * @param bible the bible to index.
+     * @param location the directory to store the index in.
+     * @param analyzer the analyser to use for the verse text.
+     * @throws IOException if the index couldn't be opened or built.
+     */
+    BibleTranslationIndex(Bible bible, File location, Analyzer analyzer) throws IOException {
+        this.bible = bible;
+        int chapters = 0;
+        for (BibleBook book : bible.getBooks()) {
+            chapters += book.getChapters().length;
+        }
+        chapterCount = chapters;
+        index = new MMapDirectory(Files.createDirectories(location.toPath()).toAbsolutePath());
+        String source = getSourceStamp(bible);
+        boolean current = isCurrent(source);
+        IndexWriterConfig config = new IndexWriterConfig(analyzer);
+        config.setOpenMode(current ? IndexWriterConfig.OpenMode.CREATE_OR_APPEND : IndexWriterConfig.OpenMode.CREATE);
+        writer = new IndexWriter(index, config);
+        try {
+            if (!current) {
+                LOGGER.log(Level.INFO, "Building search index for {0}", bible.getName());
+                BibleBook[] books = bible.getBooks();
+                for (int bookPos = 0; bookPos < books.length; bookPos++) {
+                    BibleChapter[] bookChapters = books[bookPos].getChapters();
+                    for (int chapterPos = 0; chapterPos < bookChapters.length; chapterPos++) {
+                        writer.addDocuments(createDocuments(bookChapters[chapterPos], bookPos, chapterPos));
+                    }
+                }
+                if (source != null) {
+                    writer.setLiveCommitData(Map.of(FORMAT_KEY, FORMAT_VERSION, SOURCE_KEY, source).entrySet());
+                }
+                writer.commit();
+            }
+            searcherManager = new SearcherManager(writer, null);
+        } catch (IOException | RuntimeException ex) {
+            writer.rollback();
+            index.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Get the stamp of the file the given bible was loaded from, used to work
+     * out whether an existing index is stale.
+     *
+     * @param bible the bible to stamp.
+     * @return the stamp of the bible file, or null if it doesn't have one.
+     */
+    private static String getSourceStamp(Bible bible) {
+        if (bible.getFilePath() == null) {
+            return null;
+        }
+        File file = new File(bible.getFilePath());
+        if (!file.isFile()) {
+            return null;
+        }
+        return file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified();
+    }
+
+    /**
+     * Determine whether the index on disk exists, was written in the current
+     * format and was built from the bible file as it is now.
+     *
+     * @param source the stamp of the bible file.
+     * @return true if the existing index can be reused, false if it should be
+     * rebuilt.
+     */
+    private boolean isCurrent(String source) {
+        if (source == null) {
+            return false;
+        }
+        try {
+            if (!DirectoryReader.indexExists(index)) {
+                return false;
+            }
+            Map<String, String> userData = SegmentInfos.readLatestCommit(index).getUserData();
+            return FORMAT_VERSION.equals(userData.get(FORMAT_KEY)) && source.equals(userData.get(SOURCE_KEY));
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.log(Level.WARNING, "Couldn't read search index for " + bible.getName() + ", rebuilding", ex);
+            return false;
+        }
+    }
+
+    /**
+     * Create the lucene documents used to index the verses of the given
+     * chapter.
+     *
+     * @param chapter the chapter to index.
+     * @param bookPos the position of the chapter's book in the bible.
+     * @param chapterPos the position of the chapter in its book.
+     * @return a document for each verse in the chapter.
+     */
+    private List<Document> createDocuments(BibleChapter chapter, int bookPos, int chapterPos) {
+        BibleBook book = chapter.getBook();
+        List<Document> ret = new ArrayList<>();
+        for (BibleVerse verse : chapter.getVerses()) {
+            Document doc = new Document();
+            doc.add(new TextField("text", verse.getText(), Field.Store.NO));
+            doc.add(new StringField("translation", bible.getName(), Field.Store.NO));
+            doc.add(new StringField("book", Integer.toString(book.getBookNumber()), Field.Store.NO));
+            doc.add(new StringField("chapter", Integer.toString(chapter.getNum()), Field.Store.NO));
+            doc.add(new StringField("key", getChapterTerm(bookPos, chapterPos).text(), Field.Store.NO));
+            doc.add(new StoredField("bookpos", bookPos));
+            doc.add(new StoredField("chapterpos", chapterPos));
+            doc.add(new StoredField("verse", verse.getNum()));
+            ret.add(doc);
+        }
+        return ret;
+    }
+
+    /**
+     * Get the position of the given item in the given array, comparing by
+     * identity.
+     *
+     * @param arr the array to search.
+     * @param item the item to look for.
+     * @return the position of the item, or -1 if it isn't in the array.
+     */
+    private static int indexOf(Object[] arr, Object item) {
+        for (int i = 0; i < arr.length; i++) {
+            if (arr[i] == item) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the bible this index is of.
+     *
+     * @return the bible.
+     */
+    Bible getBible() {
+        return bible;
+    }
+
+    /**
+     * Get the number of chapters in the bible this index is of.
+     *
+     * @return the number of chapters.
+     */
+    int getChapterCount() {
+        return chapterCount;
+    }
+
+    /**
+     * Re-index the given chapters of this bible, committing the change once.
+     *
+     * @param chapters the chapters to re-index.
+     * @throws IOException if the chapters couldn't be indexed.
+     */
+    synchronized void update(Collection<BibleChapter> chapters) throws IOException {
+        for (BibleChapter chapter : chapters) {
+            int bookPos = indexOf(bible.getBooks(), chapter.getBook());
+            int chapterPos = indexOf(chapter.getBook().getChapters(), chapter);
+            writer.updateDocuments(getChapterTerm(bookPos, chapterPos), createDocuments(chapter, bookPos, chapterPos));
+        }
+        commit();
+    }
+
+    /**
+     * Remove the given chapters of this bible from the index, committing the
+     * change once.
+     *
+     * @param chapters the chapters to remove.
+     * @throws IOException if the chapters couldn't be removed.
+     */
+    synchronized void remove(Collection<BibleChapter> chapters) throws IOException {
+        for (BibleChapter chapter : chapters) {
+            writer.deleteDocuments(getChapterTerm(indexOf(bible.getBooks(), chapter.getBook()),
+                    indexOf(chapter.getBook().getChapters(), chapter)));
+        }
+        commit();
+    }
+
+    /**
+     * Get the term identifying the verses of the chapter at the given
+     * position.
+     *
+     * @param bookPos the position of the chapter's book in the bible.
+     * @param chapterPos the position of the chapter in its book.
+     * @return the term matching all the chapter's verse documents.
+     */
+    private static Term getChapterTerm(int bookPos, int chapterPos) {
+        return new Term("key", bookPos + ":" + chapterPos);
+    }
+
+    /**
+     * Search the verses of this bible.
+     *
+     * @param textQuery the query to match against the verse text.
+     * @param book the number of the book to limit the search to, or null to
+     * search all books.
+     * @param chapter the number of the chapter to limit the search to, or null
+     * to search all chapters.
+     * @param maxHits the maximum number of verses to return.
+     * @return the matching verses, best match first.
+     * @throws IOException if the index couldn't be searched.
+     */
+    List<BibleVerse> search(Query textQuery, Integer book, Integer chapter, int maxHits) throws IOException {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        builder.add(textQuery, BooleanClause.Occur.MUST);
+        if (book != null) {
+            builder.add(new TermQuery(new Term("book", Integer.toString(book))), BooleanClause.Occur.FILTER);
+        }
+        if (chapter != null) {
+            builder.add(new TermQuery(new Term("chapter", Integer.toString(chapter))), BooleanClause.Occur.FILTER);
+        }
+        List<BibleVerse> ret = new ArrayList<>();
+        BibleBook[] books = bible.getBooks();
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            for (ScoreDoc hit : searcher.search(builder.build(), maxHits).scoreDocs) {
+                Document d = searcher.doc(hit.doc, POSITION_FIELDS);
+                int bookPos = d.getField("bookpos").numericValue().intValue();
+                if (bookPos < 0 || bookPos >= books.length) {
+                    continue;
+                }
+                BibleChapter found = books[bookPos].getChapter(d.getField("chapterpos").numericValue().intValue());
+                if (found != null) {
+                    BibleVerse verse = found.getVerse(d.getField("verse").numericValue().intValue());
+                    if (verse != null) {
+                        ret.add(verse);
+                    }
+                }
+            }
+        } finally {
+            searcherManager.release(searcher);
+        }
+        return ret;
+    }
+
+    /**
+     * Commit any pending changes and refresh the searcher so they're visible
+     * to subsequent searches.
+     *
+     * @throws IOException if the changes couldn't be committed.
+     */
+    private void commit() throws IOException {
+        writer.commit();
+        searcherManager.maybeRefreshBlocking();
+    }
+
+    /**
+     * Close this index, releasing the writer and any open searchers.
+     */
+    synchronized void close() {
+        try {
+            searcherManager.close();
+            writer.close();
+            index.close();
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Couldn't close search index for " + bible.getName(), ex);
+        }
+    }
+}
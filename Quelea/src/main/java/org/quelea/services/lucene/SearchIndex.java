@@ -79,5 +79,11 @@ public interface SearchIndex<T> {
      * string and type.
      */
     T[] filter(String queryString, FilterType type);
+
+    /**
+     * Close this search index, releasing any resources it holds open. The
+     * index shouldn't be used after it's been closed.
+     */
+    void close();
     
 }
@@ -22,11 +22,7 @@ import java.io.IOException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
-import org.apache.lucene.analysis.CharArraySet;
-import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.index.IndexWriter;
-import org.apache.lucene.index.IndexWriterConfig;
-import org.apache.lucene.store.Directory;
 import org.quelea.services.utils.LoggerUtils;
 
 /**
@@ -46,12 +42,12 @@ public class SearchIndexUtils {
     }
 
     /**
-     * Clear the given index.
+     * Clear the index behind the given writer and commit the change.
      * <p/>
-     * @param index the index to clear.
+     * @param writer the writer of the index to clear.
      */
-    public static void clearIndex(Directory index) {
-        try(IndexWriter writer = new IndexWriter(index, new IndexWriterConfig(new StandardAnalyzer(CharArraySet.EMPTY_SET)))) {
+    public static void clearIndex(IndexWriter writer) {
+        try {
             writer.deleteAll();
             writer.commit();
         }
@@ -18,14 +18,21 @@
  */
 package org.quelea.services.lucene;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.channels.ClosedByInterruptException;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -36,47 +43,100 @@ import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilterFactory;
 import org.apache.lucene.analysis.standard.StandardTokenizerFactory;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.SegmentInfos;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.complexPhrase.ComplexPhraseQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
-import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Weight;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.ThreadInterruptedException;
 import org.quelea.data.displayable.SongDisplayable;
 import org.quelea.services.utils.LoggerUtils;
 
 /**
- * The search index of songs.
+ * The search index of songs. The index is kept on disk between runs, and each
+ * document carries a stamp of the content it was built from so that only the
+ * songs that have changed since the last run need to be re-indexed. The stamp
+ * is the song's modification time in the database, so working out what's
+ * stale doesn't need the lyrics of every song to be loaded.
+ * <p>
+ * A single writer is held open for the life of the index, and searches are
+ * run against a near real-time searcher that's refreshed after each commit,
+ * so searching never has to reopen the index and doesn't block on writes.
  *
  * @author Michael
  */
 public class SongSearchIndex implements SearchIndex<SongDisplayable> {
 
     private static final Logger LOGGER = LoggerUtils.getLogger();
+    /**
+     * Bump this whenever the document layout or analyser changes, so existing
+     * on-disk indexes are rebuilt rather than searched with the wrong format.
+     */
+    private static final String FORMAT_VERSION = "3";
+    private static final String FORMAT_KEY = "quelea.format";
+    private static final Pattern NON_WORD_PATTERN = Pattern.compile("[^\\w\\s]", Pattern.UNICODE_CHARACTER_CLASS);
+    private static final Set<String> NUMBER_FIELD = Set.of("number");
+    private static final Set<String> SIMILARITY_FIELDS = Set.of("number", "similarity", "signature");
+    private static final int MAX_HITS = 1000;
+    private static final int SYNC_BATCH_SIZE = 500;
+    /**
+     * The order in which fields are checked when working out which field a
+     * combined search result matched on.
+     */
+    private static final FilterType[] MATCH_PRECEDENCE = {FilterType.TITLE, FilterType.BODY, FilterType.AUTHOR};
+    private static final Map<FilterType, Float> FIELD_BOOSTS = Map.of(
+            FilterType.TITLE, 3f,
+            FilterType.AUTHOR, 2f,
+            FilterType.BODY, 1f);
     private final Analyzer analyzer;
     private final Directory index;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
     private final Map<Long, SongDisplayable> songs;
+    private SongSimilarityIndex similarity;
 
     /**
-     * Create a new empty search index.
+     * Create a new search index stored in the given directory. If an index
+     * already exists there it will be reused.
+     *
+     * @param location the directory to store the index in.
      */
-    public SongSearchIndex() {
-        songs = new HashMap<>();
+    public SongSearchIndex(File location) {
+        songs = new ConcurrentHashMap<>();
         try {
             analyzer = CustomAnalyzer.builder()
                     .withTokenizer(StandardTokenizerFactory.class)
                     .addTokenFilter(LowerCaseFilterFactory.class)
                     .addTokenFilter(ASCIIFoldingFilterFactory.class)
                     .build();
-            index = new MMapDirectory(Files.createTempDirectory("quelea-mmap-song").toAbsolutePath());
+            index = new MMapDirectory(Files.createDirectories(location.toPath()).toAbsolutePath());
+            IndexWriterConfig config = new IndexWriterConfig(analyzer);
+            config.setOpenMode(isCurrentFormat() ? IndexWriterConfig.OpenMode.CREATE_OR_APPEND : IndexWriterConfig.OpenMode.CREATE);
+            writer = new IndexWriter(index, config);
+            writer.setLiveCommitData(Map.of(FORMAT_KEY, FORMAT_VERSION).entrySet());
+            writer.commit();
+            searcherManager = new SearcherManager(writer, null);
         }
         catch(IOException ex) {
             LOGGER.log(Level.SEVERE, "Couldn't create song search index");
@@ -84,6 +144,29 @@ public class SongSearchIndex implements SearchIndex<SongDisplayable> {
         }
     }
 
+    /**
+     * Determine whether the index on disk exists and was written in the
+     * current format.
+     *
+     * @return true if the existing index can be reused, false if it should be
+     * rebuilt.
+     */
+    private boolean isCurrentFormat() {
+        try {
+            if (!DirectoryReader.indexExists(index)) {
+                return false;
+            }
+            if (FORMAT_VERSION.equals(SegmentInfos.readLatestCommit(index).getUserData().get(FORMAT_KEY))) {
+                return true;
+            }
+            LOGGER.log(Level.INFO, "Song index is in an old format, rebuilding");
+            return false;
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.log(Level.WARNING, "Couldn't read song index, rebuilding", ex);
+            return false;
+        }
+    }
+
     @Override
     public int size() {
         return songs.size();
@@ -102,37 +185,207 @@ public class SongSearchIndex implements SearchIndex<SongDisplayable> {
     }
 
     /**
-     * Add a number of songs to the index. This is much more efficient than
-     * calling add() repeatedly because it just uses one writer rather than
-     * opening and closing one for each individual operation.
+     * Add a number of songs to the index. This is more efficient than
+     * calling add() repeatedly because the changes are committed and made
+     * visible to searches once, rather than for each individual song.
      *
      * @param songList the song list to add.
      */
     @Override
     public synchronized void addAll(Collection<? extends SongDisplayable> songList) {
-        Pattern p = Pattern.compile("[^\\w\\s]", Pattern.UNICODE_CHARACTER_CLASS);
-        try (IndexWriter writer = new IndexWriter(index, new IndexWriterConfig(analyzer))) {
+        try {
             for (SongDisplayable song : songList) {
-                Document doc = new Document();
-                if (song.getTitle() != null) {
-                    doc.add(new TextField("title", p.matcher(song.getTitle()).replaceAll(""), Field.Store.NO));
-                }
-                if (song.getAuthor() != null) {
-                    doc.add(new TextField("author", p.matcher(song.getAuthor()).replaceAll(""), Field.Store.NO));
-                }
-                if (song.getLyrics(false, false, false) != null) {
-                    doc.add(new TextField("lyrics", p.matcher(song.getLyrics(false, false, false)).replaceAll(""), Field.Store.NO));
-                }
-                doc.add(new TextField("number", p.matcher(Long.toString(song.getID())).replaceAll(""), Field.Store.YES));
-                writer.addDocument(doc);
+                writer.updateDocument(new Term("number", Long.toString(song.getID())), createDocument(song));
                 songs.put(song.getID(), song);
                 LOGGER.log(Level.FINE, "Added song to index: {0}", song.getTitle());
             }
+            commit();
         } catch (IOException ex) {
             LOGGER.log(Level.SEVERE, "Couldn't add value to index", ex);
         }
     }
 
+    /**
+     * Bring the on-disk index in line with the given songs, which should be
+     * the complete contents of the song database. Songs whose stamp matches
+     * the one stored in the index are left alone, changed or new songs are
+     * (re-)indexed and any songs in the index that are no longer in the given
+     * collection are removed.
+     * <p>
+     * The given songs are what searches will return, and needn't have their
+     * lyrics loaded. The full content of the songs that need (re-)indexing is
+     * fetched from the content loader in batches, and isn't kept once indexed.
+     *
+     * @param songList all the songs in the database.
+     * @param contentLoader loads the full content of the songs with the given
+     * ids.
+     */
+    public synchronized void synchronise(Collection<? extends SongDisplayable> songList,
+            Function<Collection<Long>, Collection<SongDisplayable>> contentLoader) {
+        Map<Long, String> indexedStamps = readStamps();
+        List<Long> changed = new ArrayList<>();
+        Set<Long> ids = new HashSet<>();
+        for (SongDisplayable song : songList) {
+            songs.put(song.getID(), song);
+            ids.add(song.getID());
+            String indexedStamp = indexedStamps.remove(song.getID());
+            if (!getStamp(song).equals(indexedStamp)) {
+                changed.add(song.getID());
+            }
+        }
+        songs.keySet().retainAll(ids);
+        if (changed.isEmpty() && indexedStamps.isEmpty()) {
+            LOGGER.log(Level.INFO, "Song index up to date with {0} songs", songs.size());
+            return;
+        }
+        try {
+            for (Long id : indexedStamps.keySet()) {
+                writer.deleteDocuments(new Term("number", Long.toString(id)));
+                removeSimilarity(id);
+            }
+            for (int i = 0; i < changed.size(); i += SYNC_BATCH_SIZE) {
+                List<Long> batch = changed.subList(i, Math.min(i + SYNC_BATCH_SIZE, changed.size()));
+                for (SongDisplayable song : contentLoader.apply(batch)) {
+                    writer.updateDocument(new Term("number", Long.toString(song.getID())), createDocument(song));
+                }
+            }
+            commit();
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "Couldn't synchronise song index", ex);
+        }
+        LOGGER.log(Level.INFO, "Song index synchronised, {0} songs indexed, {1} removed", new Object[]{changed.size(), indexedStamps.size()});
+    }
+
+    /**
+     * Read the stamp of every song currently in the index.
+     *
+     * @return a map of song id to stamp.
+     */
+    private Map<Long, String> readStamps() {
+        Map<Long, String> ret = new HashMap<>();
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                Set<String> fields = Set.of("number", "stamp");
+                for (LeafReaderContext context : searcher.getIndexReader().leaves()) {
+                    LeafReader reader = context.reader();
+                    Bits liveDocs = reader.getLiveDocs();
+                    for (int i = 0; i < reader.maxDoc(); i++) {
+                        if (liveDocs == null || liveDocs.get(i)) {
+                            Document d = reader.document(i, fields);
+                            ret.put(Long.parseLong(d.get("number")), d.get("stamp"));
+                        }
+                    }
+                }
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Couldn't read song index stamps, reindexing all songs", ex);
+            ret.clear();
+        }
+        return ret;
+    }
+
+    /**
+     * Commit any pending changes and refresh the searcher so they're visible
+     * to subsequent searches.
+     *
+     * @throws IOException if the changes couldn't be committed.
+     */
+    private void commit() throws IOException {
+        writer.commit();
+        searcherManager.maybeRefreshBlocking();
+    }
+
+    /**
+     * Create the lucene document used to index the given song. The song's
+     * similarity signature is stored with it, and updated in the similarity
+     * index if that's been read.
+     *
+     * @param song the song to index.
+     * @return the document for the song.
+     */
+    private Document createDocument(SongDisplayable song) {
+        Document doc = new Document();
+        if (song.getTitle() != null) {
+            doc.add(new TextField("title", NON_WORD_PATTERN.matcher(song.getTitle()).replaceAll(""), Field.Store.NO));
+        }
+        if (song.getAuthor() != null) {
+            doc.add(new TextField("author", NON_WORD_PATTERN.matcher(song.getAuthor()).replaceAll(""), Field.Store.NO));
+        }
+        String lyrics = song.getLyrics(false, false, false);
+        if (lyrics != null) {
+            doc.add(new TextField("lyrics", NON_WORD_PATTERN.matcher(lyrics).replaceAll(""), Field.Store.NO));
+        }
+        SongSimilarityIndex.Entry entry = SongSimilarityIndex.Entry.of(lyrics);
+        doc.add(new StoredField("similarity", entry.getLyrics()));
+        doc.add(new StoredField("signature", entry.getSignatureBytes()));
+        if (similarity != null) {
+            similarity.put(song.getID(), entry);
+        }
+        doc.add(new StringField("number", Long.toString(song.getID()), Field.Store.YES));
+        doc.add(new StoredField("stamp", getStamp(song)));
+        return doc;
+    }
+
+    private void removeSimilarity(long id) {
+        if (similarity != null) {
+            similarity.remove(id);
+        }
+    }
+
+    /**
+     * Get the index used to find songs similar to a given song. It's read
+     * from the signatures stored in this index the first time it's needed,
+     * and kept up to date with this index from then on.
+     *
+     * @return the similarity index.
+     */
+    public synchronized SongSimilarityIndex getSimilarityIndex() {
+        if (similarity == null) {
+            SongSimilarityIndex ret = new SongSimilarityIndex();
+            try {
+                IndexSearcher searcher = searcherManager.acquire();
+                try {
+                    for (LeafReaderContext context : searcher.getIndexReader().leaves()) {
+                        LeafReader reader = context.reader();
+                        Bits liveDocs = reader.getLiveDocs();
+                        for (int i = 0; i < reader.maxDoc(); i++) {
+                            if (liveDocs == null || liveDocs.get(i)) {
+                                Document d = reader.document(i, SIMILARITY_FIELDS);
+                                BytesRef signature = d.getBinaryValue("signature");
+                                SongSimilarityIndex.Entry entry = SongSimilarityIndex.Entry.fromStored(d.get("similarity"),
+                                        signature == null ? null : BytesRef.deepCopyOf(signature).bytes);
+                                if (entry != null) {
+                                    ret.put(Long.parseLong(d.get("number")), entry);
+                                }
+                            }
+                        }
+                    }
+                } finally {
+                    searcherManager.release(searcher);
+                }
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "Couldn't read song similarity signatures", ex);
+            }
+            LOGGER.log(Level.INFO, "Read similarity signatures of {0} songs", ret.size());
+            similarity = ret;
+        }
+        return similarity;
+    }
+
+    /**
+     * Get the stamp of the given song, used to work out whether its entry in
+     * the index is stale.
+     *
+     * @param song the song to stamp.
+     * @return the stamp of the song.
+     */
+    private static String getStamp(SongDisplayable song) {
+        return Long.toString(song.getLastModified());
+    }
+
     /**
      * Remove the given song from the index.
      *
@@ -140,13 +393,40 @@ public class SongSearchIndex implements SearchIndex<SongDisplayable> {
      */
     @Override
     public synchronized void remove(SongDisplayable song) {
-        try (IndexWriter writer = new IndexWriter(index, new IndexWriterConfig(analyzer))) {
+        songs.remove(song.getID());
+        removeSimilarity(song.getID());
+        try {
             writer.deleteDocuments(new Term("number", Long.toString(song.getID())));
+            commit();
         } catch (IOException ex) {
             LOGGER.log(Level.SEVERE, "Couldn't remove value from index", ex);
         }
     }
 
+    /**
+     * (Re-)index the given songs and remove the songs with the given ids,
+     * committing all the changes at once.
+     *
+     * @param changed the songs that have been added or updated.
+     * @param removedIds the ids of the songs that have been removed.
+     */
+    public synchronized void applyChanges(Collection<? extends SongDisplayable> changed, Collection<Long> removedIds) {
+        try {
+            for (Long id : removedIds) {
+                songs.remove(id);
+                removeSimilarity(id);
+                writer.deleteDocuments(new Term("number", Long.toString(id)));
+            }
+            for (SongDisplayable song : changed) {
+                writer.updateDocument(new Term("number", Long.toString(song.getID())), createDocument(song));
+                songs.put(song.getID(), song);
+            }
+            commit();
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "Couldn't apply changes to index", ex);
+        }
+    }
+
     /**
      * Update the given song in the index.
      *
@@ -164,7 +444,7 @@ public class SongSearchIndex implements SearchIndex<SongDisplayable> {
      * @param id the id of the song.
      * @return the song with the given id.
      */
-    public synchronized SongDisplayable getByID(long id) {
+    public SongDisplayable getByID(long id) {
         return songs.get(id);
     }
 
@@ -177,43 +457,37 @@ public class SongSearchIndex implements SearchIndex<SongDisplayable> {
      * @return an array of songs that match the filter.
      */
     @Override
-    public synchronized SongDisplayable[] filter(String queryString, FilterType type) {
+    public SongDisplayable[] filter(String queryString, FilterType type) {
         String sanctifyQueryString = SearchIndexUtils.makeLuceneQuery(queryString);
         if (songs.isEmpty() || sanctifyQueryString.trim().isEmpty()) {
-            return songs.values().toArray(new SongDisplayable[songs.size()]);
-        }
-        String typeStr;
-        if (type == FilterType.BODY) {
-            typeStr = "lyrics";
-        } else if (type == FilterType.TITLE) {
-            typeStr = "title";
-        } else if (type == FilterType.AUTHOR) {
-            typeStr = "author";
-        } else {
+            return songs.values().toArray(new SongDisplayable[0]);
+        }
+        if (type == null) {
             LOGGER.log(Level.SEVERE, "Unknown type: {0}", type);
             return new SongDisplayable[0];
         }
-        List<SongDisplayable> ret;
-        try (DirectoryReader dr = DirectoryReader.open(index)) {
-            IndexSearcher searcher = new IndexSearcher(dr);
-            Query q = new ComplexPhraseQueryParser(typeStr, analyzer).parse(sanctifyQueryString);
-            TopScoreDocCollector collector = TopScoreDocCollector.create(1000,10000);
-            searcher.search(q, collector);
-            ScoreDoc[] hits = collector.topDocs().scoreDocs;
-            ret = new ArrayList<>();
-            for (int i = 0; i < hits.length; ++i) {
-                int docId = hits[i].doc;
-                Document d = searcher.doc(docId);
-                final Long songNumber = Long.parseLong(d.get("number"));
-                SongDisplayable song = songs.get(songNumber);
-                ret.add(song);
-            }
-            if (type == FilterType.BODY) {
-                for (SongDisplayable song : filter(queryString, FilterType.TITLE)) {
-                    ret.remove(song);
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                Query q = new ComplexPhraseQueryParser(getFieldName(type), analyzer).parse(sanctifyQueryString);
+                List<SongDisplayable> ret = new ArrayList<>();
+                for (ScoreDoc hit : searcher.search(q, MAX_HITS).scoreDocs) {
+                    SongDisplayable song = getSong(searcher, hit.doc);
+                    if (song != null) {
+                        ret.add(song);
+                    }
                 }
+                if (type == FilterType.BODY) {
+                    Set<Long> titleSongs = new HashSet<>();
+                    for (SongDisplayable song : filter(queryString, FilterType.TITLE)) {
+                        titleSongs.add(song.getID());
+                    }
+                    ret.removeIf(song -> titleSongs.contains(song.getID()));
+                }
+                return ret.toArray(new SongDisplayable[ret.size()]);
+            } finally {
+                searcherManager.release(searcher);
             }
-            return ret.toArray(new SongDisplayable[ret.size()]);
         }
         catch(ClosedByInterruptException|ThreadInterruptedException ex) {
             //Ignore, thread is being shut down by other character being typed
@@ -225,11 +499,126 @@ public class SongSearchIndex implements SearchIndex<SongDisplayable> {
         }
     }
 
+    /**
+     * Search the title, author and lyrics of every song in one pass. Each song
+     * appears at most once in the results, tagged with the most significant
+     * field it matched on. Title matches are weighted above author matches,
+     * which are weighted above lyrics matches.
+     *
+     * @param queryString the query to use to search.
+     * @param ties the order of songs with the same score, or null to leave
+     * them in any order.
+     * @return the matching songs, highest scoring first.
+     */
+    public SongSearchResult[] search(String queryString, Comparator<SongDisplayable> ties) {
+        String sanctifyQueryString = SearchIndexUtils.makeLuceneQuery(queryString);
+        if (songs.isEmpty() || sanctifyQueryString.trim().isEmpty()) {
+            return new SongSearchResult[0];
+        }
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                Map<FilterType, Weight> fieldWeights = new EnumMap<>(FilterType.class);
+                BooleanQuery.Builder combined = new BooleanQuery.Builder();
+                for (FilterType type : MATCH_PRECEDENCE) {
+                    Query fieldQuery = searcher.rewrite(new ComplexPhraseQueryParser(getFieldName(type), analyzer).parse(sanctifyQueryString));
+                    combined.add(new BoostQuery(fieldQuery, FIELD_BOOSTS.get(type)), BooleanClause.Occur.SHOULD);
+                    fieldWeights.put(type, searcher.createWeight(fieldQuery, ScoreMode.COMPLETE_NO_SCORES, 1));
+                }
+                List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+                List<SongSearchResult> ret = new ArrayList<>();
+                for (ScoreDoc hit : searcher.search(combined.build(), MAX_HITS).scoreDocs) {
+                    SongDisplayable song = getSong(searcher, hit.doc);
+                    if (song == null) {
+                        continue;
+                    }
+                    //The field it matched on is the first of the combined query's clauses that matches the document
+                    LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(hit.doc, leaves));
+                    FilterType matchedField = FilterType.BODY;
+                    for (FilterType type : MATCH_PRECEDENCE) {
+                        if (fieldWeights.get(type).matches(leaf, hit.doc - leaf.docBase) != null) {
+                            matchedField = type;
+                            break;
+                        }
+                    }
+                    ret.add(new SongSearchResult(song, hit.score, matchedField));
+                }
+                //The hits are already best first; this only puts those with the same score in order
+                Comparator<SongSearchResult> order = Comparator.comparing(SongSearchResult::getScore).reversed();
+                if (ties != null) {
+                    order = order.thenComparing(SongSearchResult::getSong, ties);
+                }
+                ret.sort(order);
+                return ret.toArray(new SongSearchResult[ret.size()]);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        }
+        catch(ClosedByInterruptException|ThreadInterruptedException ex) {
+            //Ignore, thread is being shut down by other character being typed
+            return new SongSearchResult[0];
+        }
+        catch (ParseException | IOException ex) {
+            LOGGER.log(Level.WARNING, "Invalid query string: " + sanctifyQueryString, ex);
+            return new SongSearchResult[0];
+        }
+    }
+
+    /**
+     * Get the song referred to by the given document in the index.
+     *
+     * @param searcher the searcher the document came from.
+     * @param docId the id of the document.
+     * @return the song, or null if it's no longer in this index.
+     * @throws IOException if the document couldn't be read.
+     */
+    private SongDisplayable getSong(IndexSearcher searcher, int docId) throws IOException {
+        Document d = searcher.doc(docId, NUMBER_FIELD);
+        return songs.get(Long.parseLong(d.get("number")));
+    }
+
+    /**
+     * Get the name of the index field that holds the given filter type.
+     *
+     * @param type the filter type.
+     * @return the name of the field.
+     */
+    private static String getFieldName(FilterType type) {
+        switch (type) {
+            case TITLE:
+                return "title";
+            case AUTHOR:
+                return "author";
+            default:
+                return "lyrics";
+        }
+    }
+
     /**
      * Remove everything from this index.
      */
     @Override
     public synchronized void clear() {
-        SearchIndexUtils.clearIndex(index);
+        songs.clear();
+        similarity = null;
+        SearchIndexUtils.clearIndex(writer);
+        try {
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Couldn't refresh song searcher", ex);
+        }
+    }
+
+    /**
+     * Close this index, releasing the writer and any open searchers.
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            searcherManager.close();
+            writer.close();
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Couldn't close song search index", ex);
+        }
     }
 }
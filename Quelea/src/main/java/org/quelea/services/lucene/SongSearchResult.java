@@ -0,0 +1,78 @@
+/*
+ * This file is part of Quelea, free projection software for churches.
+ * 
+ * 
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.quelea.services.lucene;
+
+import org.quelea.data.displayable.SongDisplayable;
+import org.quelea.services.lucene.SearchIndex.FilterType;
+
+/**
+ * A single song returned from a combined search of the song index, along with
+ * its score and the field it was matched on.
+ *
+ * @author Michael
+ */
+public class SongSearchResult {
+
+    private final SongDisplayable song;
+    private final float score;
+    private final FilterType matchedField;
+
+    /**
+     * Create a new search result.
+     *
+     * @param song the song that matched.
+     * @param score the score of the match, higher is better.
+     * @param matchedField the most significant field the song matched on.
+     */
+    public SongSearchResult(SongDisplayable song, float score, FilterType matchedField) {
+        this.song = song;
+        this.score = score;
+        this.matchedField = matchedField;
+    }
+
+    /**
+     * Get the song that matched.
+     *
+     * @return the song.
+     */
+    public SongDisplayable getSong() {
+        return song;
+    }
+
+    /**
+     * Get the score of this result. Scores are only comparable with other
+     * results from the same search.
+     *
+     * @return the score of this result.
+     */
+    public float getScore() {
+        return score;
+    }
+
+    /**
+     * Get the most significant field this song matched on. Title matches take
+     * precedence over lyrics matches, which take precedence over author
+     * matches.
+     *
+     * @return the field this song matched on.
+     */
+    public FilterType getMatchedField() {
+        return matchedField;
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * This file is part of Quelea, free projection software for churches.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.quelea.services.lucene;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import org.apache.commons.text.similarity.LevenshteinDistance;
+
+/**
+ * Finds songs whose lyrics are the same as or very similar to some given
+ * lyrics, without comparing them against every song in the library.
+ * <p>
+ * Lyrics are reduced to their letters and split into overlapping shingles of
+ * a few characters. A MinHash signature of the shingles is kept for each song,
+ * and the signatures are split into bands that are hashed into buckets, so
+ * only songs sharing a bucket with the lyrics being checked - those likely to
+ * share most of their shingles - are candidates. Candidates are then checked
+ * with an edit distance that gives up as soon as they're too far apart.
+ * <p>
+ * The signatures and reduced lyrics are stored in the song search index, so
+ * this can be rebuilt when it's first needed without loading every song.
+ *
+ * @author Michael
+ */
+public class SongSimilarityIndex {
+
+    private static final int SHINGLE_LENGTH = 5;
+    private static final int BANDS = 32;
+    private static final int ROWS = 2;
+    private static final int SIGNATURE_LENGTH = BANDS * ROWS;
+    private static final int[] SEEDS = new int[SIGNATURE_LENGTH];
+
+    static {
+        //Fixed seed, since signatures are stored between runs
+        SplittableRandom random = new SplittableRandom(0x5eed5106L);
+        for (int i = 0; i < SEEDS.length; i++) {
+            SEEDS[i] = random.nextInt();
+        }
+    }
+
+    private final Map<Long, Entry> entries;
+    private final List<Map<Long, Set<Long>>> buckets;
+
+    /**
+     * Create a new, empty similarity index.
+     */
+    public SongSimilarityIndex() {
+        entries = new HashMap<>();
+        buckets = new ArrayList<>(BANDS);
+        for (int i = 0; i < BANDS; i++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * The reduced lyrics of a song along with their signature.
+     */
+    public static final class Entry {
+
+        private final String lyrics;
+        private final int[] signature;
+
+        private Entry(String lyrics, int[] signature) {
+            this.lyrics = lyrics;
+            this.signature = signature;
+        }
+
+        /**
+         * Create the entry for the given lyrics.
+         *
+         * @param lyrics the lyrics, as they are in the song.
+         * @return the entry.
+         */
+        public static Entry of(String lyrics) {
+            String normalised = normalise(lyrics);
+            return new Entry(normalised, sign(normalised));
+        }
+
+        /**
+         * Recreate an entry that was previously stored.
+         *
+         * @param lyrics the reduced lyrics, as returned by
+         * {@link #getLyrics()}.
+         * @param signature the signature, as returned by
+         * {@link #getSignatureBytes()}.
+         * @return the entry, or null if the signature isn't valid.
+         */
+        public static Entry fromStored(String lyrics, byte[] signature) {
+            if (lyrics == null || signature == null || signature.length != SIGNATURE_LENGTH * Integer.BYTES) {
+                return null;
+            }
+            int[] values = new int[SIGNATURE_LENGTH];
+            ByteBuffer.wrap(signature).asIntBuffer().get(values);
+            return new Entry(lyrics, values);
+        }
+
+        /**
+         * Get the lyrics reduced to just their letters, in lower case.
+         *
+         * @return the reduced lyrics.
+         */
+        public String getLyrics() {
+            return lyrics;
+        }
+
+        /**
+         * Get the signature of the lyrics, to be stored.
+         *
+         * @return the signature as bytes.
+         */
+        public byte[] getSignatureBytes() {
+            ByteBuffer ret = ByteBuffer.allocate(SIGNATURE_LENGTH * Integer.BYTES);
+            ret.asIntBuffer().put(signature);
+            return ret.array();
+        }
+    }
+
+    /**
+     * Add a song to this index, replacing any entry it already has.
+     *
+     * @param id the id of the song.
+     * @param entry the entry for the song's lyrics.
+     */
+    public synchronized void put(long id, Entry entry) {
+        remove(id);
+        entries.put(id, entry);
+        for (int band = 0; band < BANDS; band++) {
+            buckets.get(band).computeIfAbsent(getBandKey(entry.signature, band), k -> new HashSet<>()).add(id);
+        }
+    }
+
+    /**
+     * Remove a song from this index.
+     *
+     * @param id the id of the song.
+     */
+    public synchronized void remove(long id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            long key = getBandKey(entry.signature, band);
+            Set<Long> bucket = buckets.get(band).get(key);
+            if (bucket != null) {
+                bucket.remove(id);
+                if (bucket.isEmpty()) {
+                    buckets.get(band).remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of songs in this index.
+     *
+     * @return the number of songs.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get the number of buckets that hold at least one song, across all the
+     * bands.
+     *
+     * @return the number of buckets in use.
+     */
+    synchronized int bucketCount() {
+        int ret = 0;
+        for (Map<Long, Set<Long>> band : buckets) {
+            ret += band.size();
+        }
+        return ret;
+    }
+
+    /**
+     * Find a song whose lyrics are the same as or similar to the given
+     * lyrics. Lyrics are similar if, once reduced to their letters, one can be
+     * turned into the other by changing no more than a tenth of the
+     * characters of the shorter.
+     *
+     * @param lyrics the lyrics to check.
+     * @return the id of a similar song, or -1 if there isn't one.
+     */
+    public long findSimilar(String lyrics) {
+        Entry entry = Entry.of(lyrics);
+        Map<Long, String> candidates = new HashMap<>();
+        synchronized (this) {
+            for (int band = 0; band < BANDS; band++) {
+                Set<Long> bucket = buckets.get(band).get(getBandKey(entry.signature, band));
+                if (bucket != null) {
+                    for (Long id : bucket) {
+                        candidates.putIfAbsent(id, entries.get(id).lyrics);
+                    }
+                }
+            }
+        }
+        for (Map.Entry<Long, String> candidate : candidates.entrySet()) {
+            if (isSimilar(entry.lyrics, candidate.getValue())) {
+                return candidate.getKey();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Determine whether two reduced lyrics are within a tenth of the length
+     * of the shorter of each other, giving up as soon as they can't be.
+     *
+     * @param lyrics1 the first lyrics.
+     * @param lyrics2 the second lyrics.
+     * @return true if they're similar, false otherwise.
+     */
+    private static boolean isSimilar(String lyrics1, String lyrics2) {
+        int maxDistance = Math.min(lyrics1.length(), lyrics2.length()) / 10;
+        if (Math.abs(lyrics1.length() - lyrics2.length()) > maxDistance) {
+            return false;
+        }
+        return new LevenshteinDistance(maxDistance).apply(lyrics1, lyrics2) >= 0;
+    }
+
+    /**
+     * Reduce lyrics to just their letters, in lower case, so punctuation,
+     * spacing and capitalisation don't stop songs being found similar.
+     *
+     * @param lyrics the lyrics.
+     * @return the reduced lyrics.
+     */
+    private static String normalise(String lyrics) {
+        if (lyrics == null) {
+            return "";
+        }
+        StringBuilder ret = new StringBuilder(lyrics.length());
+        for (int i = 0; i < lyrics.length(); i++) {
+            char c = lyrics.charAt(i);
+            if (Character.isLetter(c)) {
+                ret.append(c);
+            }
+        }
+        return ret.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Work out the MinHash signature of the shingles of some reduced lyrics.
+     * Lyrics shorter than a shingle are treated as a single shingle.
+     *
+     * @param lyrics the reduced lyrics.
+     * @return the signature.
+     */
+    private static int[] sign(String lyrics) {
+        int[] ret = new int[SIGNATURE_LENGTH];
+        Arrays.fill(ret, Integer.MAX_VALUE);
+        int shingles = Math.max(1, lyrics.length() - SHINGLE_LENGTH + 1);
+        for (int start = 0; start < shingles; start++) {
+            int shingle = 0;
+            for (int i = start; i < Math.min(start + SHINGLE_LENGTH, lyrics.length()); i++) {
+                shingle = 31 * shingle + lyrics.charAt(i);
+            }
+            for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+                int hash = mix(shingle ^ SEEDS[i]);
+                if (hash < ret[i]) {
+                    ret[i] = hash;
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * The finalising step of MurmurHash3, which spreads the bits of its input
+     * over the whole of its output.
+     *
+     * @param h the value to mix.
+     * @return the mixed value.
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static long getBandKey(int[] signature, int band) {
+        long ret = band;
+        for (int i = band * ROWS; i < (band + 1) * ROWS; i++) {
+            ret = ret * 1_000_003L + signature[i];
+        }
+        return ret;
+    }
+}
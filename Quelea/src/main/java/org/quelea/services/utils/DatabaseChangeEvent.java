@@ -0,0 +1,76 @@
+/* 
+ * This file is part of Quelea, free projection software for churches.
+ * 
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.quelea.services.utils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Describes which songs have been added, updated or removed in a single
+ * change to the database, so listeners can update themselves without
+ * reloading every song.
+ * @author Michael
+ */
+public class DatabaseChangeEvent {
+
+    private final Set<Long> added;
+    private final Set<Long> updated;
+    private final Set<Long> removed;
+
+    /**
+     * Create a new change event.
+     *
+     * @param added the ids of the songs that were added.
+     * @param updated the ids of the songs that were updated.
+     * @param removed the ids of the songs that were removed.
+     */
+    public DatabaseChangeEvent(Collection<Long> added, Collection<Long> updated, Collection<Long> removed) {
+        this.added = Collections.unmodifiableSet(new HashSet<>(added));
+        this.updated = Collections.unmodifiableSet(new HashSet<>(updated));
+        this.removed = Collections.unmodifiableSet(new HashSet<>(removed));
+    }
+
+    /**
+     * Get the ids of the songs that were added.
+     *
+     * @return the added song ids.
+     */
+    public Set<Long> getAdded() {
+        return added;
+    }
+
+    /**
+     * Get the ids of the songs that were updated.
+     *
+     * @return the updated song ids.
+     */
+    public Set<Long> getUpdated() {
+        return updated;
+    }
+
+    /**
+     * Get the ids of the songs that were removed.
+     *
+     * @return the removed song ids.
+     */
+    public Set<Long> getRemoved() {
+        return removed;
+    }
+}
@@ -27,4 +27,15 @@ public interface DatabaseListener {
      * Signifies that the database has been updated.
      */
     void databaseChanged();
+
+    /**
+     * Signifies that specific songs in the database have been added, updated
+     * or removed. By default this treats the change like any other update;
+     * listeners that can patch themselves in place should override it.
+     *
+     * @param event the songs that have changed.
+     */
+    default void databaseChanged(DatabaseChangeEvent event) {
+        databaseChanged();
+    }
 }
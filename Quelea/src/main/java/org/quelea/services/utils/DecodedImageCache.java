@@ -0,0 +1,217 @@
+/*
+ * This file is part of Quelea, free projection software for churches.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.quelea.services.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.geometry.Bounds;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.Image;
+import javafx.stage.Screen;
+
+/**
+ * Holds the full size images of slides - image group photos and rendered
+ * presentation slides - within a fixed memory budget, so only the slides
+ * around the one being shown are kept decoded. Everything else only keeps a
+ * thumbnail, and is decoded again from its file when it's next needed.
+ * <p>
+ * Images are decoded no bigger than the projector, since that's the biggest
+ * they're ever shown, and the least recently used are dropped once the budget
+ * is used up.
+ * <p>
+ * @author Michael
+ */
+public final class DecodedImageCache {
+
+    public static final DecodedImageCache INSTANCE = new DecodedImageCache(QueleaProperties.get().getImageCacheSize() * 1024L * 1024L);
+    private static final Logger LOGGER = LoggerUtils.getLogger();
+    private static final int DEFAULT_WIDTH = 1920;
+    private static final int DEFAULT_HEIGHT = 1080;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Image> images;
+    private final Map<String, CompletableFuture<Image>> loading;
+    private final ExecutorService prefetcher;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    private long totalBytes;
+
+    /**
+     * Create a new decoded image cache.
+     * <p>
+     * @param maxBytes the most memory the cached images may use.
+     */
+    private DecodedImageCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        images = new LinkedHashMap<>(16, 0.75f, true);
+        loading = new ConcurrentHashMap<>();
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "image-prefetch-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        prefetcher = executor;
+        hits = new LongAdder();
+        misses = new LongAdder();
+        evictions = new LongAdder();
+    }
+
+    /**
+     * Get the full size image at the given URI, decoding it if it isn't
+     * already cached. If it's being prefetched, this waits for that rather
+     * than decoding it twice.
+     * <p>
+     * @param uri the URI of the image.
+     * @return the image, scaled down to fit the projector if it's bigger.
+     */
+    public Image get(String uri) {
+        Rectangle2D size = getProjectorSize();
+        String key = getKey(uri, size);
+        synchronized (this) {
+            Image image = images.get(key);
+            if (image != null) {
+                hits.increment();
+                return image;
+            }
+        }
+        misses.increment();
+        CompletableFuture<Image> created = new CompletableFuture<>();
+        CompletableFuture<Image> existing = loading.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing.join();
+        }
+        load(key, uri, size, created);
+        return created.join();
+    }
+
+    /**
+     * Start decoding the full size image at the given URI in the background,
+     * if it isn't already cached, so it's ready when it's shown.
+     * <p>
+     * @param uri the URI of the image.
+     */
+    public void prefetch(String uri) {
+        Rectangle2D size = getProjectorSize();
+        String key = getKey(uri, size);
+        synchronized (this) {
+            if (images.containsKey(key)) {
+                return;
+            }
+        }
+        CompletableFuture<Image> created = new CompletableFuture<>();
+        if (loading.putIfAbsent(key, created) == null) {
+            prefetcher.execute(() -> load(key, uri, size, created));
+        }
+    }
+
+    /**
+     * Get a summary of how well the cache is working.
+     * <p>
+     * @return the summary.
+     */
+    public synchronized String getSummary() {
+        return String.format("decoded images: %d hits, %d misses, %d evictions, %d images, %.1fMB",
+                hits.sum(), misses.sum(), evictions.sum(), images.size(), totalBytes / (1024.0 * 1024.0));
+    }
+
+    /**
+     * Decode an image and add it to the cache.
+     * <p>
+     * @param key the key of the image in the cache.
+     * @param uri the URI of the image.
+     * @param size the size to fit the image within.
+     * @param future completed with the image once it's decoded.
+     */
+    private void load(String key, String uri, Rectangle2D size, CompletableFuture<Image> future) {
+        try {
+            Image image = new Image(uri, size.getWidth(), size.getHeight(), true, true);
+            if (image.isError()) {
+                LOGGER.log(Level.WARNING, "Couldn't load image " + uri, image.getException());
+            } else {
+                put(key, image);
+            }
+            future.complete(image);
+        } catch (RuntimeException ex) {
+            future.completeExceptionally(ex);
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    private synchronized void put(String key, Image image) {
+        Image old = images.put(key, image);
+        totalBytes += getBytes(image) - (old == null ? 0 : getBytes(old));
+        Iterator<Map.Entry<String, Image>> it = images.entrySet().iterator();
+        while (totalBytes > maxBytes && images.size() > 1 && it.hasNext()) {
+            Map.Entry<String, Image> entry = it.next();
+            if (entry.getValue() == image) {
+                continue;
+            }
+            totalBytes -= getBytes(entry.getValue());
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    private static long getBytes(Image image) {
+        return (long) image.getWidth() * (long) image.getHeight() * 4;
+    }
+
+    private static String getKey(String uri, Rectangle2D size) {
+        return uri + "@" + (int) size.getWidth() + "x" + (int) size.getHeight();
+    }
+
+    /**
+     * Get the size of the projector in pixels, which is the biggest any slide
+     * is shown.
+     * <p>
+     * @return the size of the projector.
+     */
+    private static Rectangle2D getProjectorSize() {
+        QueleaProperties props = QueleaProperties.get();
+        if (props.isProjectorModeCoords()) {
+            Bounds coords = props.getProjectorCoords();
+            if (coords.getWidth() > 0 && coords.getHeight() > 0) {
+                return new Rectangle2D(0, 0, coords.getWidth(), coords.getHeight());
+            }
+        } else {
+            List<Screen> screens = Screen.getScreens();
+            int index = props.getProjectorScreen();
+            if (index >= 0 && index < screens.size()) {
+                Screen screen = screens.get(index);
+                return new Rectangle2D(0, 0, screen.getBounds().getWidth() * screen.getOutputScaleX(),
+                        screen.getBounds().getHeight() * screen.getOutputScaleY());
+            }
+        }
+        return new Rectangle2D(0, 0, DEFAULT_WIDTH, DEFAULT_HEIGHT);
+    }
+}
@@ -5,7 +5,13 @@
  */
 package org.quelea.services.utils;
 
-import java.util.WeakHashMap;
+import java.io.File;
+import java.net.URI;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javafx.scene.image.Image;
 import javafx.scene.paint.Color;
 
@@ -13,29 +19,43 @@ import javafx.scene.paint.Color;
  * An image manager that should be used to deal with all large images (to keep
  * memory overhead to a minimum.)
  * <p>
+ * Images are held in a least recently used cache with a fixed memory budget,
+ * keyed on their URI, the size they were decoded at and the modification time
+ * of their file, so an image that's changed on disk is loaded again. Where the
+ * size an image will be shown at is known, it's decoded at that size rather
+ * than at full resolution.
+ * <p>
  * @author Michael
  */
 public class ImageManager {
 
-    public static final ImageManager INSTANCE = new ImageManager();
+    public static final ImageManager INSTANCE = new ImageManager(QueleaProperties.get().getBackgroundCacheSize() * 1024L * 1024L);
+    private static final Logger LOGGER = LoggerUtils.getLogger();
     /**
-     * Could possibly be a soft hashmap in future to aid with caching even when
-     * a reference isn't elsewhere? Not sure we need this for now though, so
-     * leaving as is.
+     * Sizes to fit are rounded up to a multiple of this, so resizing a canvas
+     * by a few pixels doesn't decode its background again.
      */
-    private final WeakHashMap<String, Image> images;
+    private static final int SIZE_STEP = 128;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Image> images;
+    private long totalBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
 
-    private ImageManager() {
-        images = new WeakHashMap<>();
+    private ImageManager(long maxBytes) {
+        this.maxBytes = maxBytes;
+        images = new LinkedHashMap<>(16, 0.75f, true);
     }
 
     /**
      * Get an image from a uri. This will load the full image into memory,
-     * whatever its size. If you just need a preview of an image, then use the
-     * other method in this class to load a smaller version! Images returned
-     * using this method are cached, so if the same image is being used
-     * elsewhere that points to this file, you'll get the same image object back
-     * (as long as the previous image was obtained through this method.)
+     * whatever its size. If you just need a preview of an image, or know the
+     * size it'll be shown at, then use the other methods in this class to
+     * load a smaller version! Images returned using this method are cached, so
+     * if the same image is being used elsewhere that points to this file,
+     * you'll get the same image object back (as long as the previous image was
+     * obtained through this method and hasn't been evicted.)
      * <p>
      * @param uri the URI to load.
      * @return the image at this URI.
@@ -44,28 +64,127 @@ public class ImageManager {
         if(uri == null) {
             return Utils.getImageFromColour(Color.BLACK);
         }
-        Image img = images.get(uri);
-        if(img == null) {
-            img = new Image(uri);
-            images.put(uri, img);
-        }
-        return img;
+        return getImage(uri, 0, 0, false);
     }
 
     /**
-     * Get an image with a particular size. Images using this method are not
-     * cached at present, so only use for small images. (We could cache in the
-     * future if necessary.)
+     * Get an image with a particular size. Images are cached, so asking for
+     * the same image at the same size again won't decode it again.
      * <p>
      * @param uri the URI of the image to load.
-     * @param width the width of the image.
-     * @param height the height of the image.
+     * @param width the width of the image, or 0 for the image's own width.
+     * @param height the height of the image, or 0 for the image's own height.
      * @param preserveRatio true if the aspect ratio should be preserved, false
      * otherwise.
-     * @return
+     * @return the image.
      */
     public Image getImage(String uri, double width, double height, boolean preserveRatio) {
-        return new Image(uri, width, height, preserveRatio, true);
+        String key = uri + "|" + (int) width + "x" + (int) height + "|" + preserveRatio + "|" + getModified(uri);
+        synchronized(this) {
+            Image img = images.get(key);
+            if(img != null) {
+                hits++;
+                return img;
+            }
+            misses++;
+        }
+        Image img = new Image(uri, width, height, preserveRatio, true);
+        if(img.isError()) {
+            LOGGER.log(Level.WARNING, "Couldn't load image " + uri, img.getException());
+            return img;
+        }
+        put(key, img);
+        return img;
+    }
+
+    /**
+     * Get an image to be stretched over an area of the given size, such as a
+     * background. It's decoded at about that size, rather than at full
+     * resolution, and the caller's expected to fit it to the area exactly.
+     * <p>
+     * @param uri the URI of the image to load.
+     * @param width the width of the area, or 0 if it isn't known yet.
+     * @param height the height of the area, or 0 if it isn't known yet.
+     * @return the image.
+     */
+    public Image getImageToFit(String uri, double width, double height) {
+        if(uri == null) {
+            return Utils.getImageFromColour(Color.BLACK);
+        }
+        if(width < 1 || height < 1) {
+            return getImage(uri);
+        }
+        return getImage(uri, roundUp(width), roundUp(height), false);
+    }
+
+    /**
+     * Get the proportion of requests that were answered from the cache.
+     * <p>
+     * @return the hit rate, between 0 and 1.
+     */
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Get the approximate memory used by the cached images.
+     * <p>
+     * @return the memory used, in bytes.
+     */
+    public synchronized long getMemoryUsage() {
+        return totalBytes;
+    }
+
+    /**
+     * Get a summary of how well the cache is working.
+     * <p>
+     * @return the summary.
+     */
+    public synchronized String getSummary() {
+        return String.format("image manager: %d hits, %d misses (%.0f%% hit rate), %d evictions, %d images, %.1fMB",
+                hits, misses, getHitRate() * 100, evictions, images.size(), totalBytes / (1024.0 * 1024.0));
+    }
+
+    private synchronized void put(String key, Image img) {
+        Image old = images.put(key, img);
+        totalBytes += getBytes(img) - (old == null ? 0 : getBytes(old));
+        Iterator<Map.Entry<String, Image>> it = images.entrySet().iterator();
+        while(totalBytes > maxBytes && images.size() > 1 && it.hasNext()) {
+            Map.Entry<String, Image> entry = it.next();
+            if(entry.getValue() == img) {
+                continue;
+            }
+            totalBytes -= getBytes(entry.getValue());
+            it.remove();
+            evictions++;
+        }
+    }
+
+    private static long getBytes(Image img) {
+        return (long) img.getWidth() * (long) img.getHeight() * 4;
+    }
+
+    private static int roundUp(double size) {
+        return (int) Math.ceil(size / SIZE_STEP) * SIZE_STEP;
+    }
+
+    /**
+     * Get the modification time of the file at the given URI.
+     * <p>
+     * @param uri the URI of the file.
+     * @return the modification time, or 0 if the URI isn't a file.
+     */
+    private static long getModified(String uri) {
+        if(!uri.startsWith("file:")) {
+            return 0;
+        }
+        try {
+            return new File(URI.create(uri)).lastModified();
+        }
+        catch(IllegalArgumentException ex) {
+            return 0;
+        }
     }
 
 }
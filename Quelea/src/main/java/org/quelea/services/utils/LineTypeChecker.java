@@ -17,8 +17,8 @@
  */
 package org.quelea.services.utils;
 
-import java.util.Comparator;
 import java.util.TreeMap;
+import java.util.regex.Pattern;
 
 /**
  * Checks the type of the line.
@@ -28,6 +28,16 @@ import java.util.TreeMap;
 public class LineTypeChecker {
     
     public static final String CHORD_REGEX = "(\\s*(((([a-hA-H](#|b|♯|♭?)[0-9]*)|\\/)*((sus|dim|º|ø|\\+|maj|dom|min|m|M|aug|add)?[0-9]*){3}(#|b|♯|♭)?[0-9]*)\\s*)+)";
+    /**
+     * The chord regex, compiled once rather than every time a token's
+     * checked.
+     */
+    public static final Pattern CHORD_PATTERN = Pattern.compile(CHORD_REGEX);
+    private static final Pattern REPEAT_AFTER = Pattern.compile("[xX][0-9]+");
+    private static final Pattern REPEAT_BEFORE = Pattern.compile("[0-9]+[xX]");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s");
+    private static final String[] TITLES = {"verse", "chorus", "tag", "pre-chorus", "pre chorus", "coda",
+        "bridge", "intro", "outro", "interlude", "ending"};
 
     /**
      * The type of the line.
@@ -39,6 +49,7 @@ public class LineTypeChecker {
     }
 
     private final String line;
+    private String lowerLine;
 
     /**
      * Create a new line type checker to check a particular line.
@@ -58,6 +69,7 @@ public class LineTypeChecker {
         if(line==null) {
             return null;
         }
+        lowerLine = line.toLowerCase();
         if (checkTitle()) {
             return Type.TITLE;
         } else if (checkChords()) {
@@ -70,8 +82,9 @@ public class LineTypeChecker {
     }
 
     private boolean checkNonBreak() {
-        return line.trim().equals("<>")
-                || line.trim().equals("\\u00A0")
+        String trimmed = line.trim();
+        return trimmed.equals("<>")
+                || trimmed.equals("\\u00A0")
                 || (line.length() == 1 && line.charAt(0) == 160);
     }
 
@@ -84,22 +97,22 @@ public class LineTypeChecker {
         if (line.trim().isEmpty()) {
             return false;
         }
-        if (line.toLowerCase().endsWith("//chords")) {
+        if (lowerLine.endsWith("//chords")) {
             return true;
         }
-        if (line.toLowerCase().endsWith("//lyrics")) {
+        if (lowerLine.endsWith("//lyrics")) {
             return false;
         }
         String checkLine = line.replace('-', ' ');
         checkLine = checkLine.replace('(', ' ');
         checkLine = checkLine.replace(')', ' ');
-        checkLine = checkLine.replaceAll("[xX][0-9]+", "");
-        checkLine = checkLine.replaceAll("[0-9]+[xX]", "");
-        for (String s : checkLine.split("\\s")) {
+        checkLine = REPEAT_AFTER.matcher(checkLine).replaceAll("");
+        checkLine = REPEAT_BEFORE.matcher(checkLine).replaceAll("");
+        for (String s : WHITESPACE.split(checkLine)) {
             if (s.trim().isEmpty()) {
                 continue;
             }
-            if (!s.matches("^" + CHORD_REGEX + "$")) {
+            if (!CHORD_PATTERN.matcher(s).matches()) {
                 return false;
             }
         }
@@ -113,25 +126,24 @@ public class LineTypeChecker {
      * @return true if it's the title of a section, false otherwise.
      */
     private boolean checkTitle() {
-        String processedLine = line.toLowerCase().trim()
-                .replace("{", "").replace("}", "")
-                .replace("[", "").replace("]", "")
-                .replace("<", "").replace(">", "")
-                .replace("(", "").replace(")", "");
+        String trimmed = lowerLine.trim();
+        StringBuilder processed = new StringBuilder(trimmed.length());
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (c != '{' && c != '}' && c != '[' && c != ']' && c != '<' && c != '>' && c != '(' && c != ')') {
+                processed.append(c);
+            }
+        }
+        String processedLine = processed.toString();
         if (processedLine.endsWith("//title")) {
             return true;
         }
-        return processedLine.toLowerCase().startsWith("verse")
-                || processedLine.toLowerCase().startsWith("chorus")
-                || processedLine.toLowerCase().startsWith("tag")
-                || processedLine.toLowerCase().startsWith("pre-chorus")
-                || processedLine.toLowerCase().startsWith("pre chorus")
-                || processedLine.toLowerCase().startsWith("coda")
-                || processedLine.toLowerCase().startsWith("bridge")
-                || processedLine.toLowerCase().startsWith("intro")
-                || processedLine.toLowerCase().startsWith("outro")
-                || processedLine.toLowerCase().startsWith("interlude")
-                || processedLine.toLowerCase().startsWith("ending");
+        for (String title : TITLES) {
+            if (processedLine.startsWith(title)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private static final TreeMap<String, String> titleMap = new TreeMap<>();
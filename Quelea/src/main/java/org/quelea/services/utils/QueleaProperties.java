@@ -27,11 +27,23 @@ import org.quelea.services.languages.spelling.DictionaryManager;
 import org.quelea.services.notice.NoticeDrawer.NoticePosition;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.logging.Level;
 
 import static org.quelea.services.utils.QueleaPropertyKeys.activeSelectionColorKey;
@@ -40,6 +52,7 @@ import static org.quelea.services.utils.QueleaPropertyKeys.advanceOnLiveKey;
 import static org.quelea.services.utils.QueleaPropertyKeys.autoDetectPortKey;
 import static org.quelea.services.utils.QueleaPropertyKeys.autoTranslateKey;
 import static org.quelea.services.utils.QueleaPropertyKeys.autoplayVidKey;
+import static org.quelea.services.utils.QueleaPropertyKeys.backgroundCacheSizeKey;
 import static org.quelea.services.utils.QueleaPropertyKeys.blackFadeDurationKey;
 import static org.quelea.services.utils.QueleaPropertyKeys.blackStageviewWithMainKey;
 import static org.quelea.services.utils.QueleaPropertyKeys.canvasDivposKey;
@@ -69,6 +82,7 @@ import static org.quelea.services.utils.QueleaPropertyKeys.feedbackLocationKey;
 import static org.quelea.services.utils.QueleaPropertyKeys.globalBibleThemeFileKey;
 import static org.quelea.services.utils.QueleaPropertyKeys.globalSongThemeFileKey;
 import static org.quelea.services.utils.QueleaPropertyKeys.godWordsKey;
+import static org.quelea.services.utils.QueleaPropertyKeys.imageCacheSizeKey;
 import static org.quelea.services.utils.QueleaPropertyKeys.inactiveSelectionColorKey;
 import static org.quelea.services.utils.QueleaPropertyKeys.itemThemeOverrideKey;
 import static org.quelea.services.utils.QueleaPropertyKeys.languageFileKey;
@@ -115,6 +129,9 @@ import static org.quelea.services.utils.QueleaPropertyKeys.queleaSongpackExtensi
 import static org.quelea.services.utils.QueleaPropertyKeys.recPathKey;
 import static org.quelea.services.utils.QueleaPropertyKeys.remoteControlPasswordKey;
 import static org.quelea.services.utils.QueleaPropertyKeys.remoteControlPortKey;
+import static org.quelea.services.utils.QueleaPropertyKeys.serverKeepAliveKey;
+import static org.quelea.services.utils.QueleaPropertyKeys.serverMaxIdleConnectionsKey;
+import static org.quelea.services.utils.QueleaPropertyKeys.serverThreadsKey;
 import static org.quelea.services.utils.QueleaPropertyKeys.sceneInfoKey;
 import static org.quelea.services.utils.QueleaPropertyKeys.scheduleEmbedMediaKey;
 import static org.quelea.services.utils.QueleaPropertyKeys.showExtraLivePanelToolbarOptionsKey;
@@ -122,6 +139,7 @@ import static org.quelea.services.utils.QueleaPropertyKeys.showSmallBibleTextKey
 import static org.quelea.services.utils.QueleaPropertyKeys.showSmallSongTextKey;
 import static org.quelea.services.utils.QueleaPropertyKeys.showVerseNumbersKey;
 import static org.quelea.services.utils.QueleaPropertyKeys.singleMonitorWarningKey;
+import static org.quelea.services.utils.QueleaPropertyKeys.slideCacheSizeKey;
 import static org.quelea.services.utils.QueleaPropertyKeys.slideTransitionInDurationKey;
 import static org.quelea.services.utils.QueleaPropertyKeys.slideTransitionOutDurationKey;
 import static org.quelea.services.utils.QueleaPropertyKeys.smallBibleTextHPositionKey;
@@ -171,16 +189,64 @@ import static org.quelea.services.utils.QueleaPropertyKeys.wikiPageKey;
 /**
  * Manages the properties specific to Quelea.
  * <p>
+ * Numbers, colours and bounds are parsed once and kept until their property
+ * changes, so they're cheap to read while rendering. Changes are saved in the
+ * background shortly after they're made, batched together, and always before
+ * Quelea exits; the file's replaced in one go so it's never left half written.
+ * <p>
  *
  * @author Michael
  */
 public final class QueleaProperties extends SortedProperties {
 
     public static final Version VERSION = new Version("2024.1", VersionType.CI);
-    private static QueleaProperties INSTANCE;
+    private static final long WRITE_DELAY_MILLIS = 500;
+    private static final Function<String, Double> DOUBLE = Double::parseDouble;
+    private static final Function<String, Integer> INTEGER = Integer::parseInt;
+    private static final Function<String, Color> COLOUR = QueleaProperties::getColor;
+    private static final Function<String, Bounds> BOUNDS = QueleaProperties::getBounds;
+    private static volatile QueleaProperties INSTANCE;
+    private static final ScheduledExecutorService WRITER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "properties-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            QueleaProperties properties = INSTANCE;
+            if (properties != null) {
+                properties.flush();
+            }
+        }, "properties-flush"));
+    }
+    private final Map<String, Parsed> parsed = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private ScheduledFuture<?> pendingWrite;
+    private volatile File queleaUserHome;
     private String userHome;
 
+    /**
+     * A property value and what it was parsed from, so it's only parsed
+     * again once the property changes.
+     */
+    private static final class Parsed {
+
+        private final String raw;
+        private final Function<String, ?> parser;
+        private final Object value;
+
+        private Parsed(String raw, Function<String, ?> parser, Object value) {
+            this.raw = raw;
+            this.parser = parser;
+            this.value = value;
+        }
+    }
+
     public static void init(String userHome) {
+        if (INSTANCE != null) {
+            INSTANCE.flush();
+        }
         INSTANCE = new QueleaProperties(userHome);
         try {
             if (!get().getPropFile().exists()) {
@@ -215,16 +281,98 @@ public final class QueleaProperties extends SortedProperties {
     }
 
     /**
-     * Save these properties to the file.
+     * Save these properties to the file in the background. Changes made in
+     * quick succession are saved together once they've stopped.
      */
     private void write() {
-        try (FileWriter writer = new FileWriter(getPropFile())) {
-            store(writer, "Auto save");
-        } catch (IOException ex) {
-//            LOGGER.log(Level.WARNING, "Couldn't store properties", ex);
+        synchronized (writeLock) {
+            if (pendingWrite != null) {
+                pendingWrite.cancel(false);
+            }
+            pendingWrite = WRITER.schedule(this::flush, WRITE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Save any changes to these properties to the file straight away. The
+     * properties are written to a temporary file which then replaces the
+     * old one, so a crash part way through can't lose them.
+     */
+    public void flush() {
+        synchronized (writeLock) {
+            if (pendingWrite == null) {
+                return;
+            }
+            pendingWrite.cancel(false);
+            pendingWrite = null;
+            File file = getPropFile();
+            File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+            try {
+                StringWriter writer = new StringWriter();
+                store(writer, "Auto save");
+                Files.write(temp.toPath(), writer.toString().getBytes(StandardCharsets.UTF_8));
+                try {
+                    Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException ex) {
+                    Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException ex) {
+                LoggerUtils.getLogger().log(Level.WARNING, "Couldn't store properties", ex);
+            }
         }
     }
 
+    /**
+     * Set a property, saving it in the background.
+     * <p>
+     *
+     * @param key the key of the property.
+     * @param value the value of the property.
+     * @return the previous value of the property, or null if it had none.
+     */
+    @Override
+    public Object setProperty(String key, String value) {
+        Object ret = super.setProperty(key, value);
+        write();
+        return ret;
+    }
+
+    /**
+     * Get a property parsed with the given parser. The parsed value's kept
+     * for as long as the property's string stays the same, so it's only
+     * parsed again after it's changed.
+     * <p>
+     *
+     * @param key the key of the property.
+     * @param def the value to parse if the property isn't set.
+     * @param parser the parser to use; one of the constants above, so the
+     * same parser is always the same instance.
+     * @return the parsed value.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T getParsed(String key, String def, Function<String, T> parser) {
+        String raw = getProperty(key, def);
+        Parsed cached = parsed.get(key);
+        if (cached != null && cached.parser == parser && Objects.equals(cached.raw, raw)) {
+            return (T) cached.value;
+        }
+        T value = parser.apply(raw);
+        parsed.put(key, new Parsed(raw, parser, value));
+        return value;
+    }
+
+    private double getDouble(String key, String def) {
+        return getParsed(key, def, DOUBLE);
+    }
+
+    private int getInt(String key, String def) {
+        return getParsed(key, def, INTEGER);
+    }
+
+    private Color getColour(String key, String def) {
+        return getParsed(key, def, COLOUR);
+    }
+
     /**
      * Get the singleton instance of this class.
      * <p>
@@ -277,7 +425,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setLanguageFile(String file) {
         setProperty(languageFileKey, file);
-        write();
     }
 
     /**
@@ -307,7 +454,6 @@ public final class QueleaProperties extends SortedProperties {
 
     public void setDisplayVideoTab(boolean videoTab) {
         setProperty(videoTabKey, Boolean.toString(videoTab));
-        write();
     }
 
     /**
@@ -343,7 +489,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setSceneInfo(SceneInfo info) {
         setProperty(sceneInfoKey, info.toString());
-        write();
     }
 
     /**
@@ -353,7 +498,7 @@ public final class QueleaProperties extends SortedProperties {
      * set.
      */
     public double getMainDivPos() {
-        return Double.parseDouble(getProperty(mainDivposKey, "-1"));
+        return getDouble(mainDivposKey, "-1");
     }
 
     public String getElevantoClientId() {
@@ -367,7 +512,7 @@ public final class QueleaProperties extends SortedProperties {
      * if none is set.
      */
     public double getLibraryDivPos() {
-        return Double.parseDouble(getProperty(libraryDivposKey, "-1"));
+        return getDouble(libraryDivposKey, "-1");
     }
 
     /**
@@ -377,7 +522,7 @@ public final class QueleaProperties extends SortedProperties {
      * none is set.
      */
     public double getPrevLiveDivPos() {
-        return Double.parseDouble(getProperty(preliveDivposKey, "-1"));
+        return getDouble(preliveDivposKey, "-1");
     }
 
     /**
@@ -386,7 +531,7 @@ public final class QueleaProperties extends SortedProperties {
      * @return the canvas divider position property, or -1 if none is set.
      */
     public double getCanvasDivPos() {
-        return Double.parseDouble(getProperty(canvasDivposKey, "-1"));
+        return getDouble(canvasDivposKey, "-1");
     }
 
     /**
@@ -395,7 +540,7 @@ public final class QueleaProperties extends SortedProperties {
      * @return the preview panel divider position property, or -1 if none is set.
      */
     public double getPreviewDivposKey() {
-        return Double.parseDouble(getProperty(previewDivposKey, "-1"));
+        return getDouble(previewDivposKey, "-1");
     }
 
     /**
@@ -405,7 +550,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setMainDivPos(double val) {
         setProperty(mainDivposKey, Double.toString(val));
-        write();
     }
 
     /**
@@ -415,7 +559,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setPrevLiveDivPos(double val) {
         setProperty(preliveDivposKey, Double.toString(val));
-        write();
     }
 
     /**
@@ -425,7 +568,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setCanvasDivPos(double val) {
         setProperty(canvasDivposKey, Double.toString(val));
-        write();
     }
 
     /**
@@ -435,7 +577,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setPreviewDivPos(double val) {
         setProperty(previewDivposKey, Double.toString(val));
-        write();
     }
 
     /**
@@ -445,7 +586,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setLibraryDivPos(double val) {
         setProperty(libraryDivposKey, Double.toString(val));
-        write();
     }
 
     /**
@@ -480,7 +620,6 @@ public final class QueleaProperties extends SortedProperties {
             }
         }
         setProperty(chosenFontsKey, fontBuilder.toString());
-        write();
     }
 
     /**
@@ -533,7 +672,7 @@ public final class QueleaProperties extends SortedProperties {
      * @return the colour to use for notice backgrounds.
      */
     public Color getNoticeBackgroundColour() {
-        return getColor(getProperty(noticeBackgroundColourKey, getStr(Color.BROWN)));
+        return getColour(noticeBackgroundColourKey, getStr(Color.BROWN));
     }
 
     /**
@@ -573,7 +712,7 @@ public final class QueleaProperties extends SortedProperties {
      * @return the speed at which to display the notices.
      */
     public double getNoticeSpeed() {
-        return Double.parseDouble(getProperty(noticeSpeedKey, "10"));
+        return getDouble(noticeSpeedKey, "10");
     }
 
     /**
@@ -796,7 +935,7 @@ public final class QueleaProperties extends SortedProperties {
      * @return the font size at which to display the notices.
      */
     public double getNoticeFontSize() {
-        return Double.parseDouble(getProperty(noticeFontSizeKey, "50"));
+        return getDouble(noticeFontSizeKey, "50");
     }
 
     /**
@@ -835,7 +974,7 @@ public final class QueleaProperties extends SortedProperties {
      * @return the maximum font size used by text displayables.
      */
     public double getMaxFontSize() {
-        return Double.parseDouble(getProperty(maxFontSizeKey, "1000"));
+        return getDouble(maxFontSizeKey, "1000");
     }
 
     /**
@@ -855,7 +994,7 @@ public final class QueleaProperties extends SortedProperties {
      * @return the additional line spacing.
      */
     public double getAdditionalLineSpacing() {
-        return Double.parseDouble(getProperty(additionalLineSpacingKey, "10"));
+        return getDouble(additionalLineSpacingKey, "10");
     }
 
     /**
@@ -875,7 +1014,7 @@ public final class QueleaProperties extends SortedProperties {
      * @return the thumbnail size.
      */
     public int getThumbnailSize() {
-        return Integer.parseInt(getProperty(thumbnailSizeKey, "200"));
+        return getInt(thumbnailSizeKey, "200");
     }
 
     /**
@@ -889,7 +1028,7 @@ public final class QueleaProperties extends SortedProperties {
     }
 
     public int getPlanningCentrePrevDays() {
-        return Integer.parseInt(getProperty(planningCentrePrevDaysKey, "31"));
+        return getInt(planningCentrePrevDaysKey, "31");
     }
 
     public void setPlanningCentrePrevDays(int days) {
@@ -993,9 +1132,13 @@ public final class QueleaProperties extends SortedProperties {
      * @return the Quelea home directory.
      */
     public File getQueleaUserHome() {
-        File ret = new File(new File(userHome), ".quelea");
-        if (!ret.exists()) {
-            ret.mkdir();
+        File ret = queleaUserHome;
+        if (ret == null) {
+            ret = new File(new File(userHome), ".quelea");
+            if (!ret.exists()) {
+                ret.mkdir();
+            }
+            queleaUserHome = ret;
         }
         return ret;
     }
@@ -1011,7 +1154,7 @@ public final class QueleaProperties extends SortedProperties {
     }
 
     public int getTranslationFontSizeOffset() {
-        return Integer.parseInt(getProperty(translationFontSizeOffsetKey, "3"));
+        return getInt(translationFontSizeOffsetKey, "3");
     }
 
     /**
@@ -1032,7 +1175,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setStageTextFont(String font) {
         setProperty(stageFontKey, font);
-        write();
     }
 
     /**
@@ -1053,7 +1195,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setStageTextAlignment(TextAlignment alignment) {
         setProperty(stageTextAlignmentKey, alignment.toString());
-        write();
     }
 
     /**
@@ -1074,7 +1215,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setShowChords(boolean showChords) {
         setProperty(stageShowChordsKey, Boolean.toString(showChords));
-        write();
     }
 
     /**
@@ -1139,6 +1279,86 @@ public final class QueleaProperties extends SortedProperties {
         return new File(getQueleaUserHome(), "temp");
     }
 
+    /**
+     * Get the directory used for storing the persistent search indexes.
+     * <p>
+     *
+     * @return the index directory
+     */
+    public File getIndexDir() {
+        return new File(getQueleaUserHome(), "index");
+    }
+
+    /**
+     * Get the directory used for storing parsed bibles, so they don't need
+     * parsing again on the next run.
+     * <p>
+     *
+     * @return the bible cache directory
+     */
+    public File getBibleCacheDir() {
+        return new File(getQueleaUserHome(), "biblecache");
+    }
+
+    /**
+     * Get the directory used for caching rendered presentation slides
+     * between runs.
+     * <p>
+     *
+     * @return the slide cache directory
+     */
+    public File getSlideCacheDir() {
+        return new File(getQueleaUserHome(), "slidecache");
+    }
+
+    /**
+     * Get the most disk space, in megabytes, the rendered slide cache may use
+     * before the least recently used slides are removed. 0 turns the cache
+     * off.
+     * <p>
+     *
+     * @return the size of the slide cache in megabytes.
+     */
+    public int getSlideCacheSize() {
+        try {
+            return Math.max(0, getInt(slideCacheSizeKey, "512"));
+        } catch (NumberFormatException e) {
+            return 512;
+        }
+    }
+
+    /**
+     * Get the most memory, in megabytes, full size slide images may use
+     * before the least recently used are dropped and decoded again when
+     * they're next needed.
+     * <p>
+     *
+     * @return the size of the decoded image cache in megabytes.
+     */
+    public int getImageCacheSize() {
+        try {
+            return Math.max(0, getInt(imageCacheSizeKey, "256"));
+        } catch (NumberFormatException e) {
+            return 256;
+        }
+    }
+
+    /**
+     * Get the most memory, in megabytes, the image manager may use for
+     * backgrounds, logos and previews before the least recently used are
+     * dropped.
+     * <p>
+     *
+     * @return the size of the image manager's cache in megabytes.
+     */
+    public int getBackgroundCacheSize() {
+        try {
+            return Math.max(0, getInt(backgroundCacheSizeKey, "128"));
+        } catch (NumberFormatException e) {
+            return 128;
+        }
+    }
+
     /**
      * Get the extension used for quelea schedules.
      * <p>
@@ -1167,7 +1387,7 @@ public final class QueleaProperties extends SortedProperties {
      * @return the control screen number.
      */
     public int getControlScreen() {
-        return Integer.parseInt(getProperty(controlScreenKey, "0"));
+        return getInt(controlScreenKey, "0");
     }
 
     /**
@@ -1178,7 +1398,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setControlScreen(int screen) {
         setProperty(controlScreenKey, Integer.toString(screen));
-        write();
     }
 
     /**
@@ -1199,7 +1418,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setOneLineMode(boolean val) {
         setProperty(oneLineModeKey, Boolean.toString(val));
-        write();
     }
 
     /**
@@ -1220,7 +1438,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setTextShadow(boolean val) {
         setProperty(textShadowKey, Boolean.toString(val));
-        write();
     }
 
     /**
@@ -1231,7 +1448,7 @@ public final class QueleaProperties extends SortedProperties {
      * @return the projector screen number.
      */
     public int getProjectorScreen() {
-        return Integer.parseInt(getProperty(projectorScreenKey, "1"));
+        return getInt(projectorScreenKey, "1");
     }
 
     /**
@@ -1242,7 +1459,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setProjectorScreen(int screen) {
         setProperty(projectorScreenKey, Integer.toString(screen));
-        write();
     }
 
     /**
@@ -1277,7 +1493,7 @@ public final class QueleaProperties extends SortedProperties {
      * projected text.
      */
     public int getMaxChars() {
-        return Integer.parseInt(getProperty(maxCharsKey, "30"));
+        return getInt(maxCharsKey, "30");
     }
 
     /**
@@ -1289,7 +1505,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setMaxChars(int maxChars) {
         setProperty(maxCharsKey, Integer.toString(maxChars));
-        write();
     }
 
     /**
@@ -1299,11 +1514,7 @@ public final class QueleaProperties extends SortedProperties {
      * @return the co-ordinates.
      */
     public Bounds getProjectorCoords() {
-        String[] prop = getProperty(projectorCoordsKey, "0,0,0,0").trim().split(",");
-        return new BoundingBox(Integer.parseInt(prop[0]),
-                Integer.parseInt(prop[1]),
-                Integer.parseInt(prop[2]),
-                Integer.parseInt(prop[3]));
+        return getParsed(projectorCoordsKey, "0,0,0,0", BOUNDS);
     }
 
     /**
@@ -1319,7 +1530,6 @@ public final class QueleaProperties extends SortedProperties {
                 + "," + Integer.toString((int) coords.getHeight());
 
         setProperty(projectorCoordsKey, rectStr);
-        write();
     }
 
     public void setXProjectorCoord(String x) {
@@ -1329,7 +1539,6 @@ public final class QueleaProperties extends SortedProperties {
                 + "," + prop[2]
                 + "," + prop[3];
         setProperty(projectorCoordsKey, rectStr);
-        write();
     }
 
     public void setYProjectorCoord(String y) {
@@ -1339,7 +1548,6 @@ public final class QueleaProperties extends SortedProperties {
                 + "," + prop[2]
                 + "," + prop[3];
         setProperty(projectorCoordsKey, rectStr);
-        write();
     }
 
     public void setWidthProjectorCoord(String width) {
@@ -1349,7 +1557,6 @@ public final class QueleaProperties extends SortedProperties {
                 + "," + width
                 + "," + prop[3];
         setProperty(projectorCoordsKey, rectStr);
-        write();
     }
 
     public void setHeightProjectorCoord(String height) {
@@ -1359,7 +1566,6 @@ public final class QueleaProperties extends SortedProperties {
                 + "," + prop[2]
                 + "," + height;
         setProperty(projectorCoordsKey, rectStr);
-        write();
     }
 
     public void setXStageCoord(String x) {
@@ -1369,7 +1575,6 @@ public final class QueleaProperties extends SortedProperties {
                 + "," + prop[2]
                 + "," + prop[3];
         setProperty(stageCoordsKey, rectStr);
-        write();
     }
 
     public void setYStageCoord(String y) {
@@ -1379,7 +1584,6 @@ public final class QueleaProperties extends SortedProperties {
                 + "," + prop[2]
                 + "," + prop[3];
         setProperty(stageCoordsKey, rectStr);
-        write();
     }
 
     public void setWidthStageCoord(String width) {
@@ -1389,7 +1593,6 @@ public final class QueleaProperties extends SortedProperties {
                 + "," + width
                 + "," + prop[3];
         setProperty(stageCoordsKey, rectStr);
-        write();
     }
 
     public void setHeightStageCoord(String height) {
@@ -1399,7 +1602,6 @@ public final class QueleaProperties extends SortedProperties {
                 + "," + prop[2]
                 + "," + height;
         setProperty(stageCoordsKey, rectStr);
-        write();
     }
 
     /**
@@ -1419,7 +1621,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setProjectorModeCoords() {
         setProperty(projectorModeKey, "coords");
-        write();
     }
 
     /**
@@ -1427,7 +1628,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setProjectorModeScreen() {
         setProperty(projectorModeKey, "screen");
-        write();
     }
 
     /**
@@ -1438,7 +1638,7 @@ public final class QueleaProperties extends SortedProperties {
      * @return the stage screen number.
      */
     public int getStageScreen() {
-        return Integer.parseInt(getProperty(stageScreenKey, "-1"));
+        return getInt(stageScreenKey, "-1");
     }
 
     /**
@@ -1449,7 +1649,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setStageScreen(int screen) {
         setProperty(stageScreenKey, Integer.toString(screen));
-        write();
     }
 
     /**
@@ -1459,11 +1658,7 @@ public final class QueleaProperties extends SortedProperties {
      * @return the co-ordinates.
      */
     public Bounds getStageCoords() {
-        String[] prop = getProperty(stageCoordsKey, "0,0,0,0").trim().split(",");
-        return new BoundingBox(Integer.parseInt(prop[0]),
-                Integer.parseInt(prop[1]),
-                Integer.parseInt(prop[2]),
-                Integer.parseInt(prop[3]));
+        return getParsed(stageCoordsKey, "0,0,0,0", BOUNDS);
     }
 
     /**
@@ -1479,7 +1674,6 @@ public final class QueleaProperties extends SortedProperties {
                 + "," + Integer.toString((int) coords.getHeight());
 
         setProperty(stageCoordsKey, rectStr);
-        write();
     }
 
     /**
@@ -1499,7 +1693,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setStageModeCoords() {
         setProperty(stageModeKey, "coords");
-        write();
     }
 
     /**
@@ -1507,7 +1700,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setStageModeScreen() {
         setProperty(stageModeKey, "screen");
-        write();
     }
 
     /**
@@ -1520,7 +1712,7 @@ public final class QueleaProperties extends SortedProperties {
      * @return the minimum line count.
      */
     public int getMinLines() {
-        return Integer.parseInt(getProperty(minLinesKey, "10"));
+        return getInt(minLinesKey, "10");
     }
 
     /**
@@ -1531,7 +1723,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setMinLines(int minLines) {
         setProperty(minLinesKey, Integer.toString(minLines));
-        write();
     }
 
     /**
@@ -1553,7 +1744,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setSingleMonitorWarning(boolean val) {
         setProperty(singleMonitorWarningKey, Boolean.toString(val));
-        write();
     }
 
     /**
@@ -1625,7 +1815,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setCheckUpdate(boolean val) {
         setProperty(checkUpdateKey, Boolean.toString(val));
-        write();
     }
 
     /**
@@ -1647,7 +1836,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setCapitalFirst(boolean val) {
         setProperty(capitalFirstKey, Boolean.toString(val));
-        write();
     }
 
     /**
@@ -1668,7 +1856,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setDisplaySongInfoText(boolean val) {
         setProperty(displaySonginfotextKey, Boolean.toString(val));
-        write();
     }
 
     /**
@@ -1689,7 +1876,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setDefaultBible(Bible bible) {
         setProperty(defaultBibleKey, bible.getName());
-        write();
     }
 
     /**
@@ -1699,7 +1885,7 @@ public final class QueleaProperties extends SortedProperties {
      * @return the colour used to display chords in stage view.
      */
     public Color getStageChordColor() {
-        return getColor(getProperty(stageChordColorKey, "200,200,200"));
+        return getColour(stageChordColorKey, "200,200,200");
     }
 
 
@@ -1710,7 +1896,7 @@ public final class QueleaProperties extends SortedProperties {
      * @return the colour used to display chords in stage view.
      */
     public Color getTextBackgroundColor() {
-        return getColor(getProperty(lyricsTextBackgroundColor));
+        return getColour(lyricsTextBackgroundColor, null);
     }
 
 
@@ -1742,7 +1928,7 @@ public final class QueleaProperties extends SortedProperties {
      * @return the colour used to display lyrics in stage view.
      */
     public Color getStageLyricsColor() {
-        return getColor(getProperty(stageLyricsColorKey, "255,255,255"));
+        return getColour(stageLyricsColorKey, "255,255,255");
     }
 
     /**
@@ -1772,7 +1958,7 @@ public final class QueleaProperties extends SortedProperties {
      * @return the colour used for the background in stage view.
      */
     public Color getStageBackgroundColor() {
-        return getColor(getProperty(stageBackgroundColorKey, "0,0,0"));
+        return getColour(stageBackgroundColorKey, "0,0,0");
     }
 
     /**
@@ -1782,7 +1968,15 @@ public final class QueleaProperties extends SortedProperties {
      * @param str the string to use to get the color value.
      * @return the color.
      */
-    private Color getColor(String str) {
+    private static Bounds getBounds(String str) {
+        String[] prop = str.trim().split(",");
+        return new BoundingBox(Integer.parseInt(prop[0]),
+                Integer.parseInt(prop[1]),
+                Integer.parseInt(prop[2]),
+                Integer.parseInt(prop[3]));
+    }
+
+    private static Color getColor(String str) {
         String[] color = str.split(",");
         double red = Double.parseDouble(color[0].trim());
         double green = Double.parseDouble(color[1].trim());
@@ -1813,7 +2007,7 @@ public final class QueleaProperties extends SortedProperties {
      * @return the colour used to signify an active list.
      */
     public Color getActiveSelectionColor() {
-        return getColor(getProperty(activeSelectionColorKey, "30,160,225"));
+        return getColour(activeSelectionColorKey, "30,160,225");
     }
 
     /**
@@ -1823,7 +2017,7 @@ public final class QueleaProperties extends SortedProperties {
      * @return the colour used to signify an active list.
      */
     public Color getInactiveSelectionColor() {
-        return getColor(getProperty(inactiveSelectionColorKey, "150,150,150"));
+        return getColour(inactiveSelectionColorKey, "150,150,150");
     }
 
     /**
@@ -1833,7 +2027,7 @@ public final class QueleaProperties extends SortedProperties {
      * @return the outline thickness in pixels.
      */
     public int getOutlineThickness() {
-        return Integer.parseInt(getProperty(outlineThicknessKey, "2"));
+        return getInt(outlineThicknessKey, "2");
     }
 
     /**
@@ -1844,7 +2038,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setOutlineThickness(int px) {
         setProperty(outlineThicknessKey, Integer.toString(px));
-        write();
     }
 
     /**
@@ -1854,7 +2047,7 @@ public final class QueleaProperties extends SortedProperties {
      * @return the notice box height.
      */
     public int getNoticeBoxHeight() {
-        return Integer.parseInt(getProperty(noticeBoxHeightKey, "40"));
+        return getInt(noticeBoxHeightKey, "40");
     }
 
     /**
@@ -1865,7 +2058,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setNoticeBoxHeight(int height) {
         setProperty(noticeBoxHeightKey, Integer.toString(height));
-        write();
     }
 
     /**
@@ -1875,7 +2067,7 @@ public final class QueleaProperties extends SortedProperties {
      * @return the notice box speed.
      */
     public int getNoticeBoxSpeed() {
-        return Integer.parseInt(getProperty(noticeBoxSpeedKey, "8"));
+        return getInt(noticeBoxSpeedKey, "8");
     }
 
     /**
@@ -1886,7 +2078,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setNoticeBoxSpeed(int speed) {
         setProperty(noticeBoxSpeedKey, Integer.toString(speed));
-        write();
     }
 
     /**
@@ -1925,7 +2116,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setAdvanceOnLive(boolean val) {
         setProperty(advanceOnLiveKey, Boolean.toString(val));
-        write();
     }
 
     /**
@@ -1948,7 +2138,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setPreviewOnImageUpdate(boolean val) {
         setProperty(previewOnImageChangeKey, Boolean.toString(val));
-        write();
     }
 
     /**
@@ -1971,7 +2160,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setUseOO(boolean val) {
         setProperty(useOoKey, Boolean.toString(val));
-        write();
     }
 
     /**
@@ -1992,7 +2180,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setOOPath(String path) {
         setProperty(ooPathKey, path);
-        write();
     }
 
     /**
@@ -2015,7 +2202,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setUsePP(boolean val) {
         setProperty(usePpKey, Boolean.toString(val));
-        write();
     }
 
     /**
@@ -2036,7 +2222,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setPPPath(String path) {
         setProperty(ppPathKey, path);
-        write();
     }
 
     /**
@@ -2057,7 +2242,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setRecordingsPath(String path) {
         setProperty(recPathKey, path);
-        write();
     }
 
     /**
@@ -2078,7 +2262,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setDownloadPath(String path) {
         setProperty(downloadPathKey, path);
-        write();
     }
 
     /**
@@ -2100,7 +2283,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setConvertRecordings(boolean val) {
         setProperty(convertMp3Key, Boolean.toString(val));
-        write();
     }
 
     /**
@@ -2123,7 +2305,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setLogoImage(String location) {
         setProperty(logoImageLocationKey, location);
-        write();
     }
 
     /**
@@ -2144,7 +2325,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setMobLyricsPort(int port) {
         setProperty(mobLyricsPortKey, Integer.toString(port));
-        write();
     }
 
     /**
@@ -2154,7 +2334,7 @@ public final class QueleaProperties extends SortedProperties {
      * @return the port used for mobile lyrics display.
      */
     public int getMobLyricsPort() {
-        return Integer.parseInt(getProperty(mobLyricsPortKey, "1111"));
+        return getInt(mobLyricsPortKey, "1111");
     }
 
     /**
@@ -2175,12 +2355,10 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setUseMobLyrics(boolean val) {
         setProperty(useMobLyricsKey, Boolean.toString(val));
-        write();
     }
 
     public void setUseRemoteControl(boolean val) {
         setProperty(useRemoteControlKey, Boolean.toString(val));
-        write();
     }
 
     /**
@@ -2201,7 +2379,7 @@ public final class QueleaProperties extends SortedProperties {
      */
     public int getRemoteControlPort() {
         try {
-            return Integer.parseInt(getProperty(remoteControlPortKey, "1112"));
+            return getInt(remoteControlPortKey, "1112");
         } catch (NumberFormatException e) {
             return 1112;
         }
@@ -2209,12 +2387,56 @@ public final class QueleaProperties extends SortedProperties {
 
     public void setRemoteControlPort(int port) {
         setProperty(remoteControlPortKey, Integer.toString(port));
-        write();
+    }
+
+    /**
+     * Get the number of threads the mobile lyrics and remote control servers
+     * each use to handle requests.
+     * <p>
+     *
+     * @return the number of threads, or 0 to handle each request on its own
+     * virtual thread.
+     */
+    public int getServerThreads() {
+        try {
+            return Math.max(0, getInt(serverThreadsKey, "0"));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Get how long the mobile lyrics and remote control servers keep an idle
+     * connection open for another request.
+     * <p>
+     *
+     * @return the keep-alive time in seconds.
+     */
+    public int getServerKeepAliveSeconds() {
+        try {
+            return Math.max(1, getInt(serverKeepAliveKey, "30"));
+        } catch (NumberFormatException e) {
+            return 30;
+        }
+    }
+
+    /**
+     * Get the maximum number of idle connections the mobile lyrics and remote
+     * control servers keep open.
+     * <p>
+     *
+     * @return the maximum number of idle connections.
+     */
+    public int getServerMaxIdleConnections() {
+        try {
+            return Math.max(1, getInt(serverMaxIdleConnectionsKey, "400"));
+        } catch (NumberFormatException e) {
+            return 400;
+        }
     }
 
     public void setRemoteControlPassword(String text) {
         setProperty(remoteControlPasswordKey, text);
-        write();
     }
 
     public String getRemoteControlPassword() {
@@ -2223,7 +2445,6 @@ public final class QueleaProperties extends SortedProperties {
 
     public void setPlanningCenterRefreshToken(String text) {
         setProperty(planningCenterRefreshToken, text);
-        write();
     }
 
     public String getPlanningCenterRefreshToken() {
@@ -2236,7 +2457,6 @@ public final class QueleaProperties extends SortedProperties {
 
     public void setSmallSongTextPositionH(String position) {
         setProperty(smallSongTextHPositionKey, position);
-        write();
     }
 
     public String getSmallSongTextPositionV() {
@@ -2245,16 +2465,14 @@ public final class QueleaProperties extends SortedProperties {
 
     public void setSmallSongTextPositionV(String position) {
         setProperty(smallSongTextVPositionKey, position);
-        write();
     }
 
     public Double getSmallSongTextSize() {
-        return Double.parseDouble(getProperty(smallSongTextSizeKey, "0.1"));
+        return getDouble(smallSongTextSizeKey, "0.1");
     }
 
     public void setSmallSongTextSize(double size) {
         setProperty(smallSongTextSizeKey, Double.toString(size));
-        write();
     }
 
     public String getSmallSongTextShowOnSlides() {
@@ -2263,7 +2481,6 @@ public final class QueleaProperties extends SortedProperties {
 
     public void setSmallSongTextShowOnSlides(String showOnSlides) {
         setProperty(smallSongTextShowOnSlidesKey, showOnSlides);
-        write();
     }
 
     public String getSmallBibleTextPositionH() {
@@ -2272,7 +2489,6 @@ public final class QueleaProperties extends SortedProperties {
 
     public void setSmallBibleTextPositionH(String position) {
         setProperty(smallBibleTextHPositionKey, position);
-        write();
     }
 
     public String getSmallBibleTextPositionV() {
@@ -2281,16 +2497,14 @@ public final class QueleaProperties extends SortedProperties {
 
     public void setSmallBibleTextPositionV(String position) {
         setProperty(smallBibleTextVPositionKey, position);
-        write();
     }
 
     public Double getSmallBibleTextSize() {
-        return Double.parseDouble(getProperty(smallBibleTextSizeKey, "0.1"));
+        return getDouble(smallBibleTextSizeKey, "0.1");
     }
 
     public void setSmallBibleTextSize(double size) {
         setProperty(smallBibleTextSizeKey, Double.toString(size));
-        write();
     }
 
     public boolean getSmallSongTextShow() {
@@ -2299,7 +2513,6 @@ public final class QueleaProperties extends SortedProperties {
 
     public void setSmallSongTextShow(boolean show) {
         setProperty(showSmallSongTextKey, Boolean.toString(show));
-        write();
     }
 
     public boolean getSmallBibleTextShow() {
@@ -2308,7 +2521,6 @@ public final class QueleaProperties extends SortedProperties {
 
     public void setSmallBibleTextShow(boolean show) {
         setProperty(showSmallBibleTextKey, Boolean.toString(show));
-        write();
     }
 
     /**
@@ -2317,12 +2529,11 @@ public final class QueleaProperties extends SortedProperties {
      * @return number of words or verses (depends on use.max.bible.verses)
      */
     public int getMaxBibleVerses() {
-        return Integer.parseInt(getProperty(maxBibleVersesKey, "5"));
+        return getInt(maxBibleVersesKey, "5");
     }
 
     public void setMaxBibleVerses(int number) {
         setProperty(maxBibleVersesKey, Integer.toString(number));
-        write();
     }
 
     /**
@@ -2336,7 +2547,6 @@ public final class QueleaProperties extends SortedProperties {
 
     public void setBibleUsingMaxChars(boolean useChars) {
         setProperty(useMaxBibleCharsKey, Boolean.toString(useChars));
-        write();
     }
 
     /**
@@ -2348,7 +2558,7 @@ public final class QueleaProperties extends SortedProperties {
      * text.
      */
     public int getMaxBibleChars() {
-        return Integer.parseInt(getProperty(maxBibleCharsKey, "80"));
+        return getInt(maxBibleCharsKey, "80");
     }
 
     /**
@@ -2360,7 +2570,6 @@ public final class QueleaProperties extends SortedProperties {
      */
     public void setMaxBibleChars(int maxChars) {
         setProperty(maxBibleCharsKey, Integer.toString(maxChars));
-        write();
     }
 
     /**
@@ -2374,7 +2583,6 @@ public final class QueleaProperties extends SortedProperties {
         if (t.equals("")) {
             t = "1000";
             setProperty(logoFadeDurationKey, t);
-            write();
         }
         return Integer.parseInt(t);
     }
@@ -2390,7 +2598,6 @@ public final class QueleaProperties extends SortedProperties {
         if (t.equals("")) {
             t = "1000";
             setProperty(blackFadeDurationKey, t);
-            write();
         }
         return Integer.parseInt(t);
     }
@@ -2406,7 +2613,6 @@ public final class QueleaProperties extends SortedProperties {
         if (t.equals("")) {
             t = "1000";
             setProperty(clearFadeDurationKey, t);
-            write();
         }
         return Integer.parseInt(t);
     }
@@ -2422,7 +2628,6 @@ public final class QueleaProperties extends SortedProperties {
         if (t.equals("")) {
             t = "quelea-projection";
             setProperty(translateClientIdKey, t);
-            write();
         }
         return t;
     }
@@ -2438,7 +2643,6 @@ public final class QueleaProperties extends SortedProperties {
         if (t.equals("")) {
             t = "wk4+wd9YJkjIHmz2qwD1oR7pP9/kuHOL6OsaOKEi80U=";
             setProperty(translateClientSecretKey, t);
-            write();
         }
         return t;
     }
@@ -2449,7 +2653,6 @@ public final class QueleaProperties extends SortedProperties {
 
     public void setClearStageWithMain(boolean clear) {
         setProperty(clearStageviewWithMainKey, Boolean.toString(clear));
-        write();
     }
 
     public boolean getBlackStageWithMain() {
@@ -2458,7 +2661,6 @@ public final class QueleaProperties extends SortedProperties {
 
     public void setBlackStageWithMain(boolean black) {
         setProperty(blackStageviewWithMainKey, Boolean.toString(black));
-        write();
     }
 
     public boolean getDisableVideo() {
@@ -2481,11 +2683,10 @@ public final class QueleaProperties extends SortedProperties {
 
     public void setSongOverflow(boolean overflow) {
         setProperty(songOverflowKey, Boolean.toString(overflow));
-        write();
     }
 
     public int getAutoDetectPort() {
-        return Integer.parseInt(getProperty(autoDetectPortKey, "50015"));
+        return getInt(autoDetectPortKey, "50015");
     }
 
     public boolean getStageShowClock() {
@@ -2498,7 +2699,6 @@ public final class QueleaProperties extends SortedProperties {
 
     public void setUse24HourClock(boolean s24h) {
         setProperty(use24hClockKey, Boolean.toString(s24h));
-        write();
     }
 
     public boolean getBibleSplitVerses() {
@@ -2507,15 +2707,14 @@ public final class QueleaProperties extends SortedProperties {
 
     public void setBibleSplitVerses(boolean selected) {
         setProperty(splitBibleVersesKey, Boolean.toString(selected));
-        write();
     }
 
     public double getLyricWidthBounds() {
-        return Double.parseDouble(getProperty(lyricWidthBoundKey, "0.92"));
+        return getDouble(lyricWidthBoundKey, "0.92");
     }
 
     public double getLyricHeightBounds() {
-        return Double.parseDouble(getProperty(lyricHeightBoundKey, "0.9"));
+        return getDouble(lyricHeightBoundKey, "0.9");
     }
 
     public boolean getDefaultSongDBUpdate() {
@@ -2540,11 +2739,10 @@ public final class QueleaProperties extends SortedProperties {
 
     public void setDefaultSongDBUpdate(boolean updateInDB) {
         setProperty(defaultSongDbUpdateKey, Boolean.toString(updateInDB));
-        write();
     }
 
     public int getWebDisplayableRefreshRate() {
-        return Integer.parseInt(getProperty(webRefreshRateKey, "500"));
+        return getInt(webRefreshRateKey, "500");
     }
 
     public String getWebProxyHost() {
@@ -2665,7 +2863,7 @@ public final class QueleaProperties extends SortedProperties {
      * @return milliseconds for fade-in effect.
      */
     public int getSlideTransitionInDuration() {
-        return Integer.parseInt(getProperty(slideTransitionInDurationKey, "750"));
+        return getInt(slideTransitionInDurationKey, "750");
     }
 
     /**
@@ -2674,7 +2872,7 @@ public final class QueleaProperties extends SortedProperties {
      * @return milliseconds for fade-out effect.
      */
     public int getSlideTransitionOutDuration() {
-        return Integer.parseInt(getProperty(slideTransitionOutDurationKey, "400"));
+        return getInt(slideTransitionOutDurationKey, "400");
     }
 
     /**
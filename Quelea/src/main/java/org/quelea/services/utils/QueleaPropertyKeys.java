@@ -31,6 +31,9 @@ public class QueleaPropertyKeys {
     public static final String maxFontSizeKey = "max.font.size";
     public static final String additionalLineSpacingKey = "additional.line.spacing";
     public static final String thumbnailSizeKey = "thumbnail.size";
+    public static final String slideCacheSizeKey = "slide.cache.size.mb";
+    public static final String imageCacheSizeKey = "image.cache.size.mb";
+    public static final String backgroundCacheSizeKey = "background.cache.size.mb";
     public static final String planningCentrePrevDaysKey = "planning.center.prev.days";
     public static final String showExtraLivePanelToolbarOptionsKey = "show.extra.live.panel.toolbar.options";
     public static final String linkPreviewAndLiveDividers = "link.preview.and.live.dividers";
@@ -92,6 +95,9 @@ public class QueleaPropertyKeys {
     public static final String useRemoteControlKey = "use.remote.control";
     public static final String remoteControlPortKey = "remote.control.port";
     public static final String remoteControlPasswordKey = "remote.control.password";
+    public static final String serverThreadsKey = "server.threads";
+    public static final String serverKeepAliveKey = "server.keepalive.seconds";
+    public static final String serverMaxIdleConnectionsKey = "server.max.idle.connections";
     public static final String smallSongTextHPositionKey = "small.song.text.h.position";
     public static final String smallSongTextVPositionKey = "small.song.text.v.position";
     public static final String smallSongTextSizeKey = "small.song.text.size";
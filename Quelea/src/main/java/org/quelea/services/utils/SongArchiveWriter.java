@@ -0,0 +1,195 @@
+/*
+ * This file is part of Quelea, free projection software for churches.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.quelea.services.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import org.quelea.data.displayable.SongDisplayable;
+import org.quelea.windows.main.StatusPanel;
+
+/**
+ * Writes songs to a zip file with one XML entry per song, as used for song
+ * packs and openlyrics exports.
+ * <p/>
+ * Songs are turned into XML in parallel, straight into bytes, while the zip
+ * file is written in order on the calling thread. Only a few songs ahead of
+ * the one being written are serialised at once, so memory use doesn't grow
+ * with the number of songs being exported. Those songs are pinned while
+ * they're in flight, so their content can't be unloaded and loaded again
+ * part way through.
+ *
+ * @author Michael
+ */
+public final class SongArchiveWriter {
+
+    private static final Logger LOGGER = LoggerUtils.getLogger();
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static final int SONGS_AHEAD = THREADS * 4;
+
+    /**
+     * Writes a single song as XML.
+     */
+    public interface SongSerialiser {
+
+        /**
+         * Write the given song. The document's ended and the writer closed
+         * once this returns.
+         *
+         * @param song the song to write.
+         * @param writer the writer to write the song to.
+         * @throws XMLStreamException if the song couldn't be written.
+         */
+        void write(SongDisplayable song, XMLStreamWriter writer) throws XMLStreamException;
+    }
+
+    private SongArchiveWriter() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Write the given songs to a zip file, one entry per song named after its
+     * title. If any song can't be written the export stops and the file is
+     * deleted, rather than leaving an archive with songs missing.
+     *
+     * @param file the zip file to write.
+     * @param songs the songs to write, in the order they should appear.
+     * @param serialiser writes each song as XML.
+     * @param panel the status panel to show progress on, or null if there
+     * isn't one.
+     * @throws IOException if the zip file or any of the songs couldn't be
+     * written.
+     */
+    public static void write(File file, List<SongDisplayable> songs, SongSerialiser serialiser, StatusPanel panel) throws IOException {
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS, r -> {
+            Thread thread = new Thread(r, "song-export-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        int written = 0;
+        int submitted = 0;
+        boolean complete = false;
+        try {
+            try (ZipOutputStream zos = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(file)), StandardCharsets.UTF_8)) {
+                Set<String> names = new HashSet<>();
+                for (SongDisplayable song : songs) {
+                    if (pending.size() >= SONGS_AHEAD) {
+                        writeEntry(zos, songs.get(written), pending.removeFirst(), names);
+                        written++;
+                        setProgress(panel, written, songs.size());
+                    }
+                    song.pin();
+                    pending.addLast(executor.submit(() -> serialise(song, serialiser)));
+                    submitted++;
+                }
+                while (!pending.isEmpty()) {
+                    writeEntry(zos, songs.get(written), pending.removeFirst(), names);
+                    written++;
+                    setProgress(panel, written, songs.size());
+                }
+            }
+            complete = true;
+        } finally {
+            executor.shutdownNow();
+            for (SongDisplayable song : songs.subList(submitted - pending.size(), submitted)) {
+                song.unpin();
+            }
+            if (!complete && !file.delete()) {
+                LOGGER.log(Level.WARNING, "Couldn't delete incomplete export {0}", file.getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * Write a song to its own XML document in memory.
+     *
+     * @param song the song.
+     * @param serialiser writes the song as XML.
+     * @return the UTF-8 bytes of the document.
+     * @throws XMLStreamException if the song couldn't be written.
+     */
+    private static byte[] serialise(SongDisplayable song, SongSerialiser serialiser) throws XMLStreamException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XMLStreamWriter writer = Utils.createXMLWriter(out);
+        serialiser.write(song, writer);
+        writer.writeEndDocument();
+        writer.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * Wait for a song to be serialised and write it as the next entry of the
+     * zip file, under a name that isn't already taken. The song's unpinned
+     * once it's been serialised, whether or not that worked.
+     *
+     * @param zos the zip file.
+     * @param song the song.
+     * @param xml the song's serialised XML.
+     * @param names the names already used in the zip file.
+     * @throws IOException if the song or the entry couldn't be written.
+     */
+    private static void writeEntry(ZipOutputStream zos, SongDisplayable song, Future<byte[]> xml, Set<String> names) throws IOException {
+        byte[] bytes;
+        try {
+            bytes = xml.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted writing songs");
+        } catch (ExecutionException ex) {
+            throw new IOException("Couldn't write " + song.getTitle(), ex.getCause());
+        } finally {
+            song.unpin();
+        }
+        String name = song.getTitle() + ".xml";
+        while (names.contains(name)) {
+            name = Utils.incrementExtension(name, "xml");
+        }
+        names.add(name);
+        zos.putNextEntry(new ZipEntry(name));
+        zos.write(bytes);
+        zos.closeEntry();
+    }
+
+    private static void setProgress(StatusPanel panel, int written, int total) {
+        if (panel != null) {
+            panel.setProgress((double) written / total);
+        }
+    }
+}
@@ -17,7 +17,6 @@
  */
 package org.quelea.services.utils;
 
-import org.apache.commons.text.similarity.LevenshteinDistance;
 import org.quelea.data.db.SongManager;
 import org.quelea.data.displayable.SongDisplayable;
 
@@ -33,51 +32,32 @@ public class SongDuplicateChecker {
         new SongDuplicateChecker().checkSongs(null);
     }
 
+    /**
+     * Check each of the given new songs against the songs already in the
+     * database, in the same way as {@link #checkSong(SongDisplayable)}.
+     *
+     * @param newSongs the new songs to check.
+     * @return for each new song, true if it's the same or similar to an
+     * existing song, false otherwise.
+     */
     public boolean[] checkSongs(SongDisplayable[] newSongs) {
-        final SongDisplayable[] songs = SongManager.get().getSongs();
-        final String[] songLyrics = new String[songs.length];
-        for (int i = 0; i < songLyrics.length; i++) {
-            songLyrics[i] = songs[i].getLyrics(false, false, false).replaceAll("[^\\p{L}]", "");
-        }
         boolean[] sameArr = new boolean[newSongs.length];
-        for(int i=0 ; i<newSongs.length ; i++) {
-            //System.out.println(i + " of " + newSongs.length);
-            SongDisplayable newSong = newSongs[i];
-            String newLyrics = newSong.getLyrics(false, false, false).replaceAll("[^\\p{L}]", "");
-            int distance = new AparapiLevenshteinDistance().leastCompare(newLyrics, songLyrics);
-            if(distance<30) {
-                sameArr[i] = true;
-            }
-            else {
-                sameArr[i] = false;
-            }
+        for (int i = 0; i < newSongs.length; i++) {
+            sameArr[i] = checkSong(newSongs[i]);
         }
         return sameArr;
     }
 
     /**
      * Checks whether the given new song is the same or similar to a song
-     * already existing in the database.
+     * already existing in the database. Only the songs the similarity index
+     * finds to be likely matches are compared in full.
      *
      * @param newSong the new song to check.
      * @return true if the song is the same or similar to an existing song,
      * false otherwise.
      */
     public boolean checkSong(SongDisplayable newSong) {
-        for(SongDisplayable databaseSong : SongManager.get().getSongs()) {
-            String databaseLyrics = databaseSong.getLyrics(false, false, false).replaceAll("[^\\p{L}]", "");
-            String newLyrics = newSong.getLyrics(false, false, false).replaceAll("[^\\p{L}]", "");
-            int maxDistance;
-            if(newLyrics.length() < databaseLyrics.length()) {
-                maxDistance = newLyrics.length() / 10;
-            }
-            else {
-                maxDistance = databaseLyrics.length() / 10;
-            }
-            if(new LevenshteinDistance().apply(databaseLyrics, newLyrics) <= maxDistance) {
-                return true;
-            }
-        }
-        return false;
+        return SongManager.get().getSimilarityIndex().findSimilar(newSong.getLyrics(false, false, false)) >= 0;
     }
 }
@@ -18,20 +18,18 @@
 package org.quelea.services.utils;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Enumeration;
-import java.util.HashSet;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
-import java.util.zip.ZipOutputStream;
+import javafx.application.Platform;
+import org.javafx.dialog.Dialog;
 import org.quelea.data.displayable.SongDisplayable;
 import org.quelea.services.languages.LabelGrabber;
 import org.quelea.windows.main.QueleaApp;
@@ -108,23 +106,13 @@ public class SongPack {
         final List<SongDisplayable> songDisplayablesThreadSafe = new ArrayList<>(songs);
         new Thread() {
             public void run() {
-                final HashSet<String> names = new HashSet<>();
-                try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(file), Charset.forName("UTF-8"))) {
-                    for (int i = 0; i < songDisplayablesThreadSafe.size(); i++) {
-                        SongDisplayable song = songDisplayablesThreadSafe.get(i);
-                        String name = song.getTitle() + ".xml";
-                        while (names.contains(name)) {
-                            name = Utils.incrementExtension(name, "xml");
-                        }
-                        names.add(name);
-                        zos.putNextEntry(new ZipEntry(name));
-                        zos.write(song.getXML().getBytes(StandardCharsets.UTF_8));
-                        zos.closeEntry();
-                        panel.setProgress((double) i / songDisplayablesThreadSafe.size());
-                    }
-                    panel.done();
+                try {
+                    SongArchiveWriter.write(file, songDisplayablesThreadSafe, (song, writer) -> song.writeXML(writer), panel);
                 } catch (IOException ex) {
                     LOGGER.log(Level.WARNING, "Couldn't write the song pack to file", ex);
+                    Platform.runLater(() -> Dialog.showError(LabelGrabber.INSTANCE.getLabel("error.text"), LabelGrabber.INSTANCE.getLabel("export.error.message")));
+                } finally {
+                    panel.done();
                 }
             }
         }.start();
@@ -35,6 +35,8 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
@@ -65,7 +67,6 @@ import java.util.zip.ZipFile;
 import javafx.application.Platform;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
-import javafx.collections.ObservableList;
 import javafx.embed.swing.SwingFXUtils;
 import javafx.event.EventHandler;
 import javafx.geometry.BoundingBox;
@@ -80,6 +81,9 @@ import javafx.scene.input.MouseEvent;
 import javafx.scene.paint.Color;
 import javafx.stage.Screen;
 import javafx.stage.Stage;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 import org.apache.commons.text.StringEscapeUtils;
 import org.javafx.dialog.Dialog;
 import org.mozilla.universalchardet.UniversalDetector;
@@ -98,6 +102,7 @@ import org.quelea.windows.main.StatusPanel;
 public final class Utils {
 
 	private static final Logger LOGGER = LoggerUtils.getLogger();
+	private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
 	public static final String TOOLBAR_BUTTON_STYLE = "-fx-background-insets: 0;-fx-background-color: rgba(0, 0, 0, 0);-fx-padding:3,6,3,6;-fx-text-fill: grey;";
 	public static final String HOVER_TOOLBAR_BUTTON_STYLE = "-fx-background-insets: 0;-fx-padding:3,6,3,6;-fx-text-fill: grey;";
 
@@ -388,34 +393,41 @@ public final class Utils {
 	 * the status panel.
 	 */
 	public static void updateSongInBackground(final SongDisplayable song, final boolean showError, final boolean silent) {
-		if (!song.checkDBUpdate() || song.isQuickInsert()) {
+		updateSongsInBackground(Collections.singletonList(song), showError, silent);
+	}
+
+	/**
+	 * Update a number of songs in the background, as one bulk update so the
+	 * search index is committed and the library refreshed once rather than
+	 * once per song.
+	 * <p/>
+	 * @param songs the songs to update.
+	 * @param showError true if an error should be shown if there's a problem
+	 * updating any of the songs, false otherwise.
+	 * @param silent true if we should update the songs without showing a bar
+	 * on the status panel.
+	 */
+	public static void updateSongsInBackground(final List<SongDisplayable> songs, final boolean showError, final boolean silent) {
+		final List<SongDisplayable> toUpdate = new ArrayList<>();
+		for (SongDisplayable song : songs) {
+			if (song.checkDBUpdate() && !song.isQuickInsert()) {
+				toUpdate.add(song);
+			}
+		}
+		if (toUpdate.isEmpty()) {
 			return;
 		}
 		final Runnable updateRunner = new Runnable() {
 			@Override
 			public void run() {
-				boolean result = SongManager.get().updateSong(song);
-				if (result && song.checkDBUpdate()) {
-					ObservableList<SongDisplayable> songs = QueleaApp.get().getMainWindow().getMainPanel().getLibraryPanel().getLibrarySongPanel().getSongList().getListView().getItems();
-					int replaceIdx = -1;
-					for (int i = 0; i < songs.size(); i++) {
-						if (song.getID() == songs.get(i).getID()) {
-							replaceIdx = i;
-							break;
-						}
+				//The library song list picks up the changes from the database listener
+				final boolean[] result = {true};
+				SongManager.get().bulkUpdate(() -> {
+					for (SongDisplayable song : toUpdate) {
+						result[0] &= SongManager.get().updateSong(song);
 					}
-					final int replaceIdxFi = replaceIdx;
-					if (replaceIdx != -1) {
-						Platform.runLater(new Runnable() {
-							@Override
-							public void run() {
-								songs.remove(replaceIdxFi);
-								songs.add(replaceIdxFi, song);
-							}
-						});
-					}
-				}
-				if (!result && showError) {
+				});
+				if (!result[0] && showError) {
 					Platform.runLater(new Runnable() {
 						@Override
 						public void run() {
@@ -577,6 +589,70 @@ public final class Utils {
 		return StringEscapeUtils.escapeXml11(s);
 	}
 
+	/**
+	 * Make the given string safe to write as XML text or an attribute value,
+	 * by leaving out any characters XML can't contain (such as control
+	 * characters and unpaired surrogates). The XML writer escapes everything
+	 * else itself.
+	 * <p/>
+	 * @param s the string, or null.
+	 * @return the string without any invalid characters, or an empty string
+	 * if it was null.
+	 */
+	public static String toXMLText(String s) {
+		if (s == null) {
+			return "";
+		}
+		int i = 0;
+		while (i < s.length() && isXMLChar(s.codePointAt(i))) {
+			i += Character.charCount(s.codePointAt(i));
+		}
+		if (i == s.length()) {
+			return s;
+		}
+		StringBuilder ret = new StringBuilder(s.length());
+		ret.append(s, 0, i);
+		while (i < s.length()) {
+			int c = s.codePointAt(i);
+			if (isXMLChar(c)) {
+				ret.appendCodePoint(c);
+			}
+			i += Character.charCount(c);
+		}
+		return ret.toString();
+	}
+
+	private static boolean isXMLChar(int c) {
+		return c == 0x9 || c == 0xA || c == 0xD
+				|| (c >= 0x20 && c <= 0xD7FF)
+				|| (c >= 0xE000 && c <= 0xFFFD)
+				|| (c >= 0x10000 && c <= 0x10FFFF);
+	}
+
+	/**
+	 * Create a writer that writes XML to the given writer as it's produced,
+	 * rather than building it up in memory.
+	 * <p/>
+	 * @param writer the writer to write the XML to.
+	 * @return the XML writer.
+	 * @throws XMLStreamException if the XML writer couldn't be created.
+	 */
+	public static XMLStreamWriter createXMLWriter(Writer writer) throws XMLStreamException {
+		return XML_OUTPUT_FACTORY.createXMLStreamWriter(writer);
+	}
+
+	/**
+	 * Create a writer that writes XML to the given stream as UTF-8 bytes as
+	 * it's produced, rather than building it up in memory.
+	 * <p/>
+	 * @param out the stream to write the XML to.
+	 * @return the XML writer.
+	 * @throws XMLStreamException if the XML writer couldn't be created.
+	 */
+	public static XMLStreamWriter createXMLWriter(OutputStream out) throws XMLStreamException {
+		return XML_OUTPUT_FACTORY.createXMLStreamWriter(out, "UTF-8");
+	}
+
 	public static synchronized String getTextFromFile(String fileName, String errorText) {
 		return getTextFromFile(fileName, errorText, "UTF-8");
 	}
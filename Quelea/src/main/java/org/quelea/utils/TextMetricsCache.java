@@ -0,0 +1,172 @@
+/*
+ * This file is part of Quelea, free projection software for churches.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.quelea.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javafx.scene.text.Font;
+
+/**
+ * Caches the measurements used to fit text onto a canvas. Text is measured
+ * once per font at a fixed reference size, and its size at any other size
+ * worked out by scaling, so picking a font size doesn't need the text laying
+ * out again at every size that's tried. The font sizes picked for each piece
+ * of text are remembered as well, so redrawing a slide doesn't fit it again.
+ * <p>
+ * Measurements are made on a Text node per font, so this may be used from any
+ * thread.
+ * <p>
+ * @author Michael
+ */
+public final class TextMetricsCache {
+
+    public static final TextMetricsCache INSTANCE = new TextMetricsCache();
+    private static final double REFERENCE_SIZE = 100;
+    private static final int MAX_WIDTHS = 50000;
+    private static final int MAX_FITS = 2000;
+    private final Map<String, FXFontMetrics> metrics;
+    private final Map<String, Double> widths;
+    private final Map<String, Double> fits;
+    private final LongAdder widthHits;
+    private final LongAdder widthMisses;
+    private final LongAdder fitHits;
+    private final LongAdder fitMisses;
+
+    private TextMetricsCache() {
+        metrics = new ConcurrentHashMap<>();
+        widths = new LruMap<>(MAX_WIDTHS);
+        fits = new LruMap<>(MAX_FITS);
+        widthHits = new LongAdder();
+        widthMisses = new LongAdder();
+        fitHits = new LongAdder();
+        fitMisses = new LongAdder();
+    }
+
+    /**
+     * Get the width of the given string in the given font.
+     * <p>
+     * @param font the font, at the size to measure the string at.
+     * @param str the string to measure.
+     * @return the width of the string.
+     */
+    public double getStringWidth(Font font, String str) {
+        String key = font.getName() + '\u0000' + str;
+        Double width;
+        synchronized (widths) {
+            width = widths.get(key);
+        }
+        if (width == null) {
+            widthMisses.increment();
+            FXFontMetrics fontMetrics = getMetrics(font);
+            synchronized (fontMetrics) {
+                width = fontMetrics.computeStringWidth(str);
+            }
+            synchronized (widths) {
+                widths.put(key, width);
+            }
+        } else {
+            widthHits.increment();
+        }
+        return width * font.getSize() / REFERENCE_SIZE;
+    }
+
+    /**
+     * Get the height of a line of text in the given font.
+     * <p>
+     * @param font the font, at the size to measure the line at.
+     * @return the height of a line.
+     */
+    public double getLineHeight(Font font) {
+        return getMetrics(font).getLineHeight() * font.getSize() / REFERENCE_SIZE;
+    }
+
+    /**
+     * Get the font size previously picked for some text.
+     * <p>
+     * @param key the key describing the text, its font and the space it was
+     * fitted into.
+     * @return the font size, or -1 if none's been picked for it.
+     */
+    public double getFontSize(String key) {
+        Double size;
+        synchronized (fits) {
+            size = fits.get(key);
+        }
+        if (size == null) {
+            fitMisses.increment();
+            return -1;
+        }
+        fitHits.increment();
+        return size;
+    }
+
+    /**
+     * Remember the font size picked for some text.
+     * <p>
+     * @param key the key describing the text, its font and the space it was
+     * fitted into.
+     * @param size the font size.
+     */
+    public void putFontSize(String key, double size) {
+        synchronized (fits) {
+            fits.put(key, size);
+        }
+    }
+
+    /**
+     * Get a summary of how well the cache is working.
+     * <p>
+     * @return the summary.
+     */
+    public String getSummary() {
+        int widthCount;
+        int fitCount;
+        synchronized (widths) {
+            widthCount = widths.size();
+        }
+        synchronized (fits) {
+            fitCount = fits.size();
+        }
+        return String.format("text metrics: %d width hits, %d width misses, %d widths, %d fit hits, %d fit misses, %d fits",
+                widthHits.sum(), widthMisses.sum(), widthCount, fitHits.sum(), fitMisses.sum(), fitCount);
+    }
+
+    private FXFontMetrics getMetrics(Font font) {
+        return metrics.computeIfAbsent(font.getName(), name -> new FXFontMetrics(new Font(name, REFERENCE_SIZE)));
+    }
+
+    /**
+     * A map that drops its least recently used entry once it's full.
+     */
+    private static final class LruMap<K, V> extends LinkedHashMap<K, V> {
+
+        private final int maxEntries;
+
+        private LruMap(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > maxEntries;
+        }
+    }
+}
@@ -214,6 +214,14 @@ public class ImageGroupPreview extends ScrollPane {
             }
             ensureVisible(selectedIndex);
         }
+        if (selectedSlide != null) {
+            if (selectedIndex < slides.length) {
+                slides[selectedIndex].prefetch();
+            }
+            if (selectedIndex >= 2) {
+                slides[selectedIndex - 2].prefetch();
+            }
+        }
         if (fireUpdate) {
             fireSlideChangedListeners();
         }
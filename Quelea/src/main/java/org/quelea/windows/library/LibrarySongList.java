@@ -17,7 +17,11 @@
  */
 package org.quelea.windows.library;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -46,6 +50,9 @@ import javafx.util.Callback;
 import org.quelea.data.db.SongManager;
 import org.quelea.data.displayable.SongDisplayable;
 import org.quelea.services.lucene.SongSearchIndex;
+import org.quelea.services.lucene.SongSearchResult;
+import org.quelea.services.utils.DatabaseChangeEvent;
+import org.quelea.services.utils.DatabaseListener;
 import org.quelea.services.utils.LoggerUtils;
 import org.quelea.services.utils.QueleaProperties;
 import org.quelea.utils.SongDisplayableList;
@@ -173,14 +180,15 @@ public class LibrarySongList extends StackPane {
         });
         songList.selectionModelProperty().get().selectedItemProperty().addListener((observable, oldSong, song) -> {
             popupMenu.setMultipleSelected(songList.getSelectionModel().getSelectedIndices().size()>1);
-            previewCanvas.setSong(song);
-            if (song != null && QueleaProperties.get().getShowDBSongPreview()) {
-                previewCanvas.show();
+            if (song == null || song.isContentLoaded()) {
+                showSelected(song);
             } else {
-                previewCanvas.hide();
-            }
-            if(QueleaProperties.get().getImmediateSongDBPreview()) {
-                QueleaApp.get().getMainWindow().getMainPanel().getPreviewPanel().setDisplayable(songList.getSelectionModel().getSelectedItem(), 0);
+                //Load the song off the platform thread, then show it if it's still the one selected
+                SongManager.get().prefetch(song).whenCompleteAsync((loaded, ex) -> {
+                    if (song == songList.getSelectionModel().getSelectedItem()) {
+                        showSelected(song);
+                    }
+                }, Platform::runLater);
             }
         });
         songList.setOnKeyPressed((KeyEvent t) -> {
@@ -192,10 +200,21 @@ public class LibrarySongList extends StackPane {
             songList.setCellFactory(DisplayableListCell.forListView(popupMenu, callback, null));
         }
         new Thread(this::refresh).start();
-        SongManager.get().registerDatabaseListener(this::refresh);
+        SongManager.get().registerDatabaseListener(new DatabaseListener() {
+            @Override
+            public void databaseChanged() {
+                refresh();
+            }
+
+            @Override
+            public void databaseChanged(DatabaseChangeEvent event) {
+                update(event);
+            }
+        });
     }
     private ExecutorService filterService = Executors.newSingleThreadExecutor();
     private Future<?> filterFuture;
+    private volatile String currentSearch;
 
     /**
      * Filter the results in this list by a specific search term.
@@ -210,51 +229,36 @@ public class LibrarySongList extends StackPane {
             setLoading(true);
         });
         LOGGER.log(Level.INFO, "Performing search for {0}", search);
+        currentSearch = search;
         filterFuture = filterService.submit(() -> {
             final ObservableList<SongDisplayable> songs = FXCollections.observableArrayList();
 
             // empty or null search strings do not need to be filtered - lest they get added twice
             if (search == null || search.trim().isEmpty() || Pattern.compile("[^\\w ]", Pattern.UNICODE_CHARACTER_CLASS).matcher(search).replaceAll("").isEmpty()) {
-                TreeSet<SongDisplayable> m = new TreeSet<>();
                 LOGGER.log(Level.INFO, "Empty song search performed");
-                for (SongDisplayable song : SongManager.get().getSongs()) {
+                for (SongDisplayable song : SongManager.get().getSongs()) { //Already sorted
                     song.setLastSearch(null);
-                    m.add(song);
+                    songs.add(song);
                 }
-                songs.addAll(m);
                 LOGGER.log(Level.INFO, "{0} songs in list", songs.size());
             } else {
-                TreeSet<SongDisplayable> m = new TreeSet<>();
-                LOGGER.log(Level.INFO, "Filtering songs by title");
-                SongDisplayable[] titleSongs = SongManager.get().getIndex().filter(search, SongSearchIndex.FilterType.TITLE);
-                LOGGER.log(Level.INFO, "Filtered songs by title");
-                for (SongDisplayable song : titleSongs) {
-                    song.setLastSearch(search);
-                    m.add(song);
-                }
-                songs.addAll(m);
-                m.clear();
-                LOGGER.log(Level.INFO, "{0} songs in list", songs.size());
-
-                LOGGER.log(Level.INFO, "Filtering songs by lyrics");
-                SongDisplayable[] lyricSongs = SongManager.get().getIndex().filter(search, SongSearchIndex.FilterType.BODY);
-                LOGGER.log(Level.INFO, "Filtered songs by lyrics");
-                for (SongDisplayable song : lyricSongs) {
-                    song.setLastSearch(null);
-                    m.add(song);
-                }
-                songs.addAll(m);
-                m.clear();
-                LOGGER.log(Level.INFO, "{0} songs in list", songs.size());
-
-                LOGGER.log(Level.INFO, "Filtering songs by author");
-                SongDisplayable[] authorSongs = SongManager.get().getIndex().filter(search, SongSearchIndex.FilterType.AUTHOR);
-                LOGGER.log(Level.INFO, "Filtered songs by author");
-                for (SongDisplayable song : authorSongs) {
-                    m.add(song);
+                LOGGER.log(Level.INFO, "Searching songs");
+                //Best matches first, songs that match equally well in alphabetical order
+                Comparator<SongDisplayable> alphabetical = SongManager.get().getSortIndex().comparator();
+                Set<SongDisplayable> shown = new TreeSet<>(alphabetical);
+                for (SongSearchResult result : SongManager.get().getIndex().search(search, alphabetical)) {
+                    SongDisplayable song = result.getSong();
+                    if (!shown.add(song)) {
+                        continue;
+                    }
+                    if (result.getMatchedField() == SongSearchIndex.FilterType.TITLE) {
+                        song.setLastSearch(search);
+                    } else {
+                        song.setLastSearch(null);
+                    }
+                    songs.add(song);
                 }
-                songs.addAll(m);
-                m.clear();
+                LOGGER.log(Level.INFO, "Searched songs");
                 LOGGER.log(Level.INFO, "{0} songs in list", songs.size());
             }
 
@@ -312,6 +316,62 @@ public class LibrarySongList extends StackPane {
         });
     }
 
+    /**
+     * Patch the list with the songs that have changed in the database, rather
+     * than reloading every song. If a search is active it's simply re-run,
+     * since the changed songs may or may not match it.
+     * <p/>
+     * @param event the songs that have changed.
+     */
+    private void update(DatabaseChangeEvent event) {
+        String search = currentSearch;
+        if (search != null && !search.trim().isEmpty()) {
+            filter(search);
+            return;
+        }
+        final List<SongDisplayable> changedSongs = new ArrayList<>();
+        for (long id : event.getAdded()) {
+            SongDisplayable song = SongManager.get().getSong(id);
+            if (song != null) {
+                changedSongs.add(song);
+            }
+        }
+        for (long id : event.getUpdated()) {
+            SongDisplayable song = SongManager.get().getSong(id);
+            if (song != null) {
+                changedSongs.add(song);
+            }
+        }
+        Platform.runLater(() -> {
+            ObservableList<SongDisplayable> songs = songList.getItems();
+            songs.removeIf(song -> event.getUpdated().contains(song.getID()) || event.getRemoved().contains(song.getID()));
+            for (SongDisplayable song : changedSongs) {
+                song.setLastSearch(null);
+                int pos = Collections.binarySearch(songs, song);
+                songs.add(pos < 0 ? -pos - 1 : pos, song);
+            }
+        });
+    }
+
+    /**
+     * Show the selected song on the preview canvas, and on the preview panel
+     * if songs should be previewed as soon as they're selected.
+     * <p/>
+     *
+     * @param song the selected song, or null if none is selected.
+     */
+    private void showSelected(SongDisplayable song) {
+        previewCanvas.setSong(song);
+        if (song != null && QueleaProperties.get().getShowDBSongPreview()) {
+            previewCanvas.show();
+        } else {
+            previewCanvas.hide();
+        }
+        if(QueleaProperties.get().getImmediateSongDBPreview()) {
+            QueleaApp.get().getMainWindow().getMainPanel().getPreviewPanel().setDisplayable(song, 0);
+        }
+    }
+
     private boolean hasMultipleSelected() {
         return songList.getSelectionModel().getSelectedItems().size() > 1;
     }
@@ -40,6 +40,7 @@ public class LibrarySongPreviewCanvas extends StackPane {
     private FadeTransition trans;
     private DisplayCanvas canvas;
     private SongDisplayable displayable;
+    private boolean videoReleased;
 
     /**
      * Create the loading pane.
@@ -78,6 +79,10 @@ public class LibrarySongPreviewCanvas extends StackPane {
      */
     public synchronized void show() {
         setVisible(true);
+        if (videoReleased) {
+            videoReleased = false;
+            canvas.update();
+        }
         if (trans != null) {
             trans.stop();
         }
@@ -103,6 +108,11 @@ public class LibrarySongPreviewCanvas extends StackPane {
             @Override
             public void handle(ActionEvent t) {
                 setVisible(false);
+                //Nothing's decoding a video background for a preview no-one can see
+                if (canvas.getVideo() != null) {
+                    canvas.releaseVideo();
+                    videoReleased = true;
+                }
             }
         });
     }
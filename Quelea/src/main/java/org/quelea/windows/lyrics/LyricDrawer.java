@@ -23,6 +23,10 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 import javafx.animation.FadeTransition;
@@ -45,6 +49,7 @@ import javafx.scene.text.FontPosture;
 import javafx.scene.text.FontWeight;
 import javafx.util.Duration;
 import org.quelea.data.ColourBackground;
+import org.quelea.data.GlobalThemeStore;
 import org.quelea.data.ImageBackground;
 import org.quelea.data.ThemeDTO;
 import org.quelea.data.VideoBackground;
@@ -58,12 +63,13 @@ import org.quelea.services.utils.LineTypeChecker.Type;
 import org.quelea.services.utils.LyricLine;
 import org.quelea.services.utils.QueleaProperties;
 import org.quelea.services.utils.Utils;
+import org.quelea.windows.main.DisplayCanvas;
 import org.quelea.windows.main.QueleaApp;
 import org.quelea.windows.main.WordDrawer;
 import org.quelea.windows.main.widgets.DisplayPositionSelector;
 import org.quelea.utils.FXFontMetrics;
 import org.quelea.utils.WrapTextResult;
-import org.quelea.windows.video.VidDisplay;
+import org.quelea.windows.video.SharedVideo;
 
 /**
  * Responsible for drawing lyrics and their background.
@@ -73,6 +79,19 @@ import org.quelea.windows.video.VidDisplay;
  */
 public class LyricDrawer extends WordDrawer {
 
+    private static final ExecutorService LAYOUT_EXECUTOR;
+
+    static {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "slide-layout");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        LAYOUT_EXECUTOR = executor;
+    }
+
     private String[] text;
     private String[] translations;
     private Group textGroup;
@@ -84,7 +103,6 @@ public class LyricDrawer extends WordDrawer {
     private Group oldTextGroup;
     private String[] oldText;
     private boolean newItem;
-    private VidDisplay vidDisplay;
 
     public LyricDrawer() {
         text = new String[]{};
@@ -92,8 +110,6 @@ public class LyricDrawer extends WordDrawer {
         textGroup = new Group();
         smallTextGroup = new Group();
         lastClearedState = new HashMap<>();
-        vidDisplay = new VidDisplay();
-        vidDisplay.setLoop(true);
     }
 
     protected void drawText(double defaultFontSize, boolean dumbWrap) {
@@ -397,19 +413,22 @@ public class LyricDrawer extends WordDrawer {
         Image image = null;
         ColorAdjust colourAdjust = null;
         final ImageView newImageView = getCanvas().getNewImageView();
+        if (!(theme.getBackground() instanceof VideoBackground)) {
+            getCanvas().releaseVideo();
+        }
         if (theme.getBackground() instanceof ImageBackground) {
-            image = ((ImageBackground) theme.getBackground()).getImage();
+            image = ((ImageBackground) theme.getBackground()).getImage(getCanvas().getWidth(), getCanvas().getHeight());
         } else if (theme.getBackground() instanceof ColourBackground) {
             Color color = ((ColourBackground) theme.getBackground()).getColour();
             image = Utils.getImageFromColour(color);
         } else if (theme.getBackground() instanceof VideoBackground) {
             var uri = ((VideoBackground) theme.getBackground()).getVideoFile().toURI();
-            if(!Objects.equals(vidDisplay.getUri(), uri)) {
-                vidDisplay.stop();
-                vidDisplay.setURI(uri);
-                vidDisplay.play();
+            SharedVideo video = getCanvas().getVideo();
+            if (video == null || !Objects.equals(video.getUri(), uri)) {
+                video = SharedVideo.acquire(uri);
+                getCanvas().setVideo(video);
             }
-            newImageView.imageProperty().bind(vidDisplay.imageProperty());
+            newImageView.imageProperty().bind(video.imageProperty());
 
         } else {
             LOGGER.log(Level.SEVERE, "Bug: Unhandled theme background case, trying to use default background: " + theme.getBackground(), new RuntimeException("DEBUG EXCEPTION FOR STACK TRACE"));
@@ -547,13 +566,28 @@ public class LyricDrawer extends WordDrawer {
         if (!QueleaProperties.get().getUseUniformFontSize()) {
             return -1;
         }
+        return getUniformFontSize(displayable, theme, QueleaProperties.get().getMaxFontSize() * canvasScalingFactor(),
+                getCanvas().getWidth(), getCanvas().getHeight(), getLineSpacing());
+    }
 
-        // Retrieve and scale the max font size for this canvas
-        double maxFontSizeForCanvas = QueleaProperties.get().getMaxFontSize();
-        maxFontSizeForCanvas *= canvasScalingFactor();
-
-        int width = (int) (getCanvas().getWidth() * QueleaProperties.get().getLyricWidthBounds());
-        int height = (int) (getCanvas().getHeight() * QueleaProperties.get().getLyricHeightBounds());
+    /**
+     * Determine the largest font size we can safely use for every section of a
+     * text displayable, in the given theme on a canvas of the given size. This
+     * doesn't read the canvas itself, so may be called from any thread.
+     * <p>
+     *
+     * @param displayable the displayable to check.
+     * @param textTheme the theme the displayable is shown in.
+     * @param maxFontSizeForCanvas the maximum font size, scaled for the canvas.
+     * @param canvasWidth the width of the canvas.
+     * @param canvasHeight the height of the canvas.
+     * @param spacing the additional space between lines on the canvas.
+     * @return the font size to use
+     */
+    private double getUniformFontSize(TextDisplayable displayable, ThemeDTO textTheme, double maxFontSizeForCanvas,
+            double canvasWidth, double canvasHeight, double spacing) {
+        int width = (int) (canvasWidth * QueleaProperties.get().getLyricWidthBounds());
+        int height = (int) (canvasHeight * QueleaProperties.get().getLyricHeightBounds());
 
         if (displayable instanceof BiblePassage) {
             height *= 1 - QueleaProperties.get().getSmallBibleTextSize();
@@ -565,10 +599,10 @@ public class LyricDrawer extends WordDrawer {
         if (cachedSize != null) {
             return cachedSize;
         }
-        Font font = theme.getFont();
+        Font font = textTheme.getFont();
         font = Font.font(font.getName(),
-                theme.isBold() ? FontWeight.BOLD : FontWeight.NORMAL,
-                theme.isItalic() ? FontPosture.ITALIC : FontPosture.REGULAR,
+                textTheme.isBold() ? FontWeight.BOLD : FontWeight.NORMAL,
+                textTheme.isItalic() ? FontPosture.ITALIC : FontPosture.REGULAR,
                 maxFontSizeForCanvas);
         double fontSize = Double.POSITIVE_INFINITY;
         for (int i = 0; i < displayable.getSections().length; i++) {
@@ -583,13 +617,8 @@ public class LyricDrawer extends WordDrawer {
                     fontSize = result.getFontSize();
                 }
             } else {
-                String[] translationArr = null;
-                String translationLyrics = ((SongDisplayable) displayable).getCurrentTranslationSection(i);
-                if (translationLyrics != null) {
-                    translationArr = translationLyrics.split("\n");
-                }
-                processedText = sanctifyText(textArr, translationArr);
-                newSize = pickFontSize(font, processedText, width, height);
+                processedText = sanctifyText(textArr, getTranslation((SongDisplayable) displayable, i));
+                newSize = pickFontSize(font, processedText, width, height, spacing);
                 if (newSize < fontSize) {
                     fontSize = newSize;
                 }
@@ -602,6 +631,70 @@ public class LyricDrawer extends WordDrawer {
         return fontSize;
     }
 
+    private static String[] getTranslation(SongDisplayable song, int index) {
+        String translationLyrics = song.getCurrentTranslationSection(index);
+        if (translationLyrics == null) {
+            return null;
+        }
+        return translationLyrics.split("\n");
+    }
+
+    /**
+     * Work out the layout of every section of the given displayable on the
+     * given canvas in the background, so it's ready by the time the
+     * displayable's shown and showing it doesn't hold up the FX thread. This
+     * is the uniform font size if it's in use, and the font size each section
+     * is then fitted at.
+     * <p>
+     * Must be called on the FX thread, which is where the canvas and themes
+     * are read from.
+     * <p>
+     *
+     * @param displayable the displayable to lay out.
+     * @param canvas the canvas the displayable will be shown on.
+     */
+    public void precomputeLayout(TextDisplayable displayable, DisplayCanvas canvas) {
+        Utils.checkFXThread();
+        TextSection[] sections = displayable.getSections();
+        if (sections.length == 0 || canvas.getWidth() <= 0 || canvas.getHeight() <= 0 || QueleaApp.get().getMainWindow() == null) {
+            return;
+        }
+        GlobalThemeStore themeStore = QueleaApp.get().getMainWindow().getGlobalThemeStore();
+        ThemeDTO[] themes = new ThemeDTO[sections.length];
+        for (int i = 0; i < sections.length; i++) {
+            themes[i] = themeStore.getTheme(displayable, sections[i]);
+            if (themes[i] == null) {
+                themes[i] = ThemeDTO.DEFAULT_THEME;
+            }
+        }
+        boolean uniform = QueleaProperties.get().getUseUniformFontSize();
+        double maxFontSize = QueleaProperties.get().getMaxFontSize() * canvasScalingFactor(canvas);
+        double canvasWidth = canvas.getWidth();
+        double canvasHeight = canvas.getHeight();
+        double width = canvasWidth * QueleaProperties.get().getLyricWidthBounds();
+        double height = canvasHeight * QueleaProperties.get().getLyricHeightBounds();
+        double spacing = getLineSpacing(canvas);
+        LAYOUT_EXECUTOR.execute(() -> {
+            try {
+                double uniformFontSize = uniform ? getUniformFontSize(displayable, themes[0], maxFontSize, canvasWidth, canvasHeight, spacing) : -1;
+                if (displayable instanceof BiblePassage) {
+                    return;
+                }
+                for (int i = 0; i < sections.length; i++) {
+                    ThemeDTO sectionTheme = themes[i];
+                    Font font = Font.font(sectionTheme.getFont().getFamily(),
+                            sectionTheme.isBold() ? FontWeight.BOLD : FontWeight.NORMAL,
+                            sectionTheme.isItalic() ? FontPosture.ITALIC : FontPosture.REGULAR,
+                            uniformFontSize < 1 ? maxFontSize : uniformFontSize);
+                    List<LyricLine> lines = sanctifyText(sections[i].getText(false, false), getTranslation((SongDisplayable) displayable, i));
+                    pickFontSize(font, lines, width, height, spacing);
+                }
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.WARNING, "Couldn't lay out " + displayable.getPreviewText() + " ahead of time", ex);
+            }
+        });
+    }
+
     @Override
     public void setText(TextDisplayable displayable, int index) {
         boolean fade = curDisplayable != displayable;
@@ -611,10 +704,7 @@ public class LyricDrawer extends WordDrawer {
         bigText = displayable.getSections()[index].getText(false, false);
         String[] translationArr = null;
         if (displayable instanceof SongDisplayable) {
-            String translationText = ((SongDisplayable) displayable).getCurrentTranslationSection(index);
-            if (translationText != null) {
-                translationArr = translationText.split("\n");
-            }
+            translationArr = getTranslation((SongDisplayable) displayable, index);
         }
 
         String[] smallText = displayable.getSections()[index].getSmallText();
@@ -17,10 +17,13 @@
  */
 package org.quelea.windows.lyrics;
 
+import javafx.animation.PauseTransition;
 import javafx.geometry.Orientation;
 import javafx.scene.control.SplitPane;
+import javafx.util.Duration;
 import org.quelea.data.GlobalThemeStore;
 import org.quelea.data.ThemeDTO;
+import org.quelea.data.displayable.Displayable;
 import org.quelea.data.displayable.SongDisplayable;
 import org.quelea.data.displayable.TextDisplayable;
 import org.quelea.data.displayable.TextSection;
@@ -53,6 +56,7 @@ public class SelectLyricsPanel extends AbstractPanel {
     private final SplitPane splitPane;
     private final LyricDrawer lyricDrawer;
     private final StageDrawer stageDrawer;
+    private final PauseTransition layoutDelay;
 
     /**
      * Create a new lyrics panel.
@@ -63,6 +67,8 @@ public class SelectLyricsPanel extends AbstractPanel {
     public SelectLyricsPanel(LivePreviewPanel containerPanel) {
         lyricDrawer = new LyricDrawer();
         stageDrawer = new StageDrawer();
+        layoutDelay = new PauseTransition(Duration.millis(500));
+        layoutDelay.setOnFinished(t -> precomputeScheduleLayouts());
         splitPane = new SplitPane();
         splitPane.setOrientation(Orientation.VERTICAL);
         lyricsList = new SelectLyricsList();
@@ -110,6 +116,48 @@ public class SelectLyricsPanel extends AbstractPanel {
         lyricsList.setOneLineMode(on);
     }
 
+    /**
+     * Register a display canvas with this panel, laying out the schedule again
+     * once the canvas has finished changing size.
+     * <p/>
+     *
+     * @param canvas the canvas to register.
+     */
+    @Override
+    public void registerDisplayCanvas(DisplayCanvas canvas) {
+        super.registerDisplayCanvas(canvas);
+        if (!canvas.isStageView()) {
+            canvas.widthProperty().addListener((ov, t, t1) -> layoutDelay.playFromStart());
+            canvas.heightProperty().addListener((ov, t, t1) -> layoutDelay.playFromStart());
+        }
+    }
+
+    /**
+     * Work out the layout of the given displayable on each of this panel's
+     * canvases in the background, so it's ready when it's shown here.
+     * <p/>
+     *
+     * @param displayable the displayable to lay out.
+     */
+    public void precomputeLayout(TextDisplayable displayable) {
+        for (DisplayCanvas canvas : getCanvases()) {
+            if (!canvas.isStageView()) {
+                lyricDrawer.precomputeLayout(displayable, canvas);
+            }
+        }
+    }
+
+    private void precomputeScheduleLayouts() {
+        if (QueleaApp.get().getMainWindow() == null || QueleaApp.get().getMainWindow().getMainPanel() == null) {
+            return;
+        }
+        for (Displayable displayable : QueleaApp.get().getMainWindow().getMainPanel().getSchedulePanel().getScheduleList().getItems()) {
+            if (displayable instanceof TextDisplayable) {
+                precomputeLayout((TextDisplayable) displayable);
+            }
+        }
+    }
+
     @Override
     public void requestFocus() {
         lyricsList.requestFocus();
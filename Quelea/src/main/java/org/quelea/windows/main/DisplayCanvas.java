@@ -27,10 +27,12 @@ import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
+import javafx.scene.Scene;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
+import javafx.stage.Window;
 import javafx.util.Duration;
 import org.quelea.services.notice.NoticeDrawer;
 import org.quelea.services.notice.NoticeOverlay;
@@ -38,6 +40,7 @@ import org.quelea.services.utils.LoggerUtils;
 import org.quelea.services.utils.QueleaProperties;
 import org.quelea.services.utils.Utils;
 import org.quelea.windows.main.widgets.LogoImage;
+import org.quelea.windows.video.SharedVideo;
 
 /**
  * The canvas where the lyrics / images / media are drawn.
@@ -59,6 +62,8 @@ public class DisplayCanvas extends StackPane {
     private final Node noticeOverlay;
     private final CanvasUpdater updater;
     private Priority drawingPriority;
+    private SharedVideo video;
+    private boolean videoReleased;
 
     public enum Type {
 
@@ -161,6 +166,59 @@ public class DisplayCanvas extends StackPane {
         };
         noticeOverlay.setCache(true);
         getChildren().add(noticeOverlay);
+
+        if (updater != null) {
+            //Only canvases that can draw themselves again can give up their video while they're not shown
+            sceneProperty().flatMap(Scene::windowProperty).flatMap(Window::showingProperty).addListener((ov, wasShowing, showing) -> {
+                if (Boolean.TRUE.equals(showing)) {
+                    if (videoReleased) {
+                        videoReleased = false;
+                        update();
+                    }
+                } else if (video != null) {
+                    releaseVideo();
+                    videoReleased = true;
+                }
+            });
+        }
+    }
+
+    /**
+     * Get the shared video shown as the background of this canvas.
+     * <p/>
+     *
+     * @return the video, or null if there isn't one.
+     */
+    public SharedVideo getVideo() {
+        return video;
+    }
+
+    /**
+     * Show the given shared video as the background of this canvas, releasing
+     * the one shown before. The canvas takes over the reference the caller
+     * acquired, so every drawer drawing on this canvas shares one reference
+     * rather than each holding on to its own.
+     * <p/>
+     *
+     * @param video the video, or null to stop showing one.
+     */
+    public void setVideo(SharedVideo video) {
+        SharedVideo old = this.video;
+        this.video = video;
+        if (old != null) {
+            old.release();
+        }
+    }
+
+    /**
+     * Release the video shown on this canvas, if there is one; it's acquired
+     * again when the canvas is next drawn with a video background. Canvases
+     * that can redraw themselves do this when their window is hidden or
+     * they're taken out of it, and draw themselves again when they're next
+     * shown.
+     */
+    public void releaseVideo() {
+        setVideo(null);
     }
 
     /**
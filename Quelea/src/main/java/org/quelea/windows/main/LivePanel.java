@@ -23,6 +23,7 @@ import java.util.HashSet;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -87,6 +88,7 @@ public class LivePanel extends LivePreviewPanel {
     private WritableImage webPreviewImage;
     private ScheduledExecutorService updateWebPreview;
     private Dialog focusDialog;
+    private final AtomicLong contentVersion = new AtomicLong();
 
     /**
      * Create a new live lyrics panel.
@@ -410,6 +412,29 @@ public class LivePanel extends LivePreviewPanel {
                 }
             }
         });
+        getLyricsPanel().getLyricsList().getSelectionModel().selectedItemProperty().addListener((ov, oldVal, newVal) -> contentChanged());
+        for (ToggleButton toggle : new ToggleButton[]{logo, black, clear, hide}) {
+            toggle.selectedProperty().addListener((ov, oldVal, newVal) -> contentChanged());
+        }
+    }
+
+    /**
+     * Note that what's live has changed, so anything showing it elsewhere
+     * (such as the mobile lyrics clients) knows to update.
+     */
+    private void contentChanged() {
+        contentVersion.incrementAndGet();
+    }
+
+    /**
+     * Get a number that changes whenever what's live does: the displayable,
+     * the selected section, or whether the content's showing at all.
+     * <p/>
+     *
+     * @return the version of the live content.
+     */
+    public long getContentVersion() {
+        return contentVersion.get();
     }
 
     /**
@@ -494,7 +519,11 @@ public class LivePanel extends LivePreviewPanel {
                 canvas.makeClickable(false);
             }
         }
+        if (oldD != d && QueleaApp.get().getMainWindow() != null && QueleaApp.get().getMainWindow().getMainPanel() != null) {
+            QueleaApp.get().getMainWindow().getMainPanel().getSchedulePanel().getScheduleList().liveDisplayableChanged(d);
+        }
         oldD = d;
+        contentChanged();
     }
 
     /**
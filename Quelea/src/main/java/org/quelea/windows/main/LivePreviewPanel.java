@@ -230,7 +230,7 @@ public abstract class LivePreviewPanel extends BorderPane {
      * Clear all the contained panels to a null displayable.
      */
     public void removeDisplayable() {
-        displayable = null;
+        setShownDisplayable(null);
         if (PRESENTATION_LABEL.equals(currentLabel)) {
             presentationPanel.showDisplayable(null, 0);
         }
@@ -358,6 +358,22 @@ public abstract class LivePreviewPanel extends BorderPane {
         return lyricsPanel;
     }
 
+    /**
+     * Change the displayable this panel holds, keeping the content of a song
+     * pinned in memory for as long as it's shown here.
+     *
+     * @param displayable the new displayable, or null if there isn't one.
+     */
+    private void setShownDisplayable(Displayable displayable) {
+        if (displayable instanceof SongDisplayable) {
+            ((SongDisplayable) displayable).pin();
+        }
+        if (this.displayable instanceof SongDisplayable) {
+            ((SongDisplayable) this.displayable).unpin();
+        }
+        this.displayable = displayable;
+    }
+
     /**
      * Set the displayable shown on this panel.
      * <p/>
@@ -373,7 +389,7 @@ public abstract class LivePreviewPanel extends BorderPane {
 
         QueleaApp.get().getMainWindow().getMainPanel().getSchedulePanel().getScheduleList().getListView().refresh();
 
-        this.displayable = displayable;
+        setShownDisplayable(displayable);
         presentationPanel.stopCurrent();
         pdfPanel.stopCurrent();
         imageGroupPanel.stopCurrent();
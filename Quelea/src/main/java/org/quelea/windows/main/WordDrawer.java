@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.function.DoublePredicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javafx.scene.image.ImageView;
@@ -35,6 +36,7 @@ import org.quelea.services.utils.LyricLine;
 import org.quelea.services.utils.QueleaProperties;
 import org.quelea.utils.Chord;
 import org.quelea.utils.FXFontMetrics;
+import org.quelea.utils.TextMetricsCache;
 import org.quelea.utils.WrapTextResult;
 
 /**
@@ -43,6 +45,7 @@ import org.quelea.utils.WrapTextResult;
  */
 public abstract class WordDrawer extends DisplayableDrawer {
 
+    private static final double FONT_SIZE_STEP = 0.5;
     protected Map<DisplayCanvas, Boolean> lastClearedState;
     protected static final Logger LOGGER = LoggerUtils.getLogger();
 
@@ -130,26 +133,68 @@ public abstract class WordDrawer extends DisplayableDrawer {
      * width and height provided.
      */
     protected double pickFontSize(Font font, List<LyricLine> text, double width, double height) {
-        FXFontMetrics metrics = new FXFontMetrics(font);
-        double totalHeight = ((metrics.getLineHeight() + getLineSpacing()) * text.size());
-        while (totalHeight > height) {
-            font = new Font(font.getName(), font.getSize() - 0.5);
-            if (font.getSize() < 1) {
-                return 1;
-            }
-            metrics = new FXFontMetrics(font);
-            totalHeight = (metrics.getLineHeight() + getLineSpacing()) * text.size();
+        return pickFontSize(font, text, width, height, getLineSpacing());
+    }
+
+    /**
+     * Pick a font size for the specified font that fits the given text into the
+     * width and height provided, with the given spacing between lines. This
+     * doesn't depend on the current canvas, so may be called from any thread.
+     * <p>
+     * @param font the font to use for calculations.
+     * @param text the text to fit.
+     * @param width the fit width.
+     * @param height the fit height.
+     * @param spacing the additional space between lines.
+     * @return a font size for the specified font that fits the text into the
+     * width and height provided.
+     */
+    protected double pickFontSize(Font font, List<LyricLine> text, double width, double height, double spacing) {
+        StringBuilder key = new StringBuilder();
+        key.append(font.getName()).append('|').append(font.getSize()).append('|').append(width).append('|').append(height).append('|').append(spacing);
+        for (LyricLine line : text) {
+            key.append('\n').append(line.getLine());
+        }
+        double ret = TextMetricsCache.INSTANCE.getFontSize(key.toString());
+        if (ret < 0) {
+            ret = searchFontSize(font.getSize(), size -> {
+                Font sized = new Font(font.getName(), size);
+                return (TextMetricsCache.INSTANCE.getLineHeight(sized) + spacing) * text.size() <= height
+                        && longestLine(sized, text) <= width;
+            });
+            TextMetricsCache.INSTANCE.putFontSize(key.toString(), ret);
         }
+        return ret;
+    }
 
-        double totalWidth = longestLine(font, text);
-        while (totalWidth > width) {
-            font = new Font(font.getName(), font.getSize() - 0.5);
-            if (font.getSize() < 1) {
-                return 1;
+    /**
+     * Find the biggest font size, stepping down from the given size by half
+     * a point at a time, at which the text fits. Text that fits at one size
+     * fits at every smaller size, so this is a binary search over the sizes
+     * rather than trying each one in turn.
+     * <p>
+     * @param max the biggest font size to use.
+     * @param fits tests whether the text fits at a given size.
+     * @return the font size, or 1 if the text doesn't fit at any size.
+     */
+    static double searchFontSize(double max, DoublePredicate fits) {
+        if (fits.test(max)) {
+            return max;
+        }
+        int lo = 0;
+        int hi = (int) Math.floor((max - 1) / FONT_SIZE_STEP);
+        if (hi <= 0 || !fits.test(max - hi * FONT_SIZE_STEP)) {
+            return 1;
+        }
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            if (fits.test(max - mid * FONT_SIZE_STEP)) {
+                hi = mid;
+            } else {
+                lo = mid;
             }
-            totalWidth = longestLine(font, text);
         }
-        return font.getSize();
+        return max - hi * FONT_SIZE_STEP;
     }
 
     /**
@@ -160,13 +205,17 @@ public abstract class WordDrawer extends DisplayableDrawer {
     }
 
     protected double getLineSpacing() {
+        return getLineSpacing(getCanvas());
+    }
+
+    protected double getLineSpacing(DisplayCanvas canvas) {
         double space = QueleaProperties.get().getAdditionalLineSpacing();
-        double factor = getCanvas().getHeight() / 1000.0;
+        double factor = canvas.getHeight() / 1000.0;
         return space * factor;
     }
 
     protected int longestLine(Font font, List<LyricLine> text) {
-        FXFontMetrics metrics = new FXFontMetrics(font);
+        TextMetricsCache metrics = TextMetricsCache.INSTANCE;
         int longestLine = 0;
         for (int i = 0; i < text.size(); i++) {
             LyricLine line = text.get(i);
@@ -180,7 +229,7 @@ public abstract class WordDrawer extends DisplayableDrawer {
 
                 int maxX = 0;
                 for (Chord chord : chords) {
-                    int x = (int) metrics.computeStringWidth(nextLine.substring(0, chord.getIdx())) + (int) metrics.computeStringWidth(chord.getChord());
+                    int x = (int) metrics.getStringWidth(font, nextLine.substring(0, chord.getIdx())) + (int) metrics.getStringWidth(font, chord.getChord());
                     if (x > maxX) {
                         maxX = x;
                     }
@@ -190,7 +239,7 @@ public abstract class WordDrawer extends DisplayableDrawer {
                 }
 
             } else {
-                int lineWidth = (int)metrics.computeStringWidth(line.getLine());
+                int lineWidth = (int)metrics.getStringWidth(font, line.getLine());
                 if(lineWidth>longestLine) {
                     longestLine = lineWidth;
                 }
@@ -200,11 +249,10 @@ public abstract class WordDrawer extends DisplayableDrawer {
     }
 
     protected String longestLine(Font font, ArrayList<String> text) {
-        FXFontMetrics metrics = new FXFontMetrics(font);
         double longestWidth = -1;
         String longestStr = null;
         for (String line : text) {
-            double width = metrics.computeStringWidth(line);
+            double width = TextMetricsCache.INSTANCE.getStringWidth(font, line);
             if (width > longestWidth) {
                 longestWidth = width;
                 longestStr = line;
@@ -270,7 +318,6 @@ public abstract class WordDrawer extends DisplayableDrawer {
     }
 
     protected double pickSmallFontSize(Font font, String[] text, double width, double height) {
-        FXFontMetrics metrics = new FXFontMetrics(font);
         ArrayList<String> al = new ArrayList<>();
         for (String te : text) {
             if (al.contains("\n")) {
@@ -280,28 +327,13 @@ public abstract class WordDrawer extends DisplayableDrawer {
                 al.add(te);
             }
         }
-        double totalHeight = ((metrics.getLineHeight() + getLineSpacing()) * al.size());
-        while (totalHeight > height) {
-            font = new Font(font.getName(), font.getSize() - 0.5);
-            if (font.getSize() < 1) {
-                return 1;
-            }
-            metrics = new FXFontMetrics(font);
-            totalHeight = (metrics.getLineHeight() + getLineSpacing()) * al.size();
-        }
-
+        double spacing = getLineSpacing();
         String longestLine = longestLine(font, al);
-        double totalWidth = metrics.computeStringWidth(longestLine);
-        while (totalWidth > width) {
-            font = new Font(font.getName(), font.getSize() - 0.5);
-            if (font.getSize() < 1) {
-                return 1;
-            }
-            metrics = new FXFontMetrics(font);
-            totalWidth = metrics.computeStringWidth(longestLine);
-        }
-
-        return font.getSize();
+        return searchFontSize(font.getSize(), size -> {
+            Font sized = new Font(font.getName(), size);
+            return (TextMetricsCache.INSTANCE.getLineHeight(sized) + spacing) * al.size() <= height
+                    && (longestLine == null || TextMetricsCache.INSTANCE.getStringWidth(sized, longestLine) <= width);
+        });
     }
 
     /**
@@ -313,11 +345,22 @@ public abstract class WordDrawer extends DisplayableDrawer {
      * @return The scaling factor for this canvas
      */
     protected double canvasScalingFactor() {
+        return canvasScalingFactor(getCanvas());
+    }
+
+    /**
+     * Returns the scaling factor of the given canvas when compared to the
+     * canvas of the Projection Window.
+     * <p>
+     * @param canvas the canvas to get the scaling factor of.
+     * @return The scaling factor for the canvas
+     */
+    protected double canvasScalingFactor(DisplayCanvas canvas) {
         double scalingFactor = 1;
 
         // If there is a projection window, and it has some size (avoid divide by zero errors!)
         if (QueleaApp.get().getProjectionWindow() != null && QueleaApp.get().getProjectionWindow().getWidth() != 0) {
-            scalingFactor = getCanvas().getWidth() / QueleaApp.get().getProjectionWindow().getWidth();
+            scalingFactor = canvas.getWidth() / QueleaApp.get().getProjectionWindow().getWidth();
         }
 
         return scalingFactor;
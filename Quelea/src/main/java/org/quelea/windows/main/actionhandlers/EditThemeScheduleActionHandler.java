@@ -96,6 +96,7 @@ public class EditThemeScheduleActionHandler implements EventHandler<ActionEvent>
                     displayableList = new ArrayList<>();
                     displayableList.add(selectedDisplayable);
                 }
+                List<SongDisplayable> songs = new ArrayList<>();
                 for (Displayable eachDisplayable : displayableList) {
                     if (eachDisplayable instanceof TextDisplayable) {
                         ((TextDisplayable) eachDisplayable).setTheme(tp.getTheme());
@@ -103,10 +104,11 @@ public class EditThemeScheduleActionHandler implements EventHandler<ActionEvent>
                             ts.setTheme(tp.getTheme());
                         }
                         if (eachDisplayable instanceof SongDisplayable) {
-                            Utils.updateSongInBackground((SongDisplayable) eachDisplayable, true, false);
+                            songs.add((SongDisplayable) eachDisplayable);
                         }
                     }
                 }
+                Utils.updateSongsInBackground(songs, true, false);
                 QueleaApp.get().getMainWindow().getMainPanel().getPreviewPanel().refresh();
             }
             s.hide();
@@ -29,13 +29,18 @@ import javafx.stage.WindowEvent;
 import org.javafx.dialog.Dialog;
 import org.quelea.data.Schedule;
 import org.quelea.data.ScheduleSaver;
+import org.quelea.data.bible.BibleManager;
+import org.quelea.data.db.SongManager;
 import org.quelea.data.displayable.Displayable;
 import org.quelea.data.displayable.PresentationDisplayable;
 import org.quelea.data.powerpoint.OOUtils;
 import org.quelea.services.languages.LabelGrabber;
+import org.quelea.services.utils.DecodedImageCache;
+import org.quelea.services.utils.ImageManager;
 import org.quelea.services.utils.LoggerUtils;
 import org.quelea.services.utils.QueleaProperties;
 import org.quelea.services.utils.SceneInfo;
+import org.quelea.utils.TextMetricsCache;
 import org.quelea.windows.main.MainWindow;
 import org.quelea.windows.main.QueleaApp;
 import org.quelea.windows.main.toolbars.MainToolbar;
@@ -125,6 +130,15 @@ public class ExitActionHandler implements EventHandler<ActionEvent> {
             LOGGER.log(Level.INFO, "Stopping remote control server");
             QueleaApp.get().getRemoteControlServer().stop();
         }
+        LOGGER.log(Level.INFO, "Closing search indexes");
+        SongManager songManager = SongManager.getIfInitialised();
+        if (songManager != null) {
+            songManager.getIndex().close();
+        }
+        BibleManager.get().getIndex().close();
+        LOGGER.log(Level.INFO, ImageManager.INSTANCE.getSummary());
+        LOGGER.log(Level.INFO, DecodedImageCache.INSTANCE.getSummary());
+        LOGGER.log(Level.INFO, TextMetricsCache.INSTANCE.getSummary());
         if (QueleaApp.get().getMainWindow().getMainPanel().getLivePanel().getDisplayable() instanceof PresentationDisplayable) {
             LOGGER.log(Level.INFO, "Closing open PowerPoint presentations");
             PowerPointHandler.closePresentation();
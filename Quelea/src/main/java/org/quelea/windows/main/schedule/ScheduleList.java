@@ -19,6 +19,7 @@ package org.quelea.windows.main.schedule;
 
 import javafx.application.Platform;
 import javafx.beans.property.ObjectProperty;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.geometry.Pos;
 import javafx.scene.control.ListCell;
@@ -39,6 +40,7 @@ import org.quelea.data.ImageBackground;
 import org.quelea.data.Schedule;
 import org.quelea.data.ThemeDTO;
 import org.quelea.data.VideoBackground;
+import org.quelea.data.db.SongManager;
 import org.quelea.data.displayable.BiblePassage;
 import org.quelea.data.displayable.Displayable;
 import org.quelea.data.displayable.ImageDisplayable;
@@ -54,6 +56,7 @@ import org.quelea.services.utils.Utils;
 import org.quelea.utils.SongDisplayableList;
 import org.quelea.windows.library.DisplayableListCell;
 import org.quelea.windows.lyrics.LyricDrawer;
+import org.quelea.windows.main.MainPanel;
 import org.quelea.windows.main.QueleaApp;
 import org.quelea.windows.main.WordDrawer;
 import org.quelea.windows.main.actionhandlers.AddPdfActionHandler;
@@ -65,7 +68,10 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -84,6 +90,7 @@ public class ScheduleList extends StackPane {
     private final ArrayList<ListCell<Displayable>> cells = new ArrayList<>();
     private int localDragIndex = -1;
     private Displayable tempDisp = null;
+    private final Set<Displayable> removedWhileLive = Collections.newSetFromMap(new IdentityHashMap<>());
 
     /**
      * A direction; either up or down. Used for rearranging the order of items
@@ -101,6 +108,34 @@ public class ScheduleList extends StackPane {
         setAlignment(Pos.TOP_LEFT);
         listView = new ListView<>();
         listView.getSelectionModel().setSelectionMode(SelectionMode.SINGLE);
+        listView.getItems().addListener((ListChangeListener<Displayable>) change -> {
+            List<Displayable> removed = new ArrayList<>();
+            while (change.next()) {
+                //Songs in the schedule are pinned so the library doesn't release their content
+                for (Displayable displayable : change.getRemoved()) {
+                    if (displayable instanceof SongDisplayable) {
+                        ((SongDisplayable) displayable).unpin();
+                    }
+                    removed.add(displayable);
+                }
+                for (Displayable displayable : change.getAddedSubList()) {
+                    if (displayable instanceof SongDisplayable) {
+                        ((SongDisplayable) displayable).pin();
+                    }
+                    if (displayable instanceof SongDisplayable && !((SongDisplayable) displayable).isContentLoaded()) {
+                        //Load the song off the platform thread before laying it out
+                        SongManager.get().prefetch((SongDisplayable) displayable)
+                                .whenCompleteAsync((loaded, ex) -> precomputeLayout(displayable), Platform::runLater);
+                    } else {
+                        precomputeLayout(displayable);
+                    }
+                }
+            }
+            if (!removed.isEmpty()) {
+                //Items are taken out and put back when they're moved, so wait to see which have really gone
+                Platform.runLater(() -> disposeRemoved(removed));
+            }
+        });
         getChildren().add(listView);
         markerRect = new Rectangle(200, 3, Color.GRAY);
         markerRect.setVisible(false);
@@ -233,6 +268,32 @@ public class ScheduleList extends StackPane {
         });
     }
 
+    /**
+     * Lay out every text item in the schedule ahead of time, so they're ready
+     * to show after the themes they're shown in have changed.
+     */
+    public void precomputeLayouts() {
+        for (Displayable displayable : getItems()) {
+            precomputeLayout(displayable);
+        }
+    }
+
+    /**
+     * Lay out a text item in the background on the preview and live canvases,
+     * so showing it doesn't need to.
+     *
+     * @param displayable the item to lay out.
+     */
+    private static void precomputeLayout(Displayable displayable) {
+        if (!(displayable instanceof TextDisplayable) || QueleaApp.get().getMainWindow() == null
+                || QueleaApp.get().getMainWindow().getMainPanel() == null) {
+            return;
+        }
+        MainPanel mainPanel = QueleaApp.get().getMainWindow().getMainPanel();
+        mainPanel.getPreviewPanel().getLyricsPanel().precomputeLayout((TextDisplayable) displayable);
+        mainPanel.getLivePanel().getLyricsPanel().precomputeLayout((TextDisplayable) displayable);
+    }
+
     public void add(Displayable displayable) {
         if (!Platform.isFxApplicationThread()) {
             LOGGER.log(Level.WARNING, "Not on the platform thread!", new RuntimeException("DEBUG EX"));
@@ -537,10 +598,54 @@ public class ScheduleList extends StackPane {
             }
             if (d == null) {
                 LOGGER.log(Level.WARNING, "Tried to remove null from schedule?");
+            }
+            listView.itemsProperty().get().remove(selectedIndex);
+        }
+    }
+
+    /**
+     * Dispose of the given items that have been removed from the schedule,
+     * stopping any slides still being rendered for them and releasing their
+     * slides in the slide cache. Items that are back in the schedule are left
+     * alone, and those still showing on the live panel are disposed of once
+     * it moves on (see {@link #liveDisplayableChanged(Displayable)}).
+     * <p/>
+     *
+     * @param removed the items that were removed from the schedule.
+     */
+    private void disposeRemoved(List<Displayable> removed) {
+        Displayable live = QueleaApp.get().getMainWindow().getMainPanel().getLivePanel().getDisplayable();
+        Set<Displayable> disposed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Displayable d : removed) {
+            if (d == null || listView.getItems().contains(d) || !disposed.add(d)) {
+                continue;
+            }
+            if (d == live) {
+                removedWhileLive.add(d);
             } else {
                 d.dispose();
             }
-            listView.itemsProperty().get().remove(selectedIndex);
+        }
+    }
+
+    /**
+     * Dispose of any items that were removed from the schedule while they
+     * were live, now that the live panel's showing something else. Called by
+     * the live panel whenever its displayable changes.
+     * <p/>
+     *
+     * @param live the displayable now on the live panel.
+     */
+    public void liveDisplayableChanged(Displayable live) {
+        Iterator<Displayable> iter = removedWhileLive.iterator();
+        while (iter.hasNext()) {
+            Displayable d = iter.next();
+            if (d != live) {
+                iter.remove();
+                if (!listView.getItems().contains(d)) {
+                    d.dispose();
+                }
+            }
         }
     }
 
@@ -216,10 +216,12 @@ public class SchedulePanel extends BorderPane {
 
     private void updateSongTheme(ThemeDTO theme) {
         QueleaApp.get().getMainWindow().getGlobalThemeStore().setSongThemeOverride(theme);
+        scheduleList.precomputeLayouts();
     }
 
     private void updateBibleTheme(ThemeDTO theme) {
         QueleaApp.get().getMainWindow().getGlobalThemeStore().setBibleThemeOverride(theme);
+        scheduleList.precomputeLayouts();
     }
 
     public void updateScheduleDisplay() {
@@ -232,6 +232,16 @@ public class PdfPreview extends ScrollPane {
             }
             ensureVisible(selectedIndex);
         }
+        if (selectedSlide != null) {
+            if (selectedIndex < slides.length) {
+                slides[selectedIndex].prioritise();
+                slides[selectedIndex].prefetch();
+            }
+            if (selectedIndex >= 2) {
+                slides[selectedIndex - 2].prefetch();
+            }
+            selectedSlide.prioritise();
+        }
         if (fireUpdate) {
             fireSlideChangedListeners();
         }
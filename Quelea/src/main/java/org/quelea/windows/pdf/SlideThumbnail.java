@@ -18,6 +18,7 @@
  */
 package org.quelea.windows.pdf;
 
+import javafx.application.Platform;
 import javafx.scene.control.Label;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.BorderPane;
@@ -42,13 +43,16 @@ public class SlideThumbnail extends BorderPane {
     public SlideThumbnail(PdfSlide slide, int num) {
         this.num = num;
         this.slide = slide;
-        image = new ImageView(slide.getThumbnail());
+        image = new ImageView(slide.isRendered() ? slide.getThumbnail() : null);
         image.setFitWidth(QueleaProperties.get().getThumbnailSize());
         image.setPreserveRatio(true);
         image.setSmooth(true);
         image.setCache(true);
         setTop(image);
         setCenter(new Label(Integer.toString(num)));
+        if (!slide.isRendered()) {
+            slide.whenRendered(() -> Platform.runLater(() -> image.setImage(slide.getThumbnail())));
+        }
     }
 
     public void setSelected(boolean selected) {
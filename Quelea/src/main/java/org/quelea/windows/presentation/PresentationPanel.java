@@ -318,9 +318,18 @@ public class PresentationPanel extends AbstractPanel {
 
     @Override
     public void updateCanvas() {
+        final PresentationSlide slide = currentSlide;
+        if (slide != null && !slide.isRendered() && displayable != null && !displayable.getPresentation().getRenderJob().isFinished()) {
+            slide.whenRendered(() -> Platform.runLater(() -> {
+                if (currentSlide == slide) {
+                    updateCanvas();
+                }
+            }));
+            return;
+        }
         for (DisplayCanvas canvas : getCanvases()) {
-            if (currentSlide != null) {
-                drawSlide(currentSlide, canvas);
+            if (slide != null) {
+                drawSlide(slide, canvas);
             }
         }
     }
@@ -1,6 +1,7 @@
 package org.quelea.windows.timer;
 
 import java.io.File;
+import java.net.URI;
 import java.util.Calendar;
 
 import javafx.scene.image.ImageView;
@@ -20,7 +21,7 @@ import org.quelea.windows.main.DisplayCanvas;
 import org.quelea.windows.main.DisplayableDrawer;
 import org.quelea.windows.main.widgets.Timer;
 import org.quelea.utils.FXFontMetrics;
-import org.quelea.windows.video.VidDisplay;
+import org.quelea.windows.video.SharedVideo;
 
 /**
  * @author tomaszpio@gmail.com, Michael, Ben
@@ -33,11 +34,9 @@ public class TimerDrawer extends DisplayableDrawer {
     private DisplayCanvas mainCanvas;
     private DisplayCanvas stageCanvas;
     private StackPane stack;
-    private VidDisplay vidDisplay;
 
     public TimerDrawer(TimerControls controlPanel) {
         this.controlPanel = controlPanel;
-        this.vidDisplay = new VidDisplay();
     }
 
     @Override
@@ -74,22 +73,28 @@ public class TimerDrawer extends DisplayableDrawer {
             stack = new StackPane();
             StackPane.setAlignment(timer, timer.getTextPosition());
 
+            if (!(td.getTheme().getBackground() instanceof VideoBackground)) {
+                mainCanvas.releaseVideo();
+            }
             if (td.getTheme().getBackground() instanceof VideoBackground) {
                 String url = ((VideoBackground) td.getTheme().getBackground()).getVLCVidString();
                 controlPanel.loadMultimedia(((VideoBackground) td.getTheme().getBackground()).getVLCVidString(),
                         ((VideoBackground) td.getTheme().getBackground()).getStretch());
                 controlPanel.reset();
 
+                URI uri = new File(url).toURI();
+                SharedVideo video = mainCanvas.getVideo();
+                if (video == null || !video.getUri().equals(uri)) {
+                    video = SharedVideo.acquire(uri);
+                    mainCanvas.setVideo(video);
+                }
                 ImageView imageView = mainCanvas.getNewImageView();
-                imageView.imageProperty().bind(vidDisplay.imageProperty());
+                imageView.imageProperty().bind(video.imageProperty());
                 imageView.setPreserveRatio(true);
-                vidDisplay.setURI(new File(url).toURI());
-                vidDisplay.setLoop(true);
-                vidDisplay.play();
                 mainCanvas.getChildren().add(0, imageView);
             } else if (td.getTheme().getBackground() instanceof ImageBackground) {
                 ImageView imageView = mainCanvas.getNewImageView();
-                imageView.setImage(((ImageBackground) td.getTheme().getBackground()).getImage());
+                imageView.setImage(((ImageBackground) td.getTheme().getBackground()).getImage(mainCanvas.getWidth(), mainCanvas.getHeight()));
                 mainCanvas.getChildren().add(0, imageView);
             } else if (td.getTheme().getBackground() instanceof ColourBackground) {
                 ImageView imageView = mainCanvas.getNewImageView();
@@ -180,7 +185,7 @@ public class TimerDrawer extends DisplayableDrawer {
                 }
             } else if (back instanceof ImageBackground) {
                 ImageView imageView = mainCanvas.getNewImageView();
-                imageView.setImage(((ImageBackground) back).getImage());
+                imageView.setImage(((ImageBackground) back).getImage(mainCanvas.getWidth(), mainCanvas.getHeight()));
                 mainCanvas.getChildren().add(0, imageView);
             } else if (back instanceof ColourBackground) {
                 ImageView imageView = mainCanvas.getNewImageView();
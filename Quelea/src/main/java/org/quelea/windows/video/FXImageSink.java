@@ -39,6 +39,11 @@ import java.nio.ByteOrder;
 import java.nio.IntBuffer;
 import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.quelea.services.utils.LoggerUtils;
 
 /**
  * A wrapper connecting a GStreamer AppSink and a JavaFX Image, making use of
@@ -48,9 +53,17 @@ import java.util.concurrent.ArrayBlockingQueue;
  * only be used on the JavaFX application thread, and is only valid while it is
  * the current property value. Using the Image when it is no longer the current
  * property value may cause errors or crashes.
+ * <p>
+ * Only the latest frame is ever waiting to be shown. If a new frame arrives
+ * before the JavaFX thread has shown the previous one, the previous one is
+ * dropped rather than queued, so a busy JavaFX thread can't make the video
+ * fall behind its audio.
  */
 public class FXImageSink {
 
+    private static final Logger LOGGER = LoggerUtils.getLogger();
+    private static final long STATS_INTERVAL_MILLIS = 10000;
+
     private final static String DEFAULT_CAPS;
     private final static int OLD_SAMPLE_BUFFER_SIZE = 2;
 
@@ -87,6 +100,12 @@ public class FXImageSink {
     private Sample activeSample;
     private Buffer activeBuffer;
     private final Queue<Sample> oldSamples;
+    private final AtomicReference<Sample> pendingSample;
+    private final LongAdder presentedFrames;
+    private final LongAdder droppedFrames;
+    private long lastStatsTime;
+    private long lastPresented;
+    private long lastDropped;
 
     /**
      * Create an FXImageSink. A new AppSink element will be created that can be
@@ -104,17 +123,20 @@ public class FXImageSink {
     public FXImageSink(AppSink sink) {
         this.sink = sink;
         oldSamples = new ArrayBlockingQueue<>(OLD_SAMPLE_BUFFER_SIZE + 1);
+        pendingSample = new AtomicReference<>();
+        presentedFrames = new LongAdder();
+        droppedFrames = new LongAdder();
         sink.set("emit-signals", true);
         sink.connect((AppSink.NEW_SAMPLE) elem -> {
             Sample s = elem.pullSample();
             if (s == null) throw new IllegalStateException();
-            Platform.runLater(() -> updateImage(s));
+            offer(s);
             return FlowReturn.OK;
         });
         sink.connect((AppSink.NEW_PREROLL) appsink -> {
             Sample s = appsink.pullPreroll();
             if (s == null) throw new IllegalStateException();
-            Platform.runLater(() -> updateImage(s));
+            offer(s);
             return FlowReturn.OK;
         });
         sink.setCaps(Caps.fromString(DEFAULT_CAPS));
@@ -145,19 +167,75 @@ public class FXImageSink {
         return sink;
     }
 
-    long lastTs = 0;
-    int frames = 0;
+    /**
+     * Get the number of frames that have been shown.
+     *
+     * @return the number of frames shown.
+     */
+    public long getPresentedFrames() {
+        return presentedFrames.sum();
+    }
 
-    private void updateImage(Sample newSample) {
-        long ts = System.currentTimeMillis();
-        if(ts-lastTs>1000) {
-            System.out.println(frames);
-            frames = 1;
-            lastTs= ts;
+    /**
+     * Get the number of frames that were replaced by a newer frame before the
+     * JavaFX thread got round to showing them.
+     *
+     * @return the number of frames dropped.
+     */
+    public long getDroppedFrames() {
+        return droppedFrames.sum();
+    }
+
+    /**
+     * Hand a new frame over to the JavaFX thread, replacing any frame that's
+     * still waiting to be shown. An update is only scheduled if there wasn't
+     * one already pending.
+     *
+     * @param newSample the new frame.
+     */
+    private void offer(Sample newSample) {
+        Sample dropped = pendingSample.getAndSet(newSample);
+        if (dropped == null) {
+            Platform.runLater(this::presentPending);
+        } else {
+            dropped.dispose();
+            droppedFrames.increment();
         }
-        else {
-            frames++;
+    }
+
+    /**
+     * Show whichever frame is waiting to be shown, if any.
+     */
+    private void presentPending() {
+        Sample s = pendingSample.getAndSet(null);
+        if (s != null) {
+            updateImage(s);
+            presentedFrames.increment();
+            logStats();
         }
+    }
+
+    /**
+     * Log the frame counters every so often, so dropped frames show up in the
+     * debug log.
+     */
+    private void logStats() {
+        long now = System.currentTimeMillis();
+        if (now - lastStatsTime < STATS_INTERVAL_MILLIS) {
+            return;
+        }
+        long presented = presentedFrames.sum();
+        long dropped = droppedFrames.sum();
+        if (lastStatsTime != 0) {
+            LOGGER.log(Level.FINE, "Video sink {0}: {1} frames presented, {2} dropped in the last {3}ms",
+                    new Object[]{sink.getName(), presented - lastPresented, dropped - lastDropped, now - lastStatsTime});
+        }
+        lastStatsTime = now;
+        lastPresented = presented;
+        lastDropped = dropped;
+    }
+
+    private void updateImage(Sample newSample) {
         if (!Platform.isFxApplicationThread()) {
             throw new IllegalStateException("Not on FX application thread");
         }
@@ -245,6 +323,10 @@ public class FXImageSink {
             throw new IllegalStateException("Not on FX application thread");
         }
         image.set(new WritableImage(1, 1));
+        Sample pending = pendingSample.getAndSet(null);
+        if (pending != null) {
+            pending.dispose();
+        }
         if (activeBuffer != null) {
             activeBuffer.unmap();
             activeBuffer = null;
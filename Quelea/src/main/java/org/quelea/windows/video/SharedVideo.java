@@ -0,0 +1,113 @@
+/*
+ * This file is part of Quelea, free projection software for churches.
+ *
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.quelea.windows.video;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.scene.image.Image;
+import org.quelea.services.utils.LoggerUtils;
+
+/**
+ * A looping video that's decoded once however many displays show it, such as
+ * a video background on the projector, the stage view and the live preview.
+ * Every display binds to the same frame, so they all stay in step, and each
+ * scales it to its own size as it draws it.
+ * <p>
+ * Displays {@link #acquire(URI)} the video they want to show and
+ * {@link #release()} it when they no longer need it; the video's decoded for
+ * as long as at least one display is using it.
+ * <p>
+ * @author Michael
+ */
+public final class SharedVideo {
+
+    private static final Logger LOGGER = LoggerUtils.getLogger();
+    private static final Map<URI, SharedVideo> VIDEOS = new HashMap<>();
+    private final URI uri;
+    private final VidDisplay display;
+    private int users;
+
+    private SharedVideo(URI uri) {
+        this.uri = uri;
+        display = new VidDisplay();
+        display.setLoop(true);
+        display.setURI(uri);
+        display.play();
+    }
+
+    /**
+     * Start using the given video, decoding it if no other display is
+     * already showing it.
+     * <p>
+     * @param uri the URI of the video.
+     * @return the shared video. Must be released when it's no longer shown.
+     */
+    public static SharedVideo acquire(URI uri) {
+        synchronized (VIDEOS) {
+            SharedVideo video = VIDEOS.get(uri);
+            if (video == null) {
+                video = new SharedVideo(uri);
+                VIDEOS.put(uri, video);
+                LOGGER.log(Level.INFO, "Decoding shared video {0}, {1} shared videos now decoding", new Object[]{uri, VIDEOS.size()});
+            }
+            video.users++;
+            return video;
+        }
+    }
+
+    /**
+     * Stop using this video. Once no display is using it, it's stopped and its
+     * decoder released.
+     */
+    public void release() {
+        synchronized (VIDEOS) {
+            if (users == 0) {
+                return;
+            }
+            users--;
+            if (users == 0) {
+                VIDEOS.remove(uri);
+                display.dispose();
+                LOGGER.log(Level.INFO, "Stopped decoding shared video {0}, {1} shared videos now decoding", new Object[]{uri, VIDEOS.size()});
+            }
+        }
+    }
+
+    /**
+     * Get the URI of this video.
+     * <p>
+     * @return the URI of the video.
+     */
+    public URI getUri() {
+        return uri;
+    }
+
+    /**
+     * Get the current frame of this video. The same frame's shared by every
+     * display showing the video.
+     * <p>
+     * @return the property holding the current frame.
+     */
+    public ReadOnlyObjectProperty<? extends Image> imageProperty() {
+        return display.imageProperty();
+    }
+}
@@ -24,13 +24,14 @@ public class VidDisplay {
 
     private static int idCounter = 0;
 
-    private PlayBin playBin;
+    private volatile PlayBin playBin;
     private FXImageSink fxImageSink;
     private final int id;
     private boolean loop;
     private URI uri;
     private Consumer<Double> posChanged;
     private Runnable onFinished;
+    private Timeline timer;
     private static final Image BLANK_IMG;
 
     static {
@@ -49,13 +50,19 @@ public class VidDisplay {
             playBin = new PlayBin("playbin " + id);
             playBin.setVideoSink(fxImageSink.getSinkElement());
             playBin.getBus().connect((Bus.EOS) source -> {
+                if (playBin == null) {
+                    return;
+                }
                 if (loop) {
                     playBin.seekSimple(Format.TIME, EnumSet.of(SeekFlags.FLUSH), 0);
                 } else {
                     onFinished.run();
                 }
             });
-            Timeline timer = new Timeline(new KeyFrame(Duration.millis(100), e -> {
+            timer = new Timeline(new KeyFrame(Duration.millis(100), e -> {
+                if (playBin == null) {
+                    return;
+                }
                 long dur = playBin.queryDuration(Format.TIME);
                 long pos = playBin.queryPosition(Format.TIME);
                 if (dur > 0) {
@@ -94,6 +101,20 @@ public class VidDisplay {
         }
     }
 
+    /**
+     * Stop this display and release its pipeline. The display can't be used
+     * again afterwards.
+     */
+    public void dispose() {
+        if (playBin != null) {
+            timer.stop();
+            playBin.stop();
+            fxImageSink.clear();
+            playBin.dispose();
+            playBin = null;
+        }
+    }
+
     public void setURI(URI uri) {
         if (!Objects.equals(this.uri, uri)) {
             this.uri = uri;
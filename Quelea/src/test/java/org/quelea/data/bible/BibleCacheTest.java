@@ -0,0 +1,103 @@
+package org.quelea.data.bible;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.quelea.services.utils.QueleaProperties;
+import org.quelea.services.utils.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+@DisplayName("BibleCacheTest")
+public class BibleCacheTest {
+
+    @BeforeAll
+    public static void init() {
+        // the cache lives in the user's quelea directory
+        QueleaProperties.init("");
+    }
+
+    @Test
+    @DisplayName("Test Cached Bible Is Used Until The File Changes")
+    // the cache is only checked against the file's path, size and modification time, so a change that keeps all of those should still get the cached copy
+    public void testStamp() throws IOException {
+        File file = Files.createTempFile("biblecachetest", ".xml").toFile();
+        try {
+            long modified = 1_600_000_000_000L;
+            writeBible(file, "In the beginning", modified);
+            Assertions.assertEquals("In the beginning", firstVerse(BibleCache.load(file)));
+
+            // same size and time
+            writeBible(file, "At the beginning", modified);
+            Assertions.assertEquals("In the beginning", firstVerse(BibleCache.load(file)));
+
+            // same size, different time
+            writeBible(file, "At the beginning", modified + 2000);
+            Assertions.assertEquals("At the beginning", firstVerse(BibleCache.load(file)));
+            Assertions.assertEquals("At the beginning", firstVerse(BibleCache.load(file)));
+
+            // different size, same time
+            writeBible(file, "At the very beginning", modified + 2000);
+            Assertions.assertEquals("At the very beginning", firstVerse(BibleCache.load(file)));
+        } finally {
+            deleteCache(file);
+        }
+    }
+
+    @Test
+    @DisplayName("Test Unreadable Cache Is Replaced")
+    // a broken cache file should be ignored and the bible parsed again
+    public void testBrokenCache() throws IOException {
+        File file = Files.createTempFile("biblecachetest", ".xml").toFile();
+        try {
+            writeBible(file, "In the beginning", 1_600_000_000_000L);
+            Assertions.assertEquals("In the beginning", firstVerse(BibleCache.load(file)));
+            File[] cacheFiles = getCacheFiles(file);
+            Assertions.assertEquals(1, cacheFiles.length);
+            Files.write(cacheFiles[0].toPath(), new byte[]{0, 0, 0, 1, 0, 0});
+            Assertions.assertEquals("In the beginning", firstVerse(BibleCache.load(file)));
+            Assertions.assertEquals("In the beginning", firstVerse(BibleCache.load(file)));
+        } finally {
+            deleteCache(file);
+        }
+    }
+
+    @Test
+    @DisplayName("Test Missing Bible")
+    public void testMissing() throws IOException {
+        File file = Files.createTempFile("biblecachetest", ".xml").toFile();
+        Assertions.assertTrue(file.delete());
+        Assertions.assertNull(BibleCache.load(file));
+        Assertions.assertEquals(0, getCacheFiles(file).length);
+    }
+
+    private static void writeBible(File file, String verse, long modified) throws IOException {
+        String xml = "<XMLBIBLE biblename=\"Test\"><BIBLEBOOK bnumber=\"1\" bname=\"Genesis\">"
+                + "<CHAPTER cnumber=\"1\"><VERS vnumber=\"1\">" + verse + "</VERS></CHAPTER>"
+                + "</BIBLEBOOK></XMLBIBLE>";
+        Files.write(file.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+        Assertions.assertTrue(file.setLastModified(modified));
+    }
+
+    private static String firstVerse(Bible bible) {
+        Assertions.assertNotNull(bible);
+        return bible.getBooks()[0].getChapter(0).getVerse(1).getVerseText();
+    }
+
+    private static File[] getCacheFiles(File file) {
+        String prefix = Utils.getFileNameWithoutExtension(file.getName()) + "-";
+        File[] ret = QueleaProperties.get().getBibleCacheDir().listFiles((dir, name) -> name.startsWith(prefix));
+        return ret == null ? new File[0] : ret;
+    }
+
+    private static void deleteCache(File file) {
+        for (File cacheFile : getCacheFiles(file)) {
+            cacheFile.delete();
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,96 @@
+package org.quelea.data.db;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.quelea.data.displayable.SongDisplayable;
+import org.quelea.services.utils.QueleaProperties;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@DisplayName("SongSortIndexTest")
+public class SongSortIndexTest {
+
+    @BeforeAll
+    public static void init() {
+        // songs are given the default theme, which needs the properties
+        QueleaProperties.init("");
+    }
+
+    @Test
+    @DisplayName("Test Songs Are Sorted")
+    public void testGetSongs() {
+        SongDisplayable amazing = song("Amazing Grace", "John Newton", 1);
+        SongDisplayable abide = song("Abide With Me", "Henry Lyte", 2);
+        SongDisplayable be = song("Be Thou My Vision", null, 3);
+        SongSortIndex index = new SongSortIndex(Arrays.asList(amazing, be, abide));
+        Assertions.assertArrayEquals(new SongDisplayable[]{abide, amazing, be}, index.getSongs());
+    }
+
+    @Test
+    @DisplayName("Test Equal Songs Are Collapsed")
+    // two copies of the same song compare equal, so only one should be kept, but songs that only share a title and author are different songs
+    public void testCollapseEqual() {
+        SongDisplayable amazing = song("Amazing Grace", "John Newton", 1);
+        SongDisplayable copy = new SongDisplayable(amazing);
+        SongDisplayable other = song("Amazing Grace", "John Newton", 5);
+        SongDisplayable abide = song("Abide With Me", "Henry Lyte", 2);
+        SongSortIndex index = new SongSortIndex(Arrays.asList(other, copy, abide, amazing));
+
+        SongDisplayable[] songs = index.getSongs();
+        Assertions.assertEquals(3, songs.length);
+        Assertions.assertSame(abide, songs[0]);
+        Assertions.assertEquals(1, songs[1].getID());
+        Assertions.assertSame(other, songs[2]);
+
+        // the copy shares the position of the song that was kept
+        Assertions.assertEquals(0, index.comparator().compare(amazing, copy));
+        List<SongDisplayable> sorted = index.sort(Arrays.asList(other, amazing, copy));
+        Assertions.assertEquals(2, sorted.size());
+        Assertions.assertEquals(1, sorted.get(0).getID());
+        Assertions.assertSame(other, sorted.get(1));
+    }
+
+    @Test
+    @DisplayName("Test Songs Missing From The Index")
+    // songs added since the index was built come after the rest, in their natural order
+    public void testMissingSongs() {
+        SongDisplayable be = song("Be Thou My Vision", null, 3);
+        SongDisplayable crown = song("Crown Him With Many Crowns", "Matthew Bridges", 4);
+        SongSortIndex index = new SongSortIndex(Arrays.asList(crown, be));
+
+        SongDisplayable abide = song("Abide With Me", "Henry Lyte", 2);
+        SongDisplayable amazing = song("Amazing Grace", "John Newton", 1);
+        SongDisplayable amazingCopy = new SongDisplayable(amazing);
+        List<SongDisplayable> toSort = new ArrayList<>(Arrays.asList(amazing, crown, abide, be, amazingCopy));
+        Collections.reverse(toSort);
+        List<SongDisplayable> sorted = index.sort(toSort);
+        Assertions.assertEquals(4, sorted.size());
+        Assertions.assertSame(be, sorted.get(0));
+        Assertions.assertSame(crown, sorted.get(1));
+        Assertions.assertSame(abide, sorted.get(2));
+        Assertions.assertEquals(1, sorted.get(3).getID());
+
+        Assertions.assertTrue(index.comparator().compare(crown, abide) < 0);
+        Assertions.assertTrue(index.comparator().compare(abide, be) > 0);
+        Assertions.assertTrue(index.comparator().compare(abide, amazing) < 0);
+        Assertions.assertEquals(0, index.comparator().compare(amazing, amazingCopy));
+    }
+
+    @Test
+    @DisplayName("Test Empty Index")
+    public void testEmpty() {
+        SongSortIndex index = new SongSortIndex(Collections.emptyList());
+        Assertions.assertEquals(0, index.getSongs().length);
+        SongDisplayable amazing = song("Amazing Grace", "John Newton", 1);
+        Assertions.assertEquals(Collections.singletonList(amazing), index.sort(Collections.singletonList(amazing)));
+    }
+
+    private static SongDisplayable song(String title, String author, long id) {
+        return new SongDisplayable.Builder(title, author).id(id).get();
+    }
+}
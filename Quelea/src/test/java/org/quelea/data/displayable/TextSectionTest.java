@@ -0,0 +1,109 @@
+package org.quelea.data.displayable;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.quelea.services.utils.LineTypeChecker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@DisplayName("TextSectionTest")
+public class TextSectionTest {
+
+    private static final String[] LINES = {
+        "Verse 1",
+        "G        C       G",
+        "Amazing grace, how sweet the sound",
+        "G              D",
+        "That saved a wretch__ like me   ",
+        "I once was lost //lyrics",
+        "but now am found",
+        "G  D  G //chords",
+        "Was blind but now I see //title",
+        "A__men  ",
+        "",
+        "Em   Am7   D/F#",
+        "(repeat) sing it again//lyrics   ",
+    };
+
+    @Test
+    @DisplayName("Test Text Matches Every View")
+    // each combination of chords and comments should give what working it out line by line did
+    public void testGetTextMatchesOldText() {
+        TextSection section = new TextSection("Verse", LINES, null, false);
+        for (boolean chords : new boolean[]{true, false}) {
+            for (boolean comments : new boolean[]{true, false}) {
+                Assertions.assertArrayEquals(oldGetText(LINES, chords, comments), section.getText(chords, comments),
+                        "chords=" + chords + ", comments=" + comments);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test Text Is The Same Each Time")
+    // the views are cached, so asking again, in any order, shouldn't change them
+    public void testGetTextRepeated() {
+        TextSection section = new TextSection("Verse", LINES, null, false);
+        String[] lyrics = section.getText(false, false);
+        section.getText(true, true);
+        section.getText(true, false);
+        Assertions.assertArrayEquals(lyrics, section.getText(false, false));
+        Assertions.assertArrayEquals(oldGetText(LINES, true, true), new TextSection(section).getText(true, true));
+    }
+
+    @Test
+    @DisplayName("Test Text Can't Be Changed By Callers")
+    public void testGetTextCopied() {
+        TextSection section = new TextSection("Verse", LINES, null, false);
+        String[] text = section.getText(true, false);
+        text[0] = "Changed";
+        Assertions.assertEquals("Verse 1", section.getText(true, false)[0]);
+    }
+
+    @Test
+    @DisplayName("Test Chords")
+    public void testHasChords() {
+        Assertions.assertTrue(new TextSection("Verse", LINES, null, false).hasChords());
+        Assertions.assertFalse(new TextSection("Verse", new String[]{"Amazing grace", "how sweet the sound"}, null, false).hasChords());
+    }
+
+    @Test
+    @DisplayName("Test Upper Case Comments")
+    // these used to throw, since the comment was only looked for in lower case
+    public void testUpperCaseComment() {
+        TextSection section = new TextSection("Verse", new String[]{"Amazing grace //LYRICS"}, null, false);
+        Assertions.assertArrayEquals(new String[]{"Amazing grace "}, section.getText(false, false));
+        Assertions.assertArrayEquals(new String[]{"Amazing grace //LYRICS"}, section.getText(false, true));
+    }
+
+    /**
+     * Get the text the way it was done before the views were cached, working
+     * out each line's type and stripping its comments on every call.
+     */
+    private static String[] oldGetText(String[] lines, boolean chords, boolean comments) {
+        List<String> ret = new ArrayList<>();
+        for (String line : lines) {
+            if (chords) {
+                ret.add(comments ? line : oldRemoveComments(line));
+            } else if (new LineTypeChecker(line).getLineType() != LineTypeChecker.Type.CHORDS) {
+                ret.add((comments ? line : oldRemoveComments(line)).replace("_", ""));
+            }
+        }
+        return ret.toArray(new String[0]);
+    }
+
+    private static String oldRemoveComments(String line) {
+        int end = line.length();
+        while (end > 0 && line.charAt(end - 1) == ' ') {
+            end--;
+        }
+        line = line.substring(0, end);
+        for (String comment : new String[]{"//lyrics", "//chords", "//title"}) {
+            if (line.toLowerCase().endsWith(comment)) {
+                return line.substring(0, line.indexOf(comment));
+            }
+        }
+        return line;
+    }
+}
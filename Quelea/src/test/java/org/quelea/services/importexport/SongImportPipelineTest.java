@@ -0,0 +1,176 @@
+package org.quelea.services.importexport;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.quelea.data.displayable.SongDisplayable;
+import org.quelea.services.utils.QueleaProperties;
+import org.quelea.windows.main.StatusPanel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+@DisplayName("SongImportPipelineTest")
+public class SongImportPipelineTest {
+
+    private static final List<File> FILES = Arrays.asList(new File("one.xml"), new File("two.xml"), new File("bad.xml"), new File("three.xml"));
+
+    @BeforeAll
+    public static void init() {
+        // songs are given the default theme, which needs the properties
+        QueleaProperties.init("");
+    }
+
+    @Test
+    @DisplayName("Test Every Song Is Imported")
+    public void testImport() throws InterruptedException {
+        Recorder recorder = new Recorder(song -> {
+        });
+        run(new SongImportPipeline(parser(50, null), FILES, null, false), recorder);
+        Assertions.assertEquals(1, recorder.finished.get());
+        Assertions.assertFalse(recorder.failed);
+        Assertions.assertEquals(200, recorder.count);
+        Assertions.assertEquals(200, recorder.titles().size());
+    }
+
+    @Test
+    @DisplayName("Test A File That Can't Be Read")
+    // the import should carry on with the other files, but say it failed
+    public void testFailingFile() throws InterruptedException {
+        Recorder recorder = new Recorder(song -> {
+        });
+        run(new SongImportPipeline(parser(50, "bad.xml"), FILES, null, false), recorder);
+        Assertions.assertEquals(1, recorder.finished.get());
+        Assertions.assertTrue(recorder.failed);
+        Assertions.assertEquals(150, recorder.count);
+        Set<String> titles = recorder.titles();
+        Assertions.assertEquals(150, titles.size());
+        Assertions.assertTrue(titles.contains("three.xml 49"));
+        Assertions.assertFalse(titles.contains("bad.xml 0"));
+    }
+
+    @Test
+    @DisplayName("Test Cancelling Part Way Through")
+    // far more songs than the queue holds, so the parsers are held back waiting when it's cancelled
+    public void testCancel() throws InterruptedException {
+        SongImportPipeline[] pipeline = new SongImportPipeline[1];
+        AtomicInteger imported = new AtomicInteger();
+        Recorder recorder = new Recorder(song -> {
+            if (imported.incrementAndGet() == 10) {
+                pipeline[0].cancel();
+            }
+        });
+        pipeline[0] = new SongImportPipeline(parser(5000, null), FILES, null, false);
+        run(pipeline[0], recorder);
+        Assertions.assertTrue(pipeline[0].isCancelled());
+        Assertions.assertEquals(1, recorder.finished.get());
+        Assertions.assertFalse(recorder.failed);
+        Assertions.assertTrue(recorder.count < 20000, "Imported " + recorder.count + " songs");
+        Assertions.assertTrue(recorder.titles().size() <= recorder.count);
+    }
+
+    @Test
+    @DisplayName("Test Cancelling Before Running")
+    public void testCancelBeforeRun() throws InterruptedException {
+        Recorder recorder = new Recorder(song -> Assertions.fail("Nothing should be imported"));
+        SongImportPipeline pipeline = new SongImportPipeline(parser(50, null), FILES, null, false);
+        pipeline.cancel();
+        run(pipeline, recorder);
+        Assertions.assertEquals(1, recorder.finished.get());
+        Assertions.assertFalse(recorder.failed);
+        Assertions.assertEquals(0, recorder.count);
+    }
+
+    @Test
+    @DisplayName("Test Songs That Can't Be Passed On")
+    // if the listener fails every time, the checkers all stop and the parsers shouldn't wait for them forever
+    public void testFailingListener() throws InterruptedException {
+        Recorder recorder = new Recorder(song -> {
+            throw new IllegalStateException("Couldn't add " + song.getTitle());
+        });
+        run(new SongImportPipeline(parser(5000, null), FILES, null, false), recorder);
+        Assertions.assertEquals(1, recorder.finished.get());
+        Assertions.assertTrue(recorder.failed);
+    }
+
+    /**
+     * Run an import, failing rather than hanging if it doesn't finish.
+     */
+    private static void run(SongImportPipeline pipeline, Recorder recorder) throws InterruptedException {
+        Thread thread = new Thread(() -> pipeline.run(recorder));
+        thread.setDaemon(true);
+        thread.start();
+        thread.join(30_000);
+        Assertions.assertFalse(thread.isAlive(), "Import didn't finish");
+    }
+
+    /**
+     * A parser that makes up the given number of songs for each file, named
+     * after the file, and can't read the file with the given name.
+     */
+    private static SongParser parser(int songs, String badFile) {
+        return new SongParser() {
+            @Override
+            public List<SongDisplayable> getSongs(File location, StatusPanel statusPanel) throws IOException {
+                List<SongDisplayable> ret = new ArrayList<>();
+                getSongs(location, statusPanel, ret::add);
+                return ret;
+            }
+
+            @Override
+            public void getSongs(File location, StatusPanel statusPanel, Consumer<SongDisplayable> consumer) throws IOException {
+                if (location.getName().equals(badFile)) {
+                    throw new IOException("Couldn't read " + location);
+                }
+                for (int i = 0; i < songs; i++) {
+                    consumer.accept(new SongDisplayable(location.getName() + " " + i, "Author"));
+                }
+            }
+        };
+    }
+
+    private static final class Recorder implements SongImportPipeline.Listener {
+
+        private final Consumer<SongDisplayable> onSong;
+        private final Queue<SongDisplayable> songs = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger finished = new AtomicInteger();
+        private volatile int count;
+        private volatile boolean failed;
+
+        private Recorder(Consumer<SongDisplayable> onSong) {
+            this.onSong = onSong;
+        }
+
+        @Override
+        public void songImported(SongDisplayable song, boolean duplicate) {
+            Assertions.assertFalse(duplicate);
+            songs.add(song);
+            onSong.accept(song);
+        }
+
+        @Override
+        public void importFinished(int count, boolean failed) {
+            this.count = count;
+            this.failed = failed;
+            finished.incrementAndGet();
+        }
+
+        private Set<String> titles() {
+            Set<String> ret = new HashSet<>();
+            for (SongDisplayable song : songs) {
+                ret.add(song.getTitle());
+            }
+            return ret;
+        }
+    }
+}
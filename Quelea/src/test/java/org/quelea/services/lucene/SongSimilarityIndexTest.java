@@ -0,0 +1,147 @@
+package org.quelea.services.lucene;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+@DisplayName("SongSimilarityIndexTest")
+public class SongSimilarityIndexTest {
+
+    private static final int SONGS = 200;
+
+    @Test
+    @DisplayName("Test Same Lyrics Are Found")
+    // punctuation, spacing and capitalisation don't count, so these should always be found
+    public void testFindSame() {
+        SplittableRandom random = new SplittableRandom(1);
+        SongSimilarityIndex index = new SongSimilarityIndex();
+        String lyrics = randomLyrics(random);
+        index.put(7, SongSimilarityIndex.Entry.of(lyrics));
+        Assertions.assertEquals(7, index.findSimilar(lyrics));
+        Assertions.assertEquals(7, index.findSimilar(lyrics.toUpperCase()));
+        Assertions.assertEquals(7, index.findSimilar(lyrics.replace(",", "").replace("\n", "  ")));
+    }
+
+    @Test
+    @DisplayName("Test Different Lyrics Aren't Found")
+    public void testFindDifferent() {
+        SplittableRandom random = new SplittableRandom(2);
+        SongSimilarityIndex index = new SongSimilarityIndex();
+        String lyrics = randomLyrics(random);
+        index.put(1, SongSimilarityIndex.Entry.of(lyrics));
+        Assertions.assertEquals(-1, index.findSimilar(randomLyrics(random)));
+        // a quarter of the letters changed is too far apart to be similar, even if it shares a bucket
+        Assertions.assertEquals(-1, index.findSimilar(edit(lyrics, 4, random)));
+        Assertions.assertEquals(-1, new SongSimilarityIndex().findSimilar(lyrics));
+    }
+
+    @Test
+    @DisplayName("Test Similar Lyrics Are Found At The Threshold")
+    // a tenth of the letters changed, spread out so as many shingles as possible are broken, is the hardest case that should still be found
+    public void testFindSimilarAtThreshold() {
+        SplittableRandom random = new SplittableRandom(3);
+        SongSimilarityIndex index = new SongSimilarityIndex();
+        List<String> songs = new ArrayList<>();
+        for (int i = 0; i < SONGS; i++) {
+            String lyrics = randomLyrics(random);
+            songs.add(lyrics);
+            index.put(i, SongSimilarityIndex.Entry.of(lyrics));
+        }
+        int found = 0;
+        for (int i = 0; i < SONGS; i++) {
+            long similar = index.findSimilar(edit(songs.get(i), 10, random));
+            if (similar == i) {
+                found++;
+            } else {
+                Assertions.assertEquals(-1, similar, "Song " + i + " matched the wrong song");
+            }
+        }
+        Assertions.assertTrue(found >= SONGS * 0.9, "Only found " + found + " of " + SONGS);
+    }
+
+    @Test
+    @DisplayName("Test Buckets Are Kept Up To Date")
+    // every song is in one bucket per band, and empty buckets shouldn't be left behind
+    public void testPutRemove() {
+        SplittableRandom random = new SplittableRandom(4);
+        SongSimilarityIndex index = new SongSimilarityIndex();
+        String lyrics = randomLyrics(random);
+        index.put(1, SongSimilarityIndex.Entry.of(lyrics));
+        Assertions.assertEquals(1, index.size());
+        Assertions.assertEquals(32, index.bucketCount());
+
+        // the same lyrics share all their buckets
+        index.put(2, SongSimilarityIndex.Entry.of(lyrics));
+        Assertions.assertEquals(2, index.size());
+        Assertions.assertEquals(32, index.bucketCount());
+
+        // replacing a song's lyrics should move it out of its old buckets
+        String other = randomLyrics(random);
+        index.put(2, SongSimilarityIndex.Entry.of(other));
+        Assertions.assertEquals(2, index.size());
+        Assertions.assertEquals(2, index.findSimilar(other));
+        index.remove(1);
+        Assertions.assertEquals(1, index.size());
+        Assertions.assertEquals(32, index.bucketCount());
+        Assertions.assertEquals(-1, index.findSimilar(lyrics));
+
+        index.remove(2);
+        index.remove(3);
+        Assertions.assertEquals(0, index.size());
+        Assertions.assertEquals(0, index.bucketCount());
+        Assertions.assertEquals(-1, index.findSimilar(other));
+    }
+
+    @Test
+    @DisplayName("Test Stored Entries")
+    public void testFromStored() {
+        SongSimilarityIndex.Entry entry = SongSimilarityIndex.Entry.of("Amazing Grace, how sweet the sound");
+        Assertions.assertEquals("amazinggracehowsweetthesound", entry.getLyrics());
+        SongSimilarityIndex.Entry stored = SongSimilarityIndex.Entry.fromStored(entry.getLyrics(), entry.getSignatureBytes());
+        Assertions.assertArrayEquals(entry.getSignatureBytes(), stored.getSignatureBytes());
+        Assertions.assertNull(SongSimilarityIndex.Entry.fromStored(entry.getLyrics(), new byte[3]));
+    }
+
+    /**
+     * Make up some lyrics, a few lines of random words.
+     */
+    private static String randomLyrics(SplittableRandom random) {
+        StringBuilder ret = new StringBuilder();
+        int lines = random.nextInt(8, 24);
+        for (int line = 0; line < lines; line++) {
+            int words = random.nextInt(3, 8);
+            for (int word = 0; word < words; word++) {
+                int length = random.nextInt(2, 9);
+                for (int i = 0; i < length; i++) {
+                    ret.append((char) ('a' + random.nextInt(26)));
+                }
+                ret.append(word == words - 1 ? ",\n" : " ");
+            }
+        }
+        return ret.toString();
+    }
+
+    /**
+     * Change one letter in every so many, at a random place in each stretch of
+     * that many letters, to a different letter.
+     */
+    private static String edit(String lyrics, int every, SplittableRandom random) {
+        StringBuilder ret = new StringBuilder(lyrics);
+        List<Integer> letters = new ArrayList<>();
+        for (int i = 0; i < ret.length(); i++) {
+            if (Character.isLetter(ret.charAt(i))) {
+                letters.add(i);
+            }
+        }
+        for (int start = 0; start + every <= letters.size(); start += every) {
+            int pos = letters.get(start + random.nextInt(every));
+            char c = ret.charAt(pos);
+            ret.setCharAt(pos, (char) ('a' + (c - 'a' + 1 + random.nextInt(25)) % 26));
+        }
+        return ret.toString();
+    }
+}
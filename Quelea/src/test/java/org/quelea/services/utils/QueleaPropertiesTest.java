@@ -21,6 +21,8 @@ public class QueleaPropertiesTest {
         QueleaProperties.init("");
         // trigger a properties write
         QueleaProperties.get().setCheckUpdate(true);
+        // writes are batched up in the background, so make sure this one's happened
+        QueleaProperties.get().flush();
         // read the properties file
         Scanner scanner = new Scanner(new File(QueleaProperties.get().getQueleaUserHome(), "quelea.properties"));
         ArrayList<String> propertyKeys = new ArrayList<>();
@@ -31,6 +33,8 @@ public class QueleaPropertiesTest {
                 propertyKeys.add(line.split("=")[0]);
             }
         }
+        // make sure there's something to check
+        Assertions.assertFalse(propertyKeys.isEmpty());
         // make a copy of key properties
         ArrayList<String> propertyKeysSorted = new ArrayList<>(propertyKeys);
         // sort the copy
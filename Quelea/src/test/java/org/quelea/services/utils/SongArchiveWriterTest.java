@@ -0,0 +1,119 @@
+package org.quelea.services.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.quelea.data.displayable.SongDisplayable;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+@DisplayName("SongArchiveWriterTest")
+public class SongArchiveWriterTest {
+
+    @BeforeAll
+    public static void init() {
+        // songs are given the default theme, which needs the properties
+        QueleaProperties.init("");
+    }
+
+    @Test
+    @DisplayName("Test Songs Are Written In Order")
+    // songs are serialised in parallel, and some take longer than others, but the entries should still come out in the order given
+    public void testOrder() throws IOException {
+        List<SongDisplayable> songs = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            // count down, so the order given isn't the natural order of the titles
+            String title = "Song " + (1000 - i);
+            songs.add(new SongDisplayable(title, "Author"));
+            expected.add(title + ".xml");
+            if (i % 50 == 0) {
+                songs.add(new SongDisplayable(title, "Another Author"));
+                expected.add(title + "(2).xml");
+            }
+        }
+        File file = Files.createTempFile("songarchivetest", ".zip").toFile();
+        try {
+            SongArchiveWriter.write(file, songs, (song, writer) -> {
+                if (song.getTitle().hashCode() % 3 == 0) {
+                    sleep();
+                }
+                writer.writeStartDocument();
+                writer.writeStartElement("song");
+                writer.writeAttribute("title", song.getTitle());
+                writer.writeAttribute("author", song.getAuthor());
+                writer.writeEndElement();
+            }, null);
+
+            List<String> names = new ArrayList<>();
+            try (ZipInputStream zis = new ZipInputStream(new FileInputStream(file), StandardCharsets.UTF_8)) {
+                ZipEntry entry;
+                while ((entry = zis.getNextEntry()) != null) {
+                    SongDisplayable song = songs.get(names.size());
+                    String xml = new String(zis.readAllBytes(), StandardCharsets.UTF_8);
+                    Assertions.assertTrue(xml.contains("title=\"" + song.getTitle() + "\""), xml);
+                    Assertions.assertTrue(xml.contains("author=\"" + song.getAuthor() + "\""), xml);
+                    names.add(entry.getName());
+                }
+            }
+            Assertions.assertEquals(expected, names);
+            for (SongDisplayable song : songs) {
+                Assertions.assertFalse(song.isPinned(), song.getTitle() + " was left pinned");
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    @DisplayName("Test A Song That Can't Be Written Stops The Export")
+    // the file shouldn't be left with songs missing, and songs well after the one that failed shouldn't be written at all
+    public void testFailure() throws IOException {
+        List<SongDisplayable> songs = new ArrayList<>();
+        int total = Runtime.getRuntime().availableProcessors() * 4 + 500;
+        for (int i = 0; i < total; i++) {
+            songs.add(new SongDisplayable("Song " + i, "Author"));
+        }
+        Set<String> serialised = ConcurrentHashMap.newKeySet();
+        File file = Files.createTempFile("songarchivetest", ".zip").toFile();
+        try {
+            IOException ex = Assertions.assertThrows(IOException.class, () -> SongArchiveWriter.write(file, songs, (song, writer) -> {
+                serialised.add(song.getTitle());
+                if (song.getTitle().equals("Song 50")) {
+                    throw new XMLStreamException("Couldn't write " + song.getTitle());
+                }
+                writer.writeStartDocument();
+                writer.writeEmptyElement("song");
+            }, null));
+            Assertions.assertTrue(ex.getCause() instanceof XMLStreamException);
+            Assertions.assertFalse(file.exists());
+            Assertions.assertTrue(serialised.contains("Song 50"));
+            Assertions.assertFalse(serialised.contains("Song " + (total - 1)));
+            for (SongDisplayable song : songs) {
+                Assertions.assertFalse(song.isPinned(), song.getTitle() + " was left pinned");
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(2);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
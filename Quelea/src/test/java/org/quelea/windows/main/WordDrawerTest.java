@@ -0,0 +1,157 @@
+package org.quelea.windows.main;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoublePredicate;
+
+@DisplayName("WordDrawerTest")
+public class WordDrawerTest {
+
+    @Test
+    @DisplayName("Test Font Size When Nothing Fits")
+    // a single line that's too long to fit at any size
+    public void testSearchFontSizeNothingFits() {
+        Assertions.assertEquals(1, WordDrawer.searchFontSize(40, size -> false));
+    }
+
+    @Test
+    @DisplayName("Test Font Size When Everything Fits")
+    // an empty section fits at any size, so should get the biggest one
+    public void testSearchFontSizeEverythingFits() {
+        Assertions.assertEquals(40, WordDrawer.searchFontSize(40, size -> true));
+    }
+
+    @Test
+    @DisplayName("Test Font Size When Only The Biggest Size Fits")
+    public void testSearchFontSizeFitsAtMax() {
+        Assertions.assertEquals(40, WordDrawer.searchFontSize(40, size -> size <= 40));
+    }
+
+    @Test
+    @DisplayName("Test Font Size When Only The Smallest Size Fits")
+    public void testSearchFontSizeFitsAtMin() {
+        Assertions.assertEquals(1, WordDrawer.searchFontSize(40, size -> size <= 1));
+        // sizes step down from the maximum, so the smallest one tried isn't always 1
+        Assertions.assertEquals(1.25, WordDrawer.searchFontSize(40.25, size -> size <= 1.25));
+    }
+
+    @Test
+    @DisplayName("Test Font Size Between The Limits")
+    public void testSearchFontSizeFitsInBetween() {
+        Assertions.assertEquals(17.5, WordDrawer.searchFontSize(40, size -> size <= 17.5));
+        // the fitting size isn't one of the steps, so the next step down should be picked
+        Assertions.assertEquals(17, WordDrawer.searchFontSize(40, size -> size <= 17.3));
+        Assertions.assertEquals(39.5, WordDrawer.searchFontSize(40, size -> size < 40));
+        Assertions.assertEquals(1.5, WordDrawer.searchFontSize(40, size -> size <= 1.5));
+    }
+
+    @Test
+    @DisplayName("Test Font Size With A Maximum Of 1 Or Less")
+    public void testSearchFontSizeTinyMax() {
+        Assertions.assertEquals(1, WordDrawer.searchFontSize(1, size -> false));
+        Assertions.assertEquals(0.5, WordDrawer.searchFontSize(0.5, size -> true));
+    }
+
+    @Test
+    @DisplayName("Test Font Size Search Is Binary")
+    // there are 79 sizes between 40 and 1, so a binary search needs far fewer tests than that
+    public void testSearchFontSizeTestCount() {
+        AtomicInteger tests = new AtomicInteger();
+        double size = WordDrawer.searchFontSize(40, s -> {
+            tests.incrementAndGet();
+            return s <= 23;
+        });
+        Assertions.assertEquals(23, size);
+        Assertions.assertTrue(tests.get() <= 9, "Tested " + tests.get() + " sizes");
+    }
+
+    @Test
+    @DisplayName("Test Font Size Search Matches Stepping Down")
+    // every section of the sample songs, fitted into a range of spaces, should get the same size the old half point steps picked
+    public void testSearchFontSizeMatchesSteps() throws IOException {
+        List<List<String>> sections = readSections("hymns.txt");
+        Assertions.assertFalse(sections.isEmpty());
+        for (List<String> section : sections) {
+            for (double max : new double[]{10, 24.5, 48, 72, 100.25}) {
+                for (double width : new double[]{300, 800, 1920}) {
+                    for (double height : new double[]{150, 600, 1080}) {
+                        DoublePredicate heightFits = size -> (size * 1.2 + 4) * section.size() <= height;
+                        DoublePredicate widthFits = size -> longestLine(section, size) <= width;
+                        Assertions.assertEquals(stepFontSize(max, heightFits, widthFits),
+                                WordDrawer.searchFontSize(max, size -> heightFits.test(size) && widthFits.test(size)),
+                                "Fitting \"" + section.get(0) + "\" at " + max + " into " + width + "x" + height);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Pick a font size the way it was done before the binary search: step
+     * down half a point at a time until the text fits the height, and then
+     * until it fits the width.
+     */
+    private static double stepFontSize(double max, DoublePredicate heightFits, DoublePredicate widthFits) {
+        double size = max;
+        while (!heightFits.test(size)) {
+            size -= 0.5;
+            if (size < 1) {
+                return 1;
+            }
+        }
+        while (!widthFits.test(size)) {
+            size -= 0.5;
+            if (size < 1) {
+                return 1;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Measure the longest line with made up character widths that scale with
+     * the size, rounded down to a whole pixel as the drawer does.
+     */
+    private static int longestLine(List<String> lines, double size) {
+        int longest = 0;
+        for (String line : lines) {
+            double width = 0;
+            for (char c : line.toCharArray()) {
+                width += (0.35 + (c % 5) * 0.08) * size;
+            }
+            longest = Math.max(longest, (int) width);
+        }
+        return longest;
+    }
+
+    private List<List<String>> readSections(String resource) throws IOException {
+        List<List<String>> sections = new ArrayList<>();
+        List<String> section = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(getClass().getResourceAsStream(resource), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    if (!section.isEmpty()) {
+                        sections.add(section);
+                    }
+                    section = new ArrayList<>();
+                } else {
+                    section.add(line);
+                }
+            }
+        }
+        if (!section.isEmpty()) {
+            sections.add(section);
+        }
+        return sections;
+    }
+}